@@ -0,0 +1,99 @@
+package com.github.kaiwinter.rhapsody.api;
+
+/**
+ * Counters of the album lookup batching and the distribution of the batch sizes, see
+ * {@link RhapsodySdkWrapper#setAlbumBatching(long, java.util.concurrent.TimeUnit, int)}.
+ */
+public final class AlbumBatchStatistics {
+   private final long lookups;
+   private final long duplicates;
+   private final long[] batchSizes;
+
+   AlbumBatchStatistics(long lookups, long duplicates, long[] batchSizes) {
+      this.lookups = lookups;
+      this.duplicates = duplicates;
+      this.batchSizes = batchSizes;
+   }
+
+   /**
+    * Returns the number of albums which were looked up through the batching.
+    *
+    * @return the number of lookups
+    */
+   public long getLookups() {
+      return lookups;
+   }
+
+   /**
+    * Returns the number of lookups of an album which was already in the same batch.
+    *
+    * @return the number of merged lookups
+    */
+   public long getDuplicates() {
+      return duplicates;
+   }
+
+   /**
+    * Returns the number of requests which were sent.
+    *
+    * @return the number of batches
+    */
+   public long getBatches() {
+      long batches = 0;
+      for (long count : batchSizes) {
+         batches += count;
+      }
+      return batches;
+   }
+
+   /**
+    * Returns the number of requests which were sent with the given number of albums.
+    *
+    * @param size
+    *           the number of albums, between 1 and the maximum batch size
+    * @return the number of batches of this size
+    */
+   public long getBatches(int size) {
+      return size < 0 || size >= batchSizes.length ? 0 : batchSizes[size];
+   }
+
+   /**
+    * Returns the average number of albums per request.
+    *
+    * @return the mean batch size, 0 if no request was sent
+    */
+   public double getMeanBatchSize() {
+      long batches = 0;
+      long albums = 0;
+      for (int size = 0; size < batchSizes.length; size++) {
+         batches += batchSizes[size];
+         albums += size * batchSizes[size];
+      }
+      return batches == 0 ? 0 : (double) albums / batches;
+   }
+
+   /**
+    * Returns the batch size which the given share of the requests didn't exceed.
+    *
+    * @param percentile
+    *           the share between 0 and 1, e.g. 0.5 for the median
+    * @return the batch size, 0 if no request was sent
+    */
+   public int getBatchSizePercentile(double percentile) {
+      long rank = (long) Math.ceil(percentile * getBatches());
+      long seen = 0;
+      for (int size = 1; size < batchSizes.length; size++) {
+         seen += batchSizes[size];
+         if (seen > 0 && seen >= rank) {
+            return size;
+         }
+      }
+      return 0;
+   }
+
+   @Override
+   public String toString() {
+      return String.format("lookups=%d, duplicates=%d, batches=%d, mean size=%.1f, p50=%d, p99=%d", lookups,
+         duplicates, getBatches(), getMeanBatchSize(), getBatchSizePercentile(0.5), getBatchSizePercentile(0.99));
+   }
+}
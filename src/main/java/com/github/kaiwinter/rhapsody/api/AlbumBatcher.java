@@ -0,0 +1,313 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.kaiwinter.rhapsody.dispatch.CallHandle;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+/**
+ * Collects single album lookups for a short time window and loads them by one multi-ID request, so independent callers
+ * which each load one album share a request. A batch is sent when its window ends or when it reaches the maximum size,
+ * whichever comes first. An album which is requested several times in a window is loaded once.
+ */
+final class AlbumBatcher {
+   private static final Logger LOGGER = LoggerFactory.getLogger(AlbumBatcher.class.getSimpleName());
+
+   /**
+    * Sends the request for a batch.
+    */
+   interface Sender {
+
+      /**
+       * Sends a single request for the given album IDs.
+       *
+       * @param albumIds
+       *           the IDs, never empty
+       * @param callback
+       *           the callback for the request
+       * @return the handle to cancel the request
+       */
+      Cancellable send(List<String> albumIds, Callback<Collection<AlbumData>> callback);
+   }
+
+   private final long windowNanos;
+   private final int maxBatchSize;
+   private final Sender sender;
+   private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "AlbumBatcher");
+      thread.setDaemon(true);
+      return thread;
+   });
+
+   private Batch collecting;
+
+   private final AtomicLong lookups = new AtomicLong();
+   private final AtomicLong duplicates = new AtomicLong();
+   private final AtomicLongArray batchSizes;
+
+   /**
+    * Constructs a new {@link AlbumBatcher}.
+    *
+    * @param window
+    *           the time a lookup waits for others
+    * @param unit
+    *           the unit of <code>window</code>
+    * @param maxBatchSize
+    *           the maximum number of album IDs per request
+    * @param sender
+    *           sends the request for a batch
+    */
+   AlbumBatcher(long window, TimeUnit unit, int maxBatchSize, Sender sender) {
+      this.windowNanos = unit.toNanos(window);
+      this.maxBatchSize = maxBatchSize;
+      this.sender = sender;
+      this.batchSizes = new AtomicLongArray(maxBatchSize + 1);
+   }
+
+   /**
+    * Adds an album lookup to the current batch.
+    *
+    * @param albumId
+    *           the ID of the album
+    * @param callback
+    *           receives the album, or a failure if the request failed or its response didn't contain the album
+    * @return the handle to cancel the lookup, the request is cancelled if all its lookups are cancelled
+    */
+   Cancellable load(String albumId, Callback<AlbumData> callback) {
+      lookups.incrementAndGet();
+      CallHandle lookup = new CallHandle();
+      Batch batch;
+      boolean full;
+      synchronized (this) {
+         batch = collecting;
+         if (batch == null) {
+            batch = new Batch();
+            collecting = batch;
+            Batch scheduled = batch;
+            batch.timeout = timer.schedule(() -> flush(scheduled), windowNanos, TimeUnit.NANOSECONDS);
+         }
+         if (!batch.add(albumId, lookup, callback)) {
+            duplicates.incrementAndGet();
+         }
+         full = batch.size() >= maxBatchSize;
+         if (full) {
+            collecting = null;
+         }
+      }
+      Batch added = batch;
+      lookup.addCancelAction(() -> added.cancelled());
+      if (full) {
+         batch.timeout.cancel(false);
+         send(batch);
+      }
+      return lookup;
+   }
+
+   /**
+    * Returns the current counters.
+    *
+    * @return the {@link AlbumBatchStatistics}
+    */
+   AlbumBatchStatistics getStatistics() {
+      long[] sizes = new long[batchSizes.length()];
+      for (int i = 0; i < sizes.length; i++) {
+         sizes[i] = batchSizes.get(i);
+      }
+      return new AlbumBatchStatistics(lookups.get(), duplicates.get(), sizes);
+   }
+
+   /**
+    * Stops the batching. The batch which is being collected is sent right away.
+    */
+   void shutdown() {
+      Batch batch;
+      synchronized (this) {
+         batch = collecting;
+         collecting = null;
+      }
+      timer.shutdownNow();
+      if (batch != null) {
+         send(batch);
+      }
+   }
+
+   private void flush(Batch batch) {
+      synchronized (this) {
+         if (collecting != batch) {
+            return;
+         }
+         collecting = null;
+      }
+      send(batch);
+   }
+
+   private void send(Batch batch) {
+      List<String> albumIds = batch.close();
+      if (albumIds.isEmpty()) {
+         return;
+      }
+      batchSizes.incrementAndGet(albumIds.size());
+      LOGGER.debug("Loading batch of {} albums", albumIds.size());
+      Cancellable request;
+      try {
+         request = sender.send(albumIds, batch);
+      } catch (RuntimeException e) {
+         // e.g. on the timer thread, where nobody else would see it
+         batch.failure(RetrofitError.unexpectedError(null, e));
+         return;
+      }
+      batch.setRequest(request);
+   }
+
+   /**
+    * The lookups of one window, by album ID.
+    */
+   private static final class Batch implements Callback<Collection<AlbumData>> {
+      private final Map<String, List<Lookup>> lookups = new LinkedHashMap<>();
+      private ScheduledFuture<?> timeout;
+      private Cancellable request;
+      private boolean sent;
+
+      /**
+       * @return <code>false</code> if the album is already in this batch
+       */
+      synchronized boolean add(String albumId, CallHandle handle, Callback<AlbumData> callback) {
+         List<Lookup> forAlbum = lookups.get(albumId);
+         boolean added = forAlbum == null;
+         if (added) {
+            forAlbum = new ArrayList<>(1);
+            lookups.put(albumId, forAlbum);
+         }
+         forAlbum.add(new Lookup(handle, callback));
+         return added;
+      }
+
+      synchronized int size() {
+         return lookups.size();
+      }
+
+      /**
+       * Returns the IDs of the albums which are still requested, no lookups can be added afterwards.
+       */
+      synchronized List<String> close() {
+         sent = true;
+         List<String> albumIds = new ArrayList<>(lookups.size());
+         for (Map.Entry<String, List<Lookup>> entry : lookups.entrySet()) {
+            if (!allCancelled(entry.getValue())) {
+               albumIds.add(entry.getKey());
+            }
+         }
+         return albumIds;
+      }
+
+      synchronized void setRequest(Cancellable request) {
+         this.request = request;
+         if (allCancelled()) {
+            request.cancel();
+         }
+      }
+
+      void cancelled() {
+         Cancellable toCancel;
+         synchronized (this) {
+            toCancel = sent && request != null && allCancelled() ? request : null;
+         }
+         if (toCancel != null) {
+            toCancel.cancel();
+         }
+      }
+
+      private boolean allCancelled() {
+         for (List<Lookup> forAlbum : lookups.values()) {
+            if (!allCancelled(forAlbum)) {
+               return false;
+            }
+         }
+         return true;
+      }
+
+      private static boolean allCancelled(List<Lookup> forAlbum) {
+         for (Lookup lookup : forAlbum) {
+            if (!lookup.handle.isCancelled()) {
+               return false;
+            }
+         }
+         return true;
+      }
+
+      @Override
+      public void success(Collection<AlbumData> albums, Response response) {
+         Map<String, AlbumData> byId = new HashMap<>();
+         for (AlbumData album : albums) {
+            byId.put(album.id, album);
+         }
+         Map<String, List<Lookup>> completed;
+         synchronized (this) {
+            completed = new LinkedHashMap<>(lookups);
+         }
+         for (Map.Entry<String, List<Lookup>> entry : completed.entrySet()) {
+            AlbumData album = byId.get(entry.getKey());
+            for (Lookup lookup : entry.getValue()) {
+               if (lookup.handle.isCancelled()) {
+                  continue;
+               }
+               if (album == null) {
+                  String url = response.getUrl();
+                  Response notFound = new Response(url, 404, "Album " + entry.getKey() + " not found",
+                     Collections.emptyList(), null);
+                  lookup.callback.failure(RetrofitError.httpError(url, notFound, null, AlbumData.class));
+               } else {
+                  lookup.callback.success(album, response);
+               }
+            }
+         }
+      }
+
+      @Override
+      public void failure(RetrofitError error) {
+         Map<String, List<Lookup>> completed;
+         synchronized (this) {
+            completed = new LinkedHashMap<>(lookups);
+         }
+         for (List<Lookup> forAlbum : completed.values()) {
+            for (Lookup lookup : forAlbum) {
+               if (!lookup.handle.isCancelled()) {
+                  lookup.callback.failure(error);
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * A single album lookup.
+    */
+   private static final class Lookup {
+      private final CallHandle handle;
+      private final Callback<AlbumData> callback;
+
+      Lookup(CallHandle handle, Callback<AlbumData> callback) {
+         this.handle = handle;
+         this.callback = callback;
+      }
+   }
+}
@@ -0,0 +1,177 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.kaiwinter.rhapsody.cache.DataCache;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+
+/**
+ * Loads the details of the first albums of a list into the {@link DataCache} in the background, as the user is likely
+ * to open some of them next. Prefetching runs on a single low priority thread with a bounded queue. Albums which are
+ * cached, already queued or being loaded by the user are skipped, albums which don't fit into the queue are dropped.
+ */
+final class AlbumPrefetcher {
+   private static final Logger LOGGER = LoggerFactory.getLogger(AlbumPrefetcher.class.getSimpleName());
+
+   /** Maximum number of prefetched albums which are remembered for counting hits. */
+   private static final int MAX_TRACKED_ALBUMS = 1000;
+
+   private final int count;
+   private final BiFunction<String, String, AlbumData> loader;
+   private final DataCache dataCache;
+   private final ThreadPoolExecutor executor;
+
+   private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+   /** Albums which are loaded by the user, with the number of running loads. */
+   private final Map<String, Integer> loading = new ConcurrentHashMap<>();
+   private final Map<String, Boolean> prefetched = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+         return size() > MAX_TRACKED_ALBUMS;
+      }
+   });
+
+   private final AtomicLong scheduled = new AtomicLong();
+   private final AtomicLong skipped = new AtomicLong();
+   private final AtomicLong dropped = new AtomicLong();
+   private final AtomicLong completed = new AtomicLong();
+   private final AtomicLong failed = new AtomicLong();
+   private final AtomicLong hits = new AtomicLong();
+
+   /**
+    * Constructs a new {@link AlbumPrefetcher}.
+    *
+    * @param count
+    *           the number of albums at the start of a list which are prefetched
+    * @param queueCapacity
+    *           the maximum number of albums waiting to be prefetched
+    * @param loader
+    *           loads the details of an album synchronously, is called with the catalog and the ID of the album
+    * @param dataCache
+    *           the cache the albums are loaded into
+    */
+   AlbumPrefetcher(int count, int queueCapacity, BiFunction<String, String, AlbumData> loader, DataCache dataCache) {
+      this.count = count;
+      this.loader = loader;
+      this.dataCache = dataCache;
+      this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+         runnable -> {
+            Thread thread = new Thread(runnable, "AlbumPrefetcher");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+         });
+   }
+
+   /**
+    * Queues the first albums of a list which was just loaded.
+    *
+    * @param catalog
+    *           the catalog the list was loaded for
+    * @param albums
+    *           the loaded list
+    */
+   void prefetch(String catalog, Collection<AlbumData> albums) {
+      int remaining = count;
+      for (AlbumData album : albums) {
+         if (remaining-- <= 0) {
+            break;
+         }
+         String albumId = album.id;
+         if (albumId == null || loading.containsKey(albumId) || dataCache.getAlbum(catalog, albumId) != null
+            || !queued.add(albumId)) {
+            skipped.incrementAndGet();
+            continue;
+         }
+         try {
+            executor.execute(() -> load(catalog, albumId));
+            scheduled.incrementAndGet();
+         } catch (RejectedExecutionException e) {
+            queued.remove(albumId);
+            dropped.incrementAndGet();
+         }
+      }
+   }
+
+   /**
+    * Marks an album as being loaded by the user, so it isn't prefetched in parallel. Must be followed by
+    * {@link #loadFinished(String)}.
+    *
+    * @param albumId
+    *           the ID of the album
+    */
+   void loadStarted(String albumId) {
+      loading.merge(albumId, 1, Integer::sum);
+   }
+
+   /**
+    * Marks a load of the user started by {@link #loadStarted(String)} as finished.
+    *
+    * @param albumId
+    *           the ID of the album
+    */
+   void loadFinished(String albumId) {
+      loading.computeIfPresent(albumId, (id, loads) -> loads == 1 ? null : loads - 1);
+   }
+
+   /**
+    * Counts a hit if a requested album was served from the cache thanks to a prefetch.
+    *
+    * @param albumId
+    *           the ID of the requested album
+    */
+   void albumServedFromCache(String albumId) {
+      if (prefetched.remove(albumId) != null) {
+         hits.incrementAndGet();
+      }
+   }
+
+   /**
+    * Returns the current counters.
+    *
+    * @return the {@link PrefetchStatistics}
+    */
+   PrefetchStatistics getStatistics() {
+      return new PrefetchStatistics(scheduled.get(), skipped.get(), dropped.get(), completed.get(), failed.get(),
+         hits.get());
+   }
+
+   /**
+    * Stops the prefetching. Queued albums are discarded.
+    */
+   void shutdown() {
+      executor.shutdownNow();
+   }
+
+   private void load(String catalog, String albumId) {
+      try {
+         if (!loading.containsKey(albumId) && dataCache.getAlbum(catalog, albumId) == null) {
+            dataCache.putAlbum(catalog, loader.apply(catalog, albumId));
+            prefetched.put(albumId, Boolean.TRUE);
+            completed.incrementAndGet();
+         }
+      } catch (RuntimeException e) {
+         LOGGER.debug("Could not prefetch album {}: {}", albumId, e.getMessage());
+         failed.incrementAndGet();
+      } finally {
+         queued.remove(albumId);
+      }
+   }
+}
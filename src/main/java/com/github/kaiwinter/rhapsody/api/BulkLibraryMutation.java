@@ -0,0 +1,288 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.github.kaiwinter.rhapsody.dispatch.CallHandle;
+import com.github.kaiwinter.rhapsody.dispatch.PriorityScope;
+import com.github.kaiwinter.rhapsody.dispatch.RequestPriority;
+
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.RetrofitError.Kind;
+import retrofit.client.Header;
+import retrofit.client.Response;
+
+/**
+ * Applies a library change to many IDs. The IDs are split into batches which are sent with a bounded number of
+ * requests in flight: whenever a request finishes the next batch is sent. Batches which fail with a transient error
+ * (connection error, HTTP 429 or 5xx) are retried up to the maximum number of attempts, but not after the deadline of
+ * the call passed. A retry waits with exponential backoff, or as long as the server asks by a
+ * <code>Retry-After</code> header. A multi-ID batch whose IDs are rejected by the server (HTTP 400, 404, 409 or 422)
+ * is split into single-ID requests to find out which IDs are affected, other failures fail the whole batch.
+ */
+final class BulkLibraryMutation {
+
+   /** The longest time a retry waits without a <code>Retry-After</code> header. */
+   private static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+   private static final ScheduledExecutorService RETRY_TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "BulkLibraryMutation-retry");
+      thread.setDaemon(true);
+      return thread;
+   });
+
+   /**
+    * Sends the request for one batch of IDs.
+    */
+   interface BatchSender {
+
+      /**
+       * Sends a single request for the given IDs.
+       *
+       * @param ids
+       *           the IDs, never empty
+       * @param callback
+       *           the callback for the request
+       */
+      void send(List<String> ids, Callback<Void> callback);
+   }
+
+   private final Deque<Batch> pending = new ArrayDeque<>();
+   private final BatchSender sender;
+   private final int maxInFlight;
+   private final int maxAttempts;
+   private final long retryDelayMillis;
+   private final RhapsodyCallback<BulkMutationResult> callback;
+   private final BulkMutationResult result = new BulkMutationResult();
+
+   private int inFlight;
+   private int waitingForRetry;
+   private boolean finished;
+
+   /**
+    * Constructs a new {@link BulkLibraryMutation}. Call {@link #start()} to send the requests.
+    *
+    * @param ids
+    *           the IDs to change, duplicates are ignored
+    * @param batchSize
+    *           the maximum number of IDs per request
+    * @param maxInFlight
+    *           the maximum number of concurrent requests
+    * @param maxAttempts
+    *           the maximum number of attempts for a batch which fails with a transient error
+    * @param retryDelayMillis
+    *           the time before the first retry of a batch, doubled for every further retry
+    * @param sender
+    *           sends the request for a batch
+    * @param callback
+    *           receives the aggregated result after all IDs are processed
+    */
+   BulkLibraryMutation(Collection<String> ids, int batchSize, int maxInFlight, int maxAttempts, long retryDelayMillis,
+      BatchSender sender, RhapsodyCallback<BulkMutationResult> callback) {
+      this.sender = sender;
+      this.maxInFlight = maxInFlight;
+      this.maxAttempts = maxAttempts;
+      this.retryDelayMillis = retryDelayMillis;
+      this.callback = callback;
+
+      List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+      for (int i = 0; i < uniqueIds.size(); i += batchSize) {
+         pending.add(new Batch(uniqueIds.subList(i, Math.min(i + batchSize, uniqueIds.size()))));
+      }
+   }
+
+   /**
+    * Sends the first requests. The remaining requests are sent when earlier ones return.
+    */
+   void start() {
+      dispatch();
+   }
+
+   private void dispatch() {
+      List<Batch> toSend = new ArrayList<>();
+      boolean complete;
+      synchronized (this) {
+         while (inFlight < maxInFlight && !pending.isEmpty()) {
+            Batch batch = pending.poll();
+            batch.attempts++;
+            inFlight++;
+            toSend.add(batch);
+         }
+         complete = inFlight == 0 && waitingForRetry == 0 && pending.isEmpty() && !finished;
+         if (complete) {
+            finished = true;
+         }
+      }
+      for (Batch batch : toSend) {
+         send(batch);
+      }
+      if (complete) {
+         callback.onSuccess(result);
+      }
+   }
+
+   private void send(Batch batch) {
+      try {
+         sender.send(batch.ids, new Callback<Void>() {
+
+            @Override
+            public void success(Void data, Response response) {
+               completed(batch, null);
+            }
+
+            @Override
+            public void failure(RetrofitError error) {
+               completed(batch, error);
+            }
+         });
+      } catch (RetrofitError e) {
+         completed(batch, e);
+      } catch (RuntimeException e) {
+         // e.g. without authorization or when the limiter rejects the request
+         completed(batch, RetrofitError.unexpectedError(null, e));
+      }
+   }
+
+   private void completed(Batch batch, RetrofitError error) {
+      synchronized (this) {
+         inFlight--;
+         if (error == null) {
+            batch.ids.forEach(result::addSuccess);
+         } else {
+            int httpCode = error.getKind() == Kind.HTTP ? error.getResponse().getStatus() : -1;
+            boolean retry = isTransient(error.getKind(), httpCode) && batch.attempts < maxAttempts;
+            long delayMillis = retry ? retryDelay(batch, error) : -1;
+            if (delayMillis >= 0) {
+               waitingForRetry++;
+               scheduleRetry(batch, delayMillis);
+            } else if (isRejection(httpCode) && batch.ids.size() > 1) {
+               for (String id : batch.ids) {
+                  pending.add(new Batch(Collections.singletonList(id)));
+               }
+            } else {
+               BulkMutationResult.Failure failure = new BulkMutationResult.Failure(httpCode, error.getMessage(),
+                  batch.attempts);
+               for (String id : batch.ids) {
+                  result.addFailure(id, failure);
+               }
+            }
+         }
+      }
+      dispatch();
+   }
+
+   /**
+    * Returns the time to wait before the next attempt of a batch: the <code>Retry-After</code> time of the response if
+    * it has one, otherwise the exponential backoff. Called on the thread of a request's callback, which is bound to
+    * the call.
+    *
+    * @return the delay in milliseconds, -1 if the deadline of the call would pass before the retry
+    */
+   private long retryDelay(Batch batch, RetrofitError error) {
+      long delayMillis = retryAfterMillis(error.getResponse());
+      if (delayMillis < 0) {
+         int doublings = Math.min(batch.attempts - 1, 30);
+         delayMillis = Math.min(MAX_RETRY_DELAY_MILLIS, retryDelayMillis << doublings);
+      }
+      CallHandle handle = CallHandle.current();
+      if (handle != null && handle.getRemaining(TimeUnit.MILLISECONDS) <= delayMillis) {
+         return -1;
+      }
+      return delayMillis;
+   }
+
+   /**
+    * Sends a batch again after the delay, on behalf of the call and with the priority of the failed request.
+    */
+   private void scheduleRetry(Batch batch, long delayMillis) {
+      CallHandle handle = CallHandle.current();
+      RequestPriority priority = PriorityScope.current();
+      if (handle != null) {
+         handle.getSpan().retain();
+      }
+      RETRY_TIMER.schedule(() -> {
+         try (PriorityScope scope = PriorityScope.open(priority);
+            CallHandle.Scope call = CallHandle.activate(handle)) {
+            synchronized (this) {
+               waitingForRetry--;
+               pending.addFirst(batch);
+            }
+            dispatch();
+         } finally {
+            if (handle != null) {
+               handle.getSpan().release();
+            }
+         }
+      }, delayMillis, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Returns the time the server asked to wait by the <code>Retry-After</code> header, given in seconds or as an
+    * HTTP date.
+    *
+    * @return the time in milliseconds, -1 if the response has no valid header
+    */
+   static long retryAfterMillis(Response response) {
+      if (response == null || response.getHeaders() == null) {
+         return -1;
+      }
+      for (Header header : response.getHeaders()) {
+         if (!"Retry-After".equalsIgnoreCase(header.getName()) || header.getValue() == null) {
+            continue;
+         }
+         String value = header.getValue().trim();
+         try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+         } catch (NumberFormatException e) {
+            // not a number of seconds, try the date format
+         }
+         try {
+            ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+         } catch (DateTimeParseException e) {
+            return -1;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Returns whether a request may succeed if it is sent again. A request which couldn't be made at all, e.g. without
+    * authorization, is not retried.
+    */
+   private static boolean isTransient(Kind kind, int httpCode) {
+      return kind == Kind.NETWORK || kind == Kind.HTTP && (httpCode == 429 || httpCode >= 500);
+   }
+
+   /**
+    * Returns whether the server rejected some of the IDs of a request, as opposed to the whole request, e.g. because
+    * the authorization expired.
+    */
+   private static boolean isRejection(int httpCode) {
+      return httpCode == 400 || httpCode == 404 || httpCode == 409 || httpCode == 422;
+   }
+
+   /**
+    * IDs which are sent in a single request.
+    */
+   private static final class Batch {
+      private final List<String> ids;
+      private int attempts;
+
+      Batch(List<String> ids) {
+         this.ids = ids;
+      }
+   }
+}
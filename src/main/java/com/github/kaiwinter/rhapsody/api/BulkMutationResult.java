@@ -0,0 +1,105 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The aggregated result of a bulk library mutation like
+ * {@link RhapsodySdkWrapper#addAlbumsToLibrary(java.util.Collection, RhapsodyCallback)}. Every requested ID is either
+ * contained in {@link #getSucceeded()} or in {@link #getFailed()}.
+ */
+public final class BulkMutationResult {
+
+   private final Set<String> succeeded = new LinkedHashSet<>();
+   private final Map<String, Failure> failed = new LinkedHashMap<>();
+
+   void addSuccess(String id) {
+      succeeded.add(id);
+   }
+
+   void addFailure(String id, Failure failure) {
+      failed.put(id, failure);
+   }
+
+   /**
+    * Returns the IDs which were changed successfully.
+    *
+    * @return the IDs in request order
+    */
+   public Set<String> getSucceeded() {
+      return Collections.unmodifiableSet(succeeded);
+   }
+
+   /**
+    * Returns the IDs which couldn't be changed, together with the last error.
+    *
+    * @return the failed IDs in request order
+    */
+   public Map<String, Failure> getFailed() {
+      return Collections.unmodifiableMap(failed);
+   }
+
+   /**
+    * Returns if all IDs were changed successfully.
+    *
+    * @return <code>true</code> if no ID failed
+    */
+   public boolean isCompleteSuccess() {
+      return failed.isEmpty();
+   }
+
+   @Override
+   public String toString() {
+      return "BulkMutationResult [succeeded=" + succeeded.size() + ", failed=" + failed + "]";
+   }
+
+   /**
+    * The last error of a failed ID.
+    */
+   public static final class Failure {
+      private final int httpCode;
+      private final String message;
+      private final int attempts;
+
+      Failure(int httpCode, String message, int attempts) {
+         this.httpCode = httpCode;
+         this.message = message;
+         this.attempts = attempts;
+      }
+
+      /**
+       * Returns the HTTP code of the last attempt.
+       *
+       * @return the HTTP code, or -1 if not an HTTP error
+       */
+      public int getHttpCode() {
+         return httpCode;
+      }
+
+      /**
+       * Returns the error message of the last attempt.
+       *
+       * @return the error message
+       */
+      public String getMessage() {
+         return message;
+      }
+
+      /**
+       * Returns how often the change was tried.
+       *
+       * @return the number of attempts
+       */
+      public int getAttempts() {
+         return attempts;
+      }
+
+      @Override
+      public String toString() {
+         return httpCode + " " + message + " (" + attempts + " attempts)";
+      }
+   }
+}
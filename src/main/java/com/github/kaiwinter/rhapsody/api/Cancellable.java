@@ -0,0 +1,21 @@
+package com.github.kaiwinter.rhapsody.api;
+
+/**
+ * Handle of an asynchronous call which can be cancelled, e.g. when the user navigates away before the result arrives.
+ */
+public interface Cancellable {
+
+   /**
+    * Cancels the call. A request which is still queued isn't sent, a running request is aborted, and a received
+    * response isn't deserialized. The callback of the call isn't called after this method returned. Cancelling a
+    * completed call has no effect.
+    */
+   void cancel();
+
+   /**
+    * Returns whether {@link #cancel()} was called.
+    *
+    * @return <code>true</code> if the call was cancelled
+    */
+   boolean isCancelled();
+}
@@ -0,0 +1,261 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.RetrofitError.Kind;
+import retrofit.client.Response;
+
+/**
+ * Loads the metadata for the entries of a chart. Every ID is resolved only once: first against the cache, then by
+ * multi-ID requests of which a bounded number is in flight. Entries are passed to the partial result listener as soon
+ * as their metadata is known, the complete chart is passed to the callback in rank order after all requests returned.
+ *
+ * @param <T>
+ *           type of the metadata
+ */
+final class ChartHydrator<T> {
+
+   /**
+    * Sends the request for one batch of IDs.
+    *
+    * @param <T>
+    *           type of the metadata
+    */
+   interface BatchLoader<T> {
+
+      /**
+       * Sends a single request for the given IDs.
+       *
+       * @param ids
+       *           the IDs, never empty
+       * @param callback
+       *           the callback for the request
+       */
+      void load(List<String> ids, Callback<Collection<T>> callback);
+   }
+
+   /**
+    * Creates a {@link BatchLoader} which loads a single ID by the single-ID request, as the multi-ID request returns an
+    * object instead of a list for a single ID.
+    *
+    * @param single
+    *           sends the request for a single ID
+    * @param multi
+    *           sends the request for the comma separated IDs
+    * @return the {@link BatchLoader}
+    */
+   static <T> BatchLoader<T> batchLoader(BiConsumer<String, Callback<T>> single,
+      BiConsumer<String, Callback<Collection<T>>> multi) {
+      return (ids, callback) -> {
+         if (ids.size() > 1) {
+            multi.accept(String.join(",", ids), callback);
+            return;
+         }
+         single.accept(ids.get(0), new Callback<T>() {
+
+            @Override
+            public void success(T data, Response response) {
+               callback.success(Collections.singletonList(data), response);
+            }
+
+            @Override
+            public void failure(RetrofitError error) {
+               callback.failure(error);
+            }
+         });
+      };
+   }
+
+   private final List<HydratedEntry<T>> entries;
+   private final Map<String, List<HydratedEntry<T>>> entriesById = new LinkedHashMap<>();
+   private final Function<String, T> cacheLookup;
+   private final Consumer<T> cacheStore;
+   private final Function<T, String> idOf;
+   private final int batchSize;
+   private final int maxInFlight;
+   private final BatchLoader<T> loader;
+   private final Consumer<List<HydratedEntry<T>>> partialResults;
+   private final RhapsodyCallback<List<HydratedEntry<T>>> callback;
+
+   private final Deque<List<String>> pending = new ArrayDeque<>();
+   private int inFlight;
+   private int loadedBatches;
+   private int cacheHits;
+   private RetrofitError lastError;
+   private boolean finished;
+
+   /**
+    * Constructs a new {@link ChartHydrator}. Call {@link #start()} to resolve the entries.
+    *
+    * @param entries
+    *           the chart entries in rank order, their metadata is set by this hydrator
+    * @param cacheLookup
+    *           returns the cached metadata for an ID, or <code>null</code>
+    * @param cacheStore
+    *           adds loaded metadata to the cache
+    * @param idOf
+    *           returns the ID of loaded metadata
+    * @param batchSize
+    *           the maximum number of IDs per request
+    * @param maxInFlight
+    *           the maximum number of concurrent requests
+    * @param loader
+    *           sends the request for a batch
+    * @param partialResults
+    *           receives entries as soon as their metadata is known, may be <code>null</code>
+    * @param callback
+    *           receives all entries after all requests returned
+    */
+   ChartHydrator(List<HydratedEntry<T>> entries, Function<String, T> cacheLookup, Consumer<T> cacheStore,
+      Function<T, String> idOf, int batchSize, int maxInFlight, BatchLoader<T> loader,
+      Consumer<List<HydratedEntry<T>>> partialResults, RhapsodyCallback<List<HydratedEntry<T>>> callback) {
+      this.entries = entries;
+      this.cacheLookup = cacheLookup;
+      this.cacheStore = cacheStore;
+      this.idOf = idOf;
+      this.batchSize = batchSize;
+      this.maxInFlight = maxInFlight;
+      this.loader = loader;
+      this.partialResults = partialResults;
+      this.callback = callback;
+
+      for (HydratedEntry<T> entry : entries) {
+         entriesById.computeIfAbsent(entry.getId(), id -> new ArrayList<>(1)).add(entry);
+      }
+   }
+
+   /**
+    * Resolves the cached entries and sends the first requests. The remaining requests are sent when earlier ones
+    * return.
+    */
+   void start() {
+      List<HydratedEntry<T>> resolved = new ArrayList<>();
+      List<String> missing = new ArrayList<>();
+      for (Map.Entry<String, List<HydratedEntry<T>>> entry : entriesById.entrySet()) {
+         T cached = cacheLookup.apply(entry.getKey());
+         if (cached == null) {
+            missing.add(entry.getKey());
+         } else {
+            resolve(entry.getValue(), cached, resolved);
+         }
+      }
+      synchronized (this) {
+         cacheHits = resolved.size();
+         for (int i = 0; i < missing.size(); i += batchSize) {
+            pending.add(missing.subList(i, Math.min(i + batchSize, missing.size())));
+         }
+      }
+      publish(resolved);
+      dispatch();
+   }
+
+   private void dispatch() {
+      List<List<String>> toSend = new ArrayList<>();
+      boolean complete;
+      synchronized (this) {
+         while (inFlight < maxInFlight && !pending.isEmpty()) {
+            inFlight++;
+            toSend.add(pending.poll());
+         }
+         complete = inFlight == 0 && pending.isEmpty() && !finished;
+         if (complete) {
+            finished = true;
+         }
+      }
+      for (List<String> batch : toSend) {
+         send(batch);
+      }
+      if (complete) {
+         complete();
+      }
+   }
+
+   private void send(List<String> batch) {
+      try {
+         loader.load(batch, new Callback<Collection<T>>() {
+
+            @Override
+            public void success(Collection<T> data, Response response) {
+               completed(batch, data, null);
+            }
+
+            @Override
+            public void failure(RetrofitError error) {
+               completed(batch, null, error);
+            }
+         });
+      } catch (RetrofitError e) {
+         completed(batch, null, e);
+      } catch (RuntimeException e) {
+         // e.g. no authorization or a rejection by the limiter, the batch fails like a request which failed
+         completed(batch, null, RetrofitError.unexpectedError(null, e));
+      }
+   }
+
+   private void completed(List<String> batch, Collection<T> data, RetrofitError error) {
+      List<HydratedEntry<T>> resolved = new ArrayList<>();
+      if (data != null) {
+         Set<String> requested = new HashSet<>(batch);
+         for (T metadata : data) {
+            // Only the requested IDs, and each of them once
+            String id = metadata == null ? null : idOf.apply(metadata);
+            if (id != null && requested.remove(id)) {
+               cacheStore.accept(metadata);
+               resolve(entriesById.get(id), metadata, resolved);
+            }
+         }
+      }
+      synchronized (this) {
+         inFlight--;
+         if (error == null) {
+            loadedBatches++;
+         } else {
+            lastError = error;
+         }
+      }
+      publish(resolved);
+      dispatch();
+   }
+
+   private void complete() {
+      RetrofitError error;
+      synchronized (this) {
+         error = loadedBatches == 0 && cacheHits == 0 ? lastError : null;
+      }
+      if (error == null) {
+         callback.onSuccess(Collections.unmodifiableList(entries));
+      } else {
+         int httpCode = error.getKind() == Kind.HTTP ? error.getResponse().getStatus() : -1;
+         callback.onFailure(httpCode, error.getMessage());
+      }
+   }
+
+   private void resolve(List<HydratedEntry<T>> matching, T metadata, List<HydratedEntry<T>> resolved) {
+      for (HydratedEntry<T> entry : matching) {
+         entry.setMetadata(metadata);
+         resolved.add(entry);
+      }
+   }
+
+   private void publish(List<HydratedEntry<T>> resolved) {
+      if (partialResults != null && !resolved.isEmpty()) {
+         resolved.sort(Comparator.comparingInt(HydratedEntry::getRank));
+         partialResults.accept(resolved);
+      }
+   }
+}
@@ -0,0 +1,69 @@
+package com.github.kaiwinter.rhapsody.api;
+
+/**
+ * A chart entry together with the metadata of the charted track, artist or album.
+ *
+ * @param <T>
+ *           type of the metadata
+ */
+public final class HydratedEntry<T> {
+   private final int rank;
+   private final String id;
+   private final Integer playCount;
+   private volatile T metadata;
+
+   HydratedEntry(int rank, String id, Integer playCount) {
+      this.rank = rank;
+      this.id = id;
+      this.playCount = playCount;
+   }
+
+   /**
+    * Returns the position of the entry in the chart.
+    *
+    * @return the rank, starting with 1
+    */
+   public int getRank() {
+      return rank;
+   }
+
+   /**
+    * Returns the ID of the charted track, artist or album.
+    *
+    * @return the ID
+    */
+   public String getId() {
+      return id;
+   }
+
+   /**
+    * Returns the number of plays in the chart's period.
+    *
+    * @return the play count
+    */
+   public Integer getPlayCount() {
+      return playCount;
+   }
+
+   /**
+    * Returns the metadata of the charted track, artist or album.
+    *
+    * @return the metadata, or <code>null</code> if it couldn't be loaded
+    */
+   public T getMetadata() {
+      return metadata;
+   }
+
+   /**
+    * Returns whether the metadata of this entry was loaded.
+    *
+    * @return <code>true</code> if {@link #getMetadata()} is not <code>null</code>
+    */
+   public boolean isHydrated() {
+      return metadata != null;
+   }
+
+   void setMetadata(T metadata) {
+      this.metadata = metadata;
+   }
+}
@@ -0,0 +1,245 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A {@link Publisher} over an endpoint which supports <code>limit</code> and <code>offset</code>. Pages are only
+ * loaded when the subscriber's demand can't be served from the already loaded entries, and only one page is loaded at
+ * a time, so a slow subscriber never buffers more than a page. Every subscriber loads the entries from the first page
+ * on. The stream completes with the first page which is shorter than the page size.
+ *
+ * @param <T>
+ *           the type of the published entries
+ */
+final class PagedPublisher<T> implements Publisher<T> {
+
+   /**
+    * Loads a single page.
+    *
+    * @param <T>
+    *           the type of the entries of a page
+    */
+   interface PageLoader<T> {
+
+      /**
+       * Loads the page at <code>offset</code> asynchronously.
+       *
+       * @param offset
+       *           the index of the first entry of the page
+       * @param limit
+       *           the page size
+       * @param callback
+       *           receives the entries of the page
+       * @return the handle to cancel the call
+       */
+      Cancellable load(int offset, int limit, RhapsodyCallback<Collection<T>> callback);
+   }
+
+   private final PageLoader<T> loader;
+   private final int pageSize;
+
+   /**
+    * Creates a new {@link PagedPublisher}.
+    *
+    * @param loader
+    *           loads the pages
+    * @param pageSize
+    *           the number of entries which are loaded by one request
+    */
+   PagedPublisher(PageLoader<T> loader, int pageSize) {
+      if (pageSize < 1) {
+         throw new IllegalArgumentException("Page size must be positive");
+      }
+      this.loader = loader;
+      this.pageSize = pageSize;
+   }
+
+   @Override
+   public void subscribe(Subscriber<? super T> subscriber) {
+      Objects.requireNonNull(subscriber, "subscriber");
+      PageSubscription subscription = new PageSubscription(subscriber);
+      subscriber.onSubscribe(subscription);
+   }
+
+   /**
+    * The state of one subscriber. All signals to the subscriber are emitted by {@link #drain()}, which is entered by
+    * one thread at a time.
+    */
+   private final class PageSubscription implements Subscription, RhapsodyCallback<Collection<T>> {
+      private final Subscriber<? super T> subscriber;
+      private final AtomicInteger wip = new AtomicInteger();
+
+      private final ArrayDeque<T> buffer = new ArrayDeque<>();
+      private long demand;
+      private int offset;
+      private boolean loading;
+      private boolean exhausted;
+      private Throwable error;
+      private boolean done;
+      private Cancellable pageLoad;
+
+      PageSubscription(Subscriber<? super T> subscriber) {
+         this.subscriber = subscriber;
+      }
+
+      @Override
+      public void request(long count) {
+         synchronized (this) {
+            if (done) {
+               return;
+            }
+            if (count <= 0) {
+               error = new IllegalArgumentException("Requested " + count + " entries, must be positive (rule 3.9)");
+               buffer.clear();
+            } else {
+               demand = demand + count < 0 ? Long.MAX_VALUE : demand + count;
+            }
+         }
+         drain();
+      }
+
+      @Override
+      public void cancel() {
+         Cancellable load;
+         synchronized (this) {
+            if (done) {
+               return;
+            }
+            done = true;
+            buffer.clear();
+            load = pageLoad;
+            pageLoad = null;
+         }
+         if (load != null) {
+            load.cancel();
+         }
+      }
+
+      @Override
+      public void onSuccess(Collection<T> page) {
+         synchronized (this) {
+            loading = false;
+            pageLoad = null;
+            if (done) {
+               return;
+            }
+            int size = 0;
+            if (page != null) {
+               for (T entry : page) {
+                  if (entry != null) {
+                     buffer.add(entry);
+                  }
+               }
+               size = page.size();
+            }
+            offset += size;
+            exhausted = size < pageSize;
+         }
+         drain();
+      }
+
+      @Override
+      public void onFailure(int httpCode, String message) {
+         synchronized (this) {
+            loading = false;
+            pageLoad = null;
+            if (done) {
+               return;
+            }
+            error = new RhapsodyException(httpCode, message);
+         }
+         drain();
+      }
+
+      private void drain() {
+         if (wip.getAndIncrement() != 0) {
+            return;
+         }
+         int missed = 1;
+         do {
+            while (emitNext()) {
+               // emit until there is neither demand nor a buffered entry
+            }
+            missed = wip.addAndGet(-missed);
+         } while (missed != 0);
+      }
+
+      /**
+       * Emits one signal or starts loading the next page.
+       *
+       * @return <code>true</code> if an entry was emitted and there may be more to emit
+       */
+      private boolean emitNext() {
+         T next = null;
+         Throwable failure = null;
+         boolean complete = false;
+         int loadOffset = -1;
+         Cancellable abandoned = null;
+         synchronized (this) {
+            if (done) {
+               return false;
+            }
+            if (demand > 0 && !buffer.isEmpty()) {
+               next = buffer.poll();
+               if (demand != Long.MAX_VALUE) {
+                  demand--;
+               }
+            } else if (buffer.isEmpty() && error != null) {
+               failure = error;
+               done = true;
+               abandoned = pageLoad;
+            } else if (buffer.isEmpty() && exhausted) {
+               complete = true;
+               done = true;
+            } else if (!loading && !exhausted && error == null && buffer.size() < demand) {
+               loading = true;
+               loadOffset = offset;
+            }
+         }
+
+         if (next != null) {
+            subscriber.onNext(next);
+            return true;
+         } else if (failure != null) {
+            if (abandoned != null) {
+               abandoned.cancel();
+            }
+            subscriber.onError(failure);
+         } else if (complete) {
+            subscriber.onComplete();
+         } else if (loadOffset >= 0) {
+            Cancellable load;
+            try {
+               load = loader.load(loadOffset, pageSize, this);
+            } catch (RuntimeException e) {
+               // e.g. no authorization or a rejection by the limiter, signalled by the next iteration
+               synchronized (this) {
+                  loading = false;
+                  if (!done) {
+                     error = e;
+                  }
+               }
+               return true;
+            }
+            boolean cancelled;
+            synchronized (this) {
+               cancelled = done;
+               if (loading && !done) {
+                  pageLoad = load;
+               }
+            }
+            if (cancelled) {
+               load.cancel();
+            }
+         }
+         return false;
+      }
+   }
+}
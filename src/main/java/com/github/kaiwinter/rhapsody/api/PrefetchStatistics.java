@@ -0,0 +1,91 @@
+package com.github.kaiwinter.rhapsody.api;
+
+/**
+ * Counters of the album prefetching, see {@link RhapsodySdkWrapper#setAlbumPrefetchCount(int)}.
+ */
+public final class PrefetchStatistics {
+   private final long scheduled;
+   private final long skipped;
+   private final long dropped;
+   private final long completed;
+   private final long failed;
+   private final long hits;
+
+   PrefetchStatistics(long scheduled, long skipped, long dropped, long completed, long failed, long hits) {
+      this.scheduled = scheduled;
+      this.skipped = skipped;
+      this.dropped = dropped;
+      this.completed = completed;
+      this.failed = failed;
+      this.hits = hits;
+   }
+
+   /**
+    * Returns the number of albums which were queued for prefetching.
+    *
+    * @return the number of queued albums
+    */
+   public long getScheduled() {
+      return scheduled;
+   }
+
+   /**
+    * Returns the number of albums which weren't queued because they were already cached or being prefetched.
+    *
+    * @return the number of skipped albums
+    */
+   public long getSkipped() {
+      return skipped;
+   }
+
+   /**
+    * Returns the number of albums which weren't queued because the queue was full.
+    *
+    * @return the number of dropped albums
+    */
+   public long getDropped() {
+      return dropped;
+   }
+
+   /**
+    * Returns the number of albums which were prefetched into the cache.
+    *
+    * @return the number of prefetched albums
+    */
+   public long getCompleted() {
+      return completed;
+   }
+
+   /**
+    * Returns the number of albums which couldn't be prefetched.
+    *
+    * @return the number of failed prefetches
+    */
+   public long getFailed() {
+      return failed;
+   }
+
+   /**
+    * Returns the number of album requests which were served from the cache thanks to a prefetch.
+    *
+    * @return the number of hits
+    */
+   public long getHits() {
+      return hits;
+   }
+
+   /**
+    * Returns the share of prefetched albums which were requested afterwards.
+    *
+    * @return the hit rate between 0 and 1, 0 if nothing was prefetched yet
+    */
+   public double getHitRate() {
+      return completed == 0 ? 0 : (double) hits / completed;
+   }
+
+   @Override
+   public String toString() {
+      return String.format("scheduled=%d, skipped=%d, dropped=%d, completed=%d, failed=%d, hits=%d (%.1f%%)", scheduled,
+         skipped, dropped, completed, failed, hits, getHitRate() * 100);
+   }
+}
@@ -0,0 +1,36 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.io.IOException;
+
+/**
+ * Signals a failed request to a reactive subscriber. Carries the same information as
+ * {@link RhapsodyCallback#onFailure(int, String)}.
+ */
+public final class RhapsodyException extends IOException {
+
+   private static final long serialVersionUID = 1L;
+
+   private final int httpCode;
+
+   /**
+    * Creates a new {@link RhapsodyException}.
+    *
+    * @param httpCode
+    *           the HTTP code, or -1 if not an HTTP error
+    * @param message
+    *           the error message
+    */
+   public RhapsodyException(int httpCode, String message) {
+      super(message);
+      this.httpCode = httpCode;
+   }
+
+   /**
+    * Returns the HTTP code of the failed request.
+    *
+    * @return the HTTP code, or -1 if not an HTTP error
+    */
+   public int getHttpCode() {
+      return httpCode;
+   }
+}
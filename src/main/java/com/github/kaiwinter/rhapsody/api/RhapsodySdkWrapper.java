@@ -1,29 +1,61 @@
 package com.github.kaiwinter.rhapsody.api;
 
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.kaiwinter.rhapsody.cache.CacheStore;
 import com.github.kaiwinter.rhapsody.cache.DataCache;
+import com.github.kaiwinter.rhapsody.dispatch.AdaptiveLimiter;
+import com.github.kaiwinter.rhapsody.dispatch.CallHandle;
+import com.github.kaiwinter.rhapsody.dispatch.DeadlineExceededException;
+import com.github.kaiwinter.rhapsody.dispatch.DeadlineScope;
+import com.github.kaiwinter.rhapsody.dispatch.LimitExceededException;
+import com.github.kaiwinter.rhapsody.dispatch.PriorityScope;
+import com.github.kaiwinter.rhapsody.dispatch.RequestPriority;
+import com.github.kaiwinter.rhapsody.dispatch.Timeouts;
+import com.github.kaiwinter.rhapsody.genre.GenreTree;
 import com.github.kaiwinter.rhapsody.model.AccessToken;
 import com.github.kaiwinter.rhapsody.model.AccountData;
 import com.github.kaiwinter.rhapsody.model.AlbumData;
 import com.github.kaiwinter.rhapsody.model.AlbumData.Artist;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Track;
 import com.github.kaiwinter.rhapsody.model.ArtistData;
 import com.github.kaiwinter.rhapsody.model.BioData;
 import com.github.kaiwinter.rhapsody.model.GenreData;
 import com.github.kaiwinter.rhapsody.model.PasswordGrant;
 import com.github.kaiwinter.rhapsody.model.RefreshToken;
+import com.github.kaiwinter.rhapsody.model.member.ChartDashboard;
 import com.github.kaiwinter.rhapsody.model.member.ChartsAlbum;
 import com.github.kaiwinter.rhapsody.model.member.ChartsArtist;
 import com.github.kaiwinter.rhapsody.model.member.ChartsTrack;
 import com.github.kaiwinter.rhapsody.persistence.AuthorizationStore;
 import com.github.kaiwinter.rhapsody.persistence.impl.TransientAuthorizationStore;
 import com.github.kaiwinter.rhapsody.persistence.model.AuthorizationInfo;
+import com.github.kaiwinter.rhapsody.search.TypeaheadSearch;
 import com.github.kaiwinter.rhapsody.service.authentication.AuthenticationService;
 import com.github.kaiwinter.rhapsody.service.member.AccountService;
 import com.github.kaiwinter.rhapsody.service.member.ChartService;
@@ -32,9 +64,14 @@ import com.github.kaiwinter.rhapsody.service.member.LibraryService;
 import com.github.kaiwinter.rhapsody.service.metadata.AlbumService;
 import com.github.kaiwinter.rhapsody.service.metadata.ArtistService;
 import com.github.kaiwinter.rhapsody.service.metadata.GenreService;
+import com.github.kaiwinter.rhapsody.service.metadata.SearchService;
+import com.github.kaiwinter.rhapsody.service.metadata.TrackService;
+import com.github.kaiwinter.rhapsody.trace.Span;
+import com.github.kaiwinter.rhapsody.trace.TraceEntry;
+import com.github.kaiwinter.rhapsody.trace.TraceRecorder;
+import com.github.kaiwinter.rhapsody.trace.Tracer;
 
 import retrofit.Callback;
-import retrofit.RestAdapter;
 import retrofit.RestAdapter.LogLevel;
 import retrofit.RetrofitError;
 import retrofit.RetrofitError.Kind;
@@ -58,6 +95,39 @@ public class RhapsodySdkWrapper {
    private static final Logger LOGGER = LoggerFactory.getLogger(RhapsodySdkWrapper.class.getSimpleName());
 
    private static final String API_URL = "https://api.rhapsody.com";
+   /** Maximum number of album IDs which are added to the library by a single request. */
+   private static final int BULK_ADD_BATCH_SIZE = 50;
+
+   /** Maximum number of concurrent requests of a bulk library mutation. */
+   private static final int BULK_MAX_IN_FLIGHT = 4;
+
+   /** Maximum number of attempts for a bulk library request which fails with a transient error. */
+   private static final int BULK_MAX_ATTEMPTS = 3;
+
+   /** Time before the first retry of a failed batch of a bulk library change, doubled for every further retry. */
+   private static final long BULK_RETRY_DELAY_MILLIS = 500;
+
+   /** Maximum number of IDs which are loaded by a single request when hydrating charts. */
+   private static final int HYDRATION_BATCH_SIZE = 20;
+
+   /** Maximum number of concurrent requests when hydrating charts. */
+   private static final int HYDRATION_MAX_IN_FLIGHT = 3;
+
+   /** Maximum number of albums waiting to be prefetched. */
+   private static final int PREFETCH_QUEUE_CAPACITY = 20;
+
+   /** Time after which a cached genre tree is loaded again. */
+   private static final long GENRE_TREE_TTL_HOURS = 24;
+
+   /** Time the input of a typeahead search must not change before a query is sent. */
+   private static final long TYPEAHEAD_DEBOUNCE_MILLIS = 150;
+
+   /** Maximum number of cached query results per typeahead search. */
+   private static final int TYPEAHEAD_CACHED_QUERIES = 64;
+
+   /** Maximum time a synchronous album lookup waits for its batch if the call has no deadline. */
+   private static final long BATCHED_LOOKUP_TIMEOUT_MILLIS = 60_000;
+
    private static final String RHAPSODY_IMAGE_URL = "http://direct.rhapsody.com/imageserver/v2/artists/{artist_id}/images/{size}.{extension}";
 
    /** The Rhapsody app API key. */
@@ -66,20 +136,35 @@ public class RhapsodySdkWrapper {
    /** The Rhapsody app API secret. */
    private final String apiSecret;
 
-   private final RestAdapter restAdapter;
-   private final AuthenticationService authService;
-   private final GenreService genreService;
-   private final ArtistService artistService;
-   private final AlbumService albumService;
-   private final AccountService memberService;
-   private final LibraryService libraryService;
-   private final ChartService chartService;
+   private final SharedAdapter adapter;
 
    private final DataCache dataCache;
 
+   /** Genre trees which are currently loaded, by catalog. */
+   private final Map<String, GenreTreeLoad> pendingGenreTreeLoads = new HashMap<>();
+
    private final AuthorizationStore authorizationStore;
 
-   private AuthorizationInfo authorizationInfo;
+   /** Loads the {@link AuthorizationInfo} from the store, possibly in the background. */
+   private final CompletableFuture<AuthorizationInfo> authorizationLoad;
+
+   /** The loaded {@link AuthorizationInfo}, <code>null</code> until it is first needed. */
+   private volatile AuthorizationInfo authorizationInfo;
+
+   private volatile TraceRecorder traceRecorder;
+
+   private volatile Tracer tracer;
+
+   private volatile Timeouts timeouts = Timeouts.DEFAULT;
+
+   /** Timeouts which differ from {@link #timeouts}, by wrapper method. */
+   private final Map<String, Timeouts> methodTimeouts = new ConcurrentHashMap<>();
+
+   /** <code>true</code> if an album cache store was set, then albums are cached even without prefetching. */
+   private final boolean albumCacheConfigured;
+
+   private volatile AlbumPrefetcher albumPrefetcher;
+   private volatile AlbumBatcher albumBatcher;
 
    /**
     * If true the responses of API requests will be formatted for better readability. Useful with higher LogLevel of the
@@ -119,29 +204,105 @@ public class RhapsodySdkWrapper {
     *            if <code>apiKey</code> or <code>apiSecret</code> is <code>null</code>
     */
    public RhapsodySdkWrapper(String apiKey, String apiSecret, AuthorizationStore authorizationStore) {
-      Objects.requireNonNull(apiKey, "API Key must not be null");
-      Objects.requireNonNull(apiSecret, "API Secret must not be null");
+      this(apiKey, apiSecret, authorizationStore, API_URL);
+   }
+
+   /**
+    * Initializes the API wrapper against a different server than the Rhapsody API, e.g. a local stand-in server for
+    * load tests.
+    *
+    * @param apiKey
+    *           the API Key, not <code>null</code>
+    * @param apiSecret
+    *           the API Secret, not <code>null</code>
+    * @param authorizationStore
+    *           {@link AuthorizationStore} implementation to persist user authentication data. If <code>null</code> they
+    *           are not persisted.
+    * @param apiUrl
+    *           the base URL of the REST API, not <code>null</code>
+    *
+    * @throws NullPointerException
+    *            if <code>apiKey</code>, <code>apiSecret</code> or <code>apiUrl</code> is <code>null</code>
+    */
+   public RhapsodySdkWrapper(String apiKey, String apiSecret, AuthorizationStore authorizationStore, String apiUrl) {
+      this(builder(apiKey, apiSecret).authorizationStore(authorizationStore).apiUrl(apiUrl));
+   }
 
-      this.apiKey = apiKey;
-      this.apiSecret = apiSecret;
-      if (authorizationStore == null) {
+   private RhapsodySdkWrapper(Builder builder) {
+      this.apiKey = builder.apiKey;
+      this.apiSecret = builder.apiSecret;
+      if (builder.authorizationStore == null) {
          this.authorizationStore = new TransientAuthorizationStore();
       } else {
-         this.authorizationStore = authorizationStore;
+         this.authorizationStore = builder.authorizationStore;
+      }
+      if (builder.adapter == null) {
+         adapter = new SharedAdapter(builder.apiUrl);
+      } else {
+         adapter = builder.adapter;
+      }
+
+      dataCache = new DataCache(builder.albumCacheStore, builder.newReleasesCacheStore);
+      albumCacheConfigured = builder.albumCacheStore != null;
+
+      if (builder.authorizationLoadExecutor == null) {
+         authorizationLoad = CompletableFuture.completedFuture(this.authorizationStore.loadAuthorizationInfo());
+      } else {
+         authorizationLoad = CompletableFuture.supplyAsync(this.authorizationStore::loadAuthorizationInfo,
+            builder.authorizationLoadExecutor);
       }
+   }
 
-      restAdapter = new RestAdapter.Builder().setEndpoint(API_URL).build();
-      authService = restAdapter.create(AuthenticationService.class);
-      genreService = restAdapter.create(GenreService.class);
-      artistService = restAdapter.create(ArtistService.class);
-      albumService = restAdapter.create(AlbumService.class);
-      memberService = restAdapter.create(AccountService.class);
-      libraryService = restAdapter.create(LibraryService.class);
-      chartService = restAdapter.create(ChartService.class);
+   /**
+    * Returns a {@link Builder} for a wrapper. Provide the API key and API secret of your app from here:
+    * <a href="https://developer.rhapsody.com/developer/apps">https://developer.rhapsody.com/developer/apps</a>
+    *
+    * @param apiKey
+    *           the API Key, not <code>null</code>
+    * @param apiSecret
+    *           the API Secret, not <code>null</code>
+    * @return the {@link Builder}
+    *
+    * @throws NullPointerException
+    *            if <code>apiKey</code> or <code>apiSecret</code> is <code>null</code>
+    */
+   public static Builder builder(String apiKey, String apiSecret) {
+      return new Builder(apiKey, apiSecret);
+   }
 
-      dataCache = new DataCache();
+   /**
+    * Sets the maximum number of concurrent requests. Further requests wait in a queue per {@link RequestPriority} and
+    * are dispatched by their priority. The priority of a request is set by a {@link PriorityScope} around the call:
+    *
+    * <pre>
+    * try (PriorityScope scope = PriorityScope.open(RequestPriority.INTERACTIVE)) {
+    *    wrapper.loadAlbum(albumId, callback);
+    * }
+    * </pre>
+    *
+    * @param maxConcurrentRequests
+    *           the maximum number of concurrent requests, at least 1, the default is 8
+    */
+   public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+      adapter.getDispatcher().setMaxConcurrency(maxConcurrentRequests);
+   }
 
-      authorizationInfo = this.authorizationStore.loadAuthorizationInfo();
+   /**
+    * Sets a limiter which adapts the number of concurrent requests of each endpoint group (e.g. <code>albums</code>,
+    * <code>me/library</code>) to their latency, so fewer requests are sent while the API slows down:
+    *
+    * <pre>
+    * wrapper.setAdaptiveConcurrencyLimit(new AdaptiveLimiter(4, 32, OverloadPolicy.QUEUE));
+    * </pre>
+    *
+    * The limits apply within the maximum number of concurrent requests (see {@link #setMaxConcurrentRequests(int)}).
+    * A request which isn't sent because of its limit fails with a {@link LimitExceededException}.
+    *
+    * @param limiter
+    *           the {@link AdaptiveLimiter}, <code>null</code> disables the adaptive limits
+    */
+   public void setAdaptiveConcurrencyLimit(AdaptiveLimiter limiter) {
+      adapter.getDispatcher().setLimiter(limiter);
    }
 
    /**
@@ -152,21 +313,177 @@ public class RhapsodySdkWrapper {
     */
    public void setVerboseLoggingEnabled(boolean enabled) {
       if (enabled) {
-         restAdapter.setLogLevel(LogLevel.FULL);
+         adapter.setLogLevel(LogLevel.FULL);
          prettyJson = true;
       } else {
          prettyJson = false;
       }
    }
 
+   /**
+    * Enables/Disables the canonicalization of decoded albums. If enabled, nested value objects which repeat within and
+    * across albums (the track's artist and album, album types, genres) as well as IDs, names and tags are shared
+    * instead of being kept as separate copies. This reduces the heap usage of cached album lists considerably.
+    *
+    * <p>
+    * <b>Note:</b> with canonicalization enabled the nested objects of loaded albums are shared and must not be
+    * modified.
+    * </p>
+    *
+    * @param enabled
+    *           if <code>true</code> decoded albums are canonicalized
+    * @see com.github.kaiwinter.rhapsody.converter.ModelCanonicalizer
+    */
+   public void setModelCanonicalizationEnabled(boolean enabled) {
+      adapter.setCanonicalizationEnabled(enabled);
+   }
+
+   /**
+    * Sets a {@link TraceRecorder} which receives every data call made through this wrapper. Authorization calls are not
+    * recorded.
+    *
+    * @param traceRecorder
+    *           the {@link TraceRecorder}, <code>null</code> disables recording
+    */
+   public void setTraceRecorder(TraceRecorder traceRecorder) {
+      this.traceRecorder = traceRecorder;
+   }
+
+   /**
+    * Sets a {@link Tracer} which times sampled calls of this wrapper. Unlike
+    * {@link #setVerboseLoggingEnabled(boolean)} this is cheap enough for production: a call which isn't sampled isn't
+    * timed at all.
+    *
+    * @param tracer
+    *           the {@link Tracer}, <code>null</code> disables tracing
+    */
+   public void setTracer(Tracer tracer) {
+      this.tracer = tracer;
+   }
+
+   /**
+    * Sets the timeouts of all calls, unless set per method by {@link #setTimeouts(String, Timeouts)}. A deadline for
+    * single calls can be set by a {@link DeadlineScope} around the call:
+    *
+    * <pre>
+    * try (DeadlineScope scope = DeadlineScope.open(300, TimeUnit.MILLISECONDS)) {
+    *    wrapper.loadAlbum(albumId, callback);
+    * }
+    * </pre>
+    *
+    * @param timeouts
+    *           the {@link Timeouts}, the default are Retrofit's socket timeouts without a call timeout
+    */
+   public void setTimeouts(Timeouts timeouts) {
+      this.timeouts = Objects.requireNonNull(timeouts, "Timeouts must not be null");
+   }
+
+   /**
+    * Sets the timeouts of the calls of a single method.
+    *
+    * @param method
+    *           the name of the wrapper method, e.g. <code>loadAlbum</code>
+    * @param timeouts
+    *           the {@link Timeouts}, <code>null</code> to use the timeouts of all calls
+    */
+   public void setTimeouts(String method, Timeouts timeouts) {
+      if (timeouts == null) {
+         methodTimeouts.remove(method);
+      } else {
+         methodTimeouts.put(method, timeouts);
+      }
+   }
+
+   /**
+    * Enables/Disables the prefetching of album details. If enabled, the details of the first albums of a list loaded by
+    * {@link #loadAlbumNewReleases(String, Integer, RhapsodyCallback)} or
+    * {@link #loadGenreNewReleases(String, Integer, RhapsodyCallback)} are loaded into the cache in the background, so a
+    * following {@link #loadAlbum(String, RhapsodyCallback)} or {@link #getAlbum(String)} doesn't need a request.
+    *
+    * <p>
+    * Albums are only cached while prefetching is enabled or if an album cache store was set by
+    * {@link Builder#albumCacheStore(CacheStore)}. A cached album is used for up to an hour, so it may not show the
+    * latest changes of the catalog.
+    * </p>
+    *
+    * @param count
+    *           the number of albums at the start of a list which are prefetched, 0 disables prefetching
+    */
+   public synchronized void setAlbumPrefetchCount(int count) {
+      if (albumPrefetcher != null) {
+         albumPrefetcher.shutdown();
+         albumPrefetcher = null;
+      }
+      if (count > 0) {
+         albumPrefetcher = new AlbumPrefetcher(count, PREFETCH_QUEUE_CAPACITY,
+            (catalog, albumId) -> {
+               try (PriorityScope scope = PriorityScope.open(RequestPriority.BACKGROUND)) {
+                  return albumService().getAlbum(apiKey, prettyJson, catalog, albumId);
+               }
+            }, dataCache);
+      }
+   }
+
+   /**
+    * Returns the counters of the album prefetching.
+    *
+    * @return the {@link PrefetchStatistics}, or <code>null</code> if prefetching is disabled
+    * @see #setAlbumPrefetchCount(int)
+    */
+   public PrefetchStatistics getAlbumPrefetchStatistics() {
+      AlbumPrefetcher prefetcher = albumPrefetcher;
+      return prefetcher == null ? null : prefetcher.getStatistics();
+   }
+
+   /**
+    * Enables/Disables the batching of album lookups. If enabled, {@link #loadAlbum(String, RhapsodyCallback)} and
+    * {@link #getAlbum(String)} calls for albums which aren't cached wait up to <code>window</code> for other lookups,
+    * then all of them are loaded by one multi-ID request. This helps when many independent callers load one album each,
+    * at the cost of the added latency. Synchronous callers are blocked for the window.
+    *
+    * @param window
+    *           the time a lookup waits for others, 0 disables batching
+    * @param unit
+    *           the unit of <code>window</code>
+    * @param maxBatchSize
+    *           the maximum number of albums per request, a full batch is sent right away. 1 or less disables batching.
+    */
+   public synchronized void setAlbumBatching(long window, TimeUnit unit, int maxBatchSize) {
+      if (albumBatcher != null) {
+         albumBatcher.shutdown();
+         albumBatcher = null;
+      }
+      if (window > 0 && maxBatchSize > 1) {
+         albumBatcher = new AlbumBatcher(window, unit, maxBatchSize, (albumIds, batchCallback) -> {
+            String catalog = authorizationInfo().catalog;
+            ChartHydrator.BatchLoader<AlbumData> loader = ChartHydrator.batchLoader(
+               (id, sdkCallback) -> albumService().getAlbum(apiKey, prettyJson, catalog, id, sdkCallback),
+               (ids, sdkCallback) -> albumService().getAlbums(apiKey, prettyJson, catalog, ids, sdkCallback));
+            return call(newCallHandle("loadAlbumBatch", false), () -> loader.load(albumIds, batchCallback));
+         });
+      }
+   }
+
+   /**
+    * Returns the counters and the batch size distribution of the album lookup batching.
+    *
+    * @return the {@link AlbumBatchStatistics}, or <code>null</code> if batching is disabled
+    * @see #setAlbumBatching(long, TimeUnit, int)
+    */
+   public AlbumBatchStatistics getAlbumBatchStatistics() {
+      AlbumBatcher batcher = albumBatcher;
+      return batcher == null ? null : batcher.getStatistics();
+   }
+
    /**
     * Removes the authentication information from the store. Use this method to log out the user.
     */
    public void clearAuthorization() {
       authorizationStore.clearAuthorization();
-      authorizationInfo.accessToken = null;
-      authorizationInfo.refreshToken = null;
-      authorizationInfo.catalog = null;
+      AuthorizationInfo cleared = authorizationInfo();
+      cleared.accessToken = null;
+      cleared.refreshToken = null;
+      cleared.catalog = null;
    }
 
    /**
@@ -184,16 +501,19 @@ public class RhapsodySdkWrapper {
    public void authorize(String username, String password, AuthenticationCallback loginCallback) {
       LOGGER.info("Authorizing");
       String basicAuth = new String(Base64.getEncoder().encode((String.format("%s:%s", apiKey, apiSecret).getBytes())));
-      authService.authorizeByPassword(basicAuth, new PasswordGrant(username, password), new Callback<AccessToken>() {
+      authService().authorizeByPassword(basicAuth, new PasswordGrant(username, password), new Callback<AccessToken>() {
 
          @Override
          public void success(AccessToken authorizationResponse, Response response) {
             LOGGER.info("Successfully authorized, access token: {}", authorizationResponse.access_token);
-            authorizationInfo = new AuthorizationInfo();
-            authorizationInfo.accessToken = authorizationResponse.access_token;
-            authorizationInfo.refreshToken = authorizationResponse.refresh_token;
-            authorizationInfo.catalog = authorizationResponse.catalog;
-            authorizationStore.saveAuthorizationInfo(authorizationInfo);
+            AuthorizationInfo authorized = new AuthorizationInfo();
+            authorized.accessToken = authorizationResponse.access_token;
+            authorized.refreshToken = authorizationResponse.refresh_token;
+            authorized.catalog = authorizationResponse.catalog;
+            synchronized (authorizationLoad) {
+               authorizationInfo = authorized;
+            }
+            authorizationStore.saveAuthorizationInfo(authorized);
 
             if (loginCallback != null) {
                loginCallback.success();
@@ -234,22 +554,23 @@ public class RhapsodySdkWrapper {
    public void refreshToken(AuthenticationCallback callback) {
       LOGGER.info("Refreshing Token");
 
-      if (authorizationInfo.refreshToken == null) {
+      if (authorizationInfo().refreshToken == null) {
          LOGGER.warn("No refresh token available, make an authorization request before trying a refresh request.");
       }
       RefreshToken refreshToken = new RefreshToken();
       refreshToken.client_id = apiKey;
       refreshToken.client_secret = apiSecret;
-      refreshToken.refresh_token = authorizationInfo.refreshToken;
+      refreshToken.refresh_token = authorizationInfo().refreshToken;
 
-      authService.refreshAuthorization(refreshToken, new Callback<AccessToken>() {
+      authService().refreshAuthorization(refreshToken, new Callback<AccessToken>() {
 
          @Override
          public void success(AccessToken authorizationResponse, Response response) {
             LOGGER.info("Successfully refreshed token, access token: {}", authorizationResponse.access_token);
-            authorizationInfo.accessToken = authorizationResponse.access_token;
-            authorizationInfo.refreshToken = authorizationResponse.refresh_token;
-            authorizationStore.saveAuthorizationInfo(authorizationInfo);
+            AuthorizationInfo refreshed = authorizationInfo();
+            refreshed.accessToken = authorizationResponse.access_token;
+            refreshed.refreshToken = authorizationResponse.refresh_token;
+            authorizationStore.saveAuthorizationInfo(refreshed);
 
             callback.success();
          }
@@ -264,8 +585,71 @@ public class RhapsodySdkWrapper {
       });
    }
 
+   /**
+    * Returns the {@link AuthorizationInfo}, waits for it if it is still loaded in the background. If the background
+    * load failed, the information is loaded again by the calling thread. A failure of that load is thrown, so no
+    * request is made without the stored token.
+    *
+    * @return the {@link AuthorizationInfo}
+    * @throws RuntimeException
+    *            if the {@link AuthorizationStore} failed to load the authorization information
+    */
+   private AuthorizationInfo authorizationInfo() {
+      AuthorizationInfo info = authorizationInfo;
+      if (info != null) {
+         return info;
+      }
+      synchronized (authorizationLoad) {
+         if (authorizationInfo == null) {
+            try {
+               authorizationInfo = authorizationLoad.join();
+            } catch (CompletionException e) {
+               LOGGER.warn("Error loading authorization information in the background, loading again", e.getCause());
+               authorizationInfo = authorizationStore.loadAuthorizationInfo();
+            }
+         }
+         return authorizationInfo;
+      }
+   }
+
+   private AuthenticationService authService() {
+      return adapter.service(AuthenticationService.class);
+   }
+
+   private GenreService genreService() {
+      return adapter.service(GenreService.class);
+   }
+
+   private ArtistService artistService() {
+      return adapter.service(ArtistService.class);
+   }
+
+   private AlbumService albumService() {
+      return adapter.service(AlbumService.class);
+   }
+
+   private TrackService trackService() {
+      return adapter.service(TrackService.class);
+   }
+
+   private AccountService memberService() {
+      return adapter.service(AccountService.class);
+   }
+
+   private LibraryService libraryService() {
+      return adapter.service(LibraryService.class);
+   }
+
+   private ChartService chartService() {
+      return adapter.service(ChartService.class);
+   }
+
+   private SearchService searchService() {
+      return adapter.service(SearchService.class);
+   }
+
    private String getAuthorizationString() {
-      String authorization = "Bearer " + authorizationInfo.accessToken;
+      String authorization = "Bearer " + authorizationInfo().accessToken;
       return authorization;
    }
 
@@ -280,11 +664,43 @@ public class RhapsodySdkWrapper {
     *           the ID of the album to load
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadAlbum(String albumId, RhapsodyCallback<AlbumData> callback) {
-      LOGGER.info("Loading album {}", albumId);
-      Callback<AlbumData> sdkCallback = mapCallback(callback);
-      albumService.getAlbum(apiKey, prettyJson, authorizationInfo.catalog, albumId, sdkCallback);
+   public Cancellable loadAlbum(String albumId, RhapsodyCallback<AlbumData> callback) {
+      if (traceRecorder != null) {
+         trace("loadAlbum", albumId);
+      }
+      AlbumData data = getCachedAlbum(albumId);
+      if (data == null) {
+         LOGGER.debug("Loading album {}", albumId);
+         return loadAlbumUncached(albumId, callback);
+      } else {
+         LOGGER.debug("Using album {} from cache", albumId);
+         callback.onSuccess(data);
+         return new CallHandle();
+      }
+   }
+
+   /**
+    * Asynchronously loads the album with the given <code>albumId</code> from the API, even if it is cached. The cache
+    * is updated with the loaded album.
+    *
+    * <p>
+    * REST-method: <code>/albums/{albumId}</code>
+    * </p>
+    *
+    * @param albumId
+    *           the ID of the album to load
+    * @param callback
+    *           callback which is called on success or failure
+    * @return the handle to cancel the call
+    */
+   public Cancellable reloadAlbum(String albumId, RhapsodyCallback<AlbumData> callback) {
+      if (traceRecorder != null) {
+         trace("reloadAlbum", albumId);
+      }
+      LOGGER.debug("Reloading album {}", albumId);
+      return loadAlbumUncached(albumId, callback);
    }
 
    /**
@@ -299,8 +715,154 @@ public class RhapsodySdkWrapper {
     * @return the album's meta information
     */
    public AlbumData getAlbum(String albumId) {
-      LOGGER.info("Loading album {}", albumId);
-      return albumService.getAlbum(apiKey, prettyJson, authorizationInfo.catalog, albumId);
+      if (traceRecorder != null) {
+         trace("getAlbum", albumId);
+      }
+      AlbumData data = getCachedAlbum(albumId);
+      if (data != null) {
+         LOGGER.debug("Using album {} from cache", albumId);
+         return data;
+      }
+      LOGGER.debug("Loading album {}", albumId);
+      boolean caching = isAlbumCacheEnabled();
+      AlbumPrefetcher prefetcher = caching ? albumPrefetcher : null;
+      if (prefetcher != null) {
+         prefetcher.loadStarted(albumId);
+      }
+      try {
+         AlbumBatcher batcher = albumBatcher;
+         if (batcher == null) {
+            String catalog = authorizationInfo().catalog;
+            data = callSync("getAlbum", () -> albumService().getAlbum(apiKey, prettyJson, catalog, albumId));
+         } else {
+            data = getBatched(batcher, albumId);
+         }
+         if (caching) {
+            dataCache.putAlbum(authorizationInfo().catalog, data);
+         }
+         return data;
+      } finally {
+         if (prefetcher != null) {
+            prefetcher.loadFinished(albumId);
+         }
+      }
+   }
+
+   private AlbumData getBatched(AlbumBatcher batcher, String albumId) {
+      CompletableFuture<AlbumData> result = new CompletableFuture<>();
+      Cancellable lookup = batcher.load(albumId, new Callback<AlbumData>() {
+
+         @Override
+         public void success(AlbumData album, Response response) {
+            result.complete(album);
+         }
+
+         @Override
+         public void failure(RetrofitError error) {
+            result.completeExceptionally(error);
+         }
+      });
+      // the batch request is shared, so the deadline of this call bounds only the wait for it
+      long deadline = getDeadline(methodTimeouts.getOrDefault("getAlbum", timeouts), true);
+      long timeout = deadline == DeadlineScope.NO_DEADLINE ? BATCHED_LOOKUP_TIMEOUT_MILLIS
+         : TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      try {
+         return result.get(timeout, TimeUnit.MILLISECONDS);
+      } catch (ExecutionException e) {
+         // the same exception as an unbatched call
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         } else if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw RetrofitError.unexpectedError(null, cause);
+      } catch (TimeoutException e) {
+         lookup.cancel();
+         throw RetrofitError.networkError(null,
+            new DeadlineExceededException("Album " + albumId + " was not loaded within " + timeout + " ms"));
+      } catch (InterruptedException e) {
+         lookup.cancel();
+         Thread.currentThread().interrupt();
+         throw RetrofitError.unexpectedError(null, e);
+      }
+   }
+
+   /**
+    * Loads an album from the API and adds it to the cache if caching is enabled.
+    */
+   private Cancellable loadAlbumUncached(String albumId, RhapsodyCallback<AlbumData> callback) {
+      Callback<AlbumData> sdkCallback = mapCallback(callback);
+      AlbumPrefetcher prefetcher = null;
+      if (isAlbumCacheEnabled()) {
+         sdkCallback = dataCache.getAddAlbumToCacheCallback(authorizationInfo().catalog, sdkCallback);
+         prefetcher = albumPrefetcher;
+      }
+      if (prefetcher != null) {
+         prefetcher.loadStarted(albumId);
+         sdkCallback = loadFinishing(prefetcher, albumId, sdkCallback);
+      }
+      Callback<AlbumData> callbackExt = sdkCallback;
+      try {
+         AlbumBatcher batcher = albumBatcher;
+         if (batcher != null) {
+            return batcher.load(albumId, callbackExt);
+         }
+         String catalog = authorizationInfo().catalog;
+         return call("loadAlbum", () -> albumService().getAlbum(apiKey, prettyJson, catalog, albumId, callbackExt));
+      } catch (RuntimeException e) {
+         if (prefetcher != null) {
+            prefetcher.loadFinished(albumId);
+         }
+         throw e;
+      }
+   }
+
+   /**
+    * Wraps the given <code>callback</code> so the prefetcher is told when the load of the user finished.
+    */
+   private static Callback<AlbumData> loadFinishing(AlbumPrefetcher prefetcher, String albumId,
+      Callback<AlbumData> callback) {
+      return new Callback<AlbumData>() {
+
+         @Override
+         public void success(AlbumData album, Response response) {
+            try {
+               callback.success(album, response);
+            } finally {
+               prefetcher.loadFinished(albumId);
+            }
+         }
+
+         @Override
+         public void failure(RetrofitError error) {
+            try {
+               callback.failure(error);
+            } finally {
+               prefetcher.loadFinished(albumId);
+            }
+         }
+      };
+   }
+
+   /**
+    * Returns <code>true</code> if loaded albums are cached: while prefetching is enabled or if an album cache store
+    * was set.
+    */
+   private boolean isAlbumCacheEnabled() {
+      return albumCacheConfigured || albumPrefetcher != null;
+   }
+
+   private AlbumData getCachedAlbum(String albumId) {
+      if (!isAlbumCacheEnabled()) {
+         return null;
+      }
+      AlbumData data = dataCache.getAlbum(authorizationInfo().catalog, albumId);
+      AlbumPrefetcher prefetcher = albumPrefetcher;
+      if (data != null && prefetcher != null) {
+         prefetcher.albumServedFromCache(albumId);
+      }
+      return data;
    }
 
    /**
@@ -315,11 +877,17 @@ public class RhapsodySdkWrapper {
     *           the ID of the artist to load
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadArtistMeta(String artistId, RhapsodyCallback<ArtistData> callback) {
-      LOGGER.info("Loading artist's {} info", artistId);
+   public Cancellable loadArtistMeta(String artistId, RhapsodyCallback<ArtistData> callback) {
+      if (traceRecorder != null) {
+         trace("loadArtistMeta", artistId);
+      }
+      LOGGER.debug("Loading artist's {} info", artistId);
       Callback<ArtistData> sdkCallback = mapCallback(callback);
-      artistService.getArtist(apiKey, prettyJson, authorizationInfo.catalog, artistId, sdkCallback);
+      String catalog = authorizationInfo().catalog;
+      return call("loadArtistMeta",
+         () -> artistService().getArtist(apiKey, prettyJson, catalog, artistId, sdkCallback));
    }
 
    /**
@@ -334,8 +902,12 @@ public class RhapsodySdkWrapper {
     * @return the artist's meta information
     */
    public ArtistData getArtistMeta(String artistId) {
-      LOGGER.info("Loading artist's {} info", artistId);
-      return artistService.getArtist(apiKey, prettyJson, authorizationInfo.catalog, artistId);
+      if (traceRecorder != null) {
+         trace("getArtistMeta", artistId);
+      }
+      LOGGER.debug("Loading artist's {} info", artistId);
+      String catalog = authorizationInfo().catalog;
+      return callSync("getArtistMeta", () -> artistService().getArtist(apiKey, prettyJson, catalog, artistId));
    }
 
    /**
@@ -349,11 +921,16 @@ public class RhapsodySdkWrapper {
     *           the ID of the artist to load
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadArtistBio(String artistId, RhapsodyCallback<BioData> callback) {
-      LOGGER.info("Loading artist's {} bio", artistId);
+   public Cancellable loadArtistBio(String artistId, RhapsodyCallback<BioData> callback) {
+      if (traceRecorder != null) {
+         trace("loadArtistBio", artistId);
+      }
+      LOGGER.debug("Loading artist's {} bio", artistId);
       Callback<BioData> sdkCallback = mapCallback(callback);
-      artistService.getBio(apiKey, prettyJson, authorizationInfo.catalog, artistId, sdkCallback);
+      return call("loadArtistBio",
+         () -> artistService().getBio(apiKey, prettyJson, authorizationInfo().catalog, artistId, sdkCallback));
    }
 
    /**
@@ -365,11 +942,63 @@ public class RhapsodySdkWrapper {
     *
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadGenres(RhapsodyCallback<Collection<GenreData>> callback) {
-      LOGGER.info("Loading genres");
+   public Cancellable loadGenres(RhapsodyCallback<Collection<GenreData>> callback) {
+      if (traceRecorder != null) {
+         trace("loadGenres");
+      }
+      LOGGER.debug("Loading genres");
       Callback<Collection<GenreData>> sdkCallback = mapCallback(callback);
-      genreService.getGenres(apiKey, prettyJson, authorizationInfo.catalog, sdkCallback);
+      return call("loadGenres",
+         () -> genreService().getGenres(apiKey, prettyJson, authorizationInfo().catalog, sdkCallback));
+   }
+
+   /**
+    * Loads the Rhapsody genres asynchronously as an indexed {@link GenreTree}. The tree is built once per catalog and
+    * cached for a day. Concurrent calls while the genres are loaded share a single request.
+    *
+    * <p>
+    * REST-method: <code>/genres</code>
+    * </p>
+    *
+    * @param callback
+    *           callback which is called on success or failure
+    * @return the handle to cancel the call
+    */
+   public Cancellable loadGenreTree(RhapsodyCallback<GenreTree> callback) {
+      if (traceRecorder != null) {
+         trace("loadGenreTree");
+      }
+      String catalog = authorizationInfo().catalog;
+      GenreTree genreTree = dataCache.getGenreTree(catalog);
+      if (genreTree != null) {
+         LOGGER.debug("Using genre tree from cache");
+         callback.onSuccess(genreTree);
+         return new CallHandle();
+      }
+
+      GenreTreeLoad load = new GenreTreeLoad(catalog);
+      Cancellable subscription;
+      synchronized (pendingGenreTreeLoads) {
+         GenreTreeLoad pending = pendingGenreTreeLoads.get(catalog);
+         if (pending != null) {
+            return pending.subscribe(callback);
+         }
+         pendingGenreTreeLoads.put(catalog, load);
+         subscription = load.subscribe(callback);
+      }
+
+      LOGGER.debug("Loading genre tree from server");
+      try {
+         call(load.request, () -> genreService().getGenres(apiKey, prettyJson, catalog, load));
+      } catch (RuntimeException e) {
+         // this caller gets the exception, the callers which joined meanwhile would wait forever
+         subscription.cancel();
+         load.failure(RetrofitError.unexpectedError(null, e));
+         throw e;
+      }
+      return subscription;
    }
 
    /**
@@ -387,18 +1016,28 @@ public class RhapsodySdkWrapper {
     *           the number of releases to load, if <code>null</code> the default value is used (20)
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadAlbumNewReleases(String userId, Integer limit, RhapsodyCallback<Collection<AlbumData>> callback) {
+   public Cancellable loadAlbumNewReleases(String userId, Integer limit,
+      RhapsodyCallback<Collection<AlbumData>> callback) {
+      if (traceRecorder != null) {
+         trace("loadAlbumNewReleases", userId, limit);
+      }
+      String catalog = authorizationInfo().catalog;
       String cacheId = "rhapsody" + userId;
-      Collection<AlbumData> data = dataCache.getNewReleases(cacheId);
+      Collection<AlbumData> data = dataCache.getNewReleases(catalog, cacheId);
+      callback = prefetching(catalog, callback);
       if (data == null) {
-         LOGGER.info("Loading curated album releases from server");
+         LOGGER.debug("Loading curated album releases from server");
          Callback<Collection<AlbumData>> sdkCallback = mapCallback(callback);
-         Callback<Collection<AlbumData>> callbackExt = dataCache.getAddNewReleasesToCacheCallback(cacheId, sdkCallback);
-         albumService.getNewReleases(apiKey, prettyJson, authorizationInfo.catalog, userId, limit, callbackExt);
+         Callback<Collection<AlbumData>> callbackExt = dataCache.getAddNewReleasesToCacheCallback(catalog, cacheId,
+            sdkCallback);
+         return call("loadAlbumNewReleases",
+            () -> albumService().getNewReleases(apiKey, prettyJson, catalog, userId, limit, callbackExt));
       } else {
-         LOGGER.info("Using curated album releases from cache");
+         LOGGER.debug("Using curated album releases from cache");
          callback.onSuccess(data);
+         return new CallHandle();
       }
    }
 
@@ -415,27 +1054,91 @@ public class RhapsodySdkWrapper {
     *           the number of releases to load, if <code>null</code> the default value is used (20)
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadGenreNewReleases(String genreId, Integer limit, RhapsodyCallback<Collection<AlbumData>> callback) {
-      Collection<AlbumData> data = dataCache.getNewReleases(genreId);
+   public Cancellable loadGenreNewReleases(String genreId, Integer limit,
+      RhapsodyCallback<Collection<AlbumData>> callback) {
+      if (traceRecorder != null) {
+         trace("loadGenreNewReleases", genreId, limit);
+      }
+      String catalog = authorizationInfo().catalog;
+      Collection<AlbumData> data = dataCache.getNewReleases(catalog, genreId);
+      callback = prefetching(catalog, callback);
       if (data == null) {
-         LOGGER.info("Loading genre new releases from server");
+         LOGGER.debug("Loading genre new releases from server");
          Callback<Collection<AlbumData>> sdkCallback = mapCallback(callback);
-         Callback<Collection<AlbumData>> callbackExt = dataCache.getAddNewReleasesToCacheCallback(genreId, sdkCallback);
-         genreService.getNewReleases(apiKey, prettyJson, authorizationInfo.catalog, genreId, limit, callbackExt);
+         Callback<Collection<AlbumData>> callbackExt = dataCache.getAddNewReleasesToCacheCallback(catalog, genreId,
+            sdkCallback);
+         return call("loadGenreNewReleases",
+            () -> genreService().getNewReleases(apiKey, prettyJson, catalog, genreId, limit, callbackExt));
       } else {
-         LOGGER.info("Using genre new releases from cache");
+         LOGGER.debug("Using genre new releases from cache");
          callback.onSuccess(data);
+         return new CallHandle();
       }
    }
 
    /**
-    * Generate a valid request URL for an artist image.
+    * Publishes all new releases for the genre with the given <code>genreId</code>. The releases are loaded page by page
+    * as the subscriber requests them. The result isn't cached.
     *
-    * @param artistId
-    *           the ID of the artist
-    * @param imageSize
-    *           the size of the image
+    * <p>
+    * REST-method: <code>/genres/{genreId}/albums/new</code>
+    * </p>
+    *
+    * @param genreId
+    *           the ID of the genre to load new releases
+    * @param pageSize
+    *           the number of releases to load by one request
+    * @return a publisher which loads the releases for each subscriber
+    */
+   public Publisher<AlbumData> publishGenreNewReleases(String genreId, int pageSize) {
+      return new PagedPublisher<>((offset, limit, callback) -> {
+         LOGGER.debug("Loading genre new releases from offset {}", offset);
+         String catalog = authorizationInfo().catalog;
+         return call("publishGenreNewReleases",
+            () -> genreService().getNewReleases(apiKey, prettyJson, catalog, genreId, limit, offset,
+            mapCallback(callback)));
+      }, pageSize);
+   }
+
+   /**
+    * Wraps the given <code>callback</code> so the loaded albums are prefetched if prefetching is enabled.
+    *
+    * @param catalog
+    *           the catalog the albums are loaded for
+    * @param callback
+    *           the original callback
+    * @return the wrapped callback, or the original callback if prefetching is disabled
+    */
+   private RhapsodyCallback<Collection<AlbumData>> prefetching(String catalog,
+      RhapsodyCallback<Collection<AlbumData>> callback) {
+      AlbumPrefetcher prefetcher = albumPrefetcher;
+      if (prefetcher == null) {
+         return callback;
+      }
+      return new RhapsodyCallback<Collection<AlbumData>>() {
+
+         @Override
+         public void onSuccess(Collection<AlbumData> albums) {
+            prefetcher.prefetch(catalog, albums);
+            callback.onSuccess(albums);
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            callback.onFailure(httpCode, message);
+         }
+      };
+   }
+
+   /**
+    * Generate a valid request URL for an artist image.
+    *
+    * @param artistId
+    *           the ID of the artist
+    * @param imageSize
+    *           the size of the image
     * @return image URL
     */
    public String getArtistImageUrl(String artistId, ArtistImageSize imageSize) {
@@ -454,12 +1157,16 @@ public class RhapsodySdkWrapper {
     *
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadAccount(RhapsodyCallback<AccountData> callback) {
-      LOGGER.info("Loading account information");
+   public Cancellable loadAccount(RhapsodyCallback<AccountData> callback) {
+      if (traceRecorder != null) {
+         trace("loadAccount");
+      }
+      LOGGER.debug("Loading account information");
       String authorization = getAuthorizationString();
       Callback<AccountData> sdkCallback = mapCallback(callback);
-      memberService.getAccount(authorization, prettyJson, sdkCallback);
+      return call("loadAccount", () -> memberService().getAccount(authorization, prettyJson, sdkCallback));
    }
 
    /**
@@ -472,9 +1179,13 @@ public class RhapsodySdkWrapper {
     * @return a list of an artist's new releases
     */
    public Collection<AlbumData> getArtistNewReleases(String artistId, Integer limit) {
-      LOGGER.info("Loading artist new releases");
-      Collection<AlbumData> newReleases = artistService.getNewReleases(apiKey, prettyJson, authorizationInfo.catalog,
-         artistId, limit);
+      if (traceRecorder != null) {
+         trace("getArtistNewReleases", artistId, limit);
+      }
+      LOGGER.debug("Loading artist new releases");
+      String catalog = authorizationInfo().catalog;
+      Collection<AlbumData> newReleases = callSync("getArtistNewReleases",
+         () -> artistService().getNewReleases(apiKey, prettyJson, catalog, artistId, limit));
 
       return newReleases;
    }
@@ -490,11 +1201,37 @@ public class RhapsodySdkWrapper {
     *           the number of releases to load, if <code>null</code> the default value is used (20)
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
+    */
+   public Cancellable loadAllArtistsInLibrary(Integer limit, RhapsodyCallback<Collection<Artist>> callback) {
+      return loadAllArtistsInLibrary(limit, null, callback);
+   }
+
+   /**
+    * Loads a page of the artists in the user's library.
+    *
+    * <p>
+    * REST-method: <code>/me/library/artists</code>
+    * </p>
+    *
+    * @param limit
+    *           the number of artists to load, if <code>null</code> the default value is used (20)
+    * @param offset
+    *           the number of artists to skip, if <code>null</code> the first page is loaded
+    * @param callback
+    *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadAllArtistsInLibrary(Integer limit, RhapsodyCallback<Collection<Artist>> callback) {
-      LOGGER.info("Loading all artists in library");
+   public Cancellable loadAllArtistsInLibrary(Integer limit, Integer offset,
+      RhapsodyCallback<Collection<Artist>> callback) {
+      if (traceRecorder != null) {
+         trace("loadAllArtistsInLibrary", limit, offset);
+      }
+      LOGGER.debug("Loading all artists in library");
       Callback<Collection<Artist>> sdkCallback = mapCallback(callback);
-      libraryService.loadAllArtistsInLibrary(getAuthorizationString(), prettyJson, limit, sdkCallback);
+      String authorization = getAuthorizationString();
+      return call("loadAllArtistsInLibrary",
+         () -> libraryService().loadAllArtistsInLibrary(authorization, prettyJson, limit, offset, sdkCallback));
    }
 
    /**
@@ -510,12 +1247,19 @@ public class RhapsodySdkWrapper {
     *           the number of releases to load, if <code>null</code> the default value is used (20)
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadAllAlbumsByArtistInLibrary(String artistId, Integer limit,
+   public Cancellable loadAllAlbumsByArtistInLibrary(String artistId, Integer limit,
       RhapsodyCallback<Collection<AlbumData>> callback) {
-      LOGGER.info("Loading all albums by artists in library");
+      if (traceRecorder != null) {
+         trace("loadAllAlbumsByArtistInLibrary", artistId, limit);
+      }
+      LOGGER.debug("Loading all albums by artists in library");
       Callback<Collection<AlbumData>> sdkCallback = mapCallback(callback);
-      libraryService.loadAllAlbumsByArtistInLibrary(getAuthorizationString(), prettyJson, artistId, limit, sdkCallback);
+      String authorization = getAuthorizationString();
+      return call("loadAllAlbumsByArtistInLibrary",
+         () -> libraryService().loadAllAlbumsByArtistInLibrary(authorization, prettyJson, artistId, limit,
+         sdkCallback));
    }
 
    /**
@@ -529,11 +1273,103 @@ public class RhapsodySdkWrapper {
     *           the number of releases to load, if <code>null</code> the default value is used (20)
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
+    */
+   public Cancellable loadAllAlbumsInLibrary(Integer limit, RhapsodyCallback<Collection<AlbumData>> callback) {
+      return loadAllAlbumsInLibrary(limit, null, callback);
+   }
+
+   /**
+    * Loads a page of the albums in the user's library.
+    *
+    * <p>
+    * REST-method: <code>/me/library/albums</code>
+    * </p>
+    *
+    * @param limit
+    *           the number of albums to load, if <code>null</code> the default value is used (20)
+    * @param offset
+    *           the number of albums to skip, if <code>null</code> the first page is loaded
+    * @param callback
+    *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadAllAlbumsInLibrary(Integer limit, RhapsodyCallback<Collection<AlbumData>> callback) {
-      LOGGER.info("Loading all albums in library");
+   public Cancellable loadAllAlbumsInLibrary(Integer limit, Integer offset,
+      RhapsodyCallback<Collection<AlbumData>> callback) {
+      if (traceRecorder != null) {
+         trace("loadAllAlbumsInLibrary", limit, offset);
+      }
+      LOGGER.debug("Loading all albums in library");
       Callback<Collection<AlbumData>> sdkCallback = mapCallback(callback);
-      libraryService.loadAllAlbumsInLibrary(getAuthorizationString(), prettyJson, limit, sdkCallback);
+      String authorization = getAuthorizationString();
+      return call("loadAllAlbumsInLibrary",
+         () -> libraryService().loadAllAlbumsInLibrary(authorization, prettyJson, limit, offset, sdkCallback));
+   }
+
+   /**
+    * Publishes all artists in the user's library. The artists are loaded page by page as the subscriber requests them.
+    *
+    * <p>
+    * REST-method: <code>/me/library/artists</code>
+    * </p>
+    *
+    * @param pageSize
+    *           the number of artists to load by one request
+    * @return a publisher which loads the artists for each subscriber
+    */
+   public Publisher<Artist> publishAllArtistsInLibrary(int pageSize) {
+      return new PagedPublisher<>((offset, limit, callback) -> {
+         LOGGER.debug("Loading artists in library from offset {}", offset);
+         String authorization = getAuthorizationString();
+         return call("publishAllArtistsInLibrary",
+            () -> libraryService().loadAllArtistsInLibrary(authorization, prettyJson, limit, offset,
+            mapCallback(callback)));
+      }, pageSize);
+   }
+
+   /**
+    * Publishes all albums in a member’s library by the artist. The albums are loaded page by page as the subscriber
+    * requests them.
+    *
+    * <p>
+    * REST-method: <code>/me/library/artists/{artistId}/albums</code>
+    * </p>
+    *
+    * @param artistId
+    *           the ID of the artist to load
+    * @param pageSize
+    *           the number of albums to load by one request
+    * @return a publisher which loads the albums for each subscriber
+    */
+   public Publisher<AlbumData> publishAllAlbumsByArtistInLibrary(String artistId, int pageSize) {
+      return new PagedPublisher<>((offset, limit, callback) -> {
+         LOGGER.debug("Loading albums by artist in library from offset {}", offset);
+         String authorization = getAuthorizationString();
+         return call("publishAllAlbumsByArtistInLibrary",
+            () -> libraryService().loadAllAlbumsByArtistInLibrary(authorization, prettyJson, artistId, limit,
+            offset, mapCallback(callback)));
+      }, pageSize);
+   }
+
+   /**
+    * Publishes all albums in a member’s library. The albums are loaded page by page as the subscriber requests them.
+    *
+    * <p>
+    * REST-method: <code>/me/library/albums</code>
+    * </p>
+    *
+    * @param pageSize
+    *           the number of albums to load by one request
+    * @return a publisher which loads the albums for each subscriber
+    */
+   public Publisher<AlbumData> publishAllAlbumsInLibrary(int pageSize) {
+      return new PagedPublisher<>((offset, limit, callback) -> {
+         LOGGER.debug("Loading albums in library from offset {}", offset);
+         String authorization = getAuthorizationString();
+         return call("publishAllAlbumsInLibrary",
+            () -> libraryService().loadAllAlbumsInLibrary(authorization, prettyJson, limit, offset,
+            mapCallback(callback)));
+      }, pageSize);
    }
 
    /**
@@ -549,11 +1385,18 @@ public class RhapsodySdkWrapper {
     *           the period to consider for the charts
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadTopPlayedTracks(Integer limit, RangeEnum range, RhapsodyCallback<List<ChartsTrack>> callback) {
-      LOGGER.info("Loading artist charts");
+   public Cancellable loadTopPlayedTracks(Integer limit, RangeEnum range,
+      RhapsodyCallback<List<ChartsTrack>> callback) {
+      if (traceRecorder != null) {
+         trace("loadTopPlayedTracks", limit, range);
+      }
+      LOGGER.debug("Loading track charts");
       Callback<List<ChartsTrack>> sdkCallback = mapCallback(callback);
-      chartService.loadTopPlayedTracks(getAuthorizationString(), prettyJson, limit, RangeEnum.life, sdkCallback);
+      String authorization = getAuthorizationString();
+      return call("loadTopPlayedTracks",
+         () -> chartService().loadTopPlayedTracks(authorization, prettyJson, limit, range, sdkCallback));
    }
 
    /**
@@ -569,11 +1412,18 @@ public class RhapsodySdkWrapper {
     *           the period to consider for the charts
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadTopPlayedArtists(Integer limit, RangeEnum range, RhapsodyCallback<List<ChartsArtist>> callback) {
-      LOGGER.info("Loading artist charts");
+   public Cancellable loadTopPlayedArtists(Integer limit, RangeEnum range,
+      RhapsodyCallback<List<ChartsArtist>> callback) {
+      if (traceRecorder != null) {
+         trace("loadTopPlayedArtists", limit, range);
+      }
+      LOGGER.debug("Loading artist charts");
       Callback<List<ChartsArtist>> sdkCallback = mapCallback(callback);
-      chartService.loadTopPlayedArtists(getAuthorizationString(), prettyJson, limit, RangeEnum.life, sdkCallback);
+      String authorization = getAuthorizationString();
+      return call("loadTopPlayedArtists",
+         () -> chartService().loadTopPlayedArtists(authorization, prettyJson, limit, range, sdkCallback));
    }
 
    /**
@@ -589,11 +1439,256 @@ public class RhapsodySdkWrapper {
     *           the period to consider for the charts
     * @param callback
     *           callback which is called on success or failure
+    * @return the handle to cancel the call
     */
-   public void loadTopPlayedAlbums(Integer limit, RangeEnum range, RhapsodyCallback<List<ChartsAlbum>> callback) {
-      LOGGER.info("Loading album charts");
+   public Cancellable loadTopPlayedAlbums(Integer limit, RangeEnum range,
+      RhapsodyCallback<List<ChartsAlbum>> callback) {
+      if (traceRecorder != null) {
+         trace("loadTopPlayedAlbums", limit, range);
+      }
+      LOGGER.debug("Loading album charts");
       Callback<List<ChartsAlbum>> sdkCallback = mapCallback(callback);
-      chartService.loadTopPlayedAlbums(getAuthorizationString(), prettyJson, limit, RangeEnum.life, sdkCallback);
+      String authorization = getAuthorizationString();
+      return call("loadTopPlayedAlbums",
+         () -> chartService().loadTopPlayedAlbums(authorization, prettyJson, limit, range, sdkCallback));
+   }
+
+   /**
+    * Publishes the top played tracks. The tracks are loaded page by page as the subscriber requests them.
+    *
+    * <p>
+    * REST-method: <code>/me/charts/tracks</code>
+    * </p>
+    *
+    * @param range
+    *           the period to consider for the charts
+    * @param pageSize
+    *           the number of tracks to load by one request
+    * @return a publisher which loads the tracks for each subscriber
+    */
+   public Publisher<ChartsTrack> publishTopPlayedTracks(RangeEnum range, int pageSize) {
+      return new PagedPublisher<>((offset, limit, callback) -> {
+         LOGGER.debug("Loading track charts from offset {}", offset);
+         String authorization = getAuthorizationString();
+         return call("publishTopPlayedTracks",
+            () -> chartService().loadTopPlayedTracks(authorization, prettyJson, limit, offset, range,
+            mapCallback(callback)));
+      }, pageSize);
+   }
+
+   /**
+    * Publishes the top played artists. The artists are loaded page by page as the subscriber requests them.
+    *
+    * <p>
+    * REST-method: <code>/me/charts/artists</code>
+    * </p>
+    *
+    * @param range
+    *           the period to consider for the charts
+    * @param pageSize
+    *           the number of artists to load by one request
+    * @return a publisher which loads the artists for each subscriber
+    */
+   public Publisher<ChartsArtist> publishTopPlayedArtists(RangeEnum range, int pageSize) {
+      return new PagedPublisher<>((offset, limit, callback) -> {
+         LOGGER.debug("Loading artist charts from offset {}", offset);
+         String authorization = getAuthorizationString();
+         return call("publishTopPlayedArtists",
+            () -> chartService().loadTopPlayedArtists(authorization, prettyJson, limit, offset, range,
+            mapCallback(callback)));
+      }, pageSize);
+   }
+
+   /**
+    * Publishes the top played albums. The albums are loaded page by page as the subscriber requests them.
+    *
+    * <p>
+    * REST-method: <code>/me/charts/albums</code>
+    * </p>
+    *
+    * @param range
+    *           the period to consider for the charts
+    * @param pageSize
+    *           the number of albums to load by one request
+    * @return a publisher which loads the albums for each subscriber
+    */
+   public Publisher<ChartsAlbum> publishTopPlayedAlbums(RangeEnum range, int pageSize) {
+      return new PagedPublisher<>((offset, limit, callback) -> {
+         LOGGER.debug("Loading album charts from offset {}", offset);
+         String authorization = getAuthorizationString();
+         return call("publishTopPlayedAlbums",
+            () -> chartService().loadTopPlayedAlbums(authorization, prettyJson, limit, offset, range,
+            mapCallback(callback)));
+      }, pageSize);
+   }
+
+   /**
+    * Loads the top played tracks, artists and albums for all given time ranges. All requests are made concurrently and
+    * the callback is called once with the aggregated result. As the charts are only updated daily, the result is cached
+    * per member until the next day (UTC). The returned dashboard can't be modified, as it is shared by all callers.
+    *
+    * <p>
+    * REST-methods: <code>/me/charts/tracks</code>, <code>/me/charts/artists</code>, <code>/me/charts/albums</code>
+    * </p>
+    *
+    * @param memberId
+    *           the ID of the logged in member, identifies the cached result. If <code>null</code> the result is not
+    *           cached.
+    * @param limit
+    *           the number of entries to load per chart, if <code>null</code> the default value is used (20)
+    * @param ranges
+    *           the periods to load the charts for
+    * @param callback
+    *           callback which is called on success or on the first failure
+    * @return the handle to cancel the call
+    */
+   public Cancellable loadChartDashboard(String memberId, Integer limit, Collection<RangeEnum> ranges,
+      RhapsodyCallback<ChartDashboard> callback) {
+      if (traceRecorder != null) {
+         trace("loadChartDashboard", memberId, limit,
+            ranges.stream().map(RangeEnum::name).collect(Collectors.joining(",")));
+      }
+      EnumSet<RangeEnum> rangeSet = ranges.isEmpty() ? EnumSet.noneOf(RangeEnum.class) : EnumSet.copyOf(ranges);
+      String authorization = getAuthorizationString();
+      String cacheId = memberId == null ? null : memberId + "|" + limit + "|" + rangeSet;
+      ChartDashboard cached = cacheId == null ? null : dataCache.getChartDashboard(cacheId);
+      if (cached != null) {
+         LOGGER.debug("Using chart dashboard from cache");
+         callback.onSuccess(cached);
+         return new CallHandle();
+      }
+
+      LOGGER.debug("Loading chart dashboard for {}", rangeSet);
+      if (rangeSet.isEmpty()) {
+         callback.onSuccess(new ChartDashboard().unmodifiableCopy());
+         return new CallHandle();
+      }
+      long expiresAt = LocalDate.now(ZoneOffset.UTC).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant()
+         .toEpochMilli();
+      ChartDashboardLoad load = new ChartDashboardLoad(rangeSet.size() * 3, cacheId, expiresAt, callback);
+      return call("loadChartDashboard", () -> {
+         for (RangeEnum range : rangeSet) {
+            chartService().loadTopPlayedTracks(authorization, prettyJson, limit, range,
+               load.part(tracks -> load.dashboard.tracks.put(range, tracks)));
+            chartService().loadTopPlayedArtists(authorization, prettyJson, limit, range,
+               load.part(artists -> load.dashboard.artists.put(range, artists)));
+            chartService().loadTopPlayedAlbums(authorization, prettyJson, limit, range,
+               load.part(albums -> load.dashboard.albums.put(range, albums)));
+         }
+      });
+   }
+
+   /**
+    * Loads the metadata for the entries of a track chart. The tracks are resolved against the cache first, the
+    * remaining ones are loaded by a few multi-ID requests. Entries are passed to <code>partialResults</code> as soon as
+    * their metadata is known, so a chart can be rendered while it is being loaded.
+    *
+    * <p>
+    * REST-methods: <code>/tracks/{trackId}</code>, <code>/tracks/{trackIds}</code>
+    * </p>
+    *
+    * @param chart
+    *           the chart as returned by {@link #loadTopPlayedTracks(Integer, RangeEnum, RhapsodyCallback)}
+    * @param partialResults
+    *           receives the entries whose metadata is known, may be called concurrently, may be <code>null</code>
+    * @param callback
+    *           receives all entries in rank order, entries whose metadata couldn't be loaded have no metadata. Fails
+    *           only if no metadata could be loaded at all.
+    * @return the handle to cancel the call
+    */
+   public Cancellable hydrateTopPlayedTracks(List<ChartsTrack> chart,
+      Consumer<List<HydratedEntry<Track>>> partialResults,
+      RhapsodyCallback<List<HydratedEntry<Track>>> callback) {
+      List<HydratedEntry<Track>> entries = new ArrayList<>(chart.size());
+      for (ChartsTrack track : chart) {
+         entries.add(new HydratedEntry<>(entries.size() + 1, track.id, track.playCount));
+      }
+      String catalog = authorizationInfo().catalog;
+      return hydrate("hydrateTopPlayedTracks", entries, dataCache::getTrack, dataCache::putTrack, track -> track.id,
+         ChartHydrator.batchLoader(
+            (id, sdkCallback) -> trackService().getTrack(apiKey, prettyJson, catalog, id, sdkCallback),
+            (ids, sdkCallback) -> trackService().getTracks(apiKey, prettyJson, catalog, ids, sdkCallback)),
+         partialResults, callback);
+   }
+
+   /**
+    * Loads the metadata for the entries of an artist chart. The artists are resolved against the cache first, the
+    * remaining ones are loaded by a few multi-ID requests. Entries are passed to <code>partialResults</code> as soon as
+    * their metadata is known, so a chart can be rendered while it is being loaded.
+    *
+    * <p>
+    * REST-methods: <code>/artists/{artistId}</code>, <code>/artists/{artistIds}</code>
+    * </p>
+    *
+    * @param chart
+    *           the chart as returned by {@link #loadTopPlayedArtists(Integer, RangeEnum, RhapsodyCallback)}
+    * @param partialResults
+    *           receives the entries whose metadata is known, may be called concurrently, may be <code>null</code>
+    * @param callback
+    *           receives all entries in rank order, entries whose metadata couldn't be loaded have no metadata. Fails
+    *           only if no metadata could be loaded at all.
+    * @return the handle to cancel the call
+    */
+   public Cancellable hydrateTopPlayedArtists(List<ChartsArtist> chart,
+      Consumer<List<HydratedEntry<ArtistData>>> partialResults,
+      RhapsodyCallback<List<HydratedEntry<ArtistData>>> callback) {
+      List<HydratedEntry<ArtistData>> entries = new ArrayList<>(chart.size());
+      for (ChartsArtist artist : chart) {
+         entries.add(new HydratedEntry<>(entries.size() + 1, artist.id, artist.playCount));
+      }
+      String catalog = authorizationInfo().catalog;
+      return hydrate("hydrateTopPlayedArtists", entries, dataCache::getArtist, dataCache::putArtist,
+         artist -> artist.id,
+         ChartHydrator.batchLoader(
+            (id, sdkCallback) -> artistService().getArtist(apiKey, prettyJson, catalog, id, sdkCallback),
+            (ids, sdkCallback) -> artistService().getArtists(apiKey, prettyJson, catalog, ids, sdkCallback)),
+         partialResults, callback);
+   }
+
+   /**
+    * Loads the metadata for the entries of an album chart. The albums are resolved against the cache first, the
+    * remaining ones are loaded by a few multi-ID requests. Entries are passed to <code>partialResults</code> as soon as
+    * their metadata is known, so a chart can be rendered while it is being loaded.
+    *
+    * <p>
+    * REST-methods: <code>/albums/{albumId}</code>, <code>/albums/{albumIds}</code>
+    * </p>
+    *
+    * @param chart
+    *           the chart as returned by {@link #loadTopPlayedAlbums(Integer, RangeEnum, RhapsodyCallback)}
+    * @param partialResults
+    *           receives the entries whose metadata is known, may be called concurrently, may be <code>null</code>
+    * @param callback
+    *           receives all entries in rank order, entries whose metadata couldn't be loaded have no metadata. Fails
+    *           only if no metadata could be loaded at all.
+    * @return the handle to cancel the call
+    */
+   public Cancellable hydrateTopPlayedAlbums(List<ChartsAlbum> chart,
+      Consumer<List<HydratedEntry<AlbumData>>> partialResults,
+      RhapsodyCallback<List<HydratedEntry<AlbumData>>> callback) {
+      List<HydratedEntry<AlbumData>> entries = new ArrayList<>(chart.size());
+      for (ChartsAlbum album : chart) {
+         entries.add(new HydratedEntry<>(entries.size() + 1, album.id, album.playCount));
+      }
+      String catalog = authorizationInfo().catalog;
+      return hydrate("hydrateTopPlayedAlbums", entries, albumId -> dataCache.getAlbum(catalog, albumId),
+         album -> dataCache.putAlbum(catalog, album), album -> album.id,
+         ChartHydrator.batchLoader(
+            (id, sdkCallback) -> albumService().getAlbum(apiKey, prettyJson, catalog, id, sdkCallback),
+            (ids, sdkCallback) -> albumService().getAlbums(apiKey, prettyJson, catalog, ids, sdkCallback)),
+         partialResults, callback);
+   }
+
+   private <T> Cancellable hydrate(String method, List<HydratedEntry<T>> entries, Function<String, T> cacheLookup,
+      Consumer<T> cacheStore, Function<T, String> idOf, ChartHydrator.BatchLoader<T> loader,
+      Consumer<List<HydratedEntry<T>>> partialResults, RhapsodyCallback<List<HydratedEntry<T>>> callback) {
+      if (traceRecorder != null) {
+         trace(method, entries.stream().map(HydratedEntry::getId).collect(Collectors.joining(",")));
+      }
+      LOGGER.debug("Loading metadata of {} chart entries", entries.size());
+      ChartHydrator<T> hydrator = new ChartHydrator<>(entries, cacheLookup, cacheStore, idOf, HYDRATION_BATCH_SIZE,
+         HYDRATION_MAX_IN_FLIGHT, loader, partialResults, callback);
+      return call(method, hydrator::start);
    }
 
    /**
@@ -603,11 +1698,19 @@ public class RhapsodySdkWrapper {
     *           the ID of the album to add
     * @param callback
     *           doesn't return any data except the HTTP Response
+    * @return the handle to cancel the call
+    * @see com.github.kaiwinter.rhapsody.sync.LibraryMutationLog
     */
-   public void addAlbumToLibrary(String albumId, RhapsodyCallback<Void> callback) {
-      LOGGER.info("Adding album with ID '{}' to library", albumId);
+   public Cancellable addAlbumToLibrary(String albumId, RhapsodyCallback<Void> callback) {
+      if (traceRecorder != null) {
+         trace("addAlbumToLibrary", albumId);
+      }
+      LOGGER.debug("Adding album with ID '{}' to library", albumId);
       Callback<Void> sdkCallback = mapCallback(callback);
-      libraryService.addAlbumToLibrary(getAuthorizationString(), authorizationInfo.catalog, albumId, sdkCallback);
+      String authorization = getAuthorizationString();
+      String catalog = authorizationInfo().catalog;
+      return call("addAlbumToLibrary",
+         () -> libraryService().addAlbumToLibrary(authorization, catalog, albumId, sdkCallback));
    }
 
    /**
@@ -621,11 +1724,285 @@ public class RhapsodySdkWrapper {
     *           the ID of the album to remove
     * @param callback
     *           doesn't return any data except the HTTP Response
+    * @return the handle to cancel the call
+    * @see com.github.kaiwinter.rhapsody.sync.LibraryMutationLog
     */
-   public void removeAlbumFromLibrary(String albumId, RhapsodyCallback<Void> callback) {
-      LOGGER.info("Removing album with ID '{}' from library", albumId);
+   public Cancellable removeAlbumFromLibrary(String albumId, RhapsodyCallback<Void> callback) {
+      if (traceRecorder != null) {
+         trace("removeAlbumFromLibrary", albumId);
+      }
+      LOGGER.debug("Removing album with ID '{}' from library", albumId);
       Callback<Void> sdkCallback = mapCallback(callback);
-      libraryService.removeAlbumFromLibrary(getAuthorizationString(), albumId, sdkCallback);
+      return call("removeAlbumFromLibrary",
+         () -> libraryService().removeAlbumFromLibrary(getAuthorizationString(), albumId, sdkCallback));
+   }
+
+   /**
+    * Starts the requests of an asynchronous call. All requests started by <code>requests</code>, and by the callbacks
+    * of these requests, belong to the returned handle.
+    *
+    * @param method
+    *           the name of the called method, used for tracing
+    * @param requests
+    *           starts the requests
+    * @return the handle to cancel the call
+    */
+   private Cancellable call(String method, Runnable requests) {
+      return call(newCallHandle(method, true), requests);
+   }
+
+   private static Cancellable call(CallHandle handle, Runnable requests) {
+      Span span = handle.getSpan();
+      span.retain();
+      try (CallHandle.Scope scope = CallHandle.activate(handle)) {
+         requests.run();
+      } finally {
+         span.release();
+      }
+      return handle;
+   }
+
+   /**
+    * Makes the request of a synchronous call. The request is only bound to a {@link CallHandle} if the call is traced.
+    *
+    * @param method
+    *           the name of the called method, used for tracing
+    * @param request
+    *           makes the request
+    * @return the result of the request
+    */
+   private <T> T callSync(String method, Supplier<T> request) {
+      if (CallHandle.current() != null) {
+         return request.get();
+      }
+      CallHandle handle = newCallHandle(method, true);
+      Span span = handle.getSpan();
+      if (!span.isSampled() && handle.getTimeouts() == Timeouts.DEFAULT) {
+         return request.get();
+      }
+      span.retain();
+      try (CallHandle.Scope scope = CallHandle.activate(handle)) {
+         return request.get();
+      } finally {
+         span.release();
+      }
+   }
+
+   /**
+    * Creates the handle of a call with the span, the timeouts and the deadline of the call.
+    *
+    * @param method
+    *           the name of the called method
+    * @param inheritDeadline
+    *           if <code>true</code> the call gets the deadline of the {@link DeadlineScope} and of the call whose
+    *           callback makes the call, <code>false</code> for a request which is shared by several calls
+    * @return the handle
+    */
+   private CallHandle newCallHandle(String method, boolean inheritDeadline) {
+      Timeouts callTimeouts = methodTimeouts.getOrDefault(method, timeouts);
+      long deadline = getDeadline(callTimeouts, inheritDeadline);
+
+      Tracer current = tracer;
+      Span span = current == null ? Span.NOT_SAMPLED : current.startSpan(method);
+      if (!span.isSampled() && deadline != DeadlineScope.NO_DEADLINE) {
+         // The phase times describe a missed deadline
+         span = Span.unreported(method);
+      }
+      return new CallHandle(span, callTimeouts, deadline);
+   }
+
+   /**
+    * Returns the deadline of a call which starts now.
+    *
+    * @param callTimeouts
+    *           the timeouts of the call
+    * @param inheritDeadline
+    *           if <code>true</code> the call gets the deadline of the {@link DeadlineScope} and of the call whose
+    *           callback makes the call
+    * @return the deadline in {@link System#nanoTime()}, or {@link DeadlineScope#NO_DEADLINE}
+    */
+   private static long getDeadline(Timeouts callTimeouts, boolean inheritDeadline) {
+      long deadline = DeadlineScope.NO_DEADLINE;
+      if (inheritDeadline) {
+         CallHandle caller = CallHandle.current();
+         deadline = DeadlineScope.earlier(DeadlineScope.current(),
+            caller == null ? DeadlineScope.NO_DEADLINE : caller.getDeadline());
+      }
+      long callTimeout = callTimeouts.getCallTimeout(TimeUnit.NANOSECONDS);
+      if (callTimeout > 0) {
+         deadline = DeadlineScope.earlier(deadline, System.nanoTime() + callTimeout);
+      }
+      return deadline;
+   }
+
+   /**
+    * Passes the call to the {@link TraceRecorder} if one is set. Callers check {@link #traceRecorder} first, so no
+    * argument array is allocated while recording is disabled.
+    *
+    * @param method
+    *           the name of the called method
+    * @param arguments
+    *           the arguments of the call
+    */
+   private void trace(String method, Object... arguments) {
+      TraceRecorder recorder = traceRecorder;
+      if (recorder == null) {
+         return;
+      }
+      List<String> traceArguments = new ArrayList<>(arguments.length);
+      for (Object argument : arguments) {
+         traceArguments.add(argument == null ? null : argument.toString());
+      }
+      recorder.record(new TraceEntry(System.currentTimeMillis(), method, traceArguments));
+   }
+
+   /**
+    * Adds several albums to the user's library. The albums are sent in batches by multi-ID requests, a few of them
+    * concurrently. Batches which fail with a transient error are retried. The callback's
+    * {@link RhapsodyCallback#onSuccess(Object)} receives the result per album after all albums were processed, also if
+    * some of them failed.
+    *
+    * <p>
+    * REST-method: <code>/v1/me/library/albums</code>
+    * </p>
+    *
+    * @param albumIds
+    *           the IDs of the albums to add
+    * @param callback
+    *           receives the aggregated result
+    * @return the handle to cancel the call
+    */
+   public Cancellable addAlbumsToLibrary(Collection<String> albumIds, RhapsodyCallback<BulkMutationResult> callback) {
+      if (traceRecorder != null) {
+         trace("addAlbumsToLibrary", String.join(",", albumIds));
+      }
+      LOGGER.debug("Adding {} albums to library", albumIds.size());
+      String authorization = getAuthorizationString();
+      String catalog = authorizationInfo().catalog;
+      BulkLibraryMutation mutation = new BulkLibraryMutation(albumIds, BULK_ADD_BATCH_SIZE, BULK_MAX_IN_FLIGHT,
+         BULK_MAX_ATTEMPTS, BULK_RETRY_DELAY_MILLIS, (ids, sdkCallback) -> libraryService()
+            .addAlbumToLibrary(authorization, catalog, String.join(",", ids), sdkCallback),
+         callback);
+      return call("addAlbumsToLibrary", mutation::start);
+   }
+
+   /**
+    * Deletes several albums from the user's library. As the API deletes one album per request, the requests are
+    * pipelined with a few of them concurrently. Requests which fail with a transient error are retried. The callback's
+    * {@link RhapsodyCallback#onSuccess(Object)} receives the result per album after all albums were processed, also if
+    * some of them failed.
+    *
+    * <p>
+    * REST-method: <code>/v1/me/library/albums/{albumId}</code>
+    * </p>
+    *
+    * @param albumIds
+    *           the IDs of the albums to remove
+    * @param callback
+    *           receives the aggregated result
+    * @return the handle to cancel the call
+    */
+   public Cancellable removeAlbumsFromLibrary(Collection<String> albumIds,
+      RhapsodyCallback<BulkMutationResult> callback) {
+      if (traceRecorder != null) {
+         trace("removeAlbumsFromLibrary", String.join(",", albumIds));
+      }
+      LOGGER.debug("Removing {} albums from library", albumIds.size());
+      String authorization = getAuthorizationString();
+      BulkLibraryMutation mutation = new BulkLibraryMutation(albumIds, 1, BULK_MAX_IN_FLIGHT, BULK_MAX_ATTEMPTS,
+         BULK_RETRY_DELAY_MILLIS,
+         (ids, sdkCallback) -> libraryService().removeAlbumFromLibrary(authorization, ids.get(0), sdkCallback),
+         callback);
+      return call("removeAlbumsFromLibrary", mutation::start);
+   }
+
+   /**
+    * Searches albums by their name, artist name and tags.
+    *
+    * <p>
+    * REST-method: <code>/search?type=album</code>
+    * </p>
+    *
+    * @param query
+    *           the search query
+    * @param limit
+    *           the maximum number of albums, if <code>null</code> the servers default value is used
+    * @param callback
+    *           callback which is called on success or failure
+    * @return the handle to cancel the call
+    */
+   public Cancellable searchAlbums(String query, Integer limit, RhapsodyCallback<Collection<AlbumData>> callback) {
+      if (traceRecorder != null) {
+         trace("searchAlbums", query, limit);
+      }
+      LOGGER.debug("Searching albums for '{}'", query);
+      Callback<Collection<AlbumData>> sdkCallback = mapCallback(callback);
+      String catalog = authorizationInfo().catalog;
+      return call("searchAlbums",
+         () -> searchService().searchAlbums(apiKey, prettyJson, catalog, query, limit, sdkCallback));
+   }
+
+   /**
+    * Searches artists by their name.
+    *
+    * <p>
+    * REST-method: <code>/search?type=artist</code>
+    * </p>
+    *
+    * @param query
+    *           the search query
+    * @param limit
+    *           the maximum number of artists, if <code>null</code> the servers default value is used
+    * @param callback
+    *           callback which is called on success or failure
+    * @return the handle to cancel the call
+    */
+   public Cancellable searchArtists(String query, Integer limit, RhapsodyCallback<Collection<ArtistData>> callback) {
+      if (traceRecorder != null) {
+         trace("searchArtists", query, limit);
+      }
+      LOGGER.debug("Searching artists for '{}'", query);
+      Callback<Collection<ArtistData>> sdkCallback = mapCallback(callback);
+      String catalog = authorizationInfo().catalog;
+      return call("searchArtists",
+         () -> searchService().searchArtists(apiKey, prettyJson, catalog, query, limit, sdkCallback));
+   }
+
+   /**
+    * Creates a typeahead search of albums for one input field. Pass every change of the input to
+    * {@link TypeaheadSearch#search(String, RhapsodyCallback)}: requests are debounced, superseded queries are cancelled
+    * and results are cached and refined locally where possible. The requests are sent with
+    * {@link RequestPriority#INTERACTIVE}.
+    *
+    * @param limit
+    *           the maximum number of albums per query
+    * @return the {@link TypeaheadSearch}
+    */
+   public TypeaheadSearch<AlbumData> createAlbumTypeahead(int limit) {
+      return new TypeaheadSearch<>(
+         (query, queryLimit, callback) -> searchInteractive(() -> searchAlbums(query, queryLimit, callback)),
+         album -> album.name + " " + (album.artist == null ? "" : album.artist.name) + " "
+            + (album.tags == null ? "" : String.join(" ", album.tags)),
+         limit, TYPEAHEAD_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, TYPEAHEAD_CACHED_QUERIES);
+   }
+
+   /**
+    * Creates a typeahead search of artists for one input field, see {@link #createAlbumTypeahead(int)}.
+    *
+    * @param limit
+    *           the maximum number of artists per query
+    * @return the {@link TypeaheadSearch}
+    */
+   public TypeaheadSearch<ArtistData> createArtistTypeahead(int limit) {
+      return new TypeaheadSearch<>(
+         (query, queryLimit, callback) -> searchInteractive(() -> searchArtists(query, queryLimit, callback)),
+         artist -> artist.name, limit, TYPEAHEAD_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, TYPEAHEAD_CACHED_QUERIES);
+   }
+
+   private static Cancellable searchInteractive(Supplier<Cancellable> search) {
+      try (PriorityScope scope = PriorityScope.open(RequestPriority.INTERACTIVE)) {
+         return search.get();
+      }
    }
 
    /**
@@ -635,7 +2012,7 @@ public class RhapsodySdkWrapper {
     *           the {@link RhapsodyCallback}
     * @return the {@link Callback}
     */
-   private <T> Callback<T> mapCallback(RhapsodyCallback<T> rhapsodyCallback) {
+   private <T> Callback<T> mapCallback(RhapsodyCallback<? super T> rhapsodyCallback) {
       Callback<T> sdkCallback = new Callback<T>() {
 
          @Override
@@ -656,6 +2033,249 @@ public class RhapsodySdkWrapper {
       return sdkCallback;
    }
 
+   /**
+    * Builds a {@link RhapsodySdkWrapper}. Building is cheap: the HTTP stack is built by the first request and the
+    * authorization information can be loaded in the background.
+    */
+   public static final class Builder {
+      private final String apiKey;
+      private final String apiSecret;
+      private AuthorizationStore authorizationStore;
+      private String apiUrl = API_URL;
+      private SharedAdapter adapter;
+      private Executor authorizationLoadExecutor;
+      private CacheStore<AlbumData> albumCacheStore;
+      private CacheStore<Collection<AlbumData>> newReleasesCacheStore;
+
+      private Builder(String apiKey, String apiSecret) {
+         this.apiKey = Objects.requireNonNull(apiKey, "API Key must not be null");
+         this.apiSecret = Objects.requireNonNull(apiSecret, "API Secret must not be null");
+      }
+
+      /**
+       * Sets the {@link AuthorizationStore} which persists the user authentication data.
+       *
+       * @param authorizationStore
+       *           the {@link AuthorizationStore}, if <code>null</code> the data is not persisted
+       * @return this builder
+       */
+      public Builder authorizationStore(AuthorizationStore authorizationStore) {
+         this.authorizationStore = authorizationStore;
+         return this;
+      }
+
+      /**
+       * Sets a different server than the Rhapsody API, e.g. a local stand-in server for load tests. Ignored if an
+       * adapter is set by {@link #adapter(SharedAdapter)}.
+       *
+       * @param apiUrl
+       *           the base URL of the REST API, not <code>null</code>
+       * @return this builder
+       */
+      public Builder apiUrl(String apiUrl) {
+         this.apiUrl = Objects.requireNonNull(apiUrl, "API URL must not be null");
+         return this;
+      }
+
+      /**
+       * Sets the adapter which is used instead of a new one, so the wrapper doesn't build its own HTTP stack.
+       *
+       * @param adapter
+       *           the {@link SharedAdapter}, if <code>null</code> the wrapper creates its own
+       * @return this builder
+       */
+      public Builder adapter(SharedAdapter adapter) {
+         this.adapter = adapter;
+         return this;
+      }
+
+      /**
+       * Loads the authorization information from the store by the given executor instead of the calling thread. Only
+       * the first call which needs the authorization information waits for the load. If the load fails, that call loads
+       * it again and throws if this fails too.
+       *
+       * @param executor
+       *           the executor which loads the authorization information, if <code>null</code> it is loaded by
+       *           {@link #build()}
+       * @return this builder
+       */
+      public Builder loadAuthorizationAsync(Executor executor) {
+         this.authorizationLoadExecutor = executor;
+         return this;
+      }
+
+      /**
+       * Sets the store which keeps the cached albums instead of the default one on the heap, e.g. an
+       * {@link com.github.kaiwinter.rhapsody.cache.OffHeapCacheStore} with an
+       * {@link com.github.kaiwinter.rhapsody.cache.AlbumDataCodec} for servers which cache many albums. Setting a store
+       * enables the album cache, without a store albums are only cached while prefetching is enabled (see
+       * {@link RhapsodySdkWrapper#setAlbumPrefetchCount(int)}).
+       *
+       * @param albumCacheStore
+       *           the {@link CacheStore}, if <code>null</code> the albums are kept on the heap
+       * @return this builder
+       */
+      public Builder albumCacheStore(CacheStore<AlbumData> albumCacheStore) {
+         this.albumCacheStore = albumCacheStore;
+         return this;
+      }
+
+      /**
+       * Sets the store which keeps the cached lists of new releases instead of the default one on the heap, e.g. a
+       * {@link com.github.kaiwinter.rhapsody.cache.NearCacheStore} which shares them with other nodes.
+       *
+       * @param newReleasesCacheStore
+       *           the {@link CacheStore}, if <code>null</code> the lists are kept on the heap
+       * @return this builder
+       */
+      public Builder newReleasesCacheStore(CacheStore<Collection<AlbumData>> newReleasesCacheStore) {
+         this.newReleasesCacheStore = newReleasesCacheStore;
+         return this;
+      }
+
+      /**
+       * Builds the wrapper.
+       *
+       * @return the {@link RhapsodySdkWrapper}
+       */
+      public RhapsodySdkWrapper build() {
+         return new RhapsodySdkWrapper(this);
+      }
+   }
+
+   /**
+    * A genre tree request which is shared by all concurrent {@link #loadGenreTree(RhapsodyCallback)} calls of a
+    * catalog. Each call gets its own {@link Cancellable}; the request is cancelled when all calls are cancelled.
+    */
+   private final class GenreTreeLoad implements Callback<Collection<GenreData>> {
+      private final String catalog;
+      private final CallHandle request = newCallHandle("loadGenreTree", false);
+      private final Map<CallHandle, RhapsodyCallback<GenreTree>> subscribers = new LinkedHashMap<>();
+
+      GenreTreeLoad(String catalog) {
+         this.catalog = catalog;
+      }
+
+      /**
+       * Adds a callback which is called when the genre tree is loaded. Must be called while holding the lock on
+       * {@link RhapsodySdkWrapper#pendingGenreTreeLoads}.
+       *
+       * @param callback
+       *           the callback
+       * @return the handle to cancel the subscription
+       */
+      Cancellable subscribe(RhapsodyCallback<GenreTree> callback) {
+         CallHandle subscription = new CallHandle();
+         subscribers.put(subscription, callback);
+         subscription.addCancelAction(() -> unsubscribe(subscription));
+         return subscription;
+      }
+
+      private void unsubscribe(CallHandle subscription) {
+         boolean last;
+         synchronized (pendingGenreTreeLoads) {
+            last = subscribers.remove(subscription) != null && subscribers.isEmpty();
+            if (last) {
+               pendingGenreTreeLoads.remove(catalog, this);
+            }
+         }
+         if (last) {
+            LOGGER.debug("All genre tree requests cancelled");
+            request.cancel();
+         }
+      }
+
+      private Map<CallHandle, RhapsodyCallback<GenreTree>> complete() {
+         synchronized (pendingGenreTreeLoads) {
+            pendingGenreTreeLoads.remove(catalog, this);
+            Map<CallHandle, RhapsodyCallback<GenreTree>> callbacks = new LinkedHashMap<>(subscribers);
+            subscribers.clear();
+            return callbacks;
+         }
+      }
+
+      @Override
+      public void success(Collection<GenreData> genres, Response response) {
+         GenreTree loadedTree = new GenreTree(genres);
+         dataCache.putGenreTree(catalog, loadedTree, GENRE_TREE_TTL_HOURS, TimeUnit.HOURS);
+         for (Map.Entry<CallHandle, RhapsodyCallback<GenreTree>> waiting : complete().entrySet()) {
+            if (!waiting.getKey().isCancelled()) {
+               waiting.getValue().onSuccess(loadedTree);
+            }
+         }
+      }
+
+      @Override
+      public void failure(RetrofitError error) {
+         for (Map.Entry<CallHandle, RhapsodyCallback<GenreTree>> waiting : complete().entrySet()) {
+            if (!waiting.getKey().isCancelled()) {
+               mapCallback(waiting.getValue()).failure(error);
+            }
+         }
+      }
+   }
+
+   /**
+    * Collects the concurrently loaded parts of a {@link ChartDashboard}.
+    */
+   private final class ChartDashboardLoad {
+      private final ChartDashboard dashboard = new ChartDashboard();
+      private final String cacheId;
+      private final long expiresAt;
+      private final RhapsodyCallback<ChartDashboard> callback;
+      private int outstanding;
+      private boolean failed;
+
+      ChartDashboardLoad(int parts, String cacheId, long expiresAt, RhapsodyCallback<ChartDashboard> callback) {
+         this.outstanding = parts;
+         this.cacheId = cacheId;
+         this.expiresAt = expiresAt;
+         this.callback = callback;
+      }
+
+      /**
+       * Creates the callback for one part of the dashboard.
+       *
+       * @param store
+       *           stores the loaded part in the dashboard
+       * @return the callback
+       */
+      <T> Callback<T> part(Consumer<T> store) {
+         return new Callback<T>() {
+
+            @Override
+            public void success(T data, Response response) {
+               boolean complete;
+               synchronized (ChartDashboardLoad.this) {
+                  if (failed) {
+                     return;
+                  }
+                  store.accept(data);
+                  complete = --outstanding == 0;
+               }
+               if (complete) {
+                  ChartDashboard shared = dashboard.unmodifiableCopy();
+                  if (cacheId != null) {
+                     dataCache.putChartDashboard(cacheId, shared, expiresAt);
+                  }
+                  callback.onSuccess(shared);
+               }
+            }
+
+            @Override
+            public void failure(RetrofitError error) {
+               synchronized (ChartDashboardLoad.this) {
+                  if (failed) {
+                     return;
+                  }
+                  failed = true;
+               }
+               mapCallback(callback).failure(error);
+            }
+         };
+      }
+   }
+
    /**
     * Response on failed login.
     */
@@ -0,0 +1,172 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import com.github.kaiwinter.rhapsody.converter.CanonicalizingConverter;
+import com.github.kaiwinter.rhapsody.converter.ModelTypeAdapters;
+import com.github.kaiwinter.rhapsody.dispatch.CallHandle;
+import com.github.kaiwinter.rhapsody.dispatch.CancellableClient;
+import com.github.kaiwinter.rhapsody.dispatch.CancellingConverter;
+import com.github.kaiwinter.rhapsody.dispatch.PrioritizedClient;
+import com.github.kaiwinter.rhapsody.dispatch.PriorityDispatcher;
+import com.github.kaiwinter.rhapsody.service.authentication.AuthenticationService;
+import com.github.kaiwinter.rhapsody.service.member.AccountService;
+import com.github.kaiwinter.rhapsody.service.member.ChartService;
+import com.github.kaiwinter.rhapsody.service.member.LibraryService;
+import com.github.kaiwinter.rhapsody.service.metadata.AlbumService;
+import com.github.kaiwinter.rhapsody.service.metadata.ArtistService;
+import com.github.kaiwinter.rhapsody.service.metadata.GenreService;
+import com.github.kaiwinter.rhapsody.service.metadata.SearchService;
+import com.github.kaiwinter.rhapsody.service.metadata.TrackService;
+import com.github.kaiwinter.rhapsody.trace.Span;
+
+import android.os.Build;
+import retrofit.RestAdapter;
+import retrofit.RestAdapter.LogLevel;
+import retrofit.android.MainThreadExecutor;
+import retrofit.converter.GsonConverter;
+
+/**
+ * The HTTP stack of a {@link RhapsodySdkWrapper}: the {@link RestAdapter}, its JSON converter, the request dispatcher
+ * and the service proxies. Building these loads and initializes a lot of classes, so nothing is built before the first
+ * request. An instance can be passed to {@link RhapsodySdkWrapper.Builder#adapter(SharedAdapter)} to share it between
+ * several wrappers, e.g. one per user on a server, which also makes them share the request concurrency limit.
+ *
+ * <p>
+ * The settings of the adapter ({@link RhapsodySdkWrapper#setMaxConcurrentRequests(int)},
+ * {@link RhapsodySdkWrapper#setAdaptiveConcurrencyLimit(com.github.kaiwinter.rhapsody.dispatch.AdaptiveLimiter)},
+ * {@link RhapsodySdkWrapper#setVerboseLoggingEnabled(boolean)},
+ * {@link RhapsodySdkWrapper#setModelCanonicalizationEnabled(boolean)}) apply to all wrappers which share it.
+ * </p>
+ */
+public final class SharedAdapter {
+
+   /** Default maximum number of concurrent requests. */
+   private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+
+   /** Time after which a waiting request is dispatched regardless of its priority. */
+   private static final long MAX_QUEUE_WAIT_SECONDS = 2;
+
+   /** Header which carries the correlation ID of a traced call. */
+   private static final String CORRELATION_ID_HEADER = "X-Correlation-Id";
+
+   private static final Class<?>[] SERVICES = { AuthenticationService.class, GenreService.class, ArtistService.class,
+      AlbumService.class, TrackService.class, AccountService.class, LibraryService.class, ChartService.class,
+      SearchService.class };
+
+   private final String apiUrl;
+   private final PriorityDispatcher dispatcher;
+   private final Map<Class<?>, Object> services = new ConcurrentHashMap<>();
+
+   private volatile RestAdapter restAdapter;
+   private CanonicalizingConverter converter;
+   private LogLevel logLevel = LogLevel.NONE;
+   private boolean canonicalizationEnabled;
+
+   /**
+    * Creates an adapter for the given API. Nothing is built before the first request or {@link #warmUp()}.
+    *
+    * @param apiUrl
+    *           the base URL of the REST API, not <code>null</code>
+    */
+   public SharedAdapter(String apiUrl) {
+      this.apiUrl = Objects.requireNonNull(apiUrl, "API URL must not be null");
+      dispatcher = new PriorityDispatcher(DEFAULT_MAX_CONCURRENT_REQUESTS, MAX_QUEUE_WAIT_SECONDS, TimeUnit.SECONDS);
+   }
+
+   /**
+    * Builds the {@link RestAdapter} and all service proxies now, e.g. on a background thread during application start,
+    * so the first request doesn't pay for it.
+    *
+    * @return this adapter
+    */
+   public SharedAdapter warmUp() {
+      for (Class<?> service : SERVICES) {
+         service(service);
+      }
+      return this;
+   }
+
+   /**
+    * Returns the proxy of a service interface, the proxy is created on the first call.
+    *
+    * @param service
+    *           the service interface
+    * @return the proxy
+    */
+   <T> T service(Class<T> service) {
+      Object proxy = services.get(service);
+      if (proxy == null) {
+         proxy = services.computeIfAbsent(service, restAdapter()::create);
+      }
+      return service.cast(proxy);
+   }
+
+   PriorityDispatcher getDispatcher() {
+      return dispatcher;
+   }
+
+   synchronized void setLogLevel(LogLevel logLevel) {
+      this.logLevel = logLevel;
+      if (restAdapter != null) {
+         restAdapter.setLogLevel(logLevel);
+      }
+   }
+
+   synchronized void setCanonicalizationEnabled(boolean enabled) {
+      canonicalizationEnabled = enabled;
+      if (converter != null) {
+         converter.setEnabled(enabled);
+      }
+   }
+
+   private RestAdapter restAdapter() {
+      RestAdapter adapter = restAdapter;
+      if (adapter == null) {
+         synchronized (this) {
+            adapter = restAdapter;
+            if (adapter == null) {
+               converter = new CanonicalizingConverter(new GsonConverter(ModelTypeAdapters.createGson()));
+               converter.setEnabled(canonicalizationEnabled);
+               adapter = new RestAdapter.Builder() //
+                  .setEndpoint(apiUrl) //
+                  .setConverter(new CancellingConverter(converter)) //
+                  .setClient(new PrioritizedClient(new CancellableClient(), dispatcher)) //
+                  .setRequestInterceptor(request -> {
+                     Span span = CallHandle.currentSpan();
+                     if (span.isSampled()) {
+                        request.addHeader(CORRELATION_ID_HEADER, span.getCorrelationId());
+                     }
+                  }) //
+                  .setExecutors(dispatcher, PriorityDispatcher.callbackExecutor(defaultCallbackExecutor())) //
+                  .setLogLevel(logLevel) //
+                  .build();
+               restAdapter = adapter;
+            }
+         }
+      }
+      return adapter;
+   }
+
+   /**
+    * Returns the callback executor Retrofit would use by default: the main thread on Android, the HTTP thread
+    * otherwise.
+    *
+    * @return the callback executor, <code>null</code> for the HTTP thread
+    */
+   private static Executor defaultCallbackExecutor() {
+      try {
+         Class.forName("android.os.Build");
+         if (Build.VERSION.SDK_INT != 0) {
+            return new MainThreadExecutor();
+         }
+      } catch (ClassNotFoundException e) {
+         // Not on Android
+      }
+      return null;
+   }
+}
@@ -0,0 +1,285 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Album;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Artist;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Genre;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Image;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Track;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Type;
+
+/**
+ * Encodes an {@link AlbumData} with its tracks and images. Lengths and integers are written as variable-length
+ * numbers, so most of them take a single byte, and <code>null</code> values take one byte. A track's artist which is
+ * the album's artist is written as a reference to it.
+ */
+public final class AlbumDataCodec implements BinaryCodec<AlbumData> {
+
+   private static final int ABSENT = 0;
+   private static final int PRESENT = 1;
+   private static final int ALBUM_ARTIST = 2;
+
+   @Override
+   public void encode(AlbumData album, DataOutput out) throws IOException {
+      writeString(out, album.id);
+      writeString(out, album.name);
+      writeInteger(out, album.discCount);
+      writeArtist(out, album.artist, null);
+      if (album.type == null) {
+         out.writeByte(ABSENT);
+      } else {
+         out.writeByte(PRESENT);
+         writeInteger(out, album.type.id);
+         writeString(out, album.type.name);
+      }
+      writeSize(out, album.tags);
+      if (album.tags != null) {
+         for (String tag : album.tags) {
+            writeString(out, tag);
+         }
+      }
+      writeSize(out, album.images);
+      if (album.images != null) {
+         for (Image image : album.images) {
+            writeImage(out, image);
+         }
+      }
+      writeSize(out, album.tracks);
+      if (album.tracks != null) {
+         for (Track track : album.tracks) {
+            writeTrack(out, track, album.artist);
+         }
+      }
+      if (album.released == null) {
+         out.writeByte(ABSENT);
+      } else {
+         out.writeByte(PRESENT);
+         out.writeLong(album.released);
+      }
+   }
+
+   @Override
+   public AlbumData decode(DataInput in) throws IOException {
+      AlbumData album = new AlbumData();
+      album.id = readString(in);
+      album.name = readString(in);
+      album.discCount = readInteger(in);
+      album.artist = readArtist(in, null);
+      if (in.readByte() == PRESENT) {
+         album.type = new Type();
+         album.type.id = readInteger(in);
+         album.type.name = readString(in);
+      }
+      int tags = readSize(in);
+      if (tags >= 0) {
+         album.tags = new ArrayList<>(tags);
+         for (int i = 0; i < tags; i++) {
+            album.tags.add(readString(in));
+         }
+      }
+      int images = readSize(in);
+      if (images >= 0) {
+         album.images = new ArrayList<>(images);
+         for (int i = 0; i < images; i++) {
+            album.images.add(readImage(in));
+         }
+      }
+      int tracks = readSize(in);
+      if (tracks >= 0) {
+         album.tracks = new ArrayList<>(tracks);
+         for (int i = 0; i < tracks; i++) {
+            album.tracks.add(readTrack(in, album.artist));
+         }
+      }
+      if (in.readByte() == PRESENT) {
+         album.released = in.readLong();
+      }
+      return album;
+   }
+
+   private static void writeImage(DataOutput out, Image image) throws IOException {
+      if (image == null) {
+         out.writeByte(ABSENT);
+         return;
+      }
+      out.writeByte(PRESENT);
+      writeInteger(out, image.width);
+      writeInteger(out, image.height);
+      writeString(out, image.url);
+   }
+
+   private static Image readImage(DataInput in) throws IOException {
+      if (in.readByte() == ABSENT) {
+         return null;
+      }
+      Image image = new Image();
+      image.width = readInteger(in);
+      image.height = readInteger(in);
+      image.url = readString(in);
+      return image;
+   }
+
+   private static void writeTrack(DataOutput out, Track track, Artist albumArtist) throws IOException {
+      if (track == null) {
+         out.writeByte(ABSENT);
+         return;
+      }
+      out.writeByte(PRESENT);
+      writeString(out, track.id);
+      writeString(out, track.name);
+      writeInteger(out, track.disc);
+      writeArtist(out, track.artist, albumArtist);
+      if (track.album == null) {
+         out.writeByte(ABSENT);
+      } else {
+         out.writeByte(PRESENT);
+         writeString(out, track.album.id);
+         writeString(out, track.album.name);
+      }
+      if (track.genre == null) {
+         out.writeByte(ABSENT);
+      } else {
+         out.writeByte(PRESENT);
+         writeString(out, track.genre.id);
+      }
+      writeString(out, track.sample);
+      writeInteger(out, track.duration);
+   }
+
+   private static Track readTrack(DataInput in, Artist albumArtist) throws IOException {
+      if (in.readByte() == ABSENT) {
+         return null;
+      }
+      Track track = new Track();
+      track.id = readString(in);
+      track.name = readString(in);
+      track.disc = readInteger(in);
+      track.artist = readArtist(in, albumArtist);
+      if (in.readByte() == PRESENT) {
+         track.album = new Album();
+         track.album.id = readString(in);
+         track.album.name = readString(in);
+      }
+      if (in.readByte() == PRESENT) {
+         track.genre = new Genre();
+         track.genre.id = readString(in);
+      }
+      track.sample = readString(in);
+      track.duration = readInteger(in);
+      return track;
+   }
+
+   private static void writeArtist(DataOutput out, Artist artist, Artist albumArtist) throws IOException {
+      if (artist == null) {
+         out.writeByte(ABSENT);
+      } else if (albumArtist != null && Objects.equals(artist.id, albumArtist.id)
+         && Objects.equals(artist.name, albumArtist.name)) {
+         out.writeByte(ALBUM_ARTIST);
+      } else {
+         out.writeByte(PRESENT);
+         writeString(out, artist.id);
+         writeString(out, artist.name);
+      }
+   }
+
+   private static Artist readArtist(DataInput in, Artist albumArtist) throws IOException {
+      int marker = in.readByte();
+      if (marker == ABSENT) {
+         return null;
+      } else if (marker == ALBUM_ARTIST) {
+         return albumArtist;
+      }
+      Artist artist = new Artist();
+      artist.id = readString(in);
+      artist.name = readString(in);
+      return artist;
+   }
+
+   /**
+    * Writes the size of a list plus one, 0 for <code>null</code>.
+    */
+   private static void writeSize(DataOutput out, List<?> list) throws IOException {
+      writeVarInt(out, list == null ? 0 : list.size() + 1);
+   }
+
+   private static int readSize(DataInput in) throws IOException {
+      return readVarInt(in) - 1;
+   }
+
+   private static void writeString(DataOutput out, String value) throws IOException {
+      if (value == null) {
+         writeVarInt(out, 0);
+         return;
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(out, bytes.length + 1);
+      out.write(bytes);
+   }
+
+   private static String readString(DataInput in) throws IOException {
+      int length = readVarInt(in) - 1;
+      if (length < 0) {
+         return null;
+      }
+      byte[] bytes = new byte[length];
+      in.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   /**
+    * Writes a nullable integer as zig-zag encoded variable-length number, 0 is <code>null</code>.
+    */
+   private static void writeInteger(DataOutput out, Integer value) throws IOException {
+      if (value == null) {
+         writeVarLong(out, 0);
+      } else {
+         long zigZag = (value << 1) ^ (value >> 31);
+         writeVarLong(out, (zigZag & 0xFFFFFFFFL) + 1);
+      }
+   }
+
+   private static Integer readInteger(DataInput in) throws IOException {
+      long encoded = readVarLong(in);
+      if (encoded == 0) {
+         return null;
+      }
+      int zigZag = (int) (encoded - 1);
+      return (zigZag >>> 1) ^ -(zigZag & 1);
+   }
+
+   private static void writeVarInt(DataOutput out, int value) throws IOException {
+      writeVarLong(out, value & 0xFFFFFFFFL);
+   }
+
+   private static int readVarInt(DataInput in) throws IOException {
+      return (int) readVarLong(in);
+   }
+
+   private static void writeVarLong(DataOutput out, long value) throws IOException {
+      while ((value & ~0x7FL) != 0) {
+         out.writeByte((int) (value & 0x7F) | 0x80);
+         value >>>= 7;
+      }
+      out.writeByte((int) value);
+   }
+
+   private static long readVarLong(DataInput in) throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         int b = in.readByte();
+         value |= (long) (b & 0x7F) << shift;
+         if ((b & 0x80) == 0) {
+            return value;
+         }
+      }
+      throw new IOException("Malformed variable-length number");
+   }
+}
@@ -0,0 +1,37 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes values of a model class to a compact binary form and back, used by {@link OffHeapCacheStore}.
+ *
+ * @param <V>
+ *           type of the encoded values
+ */
+public interface BinaryCodec<V> {
+
+   /**
+    * Writes the value.
+    *
+    * @param value
+    *           the value, not <code>null</code>
+    * @param out
+    *           the output
+    * @throws IOException
+    *            if writing fails
+    */
+   void encode(V value, DataOutput out) throws IOException;
+
+   /**
+    * Reads a value which was written by {@link #encode(Object, DataOutput)}.
+    *
+    * @param in
+    *           the input
+    * @return the value
+    * @throws IOException
+    *            if reading fails
+    */
+   V decode(DataInput in) throws IOException;
+}
@@ -0,0 +1,33 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+/**
+ * Stores the values of one kind which the {@link DataCache} keeps by ID, e.g. albums. An implementation decides where
+ * the values are kept and which are evicted when it is full. The methods are called concurrently.
+ *
+ * @param <V>
+ *           type of the cached values
+ */
+public interface CacheStore<V> {
+
+   /**
+    * Returns the value with the given <code>id</code>.
+    *
+    * @param id
+    *           the ID of the value
+    * @return the value, or <code>null</code> if not cached or expired
+    */
+   V get(String id);
+
+   /**
+    * Adds a value to the store, replacing a value with the same ID. The store may drop the value or evict others to
+    * make room for it.
+    *
+    * @param id
+    *           the ID of the value
+    * @param value
+    *           the value
+    * @param expiresAt
+    *           the time at which the value expires, in milliseconds since the epoch
+    */
+   void put(String id, V value, long expiresAt);
+}
@@ -0,0 +1,48 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Encodes a collection with the codec of its elements, e.g. a list of new releases with an {@link AlbumDataCodec}.
+ * The collection is decoded as a {@link List}.
+ *
+ * @param <V>
+ *           type of the elements
+ */
+public final class CollectionCodec<V> implements BinaryCodec<Collection<V>> {
+
+   private final BinaryCodec<V> elementCodec;
+
+   /**
+    * Constructs a new {@link CollectionCodec}.
+    *
+    * @param elementCodec
+    *           the codec of the elements, which must not be <code>null</code>
+    */
+   public CollectionCodec(BinaryCodec<V> elementCodec) {
+      this.elementCodec = elementCodec;
+   }
+
+   @Override
+   public void encode(Collection<V> values, DataOutput out) throws IOException {
+      out.writeInt(values.size());
+      for (V value : values) {
+         elementCodec.encode(value, out);
+      }
+   }
+
+   @Override
+   public Collection<V> decode(DataInput in) throws IOException {
+      int size = in.readInt();
+      List<V> values = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+         values.add(elementCodec.decode(in));
+      }
+      return values;
+   }
+}
@@ -3,9 +3,15 @@ package com.github.kaiwinter.rhapsody.cache;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import com.github.kaiwinter.rhapsody.genre.GenreTree;
 import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Track;
+import com.github.kaiwinter.rhapsody.model.ArtistData;
+import com.github.kaiwinter.rhapsody.model.member.ChartDashboard;
 
 import retrofit.Callback;
 import retrofit.RetrofitError;
@@ -16,40 +22,330 @@ import retrofit.client.Response;
  */
 public final class DataCache {
 
-   private Map<String, Collection<AlbumData>> genre2NewReleases = Collections.synchronizedMap(new HashMap<>());
+   /** Maximum number of albums, artists and tracks each which are kept by ID. */
+   private static final int MAX_METADATA_ENTRIES = 2000;
+
+   /** Maximum number of chart dashboards which are kept, one per member and requested charts. */
+   private static final int MAX_CHART_DASHBOARDS = 100;
+
+   /** Time after which a cached album, artist or track is loaded again. */
+   private static final long METADATA_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+   /** Time after which cached new releases are loaded again. */
+   private static final long NEW_RELEASES_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+   private final CacheStore<Collection<AlbumData>> newReleasesStore;
+
+   private Map<String, ExpiringEntry<GenreTree>> catalog2GenreTree = Collections.synchronizedMap(new HashMap<>());
+
+   private Map<String, ExpiringEntry<ChartDashboard>> member2ChartDashboard = Collections
+      .synchronizedMap(new LruMap<>(MAX_CHART_DASHBOARDS));
+
+   private final CacheStore<AlbumData> albumStore;
+
+   private Map<String, ExpiringEntry<ArtistData>> id2Artist = Collections
+      .synchronizedMap(new LruMap<>(MAX_METADATA_ENTRIES));
+
+   private Map<String, ExpiringEntry<Track>> id2Track = Collections
+      .synchronizedMap(new LruMap<>(MAX_METADATA_ENTRIES));
+
+   /**
+    * Constructs a new {@link DataCache} which keeps albums and new releases on the heap.
+    */
+   public DataCache() {
+      this(null, null);
+   }
+
+   /**
+    * Constructs a new {@link DataCache} which keeps albums in the given store, e.g. an {@link OffHeapCacheStore}.
+    *
+    * @param albumStore
+    *           the store for albums
+    */
+   public DataCache(CacheStore<AlbumData> albumStore) {
+      this(albumStore, null);
+   }
+
+   /**
+    * Constructs a new {@link DataCache} which keeps albums and new releases in the given stores, e.g.
+    * {@link NearCacheStore}s which share them with other nodes.
+    *
+    * @param albumStore
+    *           the store for albums, if <code>null</code> they are kept on the heap
+    * @param newReleasesStore
+    *           the store for the lists of new releases, if <code>null</code> they are kept on the heap
+    */
+   public DataCache(CacheStore<AlbumData> albumStore, CacheStore<Collection<AlbumData>> newReleasesStore) {
+      this.albumStore = albumStore == null ? new HeapCacheStore<>(MAX_METADATA_ENTRIES) : albumStore;
+      this.newReleasesStore = newReleasesStore == null ? new HeapCacheStore<>(Integer.MAX_VALUE) : newReleasesStore;
+   }
 
    /**
     * Returns the new releases for the given <code>genreId</code>.
     *
+    * @param catalog
+    *           the catalog the new releases were loaded for
     * @param cacheId
     *           the ID key in the cache, e.g. genre ID
-    * @return the new releases, or <code>null</code> if not cached.
+    * @return the new releases, or <code>null</code> if not cached or expired
+    */
+   public Collection<AlbumData> getNewReleases(String catalog, String cacheId) {
+      return newReleasesStore.get(key(catalog, cacheId));
+   }
+
+   /**
+    * Returns the genre tree for the given <code>catalog</code>.
+    *
+    * @param catalog
+    *           the catalog the genres were loaded for
+    * @return the genre tree, or <code>null</code> if not cached or expired
+    */
+   public GenreTree getGenreTree(String catalog) {
+      ExpiringEntry<GenreTree> entry = catalog2GenreTree.get(catalog);
+      return entry == null ? null : entry.getValue();
+   }
+
+   /**
+    * Adds a genre tree to the cache.
+    *
+    * @param catalog
+    *           the catalog the genres were loaded for
+    * @param genreTree
+    *           the genre tree
+    * @param timeToLive
+    *           the time after which the genre tree expires
+    * @param unit
+    *           the unit of <code>timeToLive</code>
     */
-   public Collection<AlbumData> getNewReleases(String cacheId) {
-      return genre2NewReleases.get(cacheId);
+   public void putGenreTree(String catalog, GenreTree genreTree, long timeToLive, TimeUnit unit) {
+      long expiresAt = System.currentTimeMillis() + unit.toMillis(timeToLive);
+      catalog2GenreTree.put(catalog, new ExpiringEntry<>(genreTree, expiresAt));
+   }
+
+   /**
+    * Returns the chart dashboard for the given <code>cacheId</code>.
+    *
+    * @param cacheId
+    *           the ID key in the cache, identifies the member and the requested charts
+    * @return the chart dashboard, or <code>null</code> if not cached or expired
+    */
+   public ChartDashboard getChartDashboard(String cacheId) {
+      ExpiringEntry<ChartDashboard> entry = member2ChartDashboard.get(cacheId);
+      ChartDashboard chartDashboard = entry == null ? null : entry.getValue();
+      if (entry != null && chartDashboard == null) {
+         member2ChartDashboard.remove(cacheId, entry);
+      }
+      return chartDashboard;
+   }
+
+   /**
+    * Adds a chart dashboard to the cache. If the cache is full the least recently used dashboard is removed.
+    *
+    * @param cacheId
+    *           the ID key in the cache, identifies the member and the requested charts
+    * @param chartDashboard
+    *           the chart dashboard
+    * @param expiresAt
+    *           the time at which the entry expires, in milliseconds since the epoch
+    */
+   public void putChartDashboard(String cacheId, ChartDashboard chartDashboard, long expiresAt) {
+      member2ChartDashboard.put(cacheId, new ExpiringEntry<>(chartDashboard, expiresAt));
+   }
+
+   /**
+    * Returns the album with the given <code>albumId</code>.
+    *
+    * @param catalog
+    *           the catalog the album was loaded for
+    * @param albumId
+    *           the ID of the album
+    * @return the album, or <code>null</code> if not cached or expired
+    */
+   public AlbumData getAlbum(String catalog, String albumId) {
+      return albumStore.get(key(catalog, albumId));
+   }
+
+   /**
+    * Adds an album to the cache. If the cache is full the album store evicts albums, by default the least recently
+    * used one.
+    *
+    * @param catalog
+    *           the catalog the album was loaded for
+    * @param album
+    *           the album, must have an ID
+    */
+   public void putAlbum(String catalog, AlbumData album) {
+      albumStore.put(key(catalog, album.id), album, System.currentTimeMillis() + METADATA_TTL_MILLIS);
+   }
+
+   /**
+    * Returns the artist with the given <code>artistId</code>.
+    *
+    * @param artistId
+    *           the ID of the artist
+    * @return the artist, or <code>null</code> if not cached or expired
+    */
+   public ArtistData getArtist(String artistId) {
+      ExpiringEntry<ArtistData> entry = id2Artist.get(artistId);
+      return entry == null ? null : entry.getValue();
+   }
+
+   /**
+    * Adds an artist to the cache. If the cache is full the least recently used artist is removed.
+    *
+    * @param artist
+    *           the artist, must have an ID
+    */
+   public void putArtist(ArtistData artist) {
+      id2Artist.put(artist.id, new ExpiringEntry<>(artist, System.currentTimeMillis() + METADATA_TTL_MILLIS));
+   }
+
+   /**
+    * Returns the track with the given <code>trackId</code>.
+    *
+    * @param trackId
+    *           the ID of the track
+    * @return the track, or <code>null</code> if not cached or expired
+    */
+   public Track getTrack(String trackId) {
+      ExpiringEntry<Track> entry = id2Track.get(trackId);
+      return entry == null ? null : entry.getValue();
+   }
+
+   /**
+    * Adds a track to the cache. If the cache is full the least recently used track is removed.
+    *
+    * @param track
+    *           the track, must have an ID
+    */
+   public void putTrack(Track track) {
+      id2Track.put(track.id, new ExpiringEntry<>(track, System.currentTimeMillis() + METADATA_TTL_MILLIS));
    }
 
    /**
     * Wraps the given <code>callback</code> in an internal callback which adds the result of the given
     * <code>callback</code> to the cache and calls the original callback afterwards.
     *
+    * @param catalog
+    *           the catalog the new releases are loaded for
     * @param cacheId
     *           the ID which is used as key in the cache, e.g. genre ID
     * @param callback
     *           the original callback
     * @return the wrapped original callback
     */
-   public Callback<Collection<AlbumData>> getAddNewReleasesToCacheCallback(String cacheId,
+   public Callback<Collection<AlbumData>> getAddNewReleasesToCacheCallback(String catalog, String cacheId,
       Callback<Collection<AlbumData>> callback) {
       return new CallbackExtension<Collection<AlbumData>>(callback) {
 
          @Override
          public void successExt(Collection<AlbumData> albums, Response response) {
-            genre2NewReleases.put(cacheId, albums);
+            newReleasesStore.put(key(catalog, cacheId), albums, System.currentTimeMillis() + NEW_RELEASES_TTL_MILLIS);
+         }
+      };
+   }
+
+   /**
+    * Wraps the given <code>callback</code> in an internal callback which adds the loaded album to the cache and calls
+    * the original callback afterwards.
+    *
+    * @param catalog
+    *           the catalog the album is loaded for
+    * @param callback
+    *           the original callback
+    * @return the wrapped original callback
+    */
+   public Callback<AlbumData> getAddAlbumToCacheCallback(String catalog, Callback<AlbumData> callback) {
+      return new CallbackExtension<AlbumData>(callback) {
+
+         @Override
+         public void successExt(AlbumData album, Response response) {
+            putAlbum(catalog, album);
          }
       };
    }
 
+   /**
+    * Returns the key of a value which differs between the catalogs, as a shared album store may be used by users of
+    * different countries.
+    */
+   private static String key(String catalog, String id) {
+      return catalog + "/" + id;
+   }
+
+   /**
+    * A cached value which expires after a fixed time.
+    *
+    * @param <T>
+    *           type of the cached value
+    */
+   private static final class ExpiringEntry<T> {
+      private final T value;
+      private final long expiresAt;
+
+      ExpiringEntry(T value, long expiresAt) {
+         this.value = value;
+         this.expiresAt = expiresAt;
+      }
+
+      /**
+       * Returns the value if it isn't expired.
+       *
+       * @return the value, or <code>null</code> if expired
+       */
+      T getValue() {
+         return System.currentTimeMillis() < expiresAt ? value : null;
+      }
+   }
+
+   /**
+    * A {@link CacheStore} which keeps the values on the heap and removes the least recently used value when it is
+    * full.
+    *
+    * @param <V>
+    *           type of the cached values
+    */
+   private static final class HeapCacheStore<V> implements CacheStore<V> {
+      private final Map<String, ExpiringEntry<V>> entries;
+
+      HeapCacheStore(int maxSize) {
+         entries = Collections.synchronizedMap(new LruMap<>(maxSize));
+      }
+
+      @Override
+      public V get(String id) {
+         ExpiringEntry<V> entry = entries.get(id);
+         return entry == null ? null : entry.getValue();
+      }
+
+      @Override
+      public void put(String id, V value, long expiresAt) {
+         entries.put(id, new ExpiringEntry<>(value, expiresAt));
+      }
+   }
+
+   /**
+    * A map which removes its least recently used entry when it grows beyond a maximum size.
+    *
+    * @param <V>
+    *           type of the cached values
+    */
+   private static final class LruMap<V> extends LinkedHashMap<String, V> {
+      private static final long serialVersionUID = 1L;
+
+      private final int maxSize;
+
+      LruMap(int maxSize) {
+         super(16, 0.75f, true);
+         this.maxSize = maxSize;
+      }
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+         return size() > maxSize;
+      }
+   }
+
    /**
     * Wrapper for a {@link Callback} which allows the augmentation of the wrapped callback to call additional methods.
     * Here this is used for adding an API request response to the cache and afterwards calling the original callback
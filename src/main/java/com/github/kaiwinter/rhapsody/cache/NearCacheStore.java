@@ -0,0 +1,204 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CacheStore} with two levels: a small local cache on the heap (L1) in front of a {@link RemoteCacheBackend}
+ * which all application nodes share (L2). A value which one node loaded from the API is found by the other nodes in
+ * the L2, so it is loaded only once.
+ * <p>
+ * Writes go to both levels, the backend then invalidates the key in the L1 of the other nodes. An L1 miss reads the L2
+ * and keeps the value locally, unless the key was invalidated during the read. If the backend fails, the store
+ * continues with the L1 only and logs a warning.
+ *
+ * @param <V>
+ *           type of the cached values
+ */
+public final class NearCacheStore<V> implements CacheStore<V> {
+
+   private static final Logger LOGGER = LoggerFactory.getLogger(NearCacheStore.class.getSimpleName());
+
+   private final String namespace;
+   private final BinaryCodec<V> codec;
+   private final RemoteCacheBackend backend;
+   private final Map<String, LocalEntry<V>> local;
+   private long invalidations;
+
+   private final AtomicLong localHits = new AtomicLong();
+   private final AtomicLong remoteHits = new AtomicLong();
+   private final AtomicLong misses = new AtomicLong();
+
+   /**
+    * Constructs a new {@link NearCacheStore}.
+    *
+    * @param namespace
+    *           prefix of the keys in the backend, distinguishes the stores which share a backend, e.g.
+    *           <code>album</code>
+    * @param codec
+    *           encodes the values for the backend
+    * @param backend
+    *           the shared cache
+    * @param maxLocalEntries
+    *           the maximum number of values in the L1, the least recently used value is removed when it is full
+    */
+   public NearCacheStore(String namespace, BinaryCodec<V> codec, RemoteCacheBackend backend, int maxLocalEntries) {
+      this.namespace = namespace + ":";
+      this.codec = codec;
+      this.backend = backend;
+      this.local = new LinkedHashMap<String, LocalEntry<V>>(16, 0.75f, true) {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<String, LocalEntry<V>> eldest) {
+            return size() > maxLocalEntries;
+         }
+      };
+      backend.addInvalidationListener(this::invalidated);
+   }
+
+   @Override
+   public V get(String id) {
+      long invalidationsBeforeRead;
+      synchronized (this) {
+         LocalEntry<V> entry = local.get(id);
+         if (entry != null && System.currentTimeMillis() < entry.expiresAt) {
+            localHits.incrementAndGet();
+            return entry.value;
+         }
+         invalidationsBeforeRead = invalidations;
+      }
+
+      byte[] bytes;
+      try {
+         bytes = backend.get(namespace + id);
+      } catch (IOException e) {
+         LOGGER.warn("Could not read {} from the shared cache: {}", id, e.getMessage());
+         misses.incrementAndGet();
+         return null;
+      }
+      if (bytes == null) {
+         misses.incrementAndGet();
+         return null;
+      }
+
+      V value;
+      long expiresAt;
+      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+         expiresAt = in.readLong();
+         value = codec.decode(in);
+      } catch (IOException e) {
+         LOGGER.warn("Could not decode {} from the shared cache: {}", id, e.getMessage());
+         misses.incrementAndGet();
+         return null;
+      }
+      synchronized (this) {
+         // an invalidation during the read may have been for the value we just read
+         if (invalidations == invalidationsBeforeRead) {
+            local.put(id, new LocalEntry<>(value, expiresAt));
+         }
+      }
+      remoteHits.incrementAndGet();
+      return value;
+   }
+
+   @Override
+   public void put(String id, V value, long expiresAt) {
+      synchronized (this) {
+         local.put(id, new LocalEntry<>(value, expiresAt));
+         // a read which started before must not replace the new value with the one it read
+         invalidations++;
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+         out.writeLong(expiresAt);
+         codec.encode(value, out);
+      } catch (IOException e) {
+         LOGGER.warn("Could not encode {} for the shared cache: {}", id, e.getMessage());
+         return;
+      }
+      try {
+         backend.put(namespace + id, bytes.toByteArray(), expiresAt);
+      } catch (IOException e) {
+         LOGGER.warn("Could not write {} to the shared cache: {}", id, e.getMessage());
+      }
+   }
+
+   /**
+    * Removes a value from both levels and from the L1 of the other nodes, e.g. when it is known to be outdated.
+    *
+    * @param id
+    *           the ID of the value
+    */
+   public void remove(String id) {
+      synchronized (this) {
+         local.remove(id);
+         invalidations++;
+      }
+      try {
+         backend.remove(namespace + id);
+      } catch (IOException e) {
+         LOGGER.warn("Could not remove {} from the shared cache: {}", id, e.getMessage());
+      }
+   }
+
+   /**
+    * Returns the number of values which were found in the L1.
+    *
+    * @return the number of L1 hits
+    */
+   public long getLocalHits() {
+      return localHits.get();
+   }
+
+   /**
+    * Returns the number of values which were found in the L2 after an L1 miss.
+    *
+    * @return the number of L2 hits
+    */
+   public long getRemoteHits() {
+      return remoteHits.get();
+   }
+
+   /**
+    * Returns the number of values which were in neither level.
+    *
+    * @return the number of misses
+    */
+   public long getMisses() {
+      return misses.get();
+   }
+
+   private synchronized void invalidated(String key) {
+      if (key == null) {
+         local.clear();
+      } else if (key.startsWith(namespace)) {
+         local.remove(key.substring(namespace.length()));
+      } else {
+         return;
+      }
+      invalidations++;
+   }
+
+   /**
+    * A value in the L1.
+    */
+   private static final class LocalEntry<V> {
+      private final V value;
+      private final long expiresAt;
+
+      LocalEntry(V value, long expiresAt) {
+         this.value = value;
+         this.expiresAt = expiresAt;
+      }
+   }
+}
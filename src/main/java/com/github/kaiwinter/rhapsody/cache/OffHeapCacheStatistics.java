@@ -0,0 +1,117 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+/**
+ * Memory usage and counters of an {@link OffHeapCacheStore}, see {@link OffHeapCacheStore#getStatistics()}.
+ */
+public final class OffHeapCacheStatistics {
+   private final int entries;
+   private final long payloadBytes;
+   private final long allocatedBytes;
+   private final long reservedBytes;
+   private final long capacityBytes;
+   private final long evictions;
+   private final long rejections;
+
+   OffHeapCacheStatistics(int entries, long payloadBytes, long allocatedBytes, long reservedBytes, long capacityBytes,
+      long evictions, long rejections) {
+      this.entries = entries;
+      this.payloadBytes = payloadBytes;
+      this.allocatedBytes = allocatedBytes;
+      this.reservedBytes = reservedBytes;
+      this.capacityBytes = capacityBytes;
+      this.evictions = evictions;
+      this.rejections = rejections;
+   }
+
+   /**
+    * Returns the number of stored values.
+    *
+    * @return the number of values
+    */
+   public int getEntries() {
+      return entries;
+   }
+
+   /**
+    * Returns the size of the encoded values.
+    *
+    * @return the number of bytes
+    */
+   public long getPayloadBytes() {
+      return payloadBytes;
+   }
+
+   /**
+    * Returns the size of the chunks which hold the values. This is larger than the payload as the values don't fill
+    * their chunks.
+    *
+    * @return the number of bytes
+    */
+   public long getAllocatedBytes() {
+      return allocatedBytes;
+   }
+
+   /**
+    * Returns the size of the slabs which are allocated outside of the heap.
+    *
+    * @return the number of bytes
+    */
+   public long getReservedBytes() {
+      return reservedBytes;
+   }
+
+   /**
+    * Returns the maximum size of all slabs.
+    *
+    * @return the number of bytes
+    */
+   public long getCapacityBytes() {
+      return capacityBytes;
+   }
+
+   /**
+    * Returns the number of values which were removed to make room for others.
+    *
+    * @return the number of evictions
+    */
+   public long getEvictions() {
+      return evictions;
+   }
+
+   /**
+    * Returns the number of values which weren't stored because they are larger than a slab or couldn't be encoded.
+    *
+    * @return the number of rejected values
+    */
+   public long getRejections() {
+      return rejections;
+   }
+
+   /**
+    * Returns the share of the allocated chunks which isn't used by the values they hold.
+    *
+    * @return the internal fragmentation between 0 and 1, 0 if nothing is stored
+    */
+   public double getInternalFragmentation() {
+      return allocatedBytes == 0 ? 0 : 1 - (double) payloadBytes / allocatedBytes;
+   }
+
+   /**
+    * Returns the share of the reserved slabs which doesn't hold values, either unused parts of chunks or free chunks of
+    * a size class which the values don't need.
+    *
+    * @return the fragmentation between 0 and 1, 0 if no slab is reserved
+    */
+   public double getFragmentation() {
+      return reservedBytes == 0 ? 0 : 1 - (double) payloadBytes / reservedBytes;
+   }
+
+   @Override
+   public String toString() {
+      return String.format(
+         "entries=%d, payload=%d, allocated=%d, reserved=%d of %d bytes, fragmentation=%.1f%% (internal %.1f%%), "
+            + "evictions=%d, rejections=%d",
+         entries, payloadBytes, allocatedBytes, reservedBytes, capacityBytes, getFragmentation() * 100,
+         getInternalFragmentation() * 100, evictions, rejections);
+   }
+}
@@ -0,0 +1,334 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CacheStore} which keeps the values encoded by a {@link BinaryCodec} in direct buffers outside of the Java
+ * heap, so a large cache doesn't fill the old generation with object graphs which the garbage collector has to trace.
+ * Only a small index entry per value stays on the heap. A value is decoded on every {@link #get(String)}, so callers
+ * get their own copy.
+ * <p>
+ * The memory is allocated in slabs of a fixed size up to the capacity. Each slab is cut into chunks of one size class,
+ * the size classes grow by 25% from 64 bytes up to the slab size. A value is stored in a chunk of the smallest class it
+ * fits in. When a class has no free chunk and no new slab can be allocated, an empty slab of another class is taken
+ * over, otherwise the least recently used value of the class is evicted. If the class has no values yet, the slab with
+ * the fewest values is emptied and taken over. Values which are larger than a slab are not stored.
+ * <p>
+ * The slabs are released when the store is garbage collected.
+ *
+ * @param <V>
+ *           type of the cached values
+ */
+public final class OffHeapCacheStore<V> implements CacheStore<V> {
+
+   private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapCacheStore.class.getSimpleName());
+
+   /** The default size of a slab, 1 MiB. */
+   public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+   private static final int MIN_CHUNK_SIZE = 64;
+   private static final double GROWTH_FACTOR = 1.25;
+
+   private final BinaryCodec<V> codec;
+   private final long capacityBytes;
+   private final int slabSize;
+   private final int maxSlabs;
+   private final SizeClass[] sizeClasses;
+   private final List<Slab> slabs = new ArrayList<>();
+   private final Map<String, Entry> entries = new HashMap<>();
+
+   private long payloadBytes;
+   private long allocatedBytes;
+   private long evictions;
+   private long rejections;
+
+   /**
+    * Constructs a new {@link OffHeapCacheStore} with slabs of {@link #DEFAULT_SLAB_SIZE}.
+    *
+    * @param codec
+    *           encodes and decodes the values
+    * @param capacityBytes
+    *           the maximum number of bytes which are allocated outside of the heap, at least one slab
+    */
+   public OffHeapCacheStore(BinaryCodec<V> codec, long capacityBytes) {
+      this(codec, capacityBytes, DEFAULT_SLAB_SIZE);
+   }
+
+   /**
+    * Constructs a new {@link OffHeapCacheStore}.
+    *
+    * @param codec
+    *           encodes and decodes the values
+    * @param capacityBytes
+    *           the maximum number of bytes which are allocated outside of the heap, at least one slab
+    * @param slabSize
+    *           the size of a slab in bytes, also the maximum size of an encoded value
+    */
+   public OffHeapCacheStore(BinaryCodec<V> codec, long capacityBytes, int slabSize) {
+      if (slabSize < MIN_CHUNK_SIZE) {
+         throw new IllegalArgumentException("Slab size must be at least " + MIN_CHUNK_SIZE + " bytes");
+      }
+      if (capacityBytes < slabSize) {
+         throw new IllegalArgumentException("Capacity must be at least one slab of " + slabSize + " bytes");
+      }
+      this.codec = codec;
+      this.slabSize = slabSize;
+      this.maxSlabs = (int) Math.min(Integer.MAX_VALUE, capacityBytes / slabSize);
+      this.capacityBytes = (long) maxSlabs * slabSize;
+
+      List<SizeClass> classes = new ArrayList<>();
+      int chunkSize = MIN_CHUNK_SIZE;
+      while (chunkSize < slabSize) {
+         classes.add(new SizeClass(chunkSize));
+         chunkSize = Math.max(chunkSize + 8, (int) (chunkSize * GROWTH_FACTOR) + 7 & ~7);
+      }
+      classes.add(new SizeClass(slabSize));
+      sizeClasses = classes.toArray(new SizeClass[classes.size()]);
+   }
+
+   @Override
+   public V get(String id) {
+      byte[] bytes;
+      synchronized (this) {
+         Entry entry = entries.get(id);
+         if (entry == null) {
+            return null;
+         }
+         if (System.currentTimeMillis() >= entry.expiresAt) {
+            free(entry);
+            return null;
+         }
+         entry.sizeClass.lru.get(id);
+         bytes = new byte[entry.length];
+         ByteBuffer buffer = entry.slab.buffer.duplicate();
+         buffer.position(entry.offset);
+         buffer.get(bytes);
+      }
+
+      try {
+         return codec.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+      } catch (IOException e) {
+         LOGGER.warn("Could not decode cached value {}: {}", id, e.getMessage());
+         return null;
+      }
+   }
+
+   @Override
+   public void put(String id, V value, long expiresAt) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+      try {
+         codec.encode(value, new DataOutputStream(bytes));
+      } catch (IOException e) {
+         LOGGER.warn("Could not encode value {}: {}", id, e.getMessage());
+         synchronized (this) {
+            rejections++;
+         }
+         return;
+      }
+      byte[] data = bytes.toByteArray();
+
+      synchronized (this) {
+         Entry previous = entries.get(id);
+         if (previous != null) {
+            free(previous);
+         }
+         SizeClass sizeClass = sizeClassFor(data.length);
+         if (sizeClass == null || !allocate(sizeClass)) {
+            rejections++;
+            return;
+         }
+         long chunk = sizeClass.pop();
+         Slab slab = slabs.get((int) (chunk >>> 32));
+         int offset = (int) chunk;
+         ByteBuffer buffer = slab.buffer.duplicate();
+         buffer.position(offset);
+         buffer.put(data);
+
+         Entry entry = new Entry(id, sizeClass, slab, offset, data.length, expiresAt);
+         slab.usedChunks++;
+         entries.put(id, entry);
+         sizeClass.lru.put(id, entry);
+         payloadBytes += data.length;
+         allocatedBytes += sizeClass.chunkSize;
+      }
+   }
+
+   /**
+    * Returns the current memory usage and counters of this store.
+    *
+    * @return the {@link OffHeapCacheStatistics}
+    */
+   public synchronized OffHeapCacheStatistics getStatistics() {
+      return new OffHeapCacheStatistics(entries.size(), payloadBytes, allocatedBytes, (long) slabs.size() * slabSize,
+         capacityBytes, evictions, rejections);
+   }
+
+   private SizeClass sizeClassFor(int length) {
+      for (SizeClass sizeClass : sizeClasses) {
+         if (length <= sizeClass.chunkSize) {
+            return sizeClass;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Makes sure the size class has a free chunk.
+    *
+    * @return <code>false</code> if no chunk could be freed
+    */
+   private boolean allocate(SizeClass sizeClass) {
+      if (sizeClass.freeCount > 0) {
+         return true;
+      }
+      if (slabs.size() < maxSlabs) {
+         Slab slab = new Slab(slabs.size(), ByteBuffer.allocateDirect(slabSize));
+         slabs.add(slab);
+         assign(slab, sizeClass);
+         return true;
+      }
+      for (Slab slab : slabs) {
+         if (slab.usedChunks == 0) {
+            assign(slab, sizeClass);
+            return true;
+         }
+      }
+      if (!sizeClass.lru.isEmpty()) {
+         evict(sizeClass.lru.values().iterator().next());
+         return true;
+      }
+      Slab leastUsed = null;
+      for (Slab slab : slabs) {
+         if (leastUsed == null || slab.usedChunks < leastUsed.usedChunks) {
+            leastUsed = slab;
+         }
+      }
+      if (leastUsed == null) {
+         return false;
+      }
+      for (Iterator<Entry> iterator = leastUsed.sizeClass.lru.values().iterator(); iterator.hasNext();) {
+         Entry entry = iterator.next();
+         if (entry.slab == leastUsed) {
+            iterator.remove();
+            evict(entry);
+         }
+      }
+      assign(leastUsed, sizeClass);
+      return true;
+   }
+
+   /**
+    * Cuts an empty slab into chunks of the size class, removing its chunks from the free list of the previous class.
+    */
+   private void assign(Slab slab, SizeClass sizeClass) {
+      if (slab.sizeClass != null) {
+         slab.sizeClass.removeChunksOf(slab.index);
+      }
+      slab.sizeClass = sizeClass;
+      int chunks = slabSize / sizeClass.chunkSize;
+      for (int i = chunks - 1; i >= 0; i--) {
+         sizeClass.push((long) slab.index << 32 | i * sizeClass.chunkSize);
+      }
+   }
+
+   private void evict(Entry entry) {
+      evictions++;
+      free(entry);
+   }
+
+   private void free(Entry entry) {
+      entries.remove(entry.id);
+      entry.sizeClass.lru.remove(entry.id);
+      entry.sizeClass.push((long) entry.slab.index << 32 | entry.offset);
+      entry.slab.usedChunks--;
+      payloadBytes -= entry.length;
+      allocatedBytes -= entry.sizeClass.chunkSize;
+   }
+
+   /**
+    * A direct buffer which is cut into chunks of one size class.
+    */
+   private static final class Slab {
+      private final int index;
+      private final ByteBuffer buffer;
+      private SizeClass sizeClass;
+      private int usedChunks;
+
+      Slab(int index, ByteBuffer buffer) {
+         this.index = index;
+         this.buffer = buffer;
+      }
+   }
+
+   /**
+    * The free chunks of one size, as slab index and offset, and the values stored in chunks of this size in least
+    * recently used order.
+    */
+   private static final class SizeClass {
+      private final int chunkSize;
+      private final LinkedHashMap<String, Entry> lru = new LinkedHashMap<>(16, 0.75f, true);
+      private long[] freeChunks = new long[16];
+      private int freeCount;
+
+      SizeClass(int chunkSize) {
+         this.chunkSize = chunkSize;
+      }
+
+      void push(long chunk) {
+         if (freeCount == freeChunks.length) {
+            freeChunks = Arrays.copyOf(freeChunks, freeCount * 2);
+         }
+         freeChunks[freeCount++] = chunk;
+      }
+
+      long pop() {
+         return freeChunks[--freeCount];
+      }
+
+      void removeChunksOf(int slabIndex) {
+         int kept = 0;
+         for (int i = 0; i < freeCount; i++) {
+            if ((int) (freeChunks[i] >>> 32) != slabIndex) {
+               freeChunks[kept++] = freeChunks[i];
+            }
+         }
+         freeCount = kept;
+      }
+   }
+
+   /**
+    * The location of a stored value.
+    */
+   private static final class Entry {
+      private final String id;
+      private final SizeClass sizeClass;
+      private final Slab slab;
+      private final int offset;
+      private final int length;
+      private final long expiresAt;
+
+      Entry(String id, SizeClass sizeClass, Slab slab, int offset, int length, long expiresAt) {
+         this.id = id;
+         this.sizeClass = sizeClass;
+         this.slab = slab;
+         this.offset = offset;
+         this.length = length;
+         this.expiresAt = expiresAt;
+      }
+   }
+}
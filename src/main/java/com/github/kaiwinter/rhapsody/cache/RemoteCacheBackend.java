@@ -0,0 +1,60 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * A cache which is shared by the {@link DataCache}s of several application nodes, e.g. a key-value server. It is the
+ * second level of a {@link NearCacheStore}. Values are opaque bytes, keys are namespaced by the stores.
+ * <p>
+ * When a node writes or removes a key, the backend notifies the invalidation listeners of all other nodes, so they
+ * drop their local copy. {@link SocketCacheBackend} is a reference implementation for a {@link SocketCacheServer}.
+ */
+public interface RemoteCacheBackend extends Closeable {
+
+   /**
+    * Returns the value with the given <code>key</code>.
+    *
+    * @param key
+    *           the key
+    * @return the value, or <code>null</code> if not cached or expired
+    * @throws IOException
+    *            if the backend is not reachable
+    */
+   byte[] get(String key) throws IOException;
+
+   /**
+    * Stores a value and invalidates the key on all other nodes.
+    *
+    * @param key
+    *           the key
+    * @param value
+    *           the value
+    * @param expiresAt
+    *           the time at which the value expires, in milliseconds since the epoch
+    * @throws IOException
+    *            if the backend is not reachable
+    */
+   void put(String key, byte[] value, long expiresAt) throws IOException;
+
+   /**
+    * Removes a value and invalidates the key on all other nodes.
+    *
+    * @param key
+    *           the key
+    * @throws IOException
+    *            if the backend is not reachable
+    */
+   void remove(String key) throws IOException;
+
+   /**
+    * Adds a listener which is called with the keys which other nodes wrote or removed. It is called with
+    * <code>null</code> when invalidations may have been missed, e.g. after a reconnect, then all local copies are
+    * stale.
+    *
+    * @param listener
+    *           the listener, called on a thread of the backend
+    */
+   void addInvalidationListener(Consumer<String> listener);
+}
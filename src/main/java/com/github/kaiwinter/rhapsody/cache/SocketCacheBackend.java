@@ -0,0 +1,212 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link RemoteCacheBackend} which connects to a {@link SocketCacheServer}. Requests are sent one after the other
+ * over one connection, which is opened again on the next request after a failure. The invalidations are received by
+ * a daemon thread over a second connection, which reconnects until the backend is closed.
+ *
+ * <p>
+ * <b>Note: this will not run on Android.</b>
+ * </p>
+ */
+public final class SocketCacheBackend implements RemoteCacheBackend {
+
+   private static final Logger LOGGER = LoggerFactory.getLogger(SocketCacheBackend.class.getSimpleName());
+
+   private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+   private static final int READ_TIMEOUT_MILLIS = 2_000;
+   private static final long RECONNECT_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+   private final InetSocketAddress address;
+   private final String nodeId = UUID.randomUUID().toString();
+   private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+   private final Thread invalidationReader;
+   private final CountDownLatch firstSubscription = new CountDownLatch(1);
+
+   private Socket socket;
+   private DataInputStream in;
+   private DataOutputStream out;
+   private volatile Socket invalidationSocket;
+   private volatile boolean closed;
+
+   /**
+    * Constructs a new {@link SocketCacheBackend} and starts receiving invalidations. Waits until the first attempt to
+    * subscribe to the invalidations succeeded or failed.
+    *
+    * @param host
+    *           the host of the {@link SocketCacheServer}
+    * @param port
+    *           the port of the {@link SocketCacheServer}
+    */
+   public SocketCacheBackend(String host, int port) {
+      address = new InetSocketAddress(host, port);
+      invalidationReader = new Thread(this::readInvalidations, "cache-invalidations");
+      invalidationReader.setDaemon(true);
+      invalidationReader.start();
+      try {
+         firstSubscription.await();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   @Override
+   public synchronized byte[] get(String key) throws IOException {
+      DataOutputStream request = connect();
+      try {
+         request.writeByte(SocketCacheServer.GET);
+         request.writeUTF(key);
+         request.flush();
+         if (in.readByte() == SocketCacheServer.NOT_FOUND) {
+            return null;
+         }
+         byte[] value = new byte[in.readInt()];
+         in.readFully(value);
+         return value;
+      } catch (IOException e) {
+         disconnect();
+         throw e;
+      }
+   }
+
+   @Override
+   public synchronized void put(String key, byte[] value, long expiresAt) throws IOException {
+      DataOutputStream request = connect();
+      try {
+         request.writeByte(SocketCacheServer.PUT);
+         request.writeUTF(key);
+         request.writeLong(expiresAt);
+         request.writeInt(value.length);
+         request.write(value);
+         request.flush();
+         in.readByte();
+      } catch (IOException e) {
+         disconnect();
+         throw e;
+      }
+   }
+
+   @Override
+   public synchronized void remove(String key) throws IOException {
+      DataOutputStream request = connect();
+      try {
+         request.writeByte(SocketCacheServer.REMOVE);
+         request.writeUTF(key);
+         request.flush();
+         in.readByte();
+      } catch (IOException e) {
+         disconnect();
+         throw e;
+      }
+   }
+
+   @Override
+   public void addInvalidationListener(Consumer<String> listener) {
+      listeners.add(listener);
+   }
+
+   @Override
+   public void close() throws IOException {
+      closed = true;
+      invalidationReader.interrupt();
+      Socket subscription = invalidationSocket;
+      if (subscription != null) {
+         subscription.close();
+      }
+      synchronized (this) {
+         disconnect();
+      }
+   }
+
+   private DataOutputStream connect() throws IOException {
+      if (closed) {
+         throw new IOException("Backend is closed");
+      }
+      if (socket == null) {
+         Socket newSocket = open(SocketCacheServer.REQUESTS);
+         newSocket.setSoTimeout(READ_TIMEOUT_MILLIS);
+         in = new DataInputStream(new BufferedInputStream(newSocket.getInputStream()));
+         out = new DataOutputStream(new BufferedOutputStream(newSocket.getOutputStream()));
+         socket = newSocket;
+      }
+      return out;
+   }
+
+   private void disconnect() {
+      if (socket != null) {
+         try {
+            socket.close();
+         } catch (IOException e) {
+            // already closed
+         }
+         socket = null;
+      }
+   }
+
+   private Socket open(int type) throws IOException {
+      Socket newSocket = new Socket();
+      try {
+         newSocket.setTcpNoDelay(true);
+         newSocket.connect(address, CONNECT_TIMEOUT_MILLIS);
+         DataOutputStream handshake = new DataOutputStream(newSocket.getOutputStream());
+         handshake.writeByte(type);
+         handshake.writeUTF(nodeId);
+         handshake.flush();
+         return newSocket;
+      } catch (IOException e) {
+         newSocket.close();
+         throw e;
+      }
+   }
+
+   private void readInvalidations() {
+      while (!closed) {
+         try (Socket subscription = open(SocketCacheServer.INVALIDATIONS)) {
+            invalidationSocket = subscription;
+            DataInputStream invalidations = new DataInputStream(
+               new BufferedInputStream(subscription.getInputStream()));
+            invalidations.readByte();
+            // invalidations may have been missed while not subscribed
+            notifyListeners(null);
+            firstSubscription.countDown();
+            while (true) {
+               notifyListeners(invalidations.readUTF());
+            }
+         } catch (IOException e) {
+            if (closed) {
+               return;
+            }
+            LOGGER.warn("Not receiving cache invalidations from {}", address, e);
+         }
+         firstSubscription.countDown();
+         try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+         } catch (InterruptedException e) {
+            return;
+         }
+      }
+   }
+
+   private void notifyListeners(String key) {
+      for (Consumer<String> listener : listeners) {
+         listener.accept(key);
+      }
+   }
+}
@@ -0,0 +1,248 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A minimal key-value server which the {@link SocketCacheBackend}s of several nodes share. It keeps the values in
+ * memory and pushes the keys which one node wrote or removed to the other nodes. It is a stand-in to run and test
+ * {@link NearCacheStore}s without an external cache service, e.g. started by one of the nodes or in a separate process
+ * with {@link #main(String[])}.
+ * <p>
+ * Every connection starts with a byte which tells whether it sends requests ({@link #REQUESTS}) or receives
+ * invalidations ({@link #INVALIDATIONS}), followed by the ID of the node. A request connection then sends commands and
+ * reads one response for each. An invalidation connection reads an acknowledgement once it is registered and then the
+ * invalidated keys.
+ *
+ * <p>
+ * <b>Note: this will not run on Android.</b>
+ * </p>
+ */
+public final class SocketCacheServer implements Closeable {
+
+   private static final Logger LOGGER = LoggerFactory.getLogger(SocketCacheServer.class.getSimpleName());
+
+   static final int REQUESTS = 'R';
+   static final int INVALIDATIONS = 'I';
+
+   static final int GET = 1;
+   static final int PUT = 2;
+   static final int REMOVE = 3;
+
+   static final int NOT_FOUND = 0;
+   static final int FOUND = 1;
+   static final int OK = 2;
+
+   private final ServerSocket serverSocket;
+   private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "cache-server");
+      thread.setDaemon(true);
+      return thread;
+   });
+   private final Map<String, StoredValue> values = new ConcurrentHashMap<>();
+   private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+   private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+   /**
+    * Starts a new server on the loopback interface.
+    *
+    * @param port
+    *           the port, 0 for a free one
+    * @throws IOException
+    *            if the server cannot be started
+    */
+   public SocketCacheServer(int port) throws IOException {
+      serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+      executor.execute(this::accept);
+   }
+
+   /**
+    * Starts a server and runs until the process is stopped.
+    *
+    * @param args
+    *           the port, 0 or missing for a free one
+    * @throws IOException
+    *            if the server cannot be started
+    */
+   public static void main(String[] args) throws IOException {
+      SocketCacheServer server = new SocketCacheServer(args.length == 0 ? 0 : Integer.parseInt(args[0]));
+      LOGGER.info("Cache server listening on port {}", server.getPort());
+      try {
+         Thread.currentThread().join();
+      } catch (InterruptedException e) {
+         server.close();
+      }
+   }
+
+   /**
+    * Returns the port this server listens on.
+    *
+    * @return the port
+    */
+   public int getPort() {
+      return serverSocket.getLocalPort();
+   }
+
+   @Override
+   public void close() throws IOException {
+      serverSocket.close();
+      for (Socket socket : connections) {
+         socket.close();
+      }
+      executor.shutdownNow();
+   }
+
+   private void accept() {
+      while (!serverSocket.isClosed()) {
+         try {
+            Socket socket = serverSocket.accept();
+            socket.setTcpNoDelay(true);
+            connections.add(socket);
+            executor.execute(() -> serve(socket));
+         } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+               LOGGER.warn("Could not accept connection: {}", e.getMessage());
+            }
+         }
+      }
+   }
+
+   private void serve(Socket socket) {
+      Subscriber subscriber = null;
+      try {
+         DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+         int type = in.readByte();
+         String nodeId = in.readUTF();
+         if (type == INVALIDATIONS) {
+            subscriber = new Subscriber(nodeId, out);
+            subscribers.add(subscriber);
+            // the node may drop its local copies from now on, no later invalidation is missed
+            subscriber.acknowledge();
+            // nothing is read from an invalidation connection, this returns when it is closed
+            in.read();
+         } else {
+            while (true) {
+               handle(nodeId, in, out);
+            }
+         }
+      } catch (EOFException e) {
+         // connection closed by the node
+      } catch (IOException e) {
+         if (!serverSocket.isClosed()) {
+            LOGGER.debug("Connection closed: {}", e.getMessage());
+         }
+      } finally {
+         if (subscriber != null) {
+            subscribers.remove(subscriber);
+         }
+         connections.remove(socket);
+         try {
+            socket.close();
+         } catch (IOException e) {
+            // already closed
+         }
+      }
+   }
+
+   private void handle(String nodeId, DataInputStream in, DataOutputStream out) throws IOException {
+      int command = in.readByte();
+      String key = in.readUTF();
+      switch (command) {
+         case GET:
+            StoredValue value = values.get(key);
+            if (value != null && System.currentTimeMillis() >= value.expiresAt) {
+               values.remove(key, value);
+               value = null;
+            }
+            if (value == null) {
+               out.writeByte(NOT_FOUND);
+            } else {
+               out.writeByte(FOUND);
+               out.writeInt(value.bytes.length);
+               out.write(value.bytes);
+            }
+            break;
+         case PUT:
+            long expiresAt = in.readLong();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            values.put(key, new StoredValue(bytes, expiresAt));
+            broadcast(nodeId, key);
+            out.writeByte(OK);
+            break;
+         case REMOVE:
+            values.remove(key);
+            broadcast(nodeId, key);
+            out.writeByte(OK);
+            break;
+         default:
+            throw new IOException("Unknown command " + command);
+      }
+      out.flush();
+   }
+
+   private void broadcast(String originNodeId, String key) {
+      for (Subscriber subscriber : subscribers) {
+         if (!subscriber.nodeId.equals(originNodeId)) {
+            subscriber.send(key);
+         }
+      }
+   }
+
+   /**
+    * An invalidation connection of a node.
+    */
+   private static final class Subscriber {
+      private final String nodeId;
+      private final DataOutputStream out;
+
+      Subscriber(String nodeId, DataOutputStream out) {
+         this.nodeId = nodeId;
+         this.out = out;
+      }
+
+      synchronized void acknowledge() throws IOException {
+         out.writeByte(OK);
+         out.flush();
+      }
+
+      synchronized void send(String key) {
+         try {
+            out.writeUTF(key);
+            out.flush();
+         } catch (IOException e) {
+            LOGGER.debug("Could not send invalidation to {}: {}", nodeId, e.getMessage());
+         }
+      }
+   }
+
+   /**
+    * A value with its expiry time.
+    */
+   private static final class StoredValue {
+      private final byte[] bytes;
+      private final long expiresAt;
+
+      StoredValue(byte[] bytes, long expiresAt) {
+         this.bytes = bytes;
+         this.expiresAt = expiresAt;
+      }
+   }
+}
@@ -0,0 +1,307 @@
+package com.github.kaiwinter.rhapsody.charts;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import com.github.kaiwinter.rhapsody.model.member.ChartsAlbum;
+import com.github.kaiwinter.rhapsody.model.member.ChartsArtist;
+import com.github.kaiwinter.rhapsody.model.member.ChartsTrack;
+
+/**
+ * Sums the play counts of many members' charts, e.g. to build the top tracks across a user base. IDs are encoded by a
+ * shared {@link IdDictionary} and counted in a primitive open-addressing map, so ingesting charts neither boxes
+ * counts nor copies ID strings. The counts are summed as <code>long</code>, so they don't overflow on large histories.
+ * Use one aggregator per chart type.
+ *
+ * <p>
+ * An aggregator is not thread-safe. To use several cores, let each thread fill its own aggregator and
+ * {@link #merge(ChartAggregator)} them afterwards, or use {@link #aggregateParallel(IdDictionary, Collection,
+ * BiConsumer)}. Partial results can be spilled to disk by {@link #writeTo(OutputStream)} and merged back by
+ * {@link #readFrom(InputStream)}.
+ * </p>
+ */
+public final class ChartAggregator {
+
+   /** Version 1 wrote the counts as <code>int</code>, they are read by the same variable-length decoding. */
+   private static final int SPILL_FORMAT_VERSION = 2;
+
+   private final IdDictionary dictionary;
+   private final IntLongHashMap counts = new IntLongHashMap(1024);
+
+   /**
+    * Constructs a new, empty {@link ChartAggregator}.
+    *
+    * @param dictionary
+    *           the dictionary which encodes the IDs, aggregators which are merged must share it
+    */
+   public ChartAggregator(IdDictionary dictionary) {
+      this.dictionary = dictionary;
+   }
+
+   /**
+    * Aggregates many charts in parallel on the common fork/join pool.
+    *
+    * @param dictionary
+    *           the dictionary which encodes the IDs
+    * @param charts
+    *           the charts, e.g. one list per member
+    * @param ingest
+    *           adds one chart to an aggregator, e.g. <code>ChartAggregator::addTracks</code>
+    * @param <T>
+    *           type of a single chart
+    * @return the aggregated charts
+    */
+   public static <T> ChartAggregator aggregateParallel(IdDictionary dictionary, Collection<T> charts,
+      BiConsumer<ChartAggregator, T> ingest) {
+      return charts.parallelStream().collect(() -> new ChartAggregator(dictionary), ingest, ChartAggregator::merge);
+   }
+
+   /**
+    * Adds a play count.
+    *
+    * @param id
+    *           the ID of the track, artist or album
+    * @param playCount
+    *           the play count, <code>null</code> counts as 0
+    */
+   public void add(String id, Integer playCount) {
+      if (id != null) {
+         counts.addTo(dictionary.encode(id), playCount == null ? 0 : playCount);
+      }
+   }
+
+   /**
+    * Adds the play counts of a member's track chart.
+    *
+    * @param chart
+    *           the chart as loaded by {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper#loadTopPlayedTracks}
+    */
+   public void addTracks(Collection<ChartsTrack> chart) {
+      for (ChartsTrack track : chart) {
+         add(track.id, track.playCount);
+      }
+   }
+
+   /**
+    * Adds the play counts of a member's artist chart.
+    *
+    * @param chart
+    *           the chart as loaded by {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper#loadTopPlayedArtists}
+    */
+   public void addArtists(Collection<ChartsArtist> chart) {
+      for (ChartsArtist artist : chart) {
+         add(artist.id, artist.playCount);
+      }
+   }
+
+   /**
+    * Adds the play counts of a member's album chart.
+    *
+    * @param chart
+    *           the chart as loaded by {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper#loadTopPlayedAlbums}
+    */
+   public void addAlbums(Collection<ChartsAlbum> chart) {
+      for (ChartsAlbum album : chart) {
+         add(album.id, album.playCount);
+      }
+   }
+
+   /**
+    * Adds all play counts of another aggregator to this one.
+    *
+    * @param other
+    *           the other aggregator, must use the same {@link IdDictionary}
+    */
+   public void merge(ChartAggregator other) {
+      if (other.dictionary != dictionary) {
+         throw new IllegalArgumentException("Aggregators must share the same IdDictionary");
+      }
+      other.counts.forEach(counts::addTo);
+   }
+
+   /**
+    * Returns the play count of an ID.
+    *
+    * @param id
+    *           the ID
+    * @return the summed play count, 0 if never added
+    */
+   public long getPlayCount(String id) {
+      int code = dictionary.find(id);
+      return code < 0 ? 0 : counts.get(code);
+   }
+
+   /**
+    * Returns the number of distinct IDs.
+    *
+    * @return the number of IDs
+    */
+   public int size() {
+      return counts.size();
+   }
+
+   /**
+    * Removes all play counts, e.g. after spilling them to disk.
+    */
+   public void clear() {
+      counts.clear();
+   }
+
+   /**
+    * Returns the <code>k</code> IDs with the highest play counts. A bounded min-heap is used, so this takes
+    * O(n log k) time.
+    *
+    * @param k
+    *           the number of entries to return
+    * @return the entries, highest play count first
+    */
+   public List<ChartEntry> topK(int k) {
+      int[] heapCodes = new int[Math.max(k, 0)];
+      long[] heapCounts = new long[heapCodes.length];
+      int[] heapSize = { 0 };
+      counts.forEach((code, count) -> {
+         if (heapSize[0] < heapCodes.length) {
+            heapCodes[heapSize[0]] = code;
+            heapCounts[heapSize[0]] = count;
+            siftUp(heapCodes, heapCounts, heapSize[0]++);
+         } else if (heapCodes.length > 0 && count > heapCounts[0]) {
+            heapCodes[0] = code;
+            heapCounts[0] = count;
+            siftDown(heapCodes, heapCounts, heapSize[0]);
+         }
+      });
+
+      List<ChartEntry> result = new ArrayList<>(heapSize[0]);
+      for (int size = heapSize[0]; size > 0; size--) {
+         result.add(new ChartEntry(dictionary.decode(heapCodes[0]), heapCounts[0]));
+         heapCodes[0] = heapCodes[size - 1];
+         heapCounts[0] = heapCounts[size - 1];
+         siftDown(heapCodes, heapCounts, size - 1);
+      }
+      // The heap yields the smallest first
+      Collections.reverse(result);
+      return result;
+   }
+
+   private static void siftUp(int[] codes, long[] heapCounts, int index) {
+      int child = index;
+      while (child > 0) {
+         int parent = (child - 1) / 2;
+         if (heapCounts[parent] <= heapCounts[child]) {
+            return;
+         }
+         swap(codes, heapCounts, parent, child);
+         child = parent;
+      }
+   }
+
+   private static void siftDown(int[] codes, long[] heapCounts, int size) {
+      int parent = 0;
+      while (true) {
+         int smallest = parent;
+         int left = 2 * parent + 1;
+         int right = left + 1;
+         if (left < size && heapCounts[left] < heapCounts[smallest]) {
+            smallest = left;
+         }
+         if (right < size && heapCounts[right] < heapCounts[smallest]) {
+            smallest = right;
+         }
+         if (smallest == parent) {
+            return;
+         }
+         swap(codes, heapCounts, parent, smallest);
+         parent = smallest;
+      }
+   }
+
+   private static void swap(int[] codes, long[] heapCounts, int i, int j) {
+      int code = codes[i];
+      codes[i] = codes[j];
+      codes[j] = code;
+      long count = heapCounts[i];
+      heapCounts[i] = heapCounts[j];
+      heapCounts[j] = count;
+   }
+
+   /**
+    * Writes the play counts in a compact binary format: the IDs as modified UTF-8 and the counts as variable-length
+    * integers.
+    *
+    * @param outputStream
+    *           the stream to write to, it is not closed
+    * @throws IOException
+    *            if writing fails
+    */
+   public void writeTo(OutputStream outputStream) throws IOException {
+      DataOutputStream out = new DataOutputStream(outputStream);
+      out.writeInt(SPILL_FORMAT_VERSION);
+      out.writeInt(counts.size());
+      IOException[] failure = { null };
+      counts.forEach((code, count) -> {
+         if (failure[0] != null) {
+            return;
+         }
+         try {
+            out.writeUTF(dictionary.decode(code));
+            writeVarLong(out, count);
+         } catch (IOException e) {
+            failure[0] = e;
+         }
+      });
+      if (failure[0] != null) {
+         throw failure[0];
+      }
+      out.flush();
+   }
+
+   /**
+    * Adds the play counts which were written by {@link #writeTo(OutputStream)} to this aggregator.
+    *
+    * @param inputStream
+    *           the stream to read from, it is not closed
+    * @throws IOException
+    *            if reading fails or the data has an unknown format
+    */
+   public void readFrom(InputStream inputStream) throws IOException {
+      DataInputStream in = new DataInputStream(inputStream);
+      int version = in.readInt();
+      if (version != 1 && version != SPILL_FORMAT_VERSION) {
+         throw new IOException("Unknown spill format version " + version);
+      }
+      int entries = in.readInt();
+      for (int i = 0; i < entries; i++) {
+         String id = in.readUTF();
+         counts.addTo(dictionary.encode(id), readVarLong(in));
+      }
+   }
+
+   private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+      long remaining = value;
+      while ((remaining & ~0x7fL) != 0) {
+         out.writeByte((int) (remaining & 0x7f | 0x80));
+         remaining >>>= 7;
+      }
+      out.writeByte((int) remaining);
+   }
+
+   private static long readVarLong(DataInputStream in) throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         int b = in.readUnsignedByte();
+         value |= (long) (b & 0x7f) << shift;
+         if ((b & 0x80) == 0) {
+            return value;
+         }
+      }
+      throw new IOException("Malformed variable-length integer");
+   }
+}
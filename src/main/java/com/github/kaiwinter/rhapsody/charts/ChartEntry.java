@@ -0,0 +1,38 @@
+package com.github.kaiwinter.rhapsody.charts;
+
+/**
+ * An ID with its aggregated play count, as returned by {@link ChartAggregator#topK(int)}.
+ */
+public final class ChartEntry {
+
+   private final String id;
+   private final long playCount;
+
+   ChartEntry(String id, long playCount) {
+      this.id = id;
+      this.playCount = playCount;
+   }
+
+   /**
+    * Returns the ID of the track, artist or album.
+    *
+    * @return the ID
+    */
+   public String getId() {
+      return id;
+   }
+
+   /**
+    * Returns the play count summed over all ingested charts.
+    *
+    * @return the play count
+    */
+   public long getPlayCount() {
+      return playCount;
+   }
+
+   @Override
+   public String toString() {
+      return id + "=" + playCount;
+   }
+}
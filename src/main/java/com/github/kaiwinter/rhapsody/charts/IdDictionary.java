@@ -0,0 +1,74 @@
+package com.github.kaiwinter.rhapsody.charts;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe dictionary which encodes string IDs as dense <code>int</code> codes, starting at 0. Several
+ * {@link ChartAggregator}s which share a dictionary can be merged by code.
+ */
+public final class IdDictionary {
+
+   private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+   private volatile String[] ids = new String[1024];
+   private int size;
+
+   /**
+    * Returns the code of an ID, a new code is assigned if the ID is unknown.
+    *
+    * @param id
+    *           the ID
+    * @return the code
+    */
+   public int encode(String id) {
+      Integer code = codes.get(id);
+      if (code != null) {
+         return code;
+      }
+      synchronized (this) {
+         code = codes.get(id);
+         if (code != null) {
+            return code;
+         }
+         if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+         }
+         ids[size] = id;
+         codes.put(id, size);
+         return size++;
+      }
+   }
+
+   /**
+    * Returns the code of an ID without assigning a new one.
+    *
+    * @param id
+    *           the ID
+    * @return the code, or -1 if the ID is unknown
+    */
+   public int find(String id) {
+      Integer code = codes.get(id);
+      return code == null ? -1 : code;
+   }
+
+   /**
+    * Returns the ID of a code.
+    *
+    * @param code
+    *           the code, as returned by {@link #encode(String)}
+    * @return the ID
+    */
+   public String decode(int code) {
+      return ids[code];
+   }
+
+   /**
+    * Returns the number of encoded IDs.
+    *
+    * @return the number of IDs
+    */
+   public synchronized int size() {
+      return size;
+   }
+}
@@ -0,0 +1,118 @@
+package com.github.kaiwinter.rhapsody.charts;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative <code>int</code> keys to <code>long</code> values with linear probing.
+ * No boxing is involved, the keys and values are stored in two parallel arrays.
+ */
+final class IntLongHashMap {
+
+   private static final int FREE = -1;
+   private static final float LOAD_FACTOR = 0.5f;
+
+   private int[] keys;
+   private long[] values;
+   private int size;
+   private int mask;
+
+   /**
+    * Visits the entries of an {@link IntLongHashMap}.
+    */
+   interface EntryVisitor {
+
+      /**
+       * Is called for each entry.
+       *
+       * @param key
+       *           the key
+       * @param value
+       *           the value
+       */
+      void visit(int key, long value);
+   }
+
+   IntLongHashMap(int expectedSize) {
+      int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+      allocate(capacity);
+   }
+
+   /**
+    * Adds <code>delta</code> to the value of <code>key</code>, an absent key counts as 0.
+    *
+    * @param key
+    *           the key, not negative
+    * @param delta
+    *           the value to add
+    */
+   void addTo(int key, long delta) {
+      int slot = slot(key);
+      if (keys[slot] == FREE) {
+         keys[slot] = key;
+         values[slot] = delta;
+         if (++size > keys.length * LOAD_FACTOR) {
+            rehash();
+         }
+      } else {
+         values[slot] += delta;
+      }
+   }
+
+   /**
+    * Returns the value of <code>key</code>.
+    *
+    * @param key
+    *           the key
+    * @return the value, 0 if absent
+    */
+   long get(int key) {
+      int slot = slot(key);
+      return keys[slot] == FREE ? 0 : values[slot];
+   }
+
+   int size() {
+      return size;
+   }
+
+   void clear() {
+      Arrays.fill(keys, FREE);
+      size = 0;
+   }
+
+   void forEach(EntryVisitor visitor) {
+      for (int i = 0; i < keys.length; i++) {
+         if (keys[i] != FREE) {
+            visitor.visit(keys[i], values[i]);
+         }
+      }
+   }
+
+   private int slot(int key) {
+      // Spread the dense codes over the table
+      int slot = (key * 0x9E3779B9) >>> 1 & mask;
+      while (keys[slot] != FREE && keys[slot] != key) {
+         slot = slot + 1 & mask;
+      }
+      return slot;
+   }
+
+   private void rehash() {
+      int[] oldKeys = keys;
+      long[] oldValues = values;
+      allocate(keys.length * 2);
+      for (int i = 0; i < oldKeys.length; i++) {
+         if (oldKeys[i] != FREE) {
+            int slot = slot(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+         }
+      }
+   }
+
+   private void allocate(int capacity) {
+      keys = new int[capacity];
+      values = new long[capacity];
+      Arrays.fill(keys, FREE);
+      mask = capacity - 1;
+   }
+}
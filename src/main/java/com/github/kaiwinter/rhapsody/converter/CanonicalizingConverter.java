@@ -0,0 +1,53 @@
+package com.github.kaiwinter.rhapsody.converter;
+
+import java.lang.reflect.Type;
+
+import retrofit.converter.ConversionException;
+import retrofit.converter.Converter;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+/**
+ * {@link Converter} which passes decoded responses through a {@link ModelCanonicalizer} when enabled. The conversion
+ * itself is done by the delegate.
+ */
+public final class CanonicalizingConverter implements Converter {
+
+   private final Converter delegate;
+   private final ModelCanonicalizer canonicalizer = new ModelCanonicalizer();
+   private volatile boolean enabled;
+
+   /**
+    * Constructs a new, disabled {@link CanonicalizingConverter}.
+    *
+    * @param delegate
+    *           the {@link Converter} which does the actual conversion
+    */
+   public CanonicalizingConverter(Converter delegate) {
+      this.delegate = delegate;
+   }
+
+   /**
+    * Enables or disables the canonicalization of decoded responses.
+    *
+    * @param enabled
+    *           if <code>true</code> decoded albums are canonicalized
+    */
+   public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+   }
+
+   @Override
+   public Object fromBody(TypedInput body, Type type) throws ConversionException {
+      Object decoded = delegate.fromBody(body, type);
+      if (enabled) {
+         canonicalizer.canonicalizeObject(decoded);
+      }
+      return decoded;
+   }
+
+   @Override
+   public TypedOutput toBody(Object object) {
+      return delegate.toBody(object);
+   }
+}
@@ -0,0 +1,253 @@
+package com.github.kaiwinter.rhapsody.converter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * A {@link TypeAdapter} for a model class which accesses the fields by functions instead of reflection. The properties
+ * are declared in the order of the fields, which is the order they are written in. Like Gson's reflective adapter it
+ * skips unknown properties on reading and doesn't write <code>null</code> values.
+ *
+ * @param <T>
+ *           the model class
+ */
+final class ModelAdapter<T> extends TypeAdapter<T> {
+
+   /** Reads strings, also from booleans and numbers like Gson does. */
+   static final TypeAdapter<String> STRING = new TypeAdapter<String>() {
+
+      @Override
+      public String read(JsonReader in) throws IOException {
+         JsonToken token = in.peek();
+         if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+         }
+         return token == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+      }
+
+      @Override
+      public void write(JsonWriter out, String value) throws IOException {
+         out.value(value);
+      }
+   };
+
+   /** Reads integers, also from quoted numbers. */
+   static final TypeAdapter<Integer> INTEGER = new TypeAdapter<Integer>() {
+
+      @Override
+      public Integer read(JsonReader in) throws IOException {
+         if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+         }
+         return in.nextInt();
+      }
+
+      @Override
+      public void write(JsonWriter out, Integer value) throws IOException {
+         out.value(value);
+      }
+   };
+
+   /** Reads longs, also from quoted numbers. */
+   static final TypeAdapter<Long> LONG = new TypeAdapter<Long>() {
+
+      @Override
+      public Long read(JsonReader in) throws IOException {
+         if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+         }
+         return in.nextLong();
+      }
+
+      @Override
+      public void write(JsonWriter out, Long value) throws IOException {
+         out.value(value);
+      }
+   };
+
+   /** Reads booleans, also from strings like Gson does. */
+   static final TypeAdapter<Boolean> BOOLEAN = new TypeAdapter<Boolean>() {
+
+      @Override
+      public Boolean read(JsonReader in) throws IOException {
+         JsonToken token = in.peek();
+         if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+         }
+         return token == JsonToken.STRING ? Boolean.parseBoolean(in.nextString()) : in.nextBoolean();
+      }
+
+      @Override
+      public void write(JsonWriter out, Boolean value) throws IOException {
+         if (value == null) {
+            out.nullValue();
+         } else {
+            out.value(value.booleanValue());
+         }
+      }
+   };
+
+   private final Supplier<T> constructor;
+   private final List<Property<T, ?>> properties = new ArrayList<>();
+   private final Map<String, Property<T, ?>> propertiesByName = new HashMap<>();
+
+   /**
+    * Constructs a new {@link ModelAdapter} without properties.
+    *
+    * @param constructor
+    *           creates an empty instance of the model class
+    */
+   ModelAdapter(Supplier<T> constructor) {
+      this.constructor = constructor;
+   }
+
+   /**
+    * Declares the next property.
+    *
+    * @param name
+    *           the JSON name of the property
+    * @param adapter
+    *           reads and writes the value
+    * @param getter
+    *           returns the value of an instance
+    * @param setter
+    *           sets the value of an instance, <code>null</code> for a final field which is only written
+    * @return this adapter
+    */
+   <V> ModelAdapter<T> property(String name, TypeAdapter<V> adapter, Function<T, V> getter, BiConsumer<T, V> setter) {
+      Property<T, V> property = new Property<>(name, adapter, getter, setter);
+      properties.add(property);
+      propertiesByName.put(name, property);
+      return this;
+   }
+
+   @Override
+   public T read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+         in.nextNull();
+         return null;
+      }
+      T instance = constructor.get();
+      in.beginObject();
+      while (in.hasNext()) {
+         Property<T, ?> property = propertiesByName.get(in.nextName());
+         if (property == null || property.setter == null) {
+            in.skipValue();
+         } else {
+            property.read(in, instance);
+         }
+      }
+      in.endObject();
+      return instance;
+   }
+
+   @Override
+   public void write(JsonWriter out, T value) throws IOException {
+      if (value == null) {
+         out.nullValue();
+         return;
+      }
+      out.beginObject();
+      for (Property<T, ?> property : properties) {
+         property.write(out, value);
+      }
+      out.endObject();
+   }
+
+   /**
+    * Returns an adapter for lists, the lists are read as {@link ArrayList}s.
+    *
+    * @param element
+    *           the adapter of the elements
+    * @return the list adapter
+    */
+   @SuppressWarnings("unchecked")
+   static <E> TypeAdapter<List<E>> listOf(TypeAdapter<E> element) {
+      return (TypeAdapter<List<E>>) (TypeAdapter<?>) collectionOf(element);
+   }
+
+   /**
+    * Returns an adapter for collections, the collections are read as {@link ArrayList}s.
+    *
+    * @param element
+    *           the adapter of the elements
+    * @return the collection adapter
+    */
+   static <E> TypeAdapter<Collection<E>> collectionOf(TypeAdapter<E> element) {
+      return new TypeAdapter<Collection<E>>() {
+
+         @Override
+         public Collection<E> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+               in.nextNull();
+               return null;
+            }
+            List<E> list = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+               list.add(element.read(in));
+            }
+            in.endArray();
+            return list;
+         }
+
+         @Override
+         public void write(JsonWriter out, Collection<E> value) throws IOException {
+            if (value == null) {
+               out.nullValue();
+               return;
+            }
+            out.beginArray();
+            for (E item : value) {
+               element.write(out, item);
+            }
+            out.endArray();
+         }
+      };
+   }
+
+   /**
+    * A property of the model class.
+    */
+   private static final class Property<T, V> {
+      private final String name;
+      private final TypeAdapter<V> adapter;
+      private final Function<T, V> getter;
+      private final BiConsumer<T, V> setter;
+
+      Property(String name, TypeAdapter<V> adapter, Function<T, V> getter, BiConsumer<T, V> setter) {
+         this.name = name;
+         this.adapter = adapter;
+         this.getter = getter;
+         this.setter = setter;
+      }
+
+      void read(JsonReader in, T instance) throws IOException {
+         setter.accept(instance, adapter.read(in));
+      }
+
+      void write(JsonWriter out, T instance) throws IOException {
+         V value = getter.apply(instance);
+         if (value != null) {
+            out.name(name);
+            adapter.write(out, value);
+         }
+      }
+   }
+}
@@ -0,0 +1,140 @@
+package com.github.kaiwinter.rhapsody.converter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Album;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Artist;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Genre;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Track;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Type;
+
+/**
+ * Removes duplicated value objects from decoded {@link AlbumData} graphs:
+ * <ul>
+ * <li>a track's {@link Artist} which equals the album's artist is replaced by the album's instance</li>
+ * <li>a track's {@link Album} which describes the parent album is replaced by one instance per album</li>
+ * <li>{@link Artist}, {@link Type} and {@link Genre} objects are shared across albums</li>
+ * <li>IDs, names and tags are shared across albums</li>
+ * </ul>
+ * All pools are bounded and only hold weak references, so the canonicalizer itself never keeps data alive.
+ *
+ * <p>
+ * <b>Note:</b> canonicalized objects are shared between albums and must not be modified.
+ * </p>
+ */
+public final class ModelCanonicalizer {
+
+   private static final int MAX_POOL_SIZE = 100_000;
+
+   private final WeakInterner<String, String> strings = new WeakInterner<>(MAX_POOL_SIZE);
+   private final WeakInterner<String, Artist> artists = new WeakInterner<>(MAX_POOL_SIZE);
+   private final WeakInterner<String, Type> types = new WeakInterner<>(MAX_POOL_SIZE);
+   private final WeakInterner<String, Genre> genres = new WeakInterner<>(MAX_POOL_SIZE);
+
+   /**
+    * Canonicalizes a decoded object in place if it is an {@link AlbumData} or a collection of them. Other objects are
+    * ignored.
+    *
+    * @param decoded
+    *           the decoded object, may be <code>null</code>
+    */
+   public void canonicalizeObject(Object decoded) {
+      if (decoded instanceof AlbumData) {
+         canonicalize((AlbumData) decoded);
+      } else if (decoded instanceof Collection) {
+         for (Object element : (Collection<?>) decoded) {
+            if (!(element instanceof AlbumData)) {
+               return;
+            }
+            canonicalize((AlbumData) element);
+         }
+      }
+   }
+
+   /**
+    * Canonicalizes an album in place.
+    *
+    * @param album
+    *           the album
+    */
+   public void canonicalize(AlbumData album) {
+      album.id = string(album.id);
+      album.name = string(album.name);
+      album.artist = artist(album.artist);
+      album.type = type(album.type);
+      album.tags = strings(album.tags);
+
+      if (album.tracks == null) {
+         return;
+      }
+      Album parentAlbum = null;
+      for (Track track : album.tracks) {
+         track.id = string(track.id);
+         track.name = string(track.name);
+         if (track.artist != null && album.artist != null && equal(track.artist, album.artist)) {
+            track.artist = album.artist;
+         } else {
+            track.artist = artist(track.artist);
+         }
+         if (track.album != null && track.album.id != null && track.album.id.equals(album.id)) {
+            if (parentAlbum == null) {
+               parentAlbum = track.album;
+               parentAlbum.id = album.id;
+               parentAlbum.name = string(parentAlbum.name);
+            }
+            track.album = parentAlbum;
+         }
+         track.genre = genre(track.genre);
+      }
+   }
+
+   private String string(String value) {
+      return value == null ? null : strings.intern(value, value);
+   }
+
+   private List<String> strings(List<String> values) {
+      if (values == null) {
+         return null;
+      }
+      for (ListIterator<String> iterator = values.listIterator(); iterator.hasNext();) {
+         iterator.set(string(iterator.next()));
+      }
+      return values;
+   }
+
+   private Artist artist(Artist artist) {
+      if (artist == null || artist.id == null) {
+         return artist;
+      }
+      artist.id = string(artist.id);
+      artist.name = string(artist.name);
+      Artist canonical = artists.intern(artist.id, artist);
+      return equal(canonical, artist) ? canonical : artist;
+   }
+
+   private Type type(Type type) {
+      if (type == null || type.name == null) {
+         return type;
+      }
+      type.name = string(type.name);
+      Type canonical = types.intern(type.name, type);
+      return Objects.equals(canonical.id, type.id) ? canonical : type;
+   }
+
+   private Genre genre(Genre genre) {
+      if (genre == null || genre.id == null) {
+         return genre;
+      }
+      genre.id = string(genre.id);
+      return genres.intern(genre.id, genre);
+   }
+
+   private static boolean equal(Artist artist1, Artist artist2) {
+      return artist1 == artist2 || artist1.id != null && artist1.id.equals(artist2.id)
+         && (artist1.name == null ? artist2.name == null : artist1.name.equals(artist2.name));
+   }
+}
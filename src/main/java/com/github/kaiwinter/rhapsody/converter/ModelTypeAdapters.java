@@ -0,0 +1,298 @@
+package com.github.kaiwinter.rhapsody.converter;
+
+import static com.github.kaiwinter.rhapsody.converter.ModelAdapter.BOOLEAN;
+import static com.github.kaiwinter.rhapsody.converter.ModelAdapter.INTEGER;
+import static com.github.kaiwinter.rhapsody.converter.ModelAdapter.LONG;
+import static com.github.kaiwinter.rhapsody.converter.ModelAdapter.STRING;
+import static com.github.kaiwinter.rhapsody.converter.ModelAdapter.collectionOf;
+import static com.github.kaiwinter.rhapsody.converter.ModelAdapter.listOf;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.github.kaiwinter.rhapsody.model.AccessToken;
+import com.github.kaiwinter.rhapsody.model.AccountData;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.model.ArtistData;
+import com.github.kaiwinter.rhapsody.model.BioData;
+import com.github.kaiwinter.rhapsody.model.GenreData;
+import com.github.kaiwinter.rhapsody.model.PasswordGrant;
+import com.github.kaiwinter.rhapsody.model.RefreshToken;
+import com.github.kaiwinter.rhapsody.model.member.ChartDashboard;
+import com.github.kaiwinter.rhapsody.model.member.ChartsAlbum;
+import com.github.kaiwinter.rhapsody.model.member.ChartsArtist;
+import com.github.kaiwinter.rhapsody.model.member.ChartsTrack;
+import com.github.kaiwinter.rhapsody.service.member.ChartService.RangeEnum;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Provides {@link TypeAdapter}s for the classes of the <code>model</code> and <code>model.member</code> packages which
+ * don't use reflection. Gson's reflective adapter inspects a class' fields when it is first used and then sets every
+ * field by reflection, these adapters are plain code which the JIT can inline. The produced JSON is the same as the
+ * reflective adapter's.
+ * <p>
+ * The properties are declared here by hand, a field which is added to a model class has to be added here as well.
+ * <code>ModelTypeAdaptersTest</code> compares every model class with the reflective adapter and fails on a missing
+ * field.
+ */
+public final class ModelTypeAdapters implements TypeAdapterFactory {
+
+   private final Map<Class<?>, TypeAdapter<?>> adapters = new HashMap<>();
+
+   /**
+    * Constructs a new {@link ModelTypeAdapters} with the adapters of all model classes except {@link AccountData},
+    * which is created per {@link Gson} instance.
+    */
+   public ModelTypeAdapters() {
+      addAlbumAdapters();
+      addArtistAdapters();
+
+      ModelAdapter<GenreData> genre = new ModelAdapter<>(GenreData::new);
+      genre.property("id", STRING, g -> g.id, (g, v) -> g.id = v)
+         .property("name", STRING, g -> g.name, (g, v) -> g.name = v)
+         .property("description", STRING, g -> g.description, (g, v) -> g.description = v)
+         .property("subgenres", collectionOf(genre), g -> g.subgenres, (g, v) -> g.subgenres = v);
+      adapters.put(GenreData.class, genre);
+
+      adapters.put(BioData.class, new ModelAdapter<>(BioData::new) //
+         .property("bio", STRING, b -> b.bio, (b, v) -> b.bio = v)
+         .property("blurbs", listOf(STRING), b -> b.blurbs, (b, v) -> b.blurbs = v));
+
+      adapters.put(AccessToken.class, new ModelAdapter<>(AccessToken::new) //
+         .property("access_token", STRING, t -> t.access_token, (t, v) -> t.access_token = v)
+         .property("refresh_token", STRING, t -> t.refresh_token, (t, v) -> t.refresh_token = v)
+         .property("catalog", STRING, t -> t.catalog, (t, v) -> t.catalog = v));
+
+      adapters.put(RefreshToken.class, new ModelAdapter<>(RefreshToken::new) //
+         .property("client_id", STRING, t -> t.client_id, (t, v) -> t.client_id = v)
+         .property("client_secret", STRING, t -> t.client_secret, (t, v) -> t.client_secret = v)
+         .property("response_type", STRING, t -> t.response_type, null)
+         .property("grant_type", STRING, t -> t.grant_type, null)
+         .property("refresh_token", STRING, t -> t.refresh_token, (t, v) -> t.refresh_token = v));
+
+      adapters.put(PasswordGrant.class, new PasswordGrantAdapter());
+
+      ModelAdapter<ChartsTrack> chartsTrack = new ModelAdapter<>(ChartsTrack::new) //
+         .property("id", STRING, t -> t.id, (t, v) -> t.id = v)
+         .property("playCount", INTEGER, t -> t.playCount, (t, v) -> t.playCount = v);
+      ModelAdapter<ChartsArtist> chartsArtist = new ModelAdapter<>(ChartsArtist::new) //
+         .property("id", STRING, a -> a.id, (a, v) -> a.id = v)
+         .property("playCount", INTEGER, a -> a.playCount, (a, v) -> a.playCount = v);
+      ModelAdapter<ChartsAlbum> chartsAlbum = new ModelAdapter<>(ChartsAlbum::new) //
+         .property("id", STRING, a -> a.id, (a, v) -> a.id = v)
+         .property("playCount", INTEGER, a -> a.playCount, (a, v) -> a.playCount = v);
+      adapters.put(ChartsTrack.class, chartsTrack);
+      adapters.put(ChartsArtist.class, chartsArtist);
+      adapters.put(ChartsAlbum.class, chartsAlbum);
+      adapters.put(ChartDashboard.class, new ModelAdapter<>(ChartDashboard::new) //
+         .property("tracks", rangeMapOf(listOf(chartsTrack)), d -> d.tracks, (d, v) -> d.tracks.putAll(v))
+         .property("artists", rangeMapOf(listOf(chartsArtist)), d -> d.artists, (d, v) -> d.artists.putAll(v))
+         .property("albums", rangeMapOf(listOf(chartsAlbum)), d -> d.albums, (d, v) -> d.albums.putAll(v)));
+   }
+
+   private void addAlbumAdapters() {
+      ModelAdapter<AlbumData.Image> image = new ModelAdapter<>(AlbumData.Image::new) //
+         .property("width", INTEGER, i -> i.width, (i, v) -> i.width = v)
+         .property("height", INTEGER, i -> i.height, (i, v) -> i.height = v)
+         .property("url", STRING, i -> i.url, (i, v) -> i.url = v);
+      ModelAdapter<AlbumData.Artist> artist = new ModelAdapter<>(AlbumData.Artist::new) //
+         .property("id", STRING, a -> a.id, (a, v) -> a.id = v)
+         .property("name", STRING, a -> a.name, (a, v) -> a.name = v);
+      ModelAdapter<AlbumData.Type> type = new ModelAdapter<>(AlbumData.Type::new) //
+         .property("id", INTEGER, t -> t.id, (t, v) -> t.id = v)
+         .property("name", STRING, t -> t.name, (t, v) -> t.name = v);
+      ModelAdapter<AlbumData.Album> album = new ModelAdapter<>(AlbumData.Album::new) //
+         .property("id", STRING, a -> a.id, (a, v) -> a.id = v)
+         .property("name", STRING, a -> a.name, (a, v) -> a.name = v);
+      ModelAdapter<AlbumData.Genre> genre = new ModelAdapter<>(AlbumData.Genre::new) //
+         .property("id", STRING, g -> g.id, (g, v) -> g.id = v);
+      ModelAdapter<AlbumData.Track> track = new ModelAdapter<>(AlbumData.Track::new) //
+         .property("id", STRING, t -> t.id, (t, v) -> t.id = v)
+         .property("name", STRING, t -> t.name, (t, v) -> t.name = v)
+         .property("disc", INTEGER, t -> t.disc, (t, v) -> t.disc = v)
+         .property("artist", artist, t -> t.artist, (t, v) -> t.artist = v)
+         .property("album", album, t -> t.album, (t, v) -> t.album = v)
+         .property("genre", genre, t -> t.genre, (t, v) -> t.genre = v)
+         .property("sample", STRING, t -> t.sample, (t, v) -> t.sample = v)
+         .property("duration", INTEGER, t -> t.duration, (t, v) -> t.duration = v);
+
+      adapters.put(AlbumData.Image.class, image);
+      adapters.put(AlbumData.Artist.class, artist);
+      adapters.put(AlbumData.Type.class, type);
+      adapters.put(AlbumData.Album.class, album);
+      adapters.put(AlbumData.Genre.class, genre);
+      adapters.put(AlbumData.Track.class, track);
+      adapters.put(AlbumData.class, new ModelAdapter<>(AlbumData::new) //
+         .property("id", STRING, a -> a.id, (a, v) -> a.id = v)
+         .property("name", STRING, a -> a.name, (a, v) -> a.name = v)
+         .property("discCount", INTEGER, a -> a.discCount, (a, v) -> a.discCount = v)
+         .property("artist", artist, a -> a.artist, (a, v) -> a.artist = v)
+         .property("type", type, a -> a.type, (a, v) -> a.type = v)
+         .property("tags", listOf(STRING), a -> a.tags, (a, v) -> a.tags = v)
+         .property("images", listOf(image), a -> a.images, (a, v) -> a.images = v)
+         .property("tracks", listOf(track), a -> a.tracks, (a, v) -> a.tracks = v)
+         .property("released", LONG, a -> a.released, (a, v) -> a.released = v));
+   }
+
+   private void addArtistAdapters() {
+      ModelAdapter<ArtistData.Genre> genre = new ModelAdapter<>(ArtistData.Genre::new) //
+         .property("id", STRING, g -> g.id, (g, v) -> g.id = v);
+      adapters.put(ArtistData.Genre.class, genre);
+      adapters.put(ArtistData.class, new ModelAdapter<>(ArtistData::new) //
+         .property("id", STRING, a -> a.id, (a, v) -> a.id = v)
+         .property("name", STRING, a -> a.name, (a, v) -> a.name = v)
+         .property("genre", genre, a -> a.genre, (a, v) -> a.genre = v));
+   }
+
+   private static TypeAdapter<AccountData> accountAdapter(TypeAdapter<Object> object) {
+      return new ModelAdapter<>(AccountData::new) //
+         .property("cobrand", STRING, a -> a.cobrand, (a, v) -> a.cobrand = v)
+         .property("cocat", STRING, a -> a.cocat, (a, v) -> a.cocat = v)
+         .property("email", STRING, a -> a.email, (a, v) -> a.email = v)
+         .property("logon", STRING, a -> a.logon, (a, v) -> a.logon = v)
+         .property("firstName", STRING, a -> a.firstName, (a, v) -> a.firstName = v)
+         .property("id", STRING, a -> a.id, (a, v) -> a.id = v)
+         .property("lastName", STRING, a -> a.lastName, (a, v) -> a.lastName = v)
+         .property("locale", STRING, a -> a.locale, (a, v) -> a.locale = v)
+         .property("country", STRING, a -> a.country, (a, v) -> a.country = v)
+         .property("isPublic", BOOLEAN, a -> a.isPublic, (a, v) -> a.isPublic = v)
+         .property("billingPartnerCode", STRING, a -> a.billingPartnerCode, (a, v) -> a.billingPartnerCode = v)
+         .property("catalog", STRING, a -> a.catalog, (a, v) -> a.catalog = v)
+         .property("createDate", LONG, a -> a.createDate, (a, v) -> a.createDate = v)
+         .property("isSuspended", BOOLEAN, a -> a.isSuspended, (a, v) -> a.isSuspended = v)
+         .property("tierCode", STRING, a -> a.tierCode, (a, v) -> a.tierCode = v)
+         .property("tierName", STRING, a -> a.tierName, (a, v) -> a.tierName = v)
+         .property("productCode", STRING, a -> a.productCode, (a, v) -> a.productCode = v)
+         .property("productName", STRING, a -> a.productName, (a, v) -> a.productName = v)
+         .property("expirationDate", INTEGER, a -> a.expirationDate, (a, v) -> a.expirationDate = v)
+         .property("trialLengthDays", INTEGER, a -> a.trialLengthDays, (a, v) -> a.trialLengthDays = v)
+         .property("isTrial", BOOLEAN, a -> a.isTrial, (a, v) -> a.isTrial = v)
+         .property("state", STRING, a -> a.state, (a, v) -> a.state = v)
+         .property("canStreamOnWeb", BOOLEAN, a -> a.canStreamOnWeb, (a, v) -> a.canStreamOnWeb = v)
+         .property("canStreamOnMobile", BOOLEAN, a -> a.canStreamOnMobile, (a, v) -> a.canStreamOnMobile = v)
+         .property("canStreamOnHomeDevice", BOOLEAN, a -> a.canStreamOnHomeDevice,
+            (a, v) -> a.canStreamOnHomeDevice = v)
+         .property("canStreamOnPC", BOOLEAN, a -> a.canStreamOnPC, (a, v) -> a.canStreamOnPC = v)
+         .property("canUpgradeStreams", BOOLEAN, a -> a.canUpgradeStreams, (a, v) -> a.canUpgradeStreams = v)
+         .property("canPlayPremiumRadio", BOOLEAN, a -> a.canPlayPremiumRadio, (a, v) -> a.canPlayPremiumRadio = v)
+         .property("maxStreamCount", INTEGER, a -> a.maxStreamCount, (a, v) -> a.maxStreamCount = v)
+         .property("isPlayBasedTier", BOOLEAN, a -> a.isPlayBasedTier, (a, v) -> a.isPlayBasedTier = v)
+         .property("isMonthlyPlayBasedTier", BOOLEAN, a -> a.isMonthlyPlayBasedTier,
+            (a, v) -> a.isMonthlyPlayBasedTier = v)
+         .property("isOneTimePlayBasedTier", BOOLEAN, a -> a.isOneTimePlayBasedTier,
+            (a, v) -> a.isOneTimePlayBasedTier = v)
+         .property("totalPlays", object, a -> a.totalPlays, (a, v) -> a.totalPlays = v)
+         .property("playsRemaining", object, a -> a.playsRemaining, (a, v) -> a.playsRemaining = v)
+         .property("skipLimit", object, a -> a.skipLimit, (a, v) -> a.skipLimit = v)
+         .property("skipLimitMinutes", object, a -> a.skipLimitMinutes, (a, v) -> a.skipLimitMinutes = v);
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+      Class<? super T> rawType = type.getRawType();
+      if (rawType == AccountData.class) {
+         // the untyped fields are read like Gson does, as Double, String, List or Map
+         return (TypeAdapter<T>) accountAdapter(gson.getAdapter(Object.class));
+      }
+      return (TypeAdapter<T>) adapters.get(rawType);
+   }
+
+   /**
+    * Creates a {@link Gson} instance which uses the {@link ModelTypeAdapters}.
+    *
+    * @return the {@link Gson} instance
+    */
+   public static Gson createGson() {
+      return new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapters()).create();
+   }
+
+   private static <V> TypeAdapter<Map<RangeEnum, V>> rangeMapOf(TypeAdapter<V> value) {
+      return new TypeAdapter<Map<RangeEnum, V>>() {
+
+         @Override
+         public Map<RangeEnum, V> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+               in.nextNull();
+               return null;
+            }
+            Map<RangeEnum, V> map = new EnumMap<>(RangeEnum.class);
+            in.beginObject();
+            while (in.hasNext()) {
+               map.put(RangeEnum.valueOf(in.nextName()), value.read(in));
+            }
+            in.endObject();
+            return map;
+         }
+
+         @Override
+         public void write(JsonWriter out, Map<RangeEnum, V> map) throws IOException {
+            out.beginObject();
+            for (Entry<RangeEnum, V> entry : map.entrySet()) {
+               out.name(entry.getKey().name());
+               value.write(out, entry.getValue());
+            }
+            out.endObject();
+         }
+      };
+   }
+
+   /**
+    * {@link PasswordGrant} has no default constructor, its final fields are passed to the constructor.
+    */
+   private static final class PasswordGrantAdapter extends TypeAdapter<PasswordGrant> {
+
+      @Override
+      public PasswordGrant read(JsonReader in) throws IOException {
+         if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+         }
+         String username = null;
+         String password = null;
+         in.beginObject();
+         while (in.hasNext()) {
+            String name = in.nextName();
+            if ("username".equals(name)) {
+               username = STRING.read(in);
+            } else if ("password".equals(name)) {
+               password = STRING.read(in);
+            } else {
+               in.skipValue();
+            }
+         }
+         in.endObject();
+         return new PasswordGrant(username, password);
+      }
+
+      @Override
+      public void write(JsonWriter out, PasswordGrant value) throws IOException {
+         if (value == null) {
+            out.nullValue();
+            return;
+         }
+         out.beginObject();
+         writeIfNotNull(out, "username", value.username);
+         writeIfNotNull(out, "password", value.password);
+         writeIfNotNull(out, "grant_type", value.grant_type);
+         out.endObject();
+      }
+
+      private static void writeIfNotNull(JsonWriter out, String name, String value) throws IOException {
+         if (value != null) {
+            out.name(name).value(value);
+         }
+      }
+   }
+}
@@ -0,0 +1,98 @@
+package com.github.kaiwinter.rhapsody.converter;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Bounded pool of canonical instances. Equal values are mapped to a single instance as long as that instance is
+ * referenced somewhere else; unused instances are garbage collected. When the pool is full, new values are returned
+ * unchanged instead of being added, so the pool never grows beyond its bound.
+ *
+ * <p>
+ * The pool is split into {@value #STRIPES} stripes by the hash of the key, each with its own lock and an equal share of
+ * the bound, so threads which decode responses concurrently rarely wait for each other.
+ * </p>
+ *
+ * @param <K>
+ *           the key which identifies equal values, must implement <code>equals</code> and <code>hashCode</code>
+ * @param <V>
+ *           type of the pooled values
+ */
+final class WeakInterner<K, V> {
+
+   /** Number of independently locked stripes, a power of two. */
+   private static final int STRIPES = 16;
+
+   private final Stripe<K, V>[] stripes;
+
+   /**
+    * Constructs a new {@link WeakInterner}.
+    *
+    * @param maxSize
+    *           the maximum number of pooled values
+    */
+   @SuppressWarnings("unchecked")
+   WeakInterner(int maxSize) {
+      stripes = new Stripe[STRIPES];
+      int stripeSize = (maxSize + STRIPES - 1) / STRIPES;
+      for (int i = 0; i < STRIPES; i++) {
+         stripes[i] = new Stripe<>(stripeSize);
+      }
+   }
+
+   /**
+    * Returns the canonical instance for <code>key</code>.
+    *
+    * @param key
+    *           the key of the value, should be referenced by the value, otherwise the entry is dropped on the next GC
+    * @param value
+    *           the value which becomes the canonical instance if there is none yet
+    * @return the canonical instance, or <code>value</code> if there is none and the pool is full
+    */
+   V intern(K key, V value) {
+      int hash = key.hashCode();
+      return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)].intern(key, value);
+   }
+
+   /**
+    * Returns the number of pooled values, including values which were collected but not yet purged.
+    *
+    * @return the pool size
+    */
+   int size() {
+      int size = 0;
+      for (Stripe<K, V> stripe : stripes) {
+         size += stripe.size();
+      }
+      return size;
+   }
+
+   /**
+    * One part of the pool, guarded by its monitor.
+    */
+   private static final class Stripe<K, V> {
+      private final Map<K, WeakReference<V>> pool = new WeakHashMap<>();
+      private final int maxSize;
+
+      Stripe(int maxSize) {
+         this.maxSize = maxSize;
+      }
+
+      synchronized V intern(K key, V value) {
+         WeakReference<V> reference = pool.get(key);
+         V canonical = reference == null ? null : reference.get();
+         if (canonical != null) {
+            return canonical;
+         }
+         if (pool.size() < maxSize) {
+            pool.put(key, new WeakReference<>(value));
+         }
+         return value;
+      }
+
+      synchronized int size() {
+         return pool.size();
+      }
+   }
+}
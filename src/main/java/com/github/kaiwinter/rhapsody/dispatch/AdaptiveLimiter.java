@@ -0,0 +1,377 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of concurrent requests per endpoint group to a limit which adapts to the observed latency. A
+ * fixed limit is either too small, which wastes throughput, or too large, which lets requests queue up at the server
+ * and time out when it slows down.
+ *
+ * <p>
+ * The limit of a group follows the gradient between the minimum and the measured round trip time: as long as a
+ * request takes less than twice the minimum time the limit grows by its square root, a slower request shrinks it by up
+ * to a half. The change is smoothed over several requests. A request which is throttled by the server (HTTP 429 or
+ * 503) or times out shrinks the limit by a tenth. Samples of requests which were sent while less than half of the
+ * limit was used don't let the limit grow, because the latency then says nothing about a higher concurrency. The
+ * minimum round trip time is measured again every {@value #MIN_RTT_RESET_SAMPLES} samples, so the limit follows a
+ * server which got permanently slower or faster.
+ * </p>
+ *
+ * <p>
+ * The endpoint group of a request is the first path segment after the API version, for calls of the current member
+ * the first two, e.g. <code>albums</code> or <code>me/library</code> (see {@link #endpointGroup(String)}). Each group
+ * has its own limit, so a slow endpoint doesn't restrict the others. The limiter is set by
+ * {@link PriorityDispatcher#setLimiter(AdaptiveLimiter)} and is applied after the request got a slot of the
+ * dispatcher, a request which waits for its group keeps its slot.
+ * </p>
+ */
+public final class AdaptiveLimiter {
+
+   /** The lowest limit of a group. */
+   private static final int MIN_LIMIT = 1;
+
+   /** A request may take this factor of the minimum round trip time before the limit shrinks. */
+   private static final double RTT_TOLERANCE = 2.0;
+
+   /** The weight of a new limit in the smoothed limit. */
+   private static final double SMOOTHING = 0.2;
+
+   /** The factor by which the limit shrinks when a request is throttled or times out. */
+   private static final double BACKOFF_RATIO = 0.9;
+
+   /** The number of samples after which the minimum round trip time is measured again. */
+   private static final int MIN_RTT_RESET_SAMPLES = 500;
+
+   private final int initialLimit;
+   private final int maxLimit;
+   private final OverloadPolicy policy;
+   private final Map<String, Group> groups = new ConcurrentHashMap<>();
+
+   /**
+    * Constructs a new {@link AdaptiveLimiter}.
+    *
+    * @param initialLimit
+    *           the limit of a group before its first request, at least 1
+    * @param maxLimit
+    *           the highest limit of a group, at least <code>initialLimit</code>
+    * @param policy
+    *           what happens to a request while its group is at its limit
+    */
+   public AdaptiveLimiter(int initialLimit, int maxLimit, OverloadPolicy policy) {
+      if (initialLimit < MIN_LIMIT || maxLimit < initialLimit) {
+         throw new IllegalArgumentException("initialLimit must be at least 1 and maxLimit at least initialLimit");
+      }
+      this.initialLimit = initialLimit;
+      this.maxLimit = maxLimit;
+      this.policy = policy;
+   }
+
+   /**
+    * Returns the endpoint group of a request URL: the first path segment after the API version, for calls of the
+    * current member (<code>/v1/me/...</code>) the first two.
+    *
+    * @param url
+    *           the URL of the request
+    * @return the group, e.g. <code>albums</code> or <code>me/library</code>
+    */
+   public static String endpointGroup(String url) {
+      int start = url.indexOf("://");
+      start = start < 0 ? 0 : url.indexOf('/', start + 3);
+      if (start < 0) {
+         return "";
+      }
+      int end = url.indexOf('?', start);
+      String[] segments = url.substring(start + 1, end < 0 ? url.length() : end).split("/");
+      int first = 0;
+      if (segments.length > 1 && segments[0].matches("v\\d+")) {
+         first = 1;
+      }
+      if ("me".equals(segments[first]) && segments.length > first + 1) {
+         return segments[first] + "/" + segments[first + 1];
+      }
+      return segments[first];
+   }
+
+   /**
+    * Returns the current limit of a group.
+    *
+    * @param group
+    *           the endpoint group
+    * @return the maximum number of concurrent requests of the group
+    */
+   public int getLimit(String group) {
+      Group state = groups.get(group);
+      if (state == null) {
+         return initialLimit;
+      }
+      synchronized (state) {
+         return state.getLimit();
+      }
+   }
+
+   /**
+    * Returns the number of running requests of a group.
+    *
+    * @param group
+    *           the endpoint group
+    * @return the number of running requests
+    */
+   public int getInFlight(String group) {
+      Group state = groups.get(group);
+      if (state == null) {
+         return 0;
+      }
+      synchronized (state) {
+         return state.inFlight;
+      }
+   }
+
+   /**
+    * Returns the number of requests of a group which weren't sent because the group was at its limit.
+    *
+    * @param group
+    *           the endpoint group
+    * @return the number of rejected requests
+    */
+   public long getRejected(String group) {
+      Group state = groups.get(group);
+      if (state == null) {
+         return 0;
+      }
+      synchronized (state) {
+         return state.rejected;
+      }
+   }
+
+   /**
+    * Returns the endpoint groups which made requests.
+    *
+    * @return the groups in alphabetical order
+    */
+   public Set<String> getGroups() {
+      return new TreeSet<>(groups.keySet());
+   }
+
+   /**
+    * Waits until the group of a request is below its limit.
+    *
+    * @param url
+    *           the URL of the request
+    * @return the permit which must be completed when the request finished
+    * @throws InterruptedIOException
+    *            if the request isn't sent: a {@link LimitExceededException} if the group is at its limit, a
+    *            {@link DeadlineExceededException} if the deadline of the call passed while waiting
+    */
+   Permit acquire(String url) throws InterruptedIOException {
+      Group group = group(endpointGroup(url));
+      CallHandle handle = CallHandle.current();
+      Runnable wakeUp = () -> {
+         synchronized (group) {
+            group.notifyAll();
+         }
+      };
+      synchronized (group) {
+         if (group.inFlight >= group.getLimit()) {
+            if (policy == OverloadPolicy.REJECT || group.waiting >= group.getLimit()) {
+               group.rejected++;
+               throw new LimitExceededException(
+                  "Too many concurrent requests to " + group.name + " (limit " + group.getLimit() + ")");
+            }
+            if (handle != null) {
+               handle.addCancelAction(wakeUp);
+            }
+            group.waiting++;
+            try {
+               await(group, handle);
+            } finally {
+               group.waiting--;
+               if (handle != null) {
+                  handle.removeCancelAction(wakeUp);
+               }
+            }
+         }
+         group.inFlight++;
+         return new Permit(group, group.inFlight);
+      }
+   }
+
+   private static void await(Group group, CallHandle handle) throws InterruptedIOException {
+      while (group.inFlight >= group.getLimit()) {
+         if (handle != null && handle.isCancelled()) {
+            throw new InterruptedIOException("Call cancelled");
+         }
+         long remaining = handle == null ? Long.MAX_VALUE : handle.getRemaining(TimeUnit.NANOSECONDS);
+         if (remaining <= 0) {
+            throw new DeadlineExceededException("Deadline exceeded while waiting for the limit of " + group.name);
+         }
+         try {
+            if (remaining == Long.MAX_VALUE) {
+               group.wait();
+            } else {
+               TimeUnit.NANOSECONDS.timedWait(group, remaining);
+            }
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the limit of " + group.name);
+         }
+      }
+   }
+
+   /**
+    * Adjusts the limit of a group to the round trip time of a request.
+    *
+    * @param group
+    *           the endpoint group
+    * @param rttNanos
+    *           the round trip time of the request
+    * @param inFlight
+    *           the number of running requests of the group when the request was sent, including the request
+    */
+   void onSample(String group, long rttNanos, int inFlight) {
+      Group state = group(group);
+      synchronized (state) {
+         state.sample(Math.max(1, rttNanos), inFlight);
+      }
+   }
+
+   /**
+    * Shrinks the limit of a group because a request was throttled or timed out.
+    *
+    * @param group
+    *           the endpoint group
+    */
+   void onDropped(String group) {
+      Group state = group(group);
+      synchronized (state) {
+         state.dropped();
+      }
+   }
+
+   private Group group(String name) {
+      Group group = groups.get(name);
+      if (group == null) {
+         group = groups.computeIfAbsent(name, Group::new);
+      }
+      return group;
+   }
+
+   /**
+    * The limit and counters of one endpoint group, guarded by its monitor.
+    */
+   private final class Group {
+      private final String name;
+      private double limit = initialLimit;
+      private int inFlight;
+      private int waiting;
+      private long rejected;
+      private long minRttNanos = Long.MAX_VALUE;
+      private int samples;
+
+      Group(String name) {
+         this.name = name;
+      }
+
+      int getLimit() {
+         return (int) limit;
+      }
+
+      void sample(long rttNanos, int sentInFlight) {
+         if (++samples >= MIN_RTT_RESET_SAMPLES) {
+            samples = 0;
+            minRttNanos = rttNanos;
+         } else {
+            minRttNanos = Math.min(minRttNanos, rttNanos);
+         }
+         double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * minRttNanos / rttNanos));
+         if (gradient == 1.0 && sentInFlight * 2 < limit) {
+            // The request didn't use the limit, so its latency says nothing about a higher one
+            return;
+         }
+         double newLimit = limit * gradient + Math.sqrt(limit);
+         setLimit(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+      }
+
+      void dropped() {
+         setLimit(limit * BACKOFF_RATIO);
+      }
+
+      private void setLimit(double newLimit) {
+         limit = Math.max(MIN_LIMIT, Math.min(maxLimit, newLimit));
+         notifyAll();
+      }
+   }
+
+   /**
+    * The permission to send one request. Exactly one of the methods must be called when the request finished.
+    */
+   final class Permit {
+      private final Group group;
+      private final int sentInFlight;
+      private final long started = System.nanoTime();
+      private boolean released;
+
+      Permit(Group group, int sentInFlight) {
+         this.group = group;
+         this.sentInFlight = sentInFlight;
+      }
+
+      /**
+       * Completes a request which got a response. A throttling response shrinks the limit, a server error is ignored.
+       *
+       * @param status
+       *           the HTTP status of the response
+       */
+      void completed(int status) {
+         long rttNanos = System.nanoTime() - started;
+         synchronized (group) {
+            if (release()) {
+               if (status == 429 || status == 503) {
+                  group.dropped();
+               } else if (status < 500) {
+                  group.sample(Math.max(1, rttNanos), sentInFlight);
+               }
+            }
+         }
+      }
+
+      /**
+       * Completes a request which failed. A timeout shrinks the limit, other failures are ignored.
+       *
+       * @param e
+       *           the failure
+       */
+      void failed(IOException e) {
+         synchronized (group) {
+            if (release() && e instanceof SocketTimeoutException && !CallHandle.isCurrentCancelled()) {
+               group.dropped();
+            }
+         }
+      }
+
+      /**
+       * Completes a request without adjusting the limit. Does nothing if the request was already completed.
+       */
+      void abandoned() {
+         synchronized (group) {
+            release();
+         }
+      }
+
+      private boolean release() {
+         if (released) {
+            return false;
+         }
+         released = true;
+         group.inFlight--;
+         group.notifyAll();
+         return true;
+      }
+   }
+}
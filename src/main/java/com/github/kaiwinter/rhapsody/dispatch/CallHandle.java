@@ -0,0 +1,223 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.github.kaiwinter.rhapsody.api.Cancellable;
+import com.github.kaiwinter.rhapsody.trace.Span;
+
+/**
+ * The {@link Cancellable} of a call. While a call starts its requests its handle is bound to the thread (see
+ * {@link #activate(CallHandle)}). The {@link PriorityDispatcher} carries it over to the HTTP thread and the callback,
+ * so every request which is made on behalf of the call, also follow-up requests from callbacks, belongs to the handle.
+ * The handle also carries the {@link Span}, the {@link Timeouts} and the deadline of the call.
+ */
+public final class CallHandle implements Cancellable {
+   private static final ThreadLocal<CallHandle> CURRENT = new ThreadLocal<>();
+
+   private final Set<Runnable> cancelActions = new LinkedHashSet<>();
+   private final Span span;
+   private final Timeouts timeouts;
+   private final long deadlineNanos;
+   private volatile boolean cancelled;
+
+   /**
+    * Constructs a handle of a call which isn't traced.
+    */
+   public CallHandle() {
+      this(Span.NOT_SAMPLED);
+   }
+
+   /**
+    * Constructs a handle of a call.
+    *
+    * @param span
+    *           the {@link Span} of the call
+    */
+   public CallHandle(Span span) {
+      this(span, Timeouts.DEFAULT, DeadlineScope.NO_DEADLINE);
+   }
+
+   /**
+    * Constructs a handle of a call with timeouts.
+    *
+    * @param span
+    *           the {@link Span} of the call
+    * @param timeouts
+    *           the socket timeouts of the requests
+    * @param deadlineNanos
+    *           the deadline of the call in terms of {@link System#nanoTime()}, or {@link DeadlineScope#NO_DEADLINE}
+    */
+   public CallHandle(Span span, Timeouts timeouts, long deadlineNanos) {
+      this.span = span;
+      this.timeouts = timeouts;
+      this.deadlineNanos = deadlineNanos;
+   }
+
+   @Override
+   public void cancel() {
+      List<Runnable> actions;
+      synchronized (this) {
+         if (cancelled) {
+            return;
+         }
+         cancelled = true;
+         actions = new ArrayList<>(cancelActions);
+         cancelActions.clear();
+      }
+      for (Runnable action : actions) {
+         action.run();
+      }
+   }
+
+   @Override
+   public boolean isCancelled() {
+      return cancelled;
+   }
+
+   /**
+    * Returns the {@link Span} of the call.
+    *
+    * @return the span, {@link Span#NOT_SAMPLED} if the call isn't traced
+    */
+   public Span getSpan() {
+      return span;
+   }
+
+   /**
+    * Returns the socket timeouts of the requests of the call.
+    *
+    * @return the {@link Timeouts}
+    */
+   public Timeouts getTimeouts() {
+      return timeouts;
+   }
+
+   /**
+    * Returns the deadline of the call.
+    *
+    * @return the deadline in terms of {@link System#nanoTime()}, {@link DeadlineScope#NO_DEADLINE} if the call has none
+    */
+   public long getDeadline() {
+      return deadlineNanos;
+   }
+
+   /**
+    * Returns the time until the deadline of the call.
+    *
+    * @param unit
+    *           the unit of the result
+    * @return the remaining time, negative if the deadline passed, {@link Long#MAX_VALUE} if the call has no deadline
+    */
+   public long getRemaining(TimeUnit unit) {
+      if (deadlineNanos == DeadlineScope.NO_DEADLINE) {
+         return Long.MAX_VALUE;
+      }
+      return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * Returns whether the deadline of the call passed.
+    *
+    * @return <code>true</code> if the call has a deadline which passed
+    */
+   public boolean isExpired() {
+      return deadlineNanos != DeadlineScope.NO_DEADLINE && deadlineNanos - System.nanoTime() <= 0;
+   }
+
+   /**
+    * Adds an action which is run when the call is cancelled, e.g. closing a connection. If the call is already
+    * cancelled the action is run immediately.
+    *
+    * @param action
+    *           the action
+    */
+   public void addCancelAction(Runnable action) {
+      synchronized (this) {
+         if (!cancelled) {
+            cancelActions.add(action);
+            return;
+         }
+      }
+      action.run();
+   }
+
+   /**
+    * Removes an action which was added by {@link #addCancelAction(Runnable)}.
+    *
+    * @param action
+    *           the action
+    */
+   public synchronized void removeCancelAction(Runnable action) {
+      cancelActions.remove(action);
+   }
+
+   /**
+    * Returns the handle of the call the current thread works for.
+    *
+    * @return the handle, or <code>null</code> if the thread doesn't work for a cancellable call
+    */
+   public static CallHandle current() {
+      return CURRENT.get();
+   }
+
+   /**
+    * Returns the {@link Span} of the call the current thread works for.
+    *
+    * @return the span, {@link Span#NOT_SAMPLED} if the thread doesn't work for a traced call
+    */
+   public static Span currentSpan() {
+      CallHandle handle = CURRENT.get();
+      return handle == null ? Span.NOT_SAMPLED : handle.span;
+   }
+
+   /**
+    * Returns whether the current thread works for a call which was cancelled.
+    *
+    * @return <code>true</code> if the current call was cancelled
+    */
+   public static boolean isCurrentCancelled() {
+      CallHandle handle = CURRENT.get();
+      return handle != null && handle.cancelled;
+   }
+
+   /**
+    * Binds a handle to the current thread until the returned scope is closed.
+    *
+    * @param handle
+    *           the handle, may be <code>null</code>
+    * @return the scope which restores the previous handle on {@link Scope#close()}
+    */
+   public static Scope activate(CallHandle handle) {
+      Scope scope = new Scope(CURRENT.get());
+      if (handle == null) {
+         CURRENT.remove();
+      } else {
+         CURRENT.set(handle);
+      }
+      return scope;
+   }
+
+   /**
+    * Restores the previously bound handle when closed.
+    */
+   public static final class Scope implements AutoCloseable {
+      private final CallHandle previous;
+
+      private Scope(CallHandle previous) {
+         this.previous = previous;
+      }
+
+      @Override
+      public void close() {
+         if (previous == null) {
+            CURRENT.remove();
+         } else {
+            CURRENT.set(previous);
+         }
+      }
+   }
+}
@@ -0,0 +1,155 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.github.kaiwinter.rhapsody.trace.Span;
+
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.client.UrlConnectionClient;
+import retrofit.mime.TypedByteArray;
+import retrofit.mime.TypedInput;
+
+/**
+ * An {@link UrlConnectionClient} whose requests are aborted when their {@link CallHandle} is cancelled. The connection
+ * is closed on a separate thread, so {@link CallHandle#cancel()} doesn't block. The JDK closes it as soon as no read is
+ * blocked on it, a read which waits for a stalled server ends with the read timeout. The response body is read
+ * completely while the request can still be aborted, a request which was cancelled meanwhile fails.
+ *
+ * <p>
+ * If the call is traced, the time to connect and the time until the response was read are recorded in its
+ * {@link Span}.
+ * </p>
+ *
+ * <p>
+ * The connections get the {@link Timeouts} of the call, limited to the time until its deadline. A request whose
+ * deadline passed before it was sent fails without being sent, as does a request which times out after the deadline
+ * passed, with a {@link DeadlineExceededException}.
+ * </p>
+ */
+public final class CancellableClient extends UrlConnectionClient {
+   private static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+
+   /** Closes the connections of cancelled requests, closing may wait for a read on the HTTP thread. */
+   private static final ExecutorService DISCONNECTOR = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "Rhapsody-cancel");
+      thread.setDaemon(true);
+      return thread;
+   });
+
+   private final ThreadLocal<Runnable> disconnect = new ThreadLocal<>();
+   private final ThreadLocal<TimedConnection> timed = new ThreadLocal<>();
+
+   @Override
+   public Response execute(Request request) throws IOException {
+      CallHandle handle = CallHandle.current();
+      if (handle == null) {
+         return super.execute(request);
+      }
+      if (handle.isCancelled()) {
+         throw new InterruptedIOException("Call cancelled");
+      }
+      Span span = handle.getSpan();
+      if (handle.isExpired()) {
+         String message = "Deadline exceeded before the request was sent (" + span.describePhases() + ")";
+         span.failed(message);
+         throw new DeadlineExceededException(message);
+      }
+      span.requestStarted();
+      try {
+         Response response = super.execute(request);
+         if (response.getStatus() >= 400) {
+            span.failed("HTTP " + response.getStatus() + " " + response.getReason());
+         }
+         TypedInput body = response.getBody();
+         if (body == null || body instanceof TypedByteArray) {
+            return response;
+         }
+         String mimeType = body.mimeType() == null ? DEFAULT_MIME_TYPE : body.mimeType();
+         TypedByteArray bytes = new TypedByteArray(mimeType, readFully(body));
+         if (handle.isCancelled()) {
+            // The body may be truncated by closing the connection
+            throw new IOException("Call cancelled");
+         }
+         return new Response(response.getUrl(), response.getStatus(), response.getReason(), response.getHeaders(),
+            bytes);
+      } catch (IOException e) {
+         if (handle.isCancelled()) {
+            span.failed("Cancelled");
+            throw new InterruptedIOException("Call cancelled");
+         }
+         finishTiming();
+         if (handle.isExpired()) {
+            String message = "Deadline exceeded (" + span.describePhases() + ")";
+            span.failed(message);
+            DeadlineExceededException exceeded = new DeadlineExceededException(message);
+            exceeded.initCause(e);
+            throw exceeded;
+         }
+         span.failed(e.toString());
+         throw e;
+      } finally {
+         finishTiming();
+         Runnable action = disconnect.get();
+         if (action != null) {
+            handle.removeCancelAction(action);
+            disconnect.remove();
+         }
+      }
+   }
+
+   @Override
+   protected HttpURLConnection openConnection(Request request) throws IOException {
+      HttpURLConnection connection = super.openConnection(request);
+      CallHandle handle = CallHandle.current();
+      if (handle != null) {
+         Timeouts timeouts = handle.getTimeouts();
+         long remaining = Math.max(1, handle.getRemaining(TimeUnit.MILLISECONDS));
+         connection.setConnectTimeout((int) Math.min(timeouts.getConnectTimeoutMillis(), remaining));
+         connection.setReadTimeout((int) Math.min(timeouts.getReadTimeoutMillis(), remaining));
+
+         Runnable action = () -> DISCONNECTOR.execute(connection::disconnect);
+         disconnect.set(action);
+         handle.addCancelAction(action);
+         if (handle.getSpan().isSampled()) {
+            TimedConnection timedConnection = new TimedConnection(connection, handle.getSpan());
+            timed.set(timedConnection);
+            return timedConnection;
+         }
+      }
+      return connection;
+   }
+
+   private void finishTiming() {
+      TimedConnection connection = timed.get();
+      if (connection != null) {
+         connection.finished();
+         timed.remove();
+      }
+   }
+
+   private static byte[] readFully(TypedInput body) throws IOException {
+      long length = body.length();
+      int initialSize = length > 0 && length < Integer.MAX_VALUE ? (int) length : 4096;
+      ByteArrayOutputStream out = new ByteArrayOutputStream(initialSize);
+      try (InputStream in = body.in()) {
+         if (in == null) {
+            // An error response without a body
+            return new byte[0];
+         }
+         byte[] buffer = new byte[4096];
+         int read;
+         while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+         }
+      }
+      return out.toByteArray();
+   }
+}
@@ -0,0 +1,51 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.lang.reflect.Type;
+
+import com.github.kaiwinter.rhapsody.trace.Span;
+import com.github.kaiwinter.rhapsody.trace.SpanPhase;
+
+import retrofit.converter.ConversionException;
+import retrofit.converter.Converter;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+/**
+ * A {@link Converter} which doesn't deserialize the response of a cancelled call (see {@link CallHandle}). The time
+ * spent deserializing is recorded in the {@link Span} of the call.
+ */
+public final class CancellingConverter implements Converter {
+   private final Converter delegate;
+
+   /**
+    * Constructs a new {@link CancellingConverter}.
+    *
+    * @param delegate
+    *           the {@link Converter} which converts the responses of calls which are not cancelled
+    */
+   public CancellingConverter(Converter delegate) {
+      this.delegate = delegate;
+   }
+
+   @Override
+   public Object fromBody(TypedInput body, Type type) throws ConversionException {
+      if (CallHandle.isCurrentCancelled()) {
+         throw new ConversionException("Call cancelled");
+      }
+      Span span = CallHandle.currentSpan();
+      if (!span.isSampled()) {
+         return delegate.fromBody(body, type);
+      }
+      long start = System.nanoTime();
+      try {
+         return delegate.fromBody(body, type);
+      } finally {
+         span.record(SpanPhase.DESERIALIZE, System.nanoTime() - start);
+      }
+   }
+
+   @Override
+   public TypedOutput toBody(Object object) {
+      return delegate.toBody(object);
+   }
+}
@@ -0,0 +1,21 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown when a request can't be completed within the deadline of its call (see {@link DeadlineScope} and
+ * {@link Timeouts}). The message contains the time the call spent in each phase.
+ */
+public final class DeadlineExceededException extends InterruptedIOException {
+   private static final long serialVersionUID = 1L;
+
+   /**
+    * Constructs a new {@link DeadlineExceededException}.
+    *
+    * @param message
+    *           describes where the deadline passed
+    */
+   public DeadlineExceededException(String message) {
+      super(message);
+   }
+}
@@ -0,0 +1,100 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sets a deadline for all calls which are made by the current thread until the scope is closed. Scopes can be nested,
+ * a nested scope can't extend the deadline of the enclosing one.
+ *
+ * <pre>
+ * try (DeadlineScope scope = DeadlineScope.open(300, TimeUnit.MILLISECONDS)) {
+ *    wrapper.loadAlbum(albumId, callback);
+ * }
+ * </pre>
+ *
+ * <p>
+ * A request of the call which is still queued when the deadline passes isn't sent, the call fails with a
+ * {@link DeadlineExceededException}. Requests which are sent get the remaining time as socket timeouts. Requests which
+ * are started from a callback have the deadline of the call the callback belongs to.
+ * </p>
+ */
+public final class DeadlineScope implements AutoCloseable {
+
+   /** The deadline of a call which has none. */
+   public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+   private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+   private final Long previous;
+
+   private DeadlineScope(Long previous) {
+      this.previous = previous;
+   }
+
+   /**
+    * Sets a deadline relative to now.
+    *
+    * @param timeout
+    *           the time the following calls may take
+    * @param unit
+    *           the unit of <code>timeout</code>
+    * @return the scope which restores the previous deadline on {@link #close()}
+    */
+   public static DeadlineScope open(long timeout, TimeUnit unit) {
+      return openUntil(System.nanoTime() + unit.toNanos(timeout));
+   }
+
+   /**
+    * Sets an absolute deadline, e.g. the deadline of a request the application is serving.
+    *
+    * @param deadlineNanos
+    *           the deadline, in terms of {@link System#nanoTime()}
+    * @return the scope which restores the previous deadline on {@link #close()}
+    */
+   public static DeadlineScope openUntil(long deadlineNanos) {
+      Long previous = CURRENT.get();
+      CURRENT.set(earlier(previous == null ? NO_DEADLINE : previous, deadlineNanos));
+      return new DeadlineScope(previous);
+   }
+
+   /**
+    * Returns the deadline of the current thread.
+    *
+    * @return the deadline in terms of {@link System#nanoTime()}, {@link #NO_DEADLINE} if no scope is open
+    */
+   public static long current() {
+      Long deadline = CURRENT.get();
+      return deadline == null ? NO_DEADLINE : deadline;
+   }
+
+   /**
+    * Returns the earlier of two deadlines.
+    *
+    * @param deadline
+    *           a deadline or {@link #NO_DEADLINE}
+    * @param other
+    *           a deadline or {@link #NO_DEADLINE}
+    * @return the earlier deadline
+    */
+   public static long earlier(long deadline, long other) {
+      if (deadline == NO_DEADLINE) {
+         return other;
+      }
+      if (other == NO_DEADLINE) {
+         return deadline;
+      }
+      return deadline - other < 0 ? deadline : other;
+   }
+
+   /**
+    * Restores the deadline which was set before this scope was opened.
+    */
+   @Override
+   public void close() {
+      if (previous == null) {
+         CURRENT.remove();
+      } else {
+         CURRENT.set(previous);
+      }
+   }
+}
@@ -0,0 +1,21 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown when the {@link AdaptiveLimiter} doesn't send a request because its endpoint group is at its concurrency
+ * limit. The request was not sent and can be retried later.
+ */
+public final class LimitExceededException extends InterruptedIOException {
+   private static final long serialVersionUID = 1L;
+
+   /**
+    * Constructs a new {@link LimitExceededException}.
+    *
+    * @param message
+    *           describes the group and its limit
+    */
+   public LimitExceededException(String message) {
+      super(message);
+   }
+}
@@ -0,0 +1,17 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+/**
+ * What the {@link AdaptiveLimiter} does with a request while its endpoint group is at its limit.
+ */
+public enum OverloadPolicy {
+
+   /** The request fails immediately with a {@link LimitExceededException}. */
+   REJECT,
+
+   /**
+    * The request waits until a request of its group finished. It fails with a {@link LimitExceededException} if as many
+    * requests are already waiting as the limit allows to run, and with a {@link DeadlineExceededException} if the
+    * deadline of its call passes.
+    */
+   QUEUE
+}
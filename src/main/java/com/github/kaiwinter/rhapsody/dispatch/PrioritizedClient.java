@@ -0,0 +1,62 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.io.IOException;
+
+import retrofit.client.Client;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+/**
+ * A {@link Client} which lets synchronous requests wait for a slot of the {@link PriorityDispatcher}, so they are
+ * scheduled together with the asynchronous requests. Requests made on a thread of the dispatcher already hold a slot.
+ * If the dispatcher has an {@link AdaptiveLimiter}, each request also needs a permit of its endpoint group.
+ */
+public final class PrioritizedClient implements Client {
+   private final Client delegate;
+   private final PriorityDispatcher dispatcher;
+
+   /**
+    * Constructs a new {@link PrioritizedClient}.
+    *
+    * @param delegate
+    *           the {@link Client} which executes the requests
+    * @param dispatcher
+    *           the {@link PriorityDispatcher} which hands out the slots
+    */
+   public PrioritizedClient(Client delegate, PriorityDispatcher dispatcher) {
+      this.delegate = delegate;
+      this.dispatcher = dispatcher;
+   }
+
+   @Override
+   public Response execute(Request request) throws IOException {
+      if (dispatcher.isWorkerThread()) {
+         return executeLimited(request);
+      }
+      RequestPriority priority = PriorityScope.current();
+      dispatcher.acquire(priority);
+      try {
+         return executeLimited(request);
+      } finally {
+         dispatcher.release(priority);
+      }
+   }
+
+   private Response executeLimited(Request request) throws IOException {
+      AdaptiveLimiter limiter = dispatcher.getLimiter();
+      if (limiter == null) {
+         return delegate.execute(request);
+      }
+      AdaptiveLimiter.Permit permit = limiter.acquire(request.getUrl());
+      try {
+         Response response = delegate.execute(request);
+         permit.completed(response.getStatus());
+         return response;
+      } catch (IOException e) {
+         permit.failed(e);
+         throw e;
+      } finally {
+         permit.abandoned();
+      }
+   }
+}
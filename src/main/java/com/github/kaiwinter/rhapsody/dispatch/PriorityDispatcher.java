@@ -0,0 +1,403 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.kaiwinter.rhapsody.trace.Span;
+import com.github.kaiwinter.rhapsody.trace.SpanPhase;
+
+/**
+ * Runs requests with a bounded concurrency and decides which request gets the next free slot by its
+ * {@link RequestPriority}. It is used as Retrofit's HTTP executor for asynchronous requests; synchronous requests wait
+ * for a slot in {@link PrioritizedClient}.
+ *
+ * <p>
+ * Each priority class has its own queue. Free slots are assigned by weighted fair queuing (stride scheduling): a class
+ * with weight 16 gets 16 dispatches for every dispatch of a class with weight 1 while both have requests waiting, and
+ * an idle class can't save up credit. Each class may occupy only its share of the slots, which keeps slots free for
+ * interactive requests while background work saturates the rest. A request which waited longer than the maximum wait
+ * is dispatched next regardless of its class, so no class starves.
+ * </p>
+ *
+ * <p>
+ * The priority and the {@link CallHandle} of the calling thread are carried over to the HTTP thread and to the
+ * callback. A request whose call was cancelled while it was queued is skipped. The time a request waited is recorded
+ * in the {@link Span} of its call, which stays open until the request's callback returned. A synchronous request
+ * stops waiting when the deadline of its call passes (see {@link DeadlineScope}); an asynchronous one is started and
+ * fails without being sent.
+ * </p>
+ *
+ * <p>
+ * A callback which runs on the HTTP thread doesn't hold the slot of its request: the slot is released before the
+ * callback is called. So a callback may wait for other requests, e.g. by making a synchronous call, without starving
+ * the dispatcher.
+ * </p>
+ */
+public final class PriorityDispatcher implements Executor {
+   private static final long STRIDE = 1 << 20;
+
+   /** Releases the slot of the request which runs on the current thread, set while a request runs. */
+   private static final ThreadLocal<Runnable> SLOT = new ThreadLocal<>();
+
+   private final Lane[] lanes;
+   private final long maxWaitNanos;
+   private final ExecutorService workers;
+   private final ThreadLocal<Boolean> workerThread = new ThreadLocal<>();
+   private volatile AdaptiveLimiter limiter;
+
+   private int maxConcurrency;
+   private int running;
+   private long virtualTime;
+
+   /**
+    * Constructs a new {@link PriorityDispatcher}.
+    *
+    * @param maxConcurrency
+    *           the maximum number of concurrent requests
+    * @param maxWait
+    *           the time after which a waiting request is dispatched next regardless of its class
+    * @param unit
+    *           the unit of <code>maxWait</code>
+    */
+   public PriorityDispatcher(int maxConcurrency, long maxWait, TimeUnit unit) {
+      this.maxConcurrency = maxConcurrency;
+      this.maxWaitNanos = unit.toNanos(maxWait);
+      RequestPriority[] priorities = RequestPriority.values();
+      lanes = new Lane[priorities.length];
+      for (RequestPriority priority : priorities) {
+         lanes[priority.ordinal()] = new Lane(priority);
+      }
+      AtomicInteger threadCount = new AtomicInteger();
+      workers = Executors.newCachedThreadPool(runnable -> {
+         Thread thread = new Thread(runnable, "Rhapsody-" + threadCount.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+
+   /**
+    * Wraps a callback executor so callbacks run with the priority and the {@link CallHandle} of their request, and
+    * callbacks of cancelled calls are dropped. A callback which runs on the HTTP thread releases the slot of its
+    * request first.
+    *
+    * @param delegate
+    *           the executor which runs the callbacks, <code>null</code> to run them on the HTTP thread
+    * @return the wrapped executor
+    */
+   public static Executor callbackExecutor(Executor delegate) {
+      return command -> {
+         RequestPriority priority = PriorityScope.current();
+         CallHandle handle = CallHandle.current();
+         Runnable callback = () -> {
+            try {
+               if (handle != null && handle.isCancelled()) {
+                  return;
+               }
+               try (PriorityScope scope = PriorityScope.open(priority);
+                  CallHandle.Scope call = CallHandle.activate(handle)) {
+                  command.run();
+               }
+            } finally {
+               if (handle != null) {
+                  handle.getSpan().release();
+               }
+            }
+         };
+         if (delegate == null) {
+            releaseSlot();
+            callback.run();
+         } else {
+            delegate.execute(callback);
+         }
+      };
+   }
+
+   /**
+    * Queues an asynchronous request with the priority and the {@link CallHandle} of the calling thread (see
+    * {@link PriorityScope}).
+    */
+   @Override
+   public void execute(Runnable command) {
+      CallHandle handle = CallHandle.current();
+      if (handle != null) {
+         handle.getSpan().retain();
+      }
+      submit(new Task(PriorityScope.current(), handle, command));
+   }
+
+   /**
+    * Blocks until a slot for a synchronous request with the given priority is free. The slot must be released by
+    * {@link #release(RequestPriority)}.
+    *
+    * @param priority
+    *           the priority of the request
+    * @throws InterruptedIOException
+    *            if the thread is interrupted while waiting or the deadline of the call passed
+    */
+   public void acquire(RequestPriority priority) throws InterruptedIOException {
+      Task ticket = new Task(priority, null, null);
+      submit(ticket);
+      CallHandle handle = CallHandle.current();
+      Span span = handle == null ? Span.NOT_SAMPLED : handle.getSpan();
+      synchronized (ticket) {
+         while (!ticket.admitted) {
+            try {
+               long remaining = handle == null ? Long.MAX_VALUE : handle.getRemaining(TimeUnit.NANOSECONDS);
+               if (remaining <= 0) {
+                  if (!cancel(ticket)) {
+                     release(priority);
+                  }
+                  span.record(SpanPhase.QUEUE, System.nanoTime() - ticket.enqueued);
+                  throw new DeadlineExceededException("Deadline exceeded while queued (" + span.describePhases() + ")");
+               }
+               if (remaining == Long.MAX_VALUE) {
+                  ticket.wait();
+               } else {
+                  TimeUnit.NANOSECONDS.timedWait(ticket, remaining);
+               }
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               if (!cancel(ticket)) {
+                  release(priority);
+               }
+               throw new InterruptedIOException("Interrupted while waiting for a connection slot");
+            }
+         }
+      }
+      span.record(SpanPhase.QUEUE, System.nanoTime() - ticket.enqueued);
+   }
+
+   /**
+    * Releases a slot which was acquired by {@link #acquire(RequestPriority)}.
+    *
+    * @param priority
+    *           the priority the slot was acquired with
+    */
+   public void release(RequestPriority priority) {
+      List<Task> toStart = new ArrayList<>();
+      synchronized (this) {
+         lanes[priority.ordinal()].running--;
+         running--;
+         dispatch(toStart);
+      }
+      start(toStart);
+   }
+
+   /**
+    * Returns whether the current thread runs an asynchronous request of this dispatcher, and therefore already holds a
+    * slot.
+    *
+    * @return <code>true</code> if called from a request, <code>false</code> in its callback which released the slot
+    */
+   public boolean isWorkerThread() {
+      return workerThread.get() != null;
+   }
+
+   /**
+    * Sets the maximum number of concurrent requests.
+    *
+    * @param maxConcurrency
+    *           the maximum number of concurrent requests, at least 1
+    */
+   public void setMaxConcurrency(int maxConcurrency) {
+      if (maxConcurrency < 1) {
+         throw new IllegalArgumentException("maxConcurrency must be at least 1");
+      }
+      List<Task> toStart = new ArrayList<>();
+      synchronized (this) {
+         this.maxConcurrency = maxConcurrency;
+         dispatch(toStart);
+      }
+      start(toStart);
+   }
+
+   /**
+    * Sets a limiter which additionally limits the concurrent requests of each endpoint group by their latency. It is
+    * applied by {@link PrioritizedClient} after a request got its slot.
+    *
+    * @param limiter
+    *           the {@link AdaptiveLimiter}, <code>null</code> to limit only by the maximum number of concurrent
+    *           requests
+    */
+   public void setLimiter(AdaptiveLimiter limiter) {
+      this.limiter = limiter;
+   }
+
+   /**
+    * Returns the limiter of the endpoint groups.
+    *
+    * @return the {@link AdaptiveLimiter}, <code>null</code> if none is set
+    */
+   public AdaptiveLimiter getLimiter() {
+      return limiter;
+   }
+
+   /**
+    * Returns the number of requests of a priority class which wait for a slot.
+    *
+    * @param priority
+    *           the priority class
+    * @return the number of waiting requests
+    */
+   public synchronized int getQueued(RequestPriority priority) {
+      return lanes[priority.ordinal()].queue.size();
+   }
+
+   /**
+    * Returns the number of running requests of a priority class.
+    *
+    * @param priority
+    *           the priority class
+    * @return the number of running requests
+    */
+   public synchronized int getRunning(RequestPriority priority) {
+      return lanes[priority.ordinal()].running;
+   }
+
+   private void submit(Task task) {
+      List<Task> toStart = new ArrayList<>();
+      synchronized (this) {
+         Lane lane = lanes[task.priority.ordinal()];
+         if (lane.queue.isEmpty() && lane.running == 0) {
+            // An idle class doesn't save up credit
+            lane.pass = Math.max(lane.pass, virtualTime);
+         }
+         lane.queue.add(task);
+         dispatch(toStart);
+      }
+      start(toStart);
+   }
+
+   private synchronized boolean cancel(Task ticket) {
+      return lanes[ticket.priority.ordinal()].queue.remove(ticket);
+   }
+
+   private void dispatch(List<Task> toStart) {
+      long now = System.nanoTime();
+      while (running < maxConcurrency) {
+         Lane lane = nextLane(now);
+         if (lane == null) {
+            return;
+         }
+         toStart.add(lane.queue.poll());
+         lane.running++;
+         running++;
+         virtualTime = lane.pass;
+         lane.pass += STRIDE / lane.priority.getWeight();
+      }
+   }
+
+   /**
+    * Returns the lane which gets the next slot: the lane whose head waited longer than the maximum wait, otherwise
+    * the lane with the lowest pass.
+    */
+   private Lane nextLane(long now) {
+      Lane next = null;
+      Lane starving = null;
+      for (Lane lane : lanes) {
+         int maxRunning = Math.max(1, (int) (maxConcurrency * lane.priority.getMaxShare()));
+         if (lane.queue.isEmpty() || lane.running >= maxRunning) {
+            continue;
+         }
+         if (next == null || lane.pass < next.pass) {
+            next = lane;
+         }
+         long enqueued = lane.queue.peek().enqueued;
+         if (now - enqueued > maxWaitNanos && (starving == null || enqueued < starving.queue.peek().enqueued)) {
+            starving = lane;
+         }
+      }
+      return starving != null ? starving : next;
+   }
+
+   private void start(List<Task> toStart) {
+      for (Task task : toStart) {
+         if (task.command == null) {
+            synchronized (task) {
+               task.admitted = true;
+               task.notifyAll();
+            }
+         } else {
+            workers.execute(() -> run(task));
+         }
+      }
+   }
+
+   private void run(Task task) {
+      if (task.handle != null && task.handle.isCancelled()) {
+         release(task.priority);
+         task.handle.getSpan().release();
+         return;
+      }
+      if (task.handle != null && task.handle.getSpan().isSampled()) {
+         task.handle.getSpan().record(SpanPhase.QUEUE, System.nanoTime() - task.enqueued);
+      }
+      AtomicBoolean released = new AtomicBoolean();
+      Runnable releaseSlot = () -> {
+         if (released.compareAndSet(false, true)) {
+            workerThread.remove();
+            release(task.priority);
+         }
+      };
+      workerThread.set(Boolean.TRUE);
+      SLOT.set(releaseSlot);
+      try (PriorityScope scope = PriorityScope.open(task.priority);
+         CallHandle.Scope call = CallHandle.activate(task.handle)) {
+         task.command.run();
+      } finally {
+         SLOT.remove();
+         releaseSlot.run();
+      }
+   }
+
+   /**
+    * Releases the slot of the request which runs on the current thread, before its callback is called on this thread.
+    */
+   private static void releaseSlot() {
+      Runnable releaseSlot = SLOT.get();
+      if (releaseSlot != null) {
+         SLOT.remove();
+         releaseSlot.run();
+      }
+   }
+
+   /**
+    * The queue and counters of one priority class.
+    */
+   private static final class Lane {
+      private final RequestPriority priority;
+      private final Deque<Task> queue = new ArrayDeque<>();
+      private int running;
+      private long pass;
+
+      Lane(RequestPriority priority) {
+         this.priority = priority;
+      }
+   }
+
+   /**
+    * An asynchronous request, or a ticket of a synchronous request if <code>command</code> is <code>null</code>.
+    */
+   private static final class Task {
+      private final RequestPriority priority;
+      private final CallHandle handle;
+      private final Runnable command;
+      private final long enqueued = System.nanoTime();
+      private boolean admitted;
+
+      Task(RequestPriority priority, CallHandle handle, Runnable command) {
+         this.priority = priority;
+         this.handle = handle;
+         this.command = command;
+      }
+   }
+}
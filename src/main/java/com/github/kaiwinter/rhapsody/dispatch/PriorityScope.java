@@ -0,0 +1,60 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+/**
+ * Sets the {@link RequestPriority} of all requests which are started by the current thread until the scope is closed.
+ * Scopes can be nested.
+ *
+ * <pre>
+ * try (PriorityScope scope = PriorityScope.open(RequestPriority.BACKGROUND)) {
+ *    wrapper.getArtistNewReleases(artistId, null);
+ * }
+ * </pre>
+ *
+ * <p>
+ * Requests which are started from a callback inherit the priority of the request the callback belongs to.
+ * </p>
+ */
+public final class PriorityScope implements AutoCloseable {
+   private static final ThreadLocal<RequestPriority> CURRENT = new ThreadLocal<>();
+
+   private final RequestPriority previous;
+
+   private PriorityScope(RequestPriority previous) {
+      this.previous = previous;
+   }
+
+   /**
+    * Sets the priority of the current thread.
+    *
+    * @param priority
+    *           the priority of the following requests
+    * @return the scope which restores the previous priority on {@link #close()}
+    */
+   public static PriorityScope open(RequestPriority priority) {
+      PriorityScope scope = new PriorityScope(CURRENT.get());
+      CURRENT.set(priority);
+      return scope;
+   }
+
+   /**
+    * Returns the priority of the current thread.
+    *
+    * @return the priority, {@link RequestPriority#NORMAL} if no scope is open
+    */
+   public static RequestPriority current() {
+      RequestPriority priority = CURRENT.get();
+      return priority == null ? RequestPriority.NORMAL : priority;
+   }
+
+   /**
+    * Restores the priority which was set before this scope was opened.
+    */
+   @Override
+   public void close() {
+      if (previous == null) {
+         CURRENT.remove();
+      } else {
+         CURRENT.set(previous);
+      }
+   }
+}
@@ -0,0 +1,43 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+/**
+ * The priority class of a request. Each class has its own queue in the {@link PriorityDispatcher}. Free connections
+ * are shared between the classes by their weight, and a class may occupy only its share of the connections.
+ */
+public enum RequestPriority {
+
+   /** Requests a user is waiting for, e.g. opening an album. */
+   INTERACTIVE(16, 1.0),
+
+   /** The default for requests which don't set a priority. */
+   NORMAL(4, 1.0),
+
+   /** Bulk work like crawls, syncs and prefetching. Leaves a quarter of the connections to the other classes. */
+   BACKGROUND(1, 0.75);
+
+   private final int weight;
+   private final double maxShare;
+
+   RequestPriority(int weight, double maxShare) {
+      this.weight = weight;
+      this.maxShare = maxShare;
+   }
+
+   /**
+    * Returns the relative share of dispatches this class gets if all classes have requests waiting.
+    *
+    * @return the weight
+    */
+   public int getWeight() {
+      return weight;
+   }
+
+   /**
+    * Returns the maximum share of the concurrent requests this class may occupy.
+    *
+    * @return the share between 0 and 1
+    */
+   public double getMaxShare() {
+      return maxShare;
+   }
+}
@@ -0,0 +1,149 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+import com.github.kaiwinter.rhapsody.trace.Span;
+import com.github.kaiwinter.rhapsody.trace.SpanPhase;
+
+/**
+ * An {@link HttpURLConnection} which records the time to connect and the time until the response was read in a
+ * {@link Span}. It delegates the methods the {@link retrofit.client.UrlConnectionClient} uses to the actual connection.
+ */
+final class TimedConnection extends HttpURLConnection {
+   private final HttpURLConnection delegate;
+   private final Span span;
+   private long connectedNanos;
+
+   TimedConnection(HttpURLConnection delegate, Span span) {
+      super(delegate.getURL());
+      this.delegate = delegate;
+      this.span = span;
+   }
+
+   /**
+    * Records the time since the connection was established as {@link SpanPhase#SERVER}. Called when the response body
+    * was read.
+    */
+   void finished() {
+      if (connectedNanos != 0) {
+         span.record(SpanPhase.SERVER, System.nanoTime() - connectedNanos);
+         connectedNanos = 0;
+      }
+   }
+
+   @Override
+   public void connect() throws IOException {
+      if (connectedNanos == 0) {
+         long start = System.nanoTime();
+         delegate.connect();
+         connectedNanos = System.nanoTime();
+         span.record(SpanPhase.CONNECT, connectedNanos - start);
+      }
+   }
+
+   @Override
+   public void disconnect() {
+      delegate.disconnect();
+   }
+
+   @Override
+   public boolean usingProxy() {
+      return delegate.usingProxy();
+   }
+
+   @Override
+   public URL getURL() {
+      return delegate.getURL();
+   }
+
+   @Override
+   public void setRequestMethod(String method) throws ProtocolException {
+      delegate.setRequestMethod(method);
+   }
+
+   @Override
+   public void setDoInput(boolean doinput) {
+      delegate.setDoInput(doinput);
+   }
+
+   @Override
+   public void setDoOutput(boolean dooutput) {
+      delegate.setDoOutput(dooutput);
+   }
+
+   @Override
+   public void setConnectTimeout(int timeout) {
+      delegate.setConnectTimeout(timeout);
+   }
+
+   @Override
+   public void setReadTimeout(int timeout) {
+      delegate.setReadTimeout(timeout);
+   }
+
+   @Override
+   public void addRequestProperty(String key, String value) {
+      delegate.addRequestProperty(key, value);
+   }
+
+   @Override
+   public void setFixedLengthStreamingMode(int contentLength) {
+      delegate.setFixedLengthStreamingMode(contentLength);
+   }
+
+   @Override
+   public void setChunkedStreamingMode(int chunklen) {
+      delegate.setChunkedStreamingMode(chunklen);
+   }
+
+   @Override
+   public OutputStream getOutputStream() throws IOException {
+      connect();
+      return delegate.getOutputStream();
+   }
+
+   @Override
+   public int getResponseCode() throws IOException {
+      connect();
+      return delegate.getResponseCode();
+   }
+
+   @Override
+   public String getResponseMessage() throws IOException {
+      connect();
+      return delegate.getResponseMessage();
+   }
+
+   @Override
+   public Map<String, List<String>> getHeaderFields() {
+      return delegate.getHeaderFields();
+   }
+
+   @Override
+   public String getContentType() {
+      return delegate.getContentType();
+   }
+
+   @Override
+   public int getContentLength() {
+      return delegate.getContentLength();
+   }
+
+   @Override
+   public InputStream getInputStream() throws IOException {
+      connect();
+      return delegate.getInputStream();
+   }
+
+   @Override
+   public InputStream getErrorStream() {
+      return delegate.getErrorStream();
+   }
+}
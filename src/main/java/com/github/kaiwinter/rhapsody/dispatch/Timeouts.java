@@ -0,0 +1,74 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timeouts of the requests of a call: the socket timeouts of each request and an optional timeout of the whole
+ * call. The call timeout starts when the call is made and includes the time the requests wait in the queue of the
+ * {@link PriorityDispatcher}, the time of follow-up requests and of retries.
+ */
+public final class Timeouts {
+
+   /** Retrofit's socket timeouts and no call timeout. */
+   public static final Timeouts DEFAULT = new Timeouts(15_000, 20_000, 0, TimeUnit.MILLISECONDS);
+
+   private final int connectTimeoutMillis;
+   private final int readTimeoutMillis;
+   private final long callTimeoutNanos;
+
+   /**
+    * Constructs new {@link Timeouts}.
+    *
+    * @param connectTimeout
+    *           the maximum time to establish a connection, greater than 0
+    * @param readTimeout
+    *           the maximum time to wait for data from the server, greater than 0
+    * @param callTimeout
+    *           the maximum time of the whole call, 0 for no limit
+    * @param unit
+    *           the unit of the timeouts
+    */
+   public Timeouts(long connectTimeout, long readTimeout, long callTimeout, TimeUnit unit) {
+      if (connectTimeout <= 0 || readTimeout <= 0 || callTimeout < 0) {
+         throw new IllegalArgumentException("Socket timeouts must be positive, the call timeout must not be negative");
+      }
+      this.connectTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, Math.max(1, unit.toMillis(connectTimeout)));
+      this.readTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, Math.max(1, unit.toMillis(readTimeout)));
+      this.callTimeoutNanos = unit.toNanos(callTimeout);
+   }
+
+   /**
+    * Returns the maximum time to establish a connection.
+    *
+    * @return the connect timeout in milliseconds
+    */
+   public int getConnectTimeoutMillis() {
+      return connectTimeoutMillis;
+   }
+
+   /**
+    * Returns the maximum time to wait for data from the server.
+    *
+    * @return the read timeout in milliseconds
+    */
+   public int getReadTimeoutMillis() {
+      return readTimeoutMillis;
+   }
+
+   /**
+    * Returns the maximum time of the whole call.
+    *
+    * @param unit
+    *           the unit of the result
+    * @return the call timeout, 0 if the call has no limit
+    */
+   public long getCallTimeout(TimeUnit unit) {
+      return unit.convert(callTimeoutNanos, TimeUnit.NANOSECONDS);
+   }
+
+   @Override
+   public String toString() {
+      return "connect " + connectTimeoutMillis + " ms, read " + readTimeoutMillis + " ms, call "
+         + (callTimeoutNanos == 0 ? "unlimited" : TimeUnit.NANOSECONDS.toMillis(callTimeoutNanos) + " ms");
+   }
+}
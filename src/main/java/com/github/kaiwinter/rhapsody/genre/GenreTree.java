@@ -0,0 +1,205 @@
+package com.github.kaiwinter.rhapsody.genre;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.kaiwinter.rhapsody.model.GenreData;
+
+/**
+ * Immutable, indexed view of the genre hierarchy as returned by
+ * {@link com.github.kaiwinter.rhapsody.service.metadata.GenreService#getGenres}. The genres are numbered in depth-first
+ * pre-order, so the subgenres of a genre form a contiguous range (its Euler-tour interval) directly after it. This
+ * allows lookups by ID, parent and ancestor queries and subtree queries without walking the nested structure.
+ */
+public final class GenreTree {
+
+   private static final int NO_PARENT = -1;
+
+   private final List<GenreData> genres;
+   private final List<GenreData> roots;
+   private final Map<String, Integer> indexById;
+   private final int[] parent;
+   private final int[] depth;
+   private final int[] subtreeEnd;
+
+   /**
+    * Builds the index for the given genre hierarchy.
+    *
+    * @param rootGenres
+    *           the top level genres with their nested <code>subgenres</code>
+    */
+   public GenreTree(Collection<GenreData> rootGenres) {
+      List<GenreData> preOrder = new ArrayList<>();
+      List<Integer> parents = new ArrayList<>();
+      List<Integer> depths = new ArrayList<>();
+
+      // Iterative depth-first traversal, both stacks are pushed and popped together
+      Deque<GenreData> genreStack = new ArrayDeque<>();
+      Deque<Integer> parentStack = new ArrayDeque<>();
+      List<GenreData> rootList = new ArrayList<>(rootGenres);
+      for (int i = rootList.size() - 1; i >= 0; i--) {
+         genreStack.push(rootList.get(i));
+         parentStack.push(NO_PARENT);
+      }
+      while (!genreStack.isEmpty()) {
+         GenreData genre = genreStack.pop();
+         int parentIndex = parentStack.pop();
+         int index = preOrder.size();
+         preOrder.add(genre);
+         parents.add(parentIndex);
+         depths.add(parentIndex == NO_PARENT ? 0 : depths.get(parentIndex) + 1);
+         if (genre.subgenres != null) {
+            List<GenreData> children = new ArrayList<>(genre.subgenres);
+            for (int i = children.size() - 1; i >= 0; i--) {
+               genreStack.push(children.get(i));
+               parentStack.push(index);
+            }
+         }
+      }
+
+      int size = preOrder.size();
+      genres = Collections.unmodifiableList(preOrder);
+      roots = Collections.unmodifiableList(rootList);
+      indexById = new HashMap<>(size * 2);
+      parent = new int[size];
+      depth = new int[size];
+      subtreeEnd = new int[size];
+      for (int i = 0; i < size; i++) {
+         indexById.putIfAbsent(preOrder.get(i).id, i);
+         parent[i] = parents.get(i);
+         depth[i] = depths.get(i);
+         subtreeEnd[i] = i + 1;
+      }
+      // Children come after their parent, so walking backwards completes every subtree before its parent
+      for (int i = size - 1; i >= 0; i--) {
+         if (parent[i] != NO_PARENT) {
+            subtreeEnd[parent[i]] = Math.max(subtreeEnd[parent[i]], subtreeEnd[i]);
+         }
+      }
+   }
+
+   /**
+    * Returns the number of genres, including all subgenres.
+    *
+    * @return the number of genres
+    */
+   public int size() {
+      return genres.size();
+   }
+
+   /**
+    * Returns the top level genres.
+    *
+    * @return the top level genres
+    */
+   public List<GenreData> getRoots() {
+      return roots;
+   }
+
+   /**
+    * Returns all genres in depth-first pre-order.
+    *
+    * @return all genres
+    */
+   public List<GenreData> getAll() {
+      return genres;
+   }
+
+   /**
+    * Returns the genre with the given ID.
+    *
+    * @param genreId
+    *           the ID of the genre
+    * @return the genre, or <code>null</code> if unknown
+    */
+   public GenreData get(String genreId) {
+      Integer index = indexById.get(genreId);
+      return index == null ? null : genres.get(index);
+   }
+
+   /**
+    * Returns the parent of a genre.
+    *
+    * @param genreId
+    *           the ID of the genre
+    * @return the parent genre, or <code>null</code> for a top level or unknown genre
+    */
+   public GenreData getParent(String genreId) {
+      Integer index = indexById.get(genreId);
+      if (index == null || parent[index] == NO_PARENT) {
+         return null;
+      }
+      return genres.get(parent[index]);
+   }
+
+   /**
+    * Returns the depth of a genre in the hierarchy.
+    *
+    * @param genreId
+    *           the ID of the genre
+    * @return <code>0</code> for a top level genre, <code>-1</code> for an unknown genre
+    */
+   public int getDepth(String genreId) {
+      Integer index = indexById.get(genreId);
+      return index == null ? -1 : depth[index];
+   }
+
+   /**
+    * Returns the ancestors of a genre, starting with its parent and ending with the top level genre.
+    *
+    * @param genreId
+    *           the ID of the genre
+    * @return the ancestors, empty for a top level or unknown genre
+    */
+   public List<GenreData> getAncestors(String genreId) {
+      Integer index = indexById.get(genreId);
+      if (index == null) {
+         return Collections.emptyList();
+      }
+      List<GenreData> ancestors = new ArrayList<>(depth[index]);
+      for (int current = parent[index]; current != NO_PARENT; current = parent[current]) {
+         ancestors.add(genres.get(current));
+      }
+      return ancestors;
+   }
+
+   /**
+    * Returns all direct and indirect subgenres of a genre in depth-first pre-order. The returned list is a view, no
+    * copy is made.
+    *
+    * @param genreId
+    *           the ID of the genre
+    * @return the descendants, empty for an unknown genre
+    */
+   public List<GenreData> getDescendants(String genreId) {
+      Integer index = indexById.get(genreId);
+      if (index == null) {
+         return Collections.emptyList();
+      }
+      return genres.subList(index + 1, subtreeEnd[index]);
+   }
+
+   /**
+    * Returns if a genre is a direct or indirect subgenre of another genre, in constant time.
+    *
+    * @param ancestorId
+    *           the ID of the potential ancestor
+    * @param genreId
+    *           the ID of the genre
+    * @return <code>true</code> if <code>genreId</code> lies below <code>ancestorId</code>
+    */
+   public boolean isDescendant(String ancestorId, String genreId) {
+      Integer ancestor = indexById.get(ancestorId);
+      Integer genre = indexById.get(genreId);
+      if (ancestor == null || genre == null) {
+         return false;
+      }
+      return genre > ancestor && genre < subtreeEnd[ancestor];
+   }
+}
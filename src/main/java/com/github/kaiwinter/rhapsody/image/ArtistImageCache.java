@@ -0,0 +1,401 @@
+package com.github.kaiwinter.rhapsody.image;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.kaiwinter.rhapsody.api.ArtistImageSize;
+import com.github.kaiwinter.rhapsody.api.RhapsodyCallback;
+import com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper;
+import com.github.kaiwinter.rhapsody.dispatch.Timeouts;
+
+/**
+ * Downloads artist images from the Rhapsody image server into a size-bounded directory. The least recently used
+ * images are deleted when the directory grows beyond its limit.
+ *
+ * <ul>
+ * <li>Downloads are streamed to disk through NIO channels and become visible by an atomic rename.</li>
+ * <li>Concurrent requests for the same image share one download.</li>
+ * <li>If the image server has no image in the requested size, the next smaller sizes are tried. A missing size is
+ * remembered for an hour.</li>
+ * <li>An image which is larger than the limit is kept until the next image is cached.</li>
+ * <li>{@link #transferTo(String, ArtistImageSize, WritableByteChannel)} serves a cached image by
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, so the data doesn't pass through the heap.</li>
+ * </ul>
+ */
+public final class ArtistImageCache implements Closeable {
+   private static final Logger LOGGER = LoggerFactory.getLogger(ArtistImageCache.class.getSimpleName());
+
+   private static final String FILE_EXTENSION = ".png";
+   private static final String TEMP_EXTENSION = ".part";
+   private static final int DOWNLOAD_THREADS = 4;
+   private static final long TRANSFER_CHUNK = 64 * 1024;
+
+   /** Maximum number of image sizes which are remembered as missing. */
+   private static final int MAX_MISSING = 10_000;
+
+   /** Time after which a missing image size is requested again. */
+   private static final long MISSING_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+   private final BiFunction<String, ArtistImageSize, String> imageUrl;
+   private final Path directory;
+   private final long maxBytes;
+   private final ExecutorService executor;
+
+   /** Cached files in access order, mapped to their size. */
+   private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+   private long totalBytes;
+
+   private final Map<String, CompletableFuture<Path>> downloads = new ConcurrentHashMap<>();
+
+   /** Image sizes which the server doesn't have, mapped to the time until which they aren't requested again. */
+   private final LinkedHashMap<String, Long> missing = new LinkedHashMap<String, Long>() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+         return size() > MAX_MISSING;
+      }
+   };
+
+   /**
+    * Opens the cache in the given directory. Images which are already in the directory are reused.
+    *
+    * @param wrapper
+    *           the wrapper which builds the image URLs
+    * @param directory
+    *           the cache directory, created if missing
+    * @param maxBytes
+    *           the maximum size of all cached images
+    * @throws IOException
+    *            if the directory cannot be read or created
+    */
+   public ArtistImageCache(RhapsodySdkWrapper wrapper, Path directory, long maxBytes) throws IOException {
+      this(wrapper::getArtistImageUrl, directory, maxBytes);
+   }
+
+   ArtistImageCache(BiFunction<String, ArtistImageSize, String> imageUrl, Path directory, long maxBytes)
+      throws IOException {
+      this.imageUrl = imageUrl;
+      this.directory = Files.createDirectories(directory);
+      this.maxBytes = maxBytes;
+      this.executor = Executors.newFixedThreadPool(DOWNLOAD_THREADS, runnable -> {
+         Thread thread = new Thread(runnable, "ArtistImageCache");
+         thread.setDaemon(true);
+         return thread;
+      });
+
+      List<Path> existing;
+      List<Path> incomplete;
+      try (Stream<Path> list = Files.list(this.directory)) {
+         Map<Boolean, List<Path>> byType = list
+            .collect(Collectors.partitioningBy(path -> path.getFileName().toString().endsWith(FILE_EXTENSION)));
+         existing = byType.get(Boolean.TRUE);
+         incomplete = byType.get(Boolean.FALSE);
+      }
+      existing.sort(Comparator.comparing(ArtistImageCache::lastModified));
+      for (Path path : incomplete) {
+         if (path.getFileName().toString().endsWith(TEMP_EXTENSION)) {
+            // Left over by an interrupted download
+            Files.deleteIfExists(path);
+         }
+      }
+      synchronized (files) {
+         for (Path path : existing) {
+            long size = Files.size(path);
+            files.put(path.getFileName().toString(), size);
+            totalBytes += size;
+         }
+         evict(null);
+      }
+   }
+
+   /**
+    * Asynchronously returns the image file of an artist, downloading it if necessary. If there is no image in the
+    * requested size, a smaller one is returned.
+    *
+    * @param artistId
+    *           the ID of the artist
+    * @param imageSize
+    *           the preferred size of the image
+    * @param callback
+    *           receives the cached image file, or the error if no image could be loaded
+    */
+   public void loadImage(String artistId, ArtistImageSize imageSize, RhapsodyCallback<File> callback) {
+      fetch(artistId, imageSize).whenComplete((path, throwable) -> {
+         if (throwable == null) {
+            callback.onSuccess(path.toFile());
+         } else {
+            Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+            int httpCode = cause instanceof HttpStatusException ? ((HttpStatusException) cause).status : -1;
+            callback.onFailure(httpCode, cause.getMessage());
+         }
+      });
+   }
+
+   /**
+    * Writes the image of an artist to the given channel, downloading it first if necessary. Blocks until the image is
+    * written.
+    *
+    * @param artistId
+    *           the ID of the artist
+    * @param imageSize
+    *           the preferred size of the image
+    * @param target
+    *           the channel to write to, e.g. a socket channel
+    * @return the number of bytes written
+    * @throws IOException
+    *            if no image could be loaded or writing fails
+    */
+   public long transferTo(String artistId, ArtistImageSize imageSize, WritableByteChannel target) throws IOException {
+      for (int attempt = 0;; attempt++) {
+         Path path = await(fetch(artistId, imageSize));
+         try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+               position += channel.transferTo(position, Math.min(TRANSFER_CHUNK, size - position), target);
+            }
+            return size;
+         } catch (NoSuchFileException e) {
+            // Evicted between lookup and open
+            if (attempt > 0) {
+               throw e;
+            }
+         }
+      }
+   }
+
+   /**
+    * Returns the size of all cached images.
+    *
+    * @return the size in bytes
+    */
+   public long getSizeBytes() {
+      synchronized (files) {
+         return totalBytes;
+      }
+   }
+
+   /**
+    * Stops the download threads. Running downloads are cancelled.
+    */
+   @Override
+   public void close() {
+      executor.shutdownNow();
+   }
+
+   private CompletableFuture<Path> fetch(String artistId, ArtistImageSize imageSize) {
+      ArtistImageSize[] sizes = ArtistImageSize.values();
+      for (int i = imageSize.ordinal(); i >= 0; i--) {
+         String fileName = fileName(artistId, sizes[i]);
+         if (isMissing(fileName)) {
+            continue;
+         }
+         synchronized (files) {
+            if (files.get(fileName) != null) {
+               return CompletableFuture.completedFuture(directory.resolve(fileName));
+            }
+         }
+         break;
+      }
+      String key = fileName(artistId, imageSize);
+      CompletableFuture<Path> download = downloads.computeIfAbsent(key,
+         k -> CompletableFuture.supplyAsync(() -> downloadWithFallback(artistId, imageSize), executor));
+      download.whenComplete((path, throwable) -> downloads.remove(key, download));
+      return download;
+   }
+
+   private Path downloadWithFallback(String artistId, ArtistImageSize imageSize) {
+      ArtistImageSize[] sizes = ArtistImageSize.values();
+      HttpStatusException notFound = null;
+      for (int i = imageSize.ordinal(); i >= 0; i--) {
+         String fileName = fileName(artistId, sizes[i]);
+         if (isMissing(fileName)) {
+            continue;
+         }
+         synchronized (files) {
+            if (files.get(fileName) != null) {
+               return directory.resolve(fileName);
+            }
+         }
+         try {
+            return download(artistId, sizes[i], fileName);
+         } catch (HttpStatusException e) {
+            if (e.status != HttpURLConnection.HTTP_NOT_FOUND) {
+               throw new CompletionException(e);
+            }
+            LOGGER.debug("No image of artist {} in size {}", artistId, sizes[i].getSize());
+            synchronized (missing) {
+               missing.put(fileName, System.currentTimeMillis() + MISSING_TTL_MILLIS);
+            }
+            notFound = e;
+         } catch (IOException e) {
+            throw new CompletionException(e);
+         }
+      }
+      throw new CompletionException(
+         notFound != null ? notFound : new FileNotFoundException("No image of artist " + artistId));
+   }
+
+   private Path download(String artistId, ArtistImageSize imageSize, String fileName) throws IOException {
+      LOGGER.debug("Downloading image of artist {} in size {}", artistId, imageSize.getSize());
+      HttpURLConnection connection = (HttpURLConnection) new URL(imageUrl.apply(artistId, imageSize))
+         .openConnection();
+      connection.setConnectTimeout(Timeouts.DEFAULT.getConnectTimeoutMillis());
+      connection.setReadTimeout(Timeouts.DEFAULT.getReadTimeoutMillis());
+      // Unique per download, concurrent downloads of the same file must not write into each other
+      Path temp = Files.createTempFile(directory, fileName, TEMP_EXTENSION);
+      try {
+         int status = connection.getResponseCode();
+         if (status != HttpURLConnection.HTTP_OK) {
+            throw new HttpStatusException(status, connection.getResponseMessage());
+         }
+         long size = 0;
+         try (InputStream inputStream = connection.getInputStream();
+            ReadableByteChannel in = Channels.newChannel(inputStream);
+            FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE,
+               StandardOpenOption.TRUNCATE_EXISTING)) {
+            long transferred;
+            while ((transferred = out.transferFrom(in, size, TRANSFER_CHUNK)) > 0) {
+               size += transferred;
+            }
+         }
+         Path target = directory.resolve(fileName);
+         Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+         synchronized (files) {
+            Long previous = files.put(fileName, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            evict(fileName);
+         }
+         return target;
+      } finally {
+         connection.disconnect();
+         Files.deleteIfExists(temp);
+      }
+   }
+
+   /**
+    * Deletes the least recently used images until the cache fits its limit. Must hold the lock on {@link #files}.
+    *
+    * @param keep
+    *           the image which was just downloaded, it is not deleted even if it alone exceeds the limit, may be
+    *           <code>null</code>
+    */
+   private void evict(String keep) {
+      Iterator<Map.Entry<String, Long>> iterator = files.entrySet().iterator();
+      while (totalBytes > maxBytes && iterator.hasNext()) {
+         Map.Entry<String, Long> eldest = iterator.next();
+         if (eldest.getKey().equals(keep)) {
+            continue;
+         }
+         try {
+            Files.deleteIfExists(directory.resolve(eldest.getKey()));
+         } catch (IOException e) {
+            LOGGER.warn("Could not delete cached image {}: {}", eldest.getKey(), e.getMessage());
+         }
+         totalBytes -= eldest.getValue();
+         iterator.remove();
+      }
+   }
+
+   private boolean isMissing(String fileName) {
+      synchronized (missing) {
+         Long until = missing.get(fileName);
+         if (until == null) {
+            return false;
+         }
+         if (until <= System.currentTimeMillis()) {
+            missing.remove(fileName);
+            return false;
+         }
+         return true;
+      }
+   }
+
+   /**
+    * Returns the name of the file of an artist image. Characters which aren't safe in a file name are percent-encoded,
+    * so different artist IDs never share a file.
+    */
+   private static String fileName(String artistId, ArtistImageSize imageSize) {
+      StringBuilder name = new StringBuilder();
+      for (byte b : artistId.getBytes(StandardCharsets.UTF_8)) {
+         if (b >= 'A' && b <= 'Z' || b >= 'a' && b <= 'z' || b >= '0' && b <= '9' || b == '.' || b == '-') {
+            name.append((char) b);
+         } else {
+            name.append('%').append(String.format("%02X", b & 0xFF));
+         }
+      }
+      return name.append('_').append(imageSize.getSize()).append(FILE_EXTENSION).toString();
+   }
+
+   private static long lastModified(Path path) {
+      try {
+         return Files.getLastModifiedTime(path).toMillis();
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private static Path await(CompletableFuture<Path> future) throws IOException {
+      try {
+         return future.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IOException("Interrupted while loading image", e);
+      } catch (ExecutionException e) {
+         Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+         if (cause instanceof IOException) {
+            throw (IOException) cause;
+         }
+         throw new IOException(cause);
+      }
+   }
+
+   /**
+    * The image server answered with an unexpected HTTP status.
+    */
+   private static final class HttpStatusException extends IOException {
+      private static final long serialVersionUID = 1L;
+
+      private final int status;
+
+      HttpStatusException(int status, String reason) {
+         super(status + " " + reason);
+         this.status = status;
+      }
+   }
+}
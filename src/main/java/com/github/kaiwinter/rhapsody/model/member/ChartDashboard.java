@@ -0,0 +1,49 @@
+package com.github.kaiwinter.rhapsody.model.member;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.kaiwinter.rhapsody.service.member.ChartService.RangeEnum;
+
+/**
+ * The member's track, artist and album charts for several time ranges, as loaded by
+ * {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper#loadChartDashboard}.
+ */
+public final class ChartDashboard {
+   public final Map<RangeEnum, List<ChartsTrack>> tracks;
+   public final Map<RangeEnum, List<ChartsArtist>> artists;
+   public final Map<RangeEnum, List<ChartsAlbum>> albums;
+
+   /**
+    * Constructs a new, empty {@link ChartDashboard}.
+    */
+   public ChartDashboard() {
+      this(new EnumMap<>(RangeEnum.class), new EnumMap<>(RangeEnum.class), new EnumMap<>(RangeEnum.class));
+   }
+
+   private ChartDashboard(Map<RangeEnum, List<ChartsTrack>> tracks, Map<RangeEnum, List<ChartsArtist>> artists,
+      Map<RangeEnum, List<ChartsAlbum>> albums) {
+      this.tracks = tracks;
+      this.artists = artists;
+      this.albums = albums;
+   }
+
+   /**
+    * Returns a copy of this dashboard whose maps and lists can't be modified, e.g. to share it between callers.
+    *
+    * @return the unmodifiable copy
+    */
+   public ChartDashboard unmodifiableCopy() {
+      return new ChartDashboard(unmodifiable(tracks), unmodifiable(artists), unmodifiable(albums));
+   }
+
+   private static <T> Map<RangeEnum, List<T>> unmodifiable(Map<RangeEnum, List<T>> charts) {
+      Map<RangeEnum, List<T>> copy = new EnumMap<>(RangeEnum.class);
+      for (Map.Entry<RangeEnum, List<T>> chart : charts.entrySet()) {
+         copy.put(chart.getKey(), Collections.unmodifiableList(chart.getValue()));
+      }
+      return Collections.unmodifiableMap(copy);
+   }
+}
@@ -0,0 +1,335 @@
+package com.github.kaiwinter.rhapsody.persistence.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.kaiwinter.rhapsody.persistence.AuthorizationStore;
+import com.github.kaiwinter.rhapsody.persistence.model.AuthorizationInfo;
+
+/**
+ * Stores the {@link AuthorizationInfo} of many users in a directory, for servers which run one
+ * {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper} per user. {@link #forUser(String)} returns the
+ * {@link AuthorizationStore} of a single user.
+ *
+ * <ul>
+ * <li>All entries are held in memory, loads never touch the disk.</li>
+ * <li>The users are spread over a fixed number of shard files, which are read in parallel on startup.</li>
+ * <li>Saves only update memory. Changed shards are written by a background thread after a short delay, so a burst of
+ * token refreshes results in one write per shard. A shard is written to a temporary file which atomically replaces the
+ * previous one, so a crash never leaves a partially written shard.</li>
+ * <li>The shard files contain the tokens, on file systems with POSIX permissions they are only readable by the
+ * owner.</li>
+ * </ul>
+ *
+ * <p>
+ * Changes of the last {@link #FLUSH_DELAY_MILLIS} may be lost if the JVM exits without calling {@link #close()}.
+ * </p>
+ */
+public final class FileAuthorizationStore implements Closeable {
+   private static final Logger LOGGER = LoggerFactory.getLogger(FileAuthorizationStore.class.getSimpleName());
+
+   /** Delay between the first unsaved change and the write of the changed shards. */
+   public static final long FLUSH_DELAY_MILLIS = 500;
+
+   private static final int DEFAULT_SHARDS = 16;
+   /** Version 2 added the shard count to the header. */
+   private static final int FORMAT_VERSION = 2;
+   private static final String FILE_PREFIX = "authorization-";
+   private static final String FILE_EXTENSION = ".bin";
+   private static final String TEMP_EXTENSION = ".tmp";
+
+   private final Shard[] shards;
+   private final ScheduledExecutorService flusher;
+   private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+   /**
+    * Opens the store in the given directory with the default number of shards.
+    *
+    * @param directory
+    *           the directory of the shard files, created if it doesn't exist
+    * @throws IOException
+    *            if the directory can't be created or a shard file can't be read
+    */
+   public FileAuthorizationStore(Path directory) throws IOException {
+      this(directory, DEFAULT_SHARDS);
+   }
+
+   /**
+    * Opens the store in the given directory. The number of shards must be the same each time the directory is opened.
+    *
+    * @param directory
+    *           the directory of the shard files, created if it doesn't exist
+    * @param shardCount
+    *           the number of shard files
+    * @throws IOException
+    *            if the directory can't be created, a shard file can't be read or was written with a different number
+    *            of shards
+    */
+   public FileAuthorizationStore(Path directory, int shardCount) throws IOException {
+      if (shardCount < 1) {
+         throw new IllegalArgumentException("Shard count must be positive");
+      }
+      Files.createDirectories(directory);
+      FileAttribute<?>[] attributes = new FileAttribute<?>[0];
+      if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+         attributes = new FileAttribute<?>[] {
+            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")) };
+      }
+      shards = new Shard[shardCount];
+      for (int i = 0; i < shardCount; i++) {
+         shards[i] = new Shard(directory.resolve(FILE_PREFIX + i + FILE_EXTENSION), shardCount, attributes);
+      }
+      try {
+         IntStream.range(0, shardCount).parallel().forEach(i -> shards[i].read());
+      } catch (UncheckedIOException e) {
+         throw e.getCause();
+      }
+
+      flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+         Thread thread = new Thread(runnable, "FileAuthorizationStore");
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+
+   /**
+    * Returns the {@link AuthorizationStore} of a user.
+    *
+    * @param userId
+    *           the ID which identifies the user in this store, e.g. the user name
+    * @return the {@link AuthorizationStore} of the user
+    */
+   public AuthorizationStore forUser(String userId) {
+      Shard shard = shardOf(userId);
+      return new AuthorizationStore() {
+
+         @Override
+         public AuthorizationInfo loadAuthorizationInfo() {
+            AuthorizationInfo stored = shard.entries.get(userId);
+            return stored == null ? new AuthorizationInfo() : copy(stored);
+         }
+
+         @Override
+         public void saveAuthorizationInfo(AuthorizationInfo authorizationInfo) {
+            shard.entries.put(userId, copy(authorizationInfo));
+            changed(shard);
+         }
+
+         @Override
+         public void clearAuthorization() {
+            if (shard.entries.remove(userId) != null) {
+               changed(shard);
+            }
+         }
+      };
+   }
+
+   /**
+    * Returns the number of users with stored authorization information.
+    *
+    * @return the number of users
+    */
+   public int size() {
+      int size = 0;
+      for (Shard shard : shards) {
+         size += shard.entries.size();
+      }
+      return size;
+   }
+
+   /**
+    * Writes all changed shards synchronously.
+    *
+    * @throws IOException
+    *            if a shard couldn't be written, the shard is written again by the next flush
+    */
+   public void flush() throws IOException {
+      IOException failure = null;
+      for (Shard shard : shards) {
+         try {
+            shard.write();
+         } catch (IOException e) {
+            if (failure == null) {
+               failure = e;
+            } else {
+               failure.addSuppressed(e);
+            }
+         }
+      }
+      if (failure != null) {
+         throw failure;
+      }
+   }
+
+   /**
+    * Stops the background writer and writes all changed shards.
+    *
+    * @throws IOException
+    *            if a shard couldn't be written
+    */
+   @Override
+   public void close() throws IOException {
+      flusher.shutdown();
+      flush();
+   }
+
+   private Shard shardOf(String userId) {
+      return shards[(userId.hashCode() & Integer.MAX_VALUE) % shards.length];
+   }
+
+   private void changed(Shard shard) {
+      shard.dirty.set(true);
+      if (flushScheduled.compareAndSet(false, true)) {
+         try {
+            flusher.schedule(this::backgroundFlush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+         } catch (RejectedExecutionException e) {
+            // Closed, the change is written by the next call of flush()
+            flushScheduled.set(false);
+         }
+      }
+   }
+
+   private void backgroundFlush() {
+      flushScheduled.set(false);
+      try {
+         flush();
+      } catch (IOException e) {
+         LOGGER.error("Error writing authorization store", e);
+         for (Shard shard : shards) {
+            if (shard.dirty.get()) {
+               changed(shard);
+               break;
+            }
+         }
+      }
+   }
+
+   private static AuthorizationInfo copy(AuthorizationInfo authorizationInfo) {
+      AuthorizationInfo copy = new AuthorizationInfo();
+      copy.accessToken = authorizationInfo.accessToken;
+      copy.refreshToken = authorizationInfo.refreshToken;
+      copy.catalog = authorizationInfo.catalog;
+      return copy;
+   }
+
+   /**
+    * The users of one shard file.
+    */
+   private static final class Shard {
+      private final Path file;
+      private final int shardCount;
+      private final FileAttribute<?>[] attributes;
+      private final Map<String, AuthorizationInfo> entries = new ConcurrentHashMap<>();
+      private final AtomicBoolean dirty = new AtomicBoolean();
+
+      Shard(Path file, int shardCount, FileAttribute<?>[] attributes) {
+         this.file = file;
+         this.shardCount = shardCount;
+         this.attributes = attributes;
+      }
+
+      void read() {
+         try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = input.readInt();
+            if (version == FORMAT_VERSION) {
+               int writtenShardCount = input.readInt();
+               if (writtenShardCount != shardCount) {
+                  throw new IOException(file + " was written with " + writtenShardCount + " shards instead of "
+                     + shardCount);
+               }
+            } else if (version != 1) {
+               // Version 1 has no shard count, it is added by the next write
+               throw new IOException("Unsupported format version " + version + " of " + file);
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+               String userId = input.readUTF();
+               AuthorizationInfo authorizationInfo = new AuthorizationInfo();
+               authorizationInfo.accessToken = readNullable(input);
+               authorizationInfo.refreshToken = readNullable(input);
+               authorizationInfo.catalog = readNullable(input);
+               entries.put(userId, authorizationInfo);
+            }
+         } catch (NoSuchFileException e) {
+            // Nothing stored yet
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      }
+
+      /**
+       * Writes the shard if it was changed. Changes which are made while the shard is written mark it dirty again.
+       */
+      synchronized void write() throws IOException {
+         if (!dirty.compareAndSet(true, false)) {
+            return;
+         }
+         Path temp = file.resolveSibling(file.getFileName() + TEMP_EXTENSION);
+         try {
+            // A leftover of a crash may have other permissions, the attributes only apply to a new file
+            Files.deleteIfExists(temp);
+            Set<StandardOpenOption> options = EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            try (FileChannel channel = FileChannel.open(temp, options, attributes)) {
+               OutputStream stream = Channels.newOutputStream(channel);
+               DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+               Map<String, AuthorizationInfo> snapshot = new HashMap<>(entries);
+               output.writeInt(FORMAT_VERSION);
+               output.writeInt(shardCount);
+               output.writeInt(snapshot.size());
+               for (Map.Entry<String, AuthorizationInfo> entry : snapshot.entrySet()) {
+                  output.writeUTF(entry.getKey());
+                  writeNullable(output, entry.getValue().accessToken);
+                  writeNullable(output, entry.getValue().refreshToken);
+                  writeNullable(output, entry.getValue().catalog);
+               }
+               output.flush();
+               channel.force(false);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+         } catch (IOException e) {
+            dirty.set(true);
+            throw e;
+         }
+      }
+
+      private static String readNullable(DataInputStream input) throws IOException {
+         return input.readBoolean() ? input.readUTF() : null;
+      }
+
+      private static void writeNullable(DataOutputStream output, String value) throws IOException {
+         output.writeBoolean(value != null);
+         if (value != null) {
+            output.writeUTF(value);
+         }
+      }
+   }
+}
@@ -18,9 +18,10 @@ public final class PreferencesAuthorizationStore implements AuthorizationStore {
    private static final String PROPERTY_REFRESH_TOKEN = "refresh_token";
    private static final String PROPERTY_CATALOG = "catalog";
 
+   private final Preferences preferences = Preferences.userNodeForPackage(PreferencesAuthorizationStore.class);
+
    @Override
    public AuthorizationInfo loadAuthorizationInfo() {
-      Preferences preferences = Preferences.userNodeForPackage(getClass());
       AuthorizationInfo authorizationInfo = new AuthorizationInfo();
       authorizationInfo.accessToken = preferences.get(PROPERTY_ACCESS_TOKEN, null);
       authorizationInfo.refreshToken = preferences.get(PROPERTY_REFRESH_TOKEN, null);
@@ -31,15 +32,13 @@ public final class PreferencesAuthorizationStore implements AuthorizationStore {
 
    @Override
    public void saveAuthorizationInfo(AuthorizationInfo authorizationInfo) {
-      Preferences userNodeForPackage = Preferences.userNodeForPackage(getClass());
-      userNodeForPackage.put(PROPERTY_ACCESS_TOKEN, authorizationInfo.accessToken);
-      userNodeForPackage.put(PROPERTY_REFRESH_TOKEN, authorizationInfo.refreshToken);
-      userNodeForPackage.put(PROPERTY_CATALOG, authorizationInfo.catalog);
+      preferences.put(PROPERTY_ACCESS_TOKEN, authorizationInfo.accessToken);
+      preferences.put(PROPERTY_REFRESH_TOKEN, authorizationInfo.refreshToken);
+      preferences.put(PROPERTY_CATALOG, authorizationInfo.catalog);
    }
 
    @Override
    public void clearAuthorization() {
-      Preferences preferences = Preferences.userNodeForPackage(getClass());
       preferences.remove(PROPERTY_ACCESS_TOKEN);
       preferences.remove(PROPERTY_REFRESH_TOKEN);
       preferences.remove(PROPERTY_CATALOG);
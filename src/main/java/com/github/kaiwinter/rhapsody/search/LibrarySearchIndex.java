@@ -0,0 +1,380 @@
+package com.github.kaiwinter.rhapsody.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.sync.LibrarySyncListener;
+
+/**
+ * In-memory typeahead index over albums, e.g. the member's library. Album names, artist names and tags are normalized
+ * by the {@link SearchNormalizer} and stored in a prefix trie. Each trie node holds its postings as a primitive
+ * <code>int</code> array, so a query walks the trie once per query token without touching the network or scanning the
+ * albums.
+ *
+ * <p>
+ * All query tokens must match (the last one typically being incomplete), every token as a prefix of a word. Results
+ * are ranked by the fields the tokens matched in: album name before artist name before tags. Albums can be added and
+ * removed at any time; the index is safe for concurrent use. Register the index as listener of a
+ * {@link com.github.kaiwinter.rhapsody.sync.LibrarySync} to keep it up to date with the library.
+ * </p>
+ */
+public final class LibrarySearchIndex implements LibrarySyncListener {
+
+   private static final int FIELD_NAME = 0;
+   private static final int FIELD_ARTIST = 1;
+   private static final int FIELD_TAG = 2;
+   private static final int[] FIELD_WEIGHTS = { 3, 2, 1 };
+   private static final int FIELD_BITS = 2;
+   private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+
+   private static final int[] EMPTY_POSTINGS = new int[0];
+   private static final char[] EMPTY_LABELS = new char[0];
+   private static final Node[] EMPTY_NODES = new Node[0];
+
+   /** Number of removed or replaced albums from which the trie is rebuilt if they are the majority. */
+   private static final int COMPACTION_THRESHOLD = 64;
+
+   /** Per-document counters of a query, reused by the queries of a thread. */
+   private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+   private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+   private Node root = new Node();
+   private AlbumData[] documents = new AlbumData[16];
+   private final Map<String, Integer> documentByAlbumId = new HashMap<>();
+   private final BitSet removed = new BitSet();
+   private int documentCount;
+   private int removedCount;
+
+   /**
+    * Adds all albums to the index.
+    *
+    * @param albums
+    *           the albums to add
+    * @see #add(AlbumData)
+    */
+   public void addAll(Collection<AlbumData> albums) {
+      lock.writeLock().lock();
+      try {
+         for (AlbumData album : albums) {
+            addInternal(album);
+         }
+         compactIfNeeded();
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Adds an album to the index. If an album with the same ID is already indexed it is replaced.
+    *
+    * @param album
+    *           the album to add
+    */
+   public void add(AlbumData album) {
+      lock.writeLock().lock();
+      try {
+         addInternal(album);
+         compactIfNeeded();
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Removes an album from the index.
+    *
+    * @param albumId
+    *           the ID of the album
+    * @return <code>true</code> if the album was indexed
+    */
+   public boolean remove(String albumId) {
+      lock.writeLock().lock();
+      try {
+         boolean wasIndexed = removeInternal(albumId);
+         compactIfNeeded();
+         return wasIndexed;
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   @Override
+   public void albumAdded(AlbumData album) {
+      add(album);
+   }
+
+   @Override
+   public void albumChanged(AlbumData album) {
+      add(album);
+   }
+
+   @Override
+   public void albumRemoved(String albumId) {
+      remove(albumId);
+   }
+
+   /**
+    * Returns the number of indexed albums.
+    *
+    * @return the number of albums
+    */
+   public int size() {
+      lock.readLock().lock();
+      try {
+         return documentByAlbumId.size();
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   /**
+    * Searches albums whose name, artist name or tags contain words starting with every token of the query.
+    *
+    * @param query
+    *           the query as typed by the user
+    * @param limit
+    *           the maximum number of results
+    * @return the matching albums, best matches first
+    */
+   public List<AlbumData> search(String query, int limit) {
+      List<String> tokens = SearchNormalizer.tokenize(query);
+      if (tokens.isEmpty() || limit <= 0) {
+         return Collections.emptyList();
+      }
+
+      lock.readLock().lock();
+      Scratch scratch = SCRATCH.get();
+      try {
+         scratch.ensureCapacity(documentCount);
+         for (int token = 1; token <= tokens.size(); token++) {
+            Node node = find(tokens.get(token - 1));
+            if (node == null) {
+               return Collections.emptyList();
+            }
+            collect(node, token, scratch);
+         }
+
+         // Sort key: descending score, then ascending document. Only documents matching the first token can match all.
+         long[] candidates = new long[scratch.touchedCount];
+         int candidateCount = 0;
+         for (int i = 0; i < scratch.touchedCount; i++) {
+            int document = scratch.touched[i];
+            if (scratch.matchedTokens[document] == tokens.size() && !removed.get(document)) {
+               candidates[candidateCount++] = ((long) -scratch.score[document] << 32) | document;
+            }
+         }
+         Arrays.sort(candidates, 0, candidateCount);
+
+         List<AlbumData> result = new ArrayList<>(Math.min(limit, candidateCount));
+         for (int i = 0; i < candidateCount && result.size() < limit; i++) {
+            result.add(documents[(int) candidates[i]]);
+         }
+         return result;
+      } finally {
+         scratch.clear();
+         lock.readLock().unlock();
+      }
+   }
+
+   private static void collect(Node node, int token, Scratch scratch) {
+      int[] matchedTokens = scratch.matchedTokens;
+      int[] bestWeight = scratch.bestWeight;
+      int[] score = scratch.score;
+      for (int i = 0; i < node.postingCount; i++) {
+         int posting = node.postings[i];
+         int document = posting >>> FIELD_BITS;
+         int weight = FIELD_WEIGHTS[posting & FIELD_MASK];
+         if (matchedTokens[document] == token - 1) {
+            // First match of this token
+            if (token == 1) {
+               scratch.touch(document);
+            }
+            matchedTokens[document] = token;
+            bestWeight[document] = weight;
+            score[document] += weight;
+         } else if (matchedTokens[document] == token && weight > bestWeight[document]) {
+            score[document] += weight - bestWeight[document];
+            bestWeight[document] = weight;
+         }
+      }
+      for (int i = 0; i < node.childCount; i++) {
+         collect(node.children[i], token, scratch);
+      }
+   }
+
+   private Node find(String prefix) {
+      Node node = root;
+      for (int i = 0; i < prefix.length() && node != null; i++) {
+         node = node.child(prefix.charAt(i));
+      }
+      return node;
+   }
+
+   private void addInternal(AlbumData album) {
+      removeInternal(album.id);
+
+      int document = documentCount++;
+      if (document == documents.length) {
+         documents = Arrays.copyOf(documents, documents.length * 2);
+      }
+      documents[document] = album;
+      documentByAlbumId.put(album.id, document);
+
+      index(album.name, document, FIELD_NAME);
+      if (album.artist != null) {
+         index(album.artist.name, document, FIELD_ARTIST);
+      }
+      if (album.tags != null) {
+         for (String tag : album.tags) {
+            index(tag, document, FIELD_TAG);
+         }
+      }
+   }
+
+   private boolean removeInternal(String albumId) {
+      Integer document = documentByAlbumId.remove(albumId);
+      if (document == null) {
+         return false;
+      }
+      removed.set(document);
+      documents[document] = null;
+      removedCount++;
+      return true;
+   }
+
+   private void index(String text, int document, int field) {
+      int posting = document << FIELD_BITS | field;
+      for (String token : SearchNormalizer.tokenize(text)) {
+         Node node = root;
+         for (int i = 0; i < token.length(); i++) {
+            node = node.getOrAddChild(token.charAt(i));
+         }
+         node.addPosting(posting);
+      }
+   }
+
+   /**
+    * Compacts the index if most documents were removed, also by replacing their album, so the trie doesn't grow with
+    * every update of an album.
+    */
+   private void compactIfNeeded() {
+      if (removedCount > COMPACTION_THRESHOLD && removedCount > documentCount / 2) {
+         compact();
+      }
+   }
+
+   /**
+    * Rebuilds the trie without the removed documents.
+    */
+   private void compact() {
+      List<AlbumData> albums = new ArrayList<>(documentByAlbumId.size());
+      for (int document = 0; document < documentCount; document++) {
+         if (!removed.get(document)) {
+            albums.add(documents[document]);
+         }
+      }
+      root = new Node();
+      documents = new AlbumData[Math.max(16, albums.size())];
+      documentByAlbumId.clear();
+      removed.clear();
+      documentCount = 0;
+      removedCount = 0;
+      for (AlbumData album : albums) {
+         addInternal(album);
+      }
+   }
+
+   /**
+    * Per-document counters of a query. Only the documents which matched the first token are touched, they are reset
+    * after the query.
+    */
+   private static final class Scratch {
+      private int[] matchedTokens = EMPTY_POSTINGS;
+      private int[] bestWeight = EMPTY_POSTINGS;
+      private int[] score = EMPTY_POSTINGS;
+      private int[] touched = EMPTY_POSTINGS;
+      private int touchedCount;
+
+      void ensureCapacity(int documentCount) {
+         if (matchedTokens.length < documentCount) {
+            int capacity = Math.max(documentCount, matchedTokens.length * 2);
+            matchedTokens = new int[capacity];
+            bestWeight = new int[capacity];
+            score = new int[capacity];
+         }
+      }
+
+      void touch(int document) {
+         if (touchedCount == touched.length) {
+            touched = Arrays.copyOf(touched, Math.max(16, touchedCount * 2));
+         }
+         touched[touchedCount++] = document;
+      }
+
+      void clear() {
+         for (int i = 0; i < touchedCount; i++) {
+            int document = touched[i];
+            matchedTokens[document] = 0;
+            bestWeight[document] = 0;
+            score[document] = 0;
+         }
+         touchedCount = 0;
+      }
+   }
+
+   /**
+    * Trie node. Children are kept sorted by their label and found by binary search.
+    */
+   private static final class Node {
+      private char[] labels = EMPTY_LABELS;
+      private Node[] children = EMPTY_NODES;
+      private int childCount;
+      private int[] postings = EMPTY_POSTINGS;
+      private int postingCount;
+
+      Node child(char label) {
+         int index = Arrays.binarySearch(labels, 0, childCount, label);
+         return index < 0 ? null : children[index];
+      }
+
+      Node getOrAddChild(char label) {
+         int index = Arrays.binarySearch(labels, 0, childCount, label);
+         if (index >= 0) {
+            return children[index];
+         }
+         int insertion = -index - 1;
+         if (childCount == labels.length) {
+            int capacity = Math.max(2, childCount * 2);
+            labels = Arrays.copyOf(labels, capacity);
+            children = Arrays.copyOf(children, capacity);
+         }
+         System.arraycopy(labels, insertion, labels, insertion + 1, childCount - insertion);
+         System.arraycopy(children, insertion, children, insertion + 1, childCount - insertion);
+         Node child = new Node();
+         labels[insertion] = label;
+         children[insertion] = child;
+         childCount++;
+         return child;
+      }
+
+      void addPosting(int posting) {
+         if (postingCount > 0 && postings[postingCount - 1] == posting) {
+            return;
+         }
+         if (postingCount == postings.length) {
+            postings = Arrays.copyOf(postings, Math.max(2, postingCount * 2));
+         }
+         postings[postingCount++] = posting;
+      }
+   }
+}
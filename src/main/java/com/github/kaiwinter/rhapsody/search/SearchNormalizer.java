@@ -0,0 +1,52 @@
+package com.github.kaiwinter.rhapsody.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes text for searching: diacritics are removed, everything is lower-cased and split into tokens at every
+ * character which is neither a letter nor a digit. So "Beyoncé - Lemonade" becomes <code>[beyonce, lemonade]</code>.
+ */
+public final class SearchNormalizer {
+
+   private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+   private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+   private SearchNormalizer() {
+   }
+
+   /**
+    * Normalizes the text without splitting it.
+    *
+    * @param text
+    *           the text, may be <code>null</code>
+    * @return the normalized tokens joined by a single space, an empty string for <code>null</code>
+    */
+   public static String normalize(String text) {
+      return String.join(" ", tokenize(text));
+   }
+
+   /**
+    * Normalizes the text and splits it into tokens.
+    *
+    * @param text
+    *           the text, may be <code>null</code>
+    * @return the tokens, empty for <code>null</code> or a text without letters and digits
+    */
+   public static List<String> tokenize(String text) {
+      List<String> tokens = new ArrayList<>();
+      if (text == null) {
+         return tokens;
+      }
+      String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+      for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+         if (!token.isEmpty()) {
+            tokens.add(token);
+         }
+      }
+      return tokens;
+   }
+}
@@ -0,0 +1,258 @@
+package com.github.kaiwinter.rhapsody.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.github.kaiwinter.rhapsody.api.Cancellable;
+import com.github.kaiwinter.rhapsody.api.RhapsodyCallback;
+import com.github.kaiwinter.rhapsody.dispatch.CallHandle;
+
+/**
+ * Searches as the user types into one input field. A query is sent when the input didn't change for the debounce
+ * time, and a query which is superseded by a newer one is cancelled, its callback is not called.
+ *
+ * <p>
+ * Results are cached by the query normalized by the {@link SearchNormalizer}, so "Beyoncé" and "beyonce " share an
+ * entry. A result is complete, it contains every match of its query, if it has fewer entries than the limit and than
+ * the largest result the server returned, as the server may return fewer results than requested. A narrower query
+ * which extends the query of a complete result, e.g. "beyonce le" after "beyonce", is answered from that result
+ * without a request, keeping the entries whose text contains words starting with every token of the narrower query.
+ * This assumes the server matches tokens as word prefixes as well, like the {@link LibrarySearchIndex}.
+ * </p>
+ *
+ * @param <T>
+ *           the type of the results
+ */
+public final class TypeaheadSearch<T> {
+
+   private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "TypeaheadSearch");
+      thread.setDaemon(true);
+      return thread;
+   });
+
+   /**
+    * Sends a search request.
+    *
+    * @param <T>
+    *           the type of the results
+    */
+   public interface Backend<T> {
+
+      /**
+       * Sends the request of a query.
+       *
+       * @param query
+       *           the normalized query
+       * @param limit
+       *           the maximum number of results
+       * @param callback
+       *           receives the results, best matches first
+       * @return the handle to cancel the request
+       */
+      Cancellable search(String query, int limit, RhapsodyCallback<Collection<T>> callback);
+   }
+
+   private final Backend<T> backend;
+   private final Function<T, String> searchableText;
+   private final int limit;
+   private final long debounceNanos;
+   private final Map<String, List<T>> cache;
+
+   /** The number of entries of the largest result, at least the maximum number of results the server returns. */
+   private int largestResult;
+
+   private final AtomicLong requests = new AtomicLong();
+   private final AtomicLong cacheHits = new AtomicLong();
+   private final AtomicLong refinements = new AtomicLong();
+
+   private CallHandle current;
+
+   /**
+    * Constructs a new {@link TypeaheadSearch}.
+    *
+    * @param backend
+    *           sends the search requests
+    * @param searchableText
+    *           returns the text a result is matched by when it is refined locally, e.g. the album and the artist name
+    * @param limit
+    *           the maximum number of results of a query
+    * @param debounce
+    *           the time the input must not change before a query is sent
+    * @param unit
+    *           the unit of <code>debounce</code>
+    * @param maxCachedQueries
+    *           the maximum number of cached results, the least recently used are removed first
+    */
+   public TypeaheadSearch(Backend<T> backend, Function<T, String> searchableText, int limit, long debounce,
+      TimeUnit unit, int maxCachedQueries) {
+      this.backend = backend;
+      this.searchableText = searchableText;
+      this.limit = limit;
+      this.debounceNanos = unit.toNanos(debounce);
+      this.cache = new LinkedHashMap<String, List<T>>(16, 0.75f, true) {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<String, List<T>> eldest) {
+            return size() > maxCachedQueries;
+         }
+      };
+   }
+
+   /**
+    * Searches the current input. The previous query is cancelled. A cached or locally refined result is passed to the
+    * callback before this method returns, otherwise the request is sent after the debounce time.
+    *
+    * @param input
+    *           the input as typed by the user
+    * @param callback
+    *           receives the results, is not called if the query is superseded or cancelled
+    * @return the handle to cancel the query
+    */
+   public Cancellable search(String input, RhapsodyCallback<List<T>> callback) {
+      String query = SearchNormalizer.normalize(input);
+      CallHandle handle = new CallHandle();
+      CallHandle previous;
+      List<T> cached;
+      synchronized (this) {
+         previous = current;
+         current = handle;
+         cached = cached(query);
+      }
+      if (previous != null) {
+         previous.cancel();
+      }
+      if (cached != null) {
+         callback.onSuccess(cached);
+         return handle;
+      }
+
+      ScheduledFuture<?> timeout = TIMER.schedule(() -> send(query, handle, callback), debounceNanos,
+         TimeUnit.NANOSECONDS);
+      handle.addCancelAction(() -> timeout.cancel(false));
+      return handle;
+   }
+
+   /**
+    * Returns the number of search requests which were sent.
+    *
+    * @return the number of requests
+    */
+   public long getRequests() {
+      return requests.get();
+   }
+
+   /**
+    * Returns the number of queries which were answered by a cached result of the same query.
+    *
+    * @return the number of cache hits
+    */
+   public long getCacheHits() {
+      return cacheHits.get();
+   }
+
+   /**
+    * Returns the number of queries which were answered by refining the complete result of a broader query.
+    *
+    * @return the number of local refinements
+    */
+   public long getRefinements() {
+      return refinements.get();
+   }
+
+   /**
+    * Returns the cached result of a query or refines the complete result of a broader query.
+    *
+    * @return the result, <code>null</code> if a request is needed
+    */
+   private List<T> cached(String query) {
+      if (query.isEmpty()) {
+         return Collections.emptyList();
+      }
+      List<T> result = cache.get(query);
+      if (result != null) {
+         cacheHits.incrementAndGet();
+         return result;
+      }
+      // a smaller result than the server ever returned can't have been truncated
+      int completeBelow = Math.min(limit, largestResult);
+      String broader = null;
+      for (Map.Entry<String, List<T>> entry : cache.entrySet()) {
+         String key = entry.getKey();
+         if (entry.getValue().size() < completeBelow && query.startsWith(key)
+            && (broader == null || key.length() > broader.length())) {
+            broader = key;
+         }
+      }
+      if (broader == null) {
+         return null;
+      }
+      List<String> tokens = SearchNormalizer.tokenize(query);
+      result = new ArrayList<>();
+      for (T candidate : cache.get(broader)) {
+         if (matches(tokens, SearchNormalizer.tokenize(searchableText.apply(candidate)))) {
+            result.add(candidate);
+         }
+      }
+      result = Collections.unmodifiableList(result);
+      cache.put(query, result);
+      refinements.incrementAndGet();
+      return result;
+   }
+
+   private static boolean matches(List<String> queryTokens, List<String> words) {
+      for (String token : queryTokens) {
+         boolean found = false;
+         for (String word : words) {
+            if (word.startsWith(token)) {
+               found = true;
+               break;
+            }
+         }
+         if (!found) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private void send(String query, CallHandle handle, RhapsodyCallback<List<T>> callback) {
+      if (handle.isCancelled()) {
+         return;
+      }
+      requests.incrementAndGet();
+      Cancellable request = backend.search(query, limit, new RhapsodyCallback<Collection<T>>() {
+
+         @Override
+         public void onSuccess(Collection<T> data) {
+            List<T> result = Collections.unmodifiableList(new ArrayList<>(data));
+            synchronized (TypeaheadSearch.this) {
+               cache.put(query, result);
+               largestResult = Math.max(largestResult, result.size());
+            }
+            if (!handle.isCancelled()) {
+               callback.onSuccess(result);
+            }
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            if (!handle.isCancelled()) {
+               callback.onFailure(httpCode, message);
+            }
+         }
+      });
+      handle.addCancelAction(request::cancel);
+   }
+}
@@ -54,6 +54,53 @@ public interface ChartService {
       @Query("range") RangeEnum range, //
       Callback<List<ChartsTrack>> callBack);
 
+   /**
+    * Returns a list of most played tracks, ordered by play count, updated daily. Defaults to limit of 20.
+    *
+    * @param authorization
+    *           the access token
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param limit
+    *           the number of releases which are loaded, if <code>null</code> the servers default value is used
+    * @param offset
+    *           the index of the first entry to load, if <code>null</code> the first entry is the first one
+    * @param range
+    *           the period to consider for the charts
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/me/charts/tracks")
+   void loadTopPlayedTracks( //
+      @Header("Authorization") String authorization, //
+      @Query("pretty") boolean pretty, //
+      @Query("limit") Integer limit, //
+      @Query("offset") Integer offset, //
+      @Query("range") RangeEnum range, //
+      Callback<List<ChartsTrack>> callBack);
+
+   /**
+    * Returns a list of most played artists, ordered by play count, updated daily. Defaults to limit of 20.
+    * 
+    * @param authorization
+    *           the access token
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param limit
+    *           the number of releases which are loaded, if <code>null</code> the servers default value is used
+    * @param range
+    *           the period to consider for the charts
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/me/charts/artists")
+   void loadTopPlayedArtists( //
+      @Header("Authorization") String authorization, //
+      @Query("pretty") boolean pretty, //
+      @Query("limit") Integer limit, //
+      @Query("range") RangeEnum range, //
+      Callback<List<ChartsArtist>> callBack);
+
    /**
     * Returns a list of most played artists, ordered by play count, updated daily. Defaults to limit of 20.
     * 
@@ -63,6 +110,8 @@ public interface ChartService {
     *           if <code>true</code> pretty prints the JSON
     * @param limit
     *           the number of releases which are loaded, if <code>null</code> the servers default value is used
+    * @param offset
+    *           the index of the first entry to load, if <code>null</code> the first entry is the first one
     * @param range
     *           the period to consider for the charts
     * @param callBack
@@ -73,6 +122,7 @@ public interface ChartService {
       @Header("Authorization") String authorization, //
       @Query("pretty") boolean pretty, //
       @Query("limit") Integer limit, //
+      @Query("offset") Integer offset, //
       @Query("range") RangeEnum range, //
       Callback<List<ChartsArtist>> callBack);
 
@@ -97,4 +147,29 @@ public interface ChartService {
       @Query("limit") Integer limit, //
       @Query("range") RangeEnum range, //
       Callback<List<ChartsAlbum>> callBack);
+
+   /**
+    * Returns a list of most played albums, ordered by play count, updated daily. Defaults to limit of 20.
+    * 
+    * @param authorization
+    *           the access token
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param limit
+    *           the number of releases which are loaded, if <code>null</code> the servers default value is used
+    * @param offset
+    *           the index of the first entry to load, if <code>null</code> the first entry is the first one
+    * @param range
+    *           the period to consider for the charts
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/me/charts/albums")
+   void loadTopPlayedAlbums( //
+      @Header("Authorization") String authorization, //
+      @Query("pretty") boolean pretty, //
+      @Query("limit") Integer limit, //
+      @Query("offset") Integer offset, //
+      @Query("range") RangeEnum range, //
+      Callback<List<ChartsAlbum>> callBack);
 }
@@ -42,6 +42,29 @@ public interface LibraryService {
       @Query("limit") Integer limit, //
       Callback<Collection<Artist>> callBack);
 
+   /**
+    * Returns a list of all artists in the user's library. Accepts optional parameters limit and offset to select a
+    * range of results.
+    *
+    * @param authorization
+    *           the access token
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param limit
+    *           the number of releases which are loaded, if <code>null</code> the servers default value is used
+    * @param offset
+    *           the index of the first entry to load, if <code>null</code> the first entry is the first one
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/me/library/artists")
+   void loadAllArtistsInLibrary( //
+      @Header("Authorization") String authorization, //
+      @Query("pretty") boolean pretty, //
+      @Query("limit") Integer limit, //
+      @Query("offset") Integer offset, //
+      Callback<Collection<Artist>> callBack);
+
    /**
     * Returns a list of albums in a member’s library by the artist. Accepts optional parameters limit and offset to
     * select a range of results.
@@ -65,6 +88,52 @@ public interface LibraryService {
       @Query("limit") Integer limit, //
       Callback<Collection<AlbumData>> callBack);
 
+   /**
+    * Returns a list of albums in a member’s library by the artist. Accepts optional parameters limit and offset to
+    * select a range of results.
+    *
+    * @param authorization
+    *           the access token
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param artistId
+    *           the ID of the artist to load
+    * @param limit
+    *           the number of releases which are loaded, if <code>null</code> the servers default value is used
+    * @param offset
+    *           the index of the first entry to load, if <code>null</code> the first entry is the first one
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/me/library/artists/{artistId}/albums")
+   void loadAllAlbumsByArtistInLibrary( //
+      @Header("Authorization") String authorization, //
+      @Query("pretty") boolean pretty, //
+      @Path("artistId") String artistId, //
+      @Query("limit") Integer limit, //
+      @Query("offset") Integer offset, //
+      Callback<Collection<AlbumData>> callBack);
+
+   /**
+    * Returns a list of albums in a member’s library. Accepts optional parameters limit and offset to select a range of
+    * results.
+    * 
+    * @param authorization
+    *           the access token
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param limit
+    *           the number of releases which are loaded, if <code>null</code> the servers default value is used
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/me/library/albums")
+   void loadAllAlbumsInLibrary( //
+      @Header("Authorization") String authorization, //
+      @Query("pretty") boolean pretty, //
+      @Query("limit") Integer limit, //
+      Callback<Collection<AlbumData>> callBack);
+
    /**
     * Returns a list of albums in a member’s library. Accepts optional parameters limit and offset to select a range of
     * results.
@@ -75,6 +144,8 @@ public interface LibraryService {
     *           if <code>true</code> pretty prints the JSON
     * @param limit
     *           the number of releases which are loaded, if <code>null</code> the servers default value is used
+    * @param offset
+    *           the index of the first entry to load, if <code>null</code> the first entry is the first one
     * @param callBack
     *           callback to which the result is passed
     */
@@ -83,6 +154,7 @@ public interface LibraryService {
       @Header("Authorization") String authorization, //
       @Query("pretty") boolean pretty, //
       @Query("limit") Integer limit, //
+      @Query("offset") Integer offset, //
       Callback<Collection<AlbumData>> callBack);
 
    /**
@@ -93,7 +165,7 @@ public interface LibraryService {
     * @param catalog
     *           countries' catalog (two-letter country code, which is case-sensitive)
     * @param albumId
-    *           the ID of the album to add
+    *           the ID of the album to add, or the comma separated IDs of several albums
     * @param callBack
     *           doesn't return any data except the HTTP Response
     */
@@ -39,6 +39,28 @@ public interface AlbumService {
       @Path("albumId") String albumId, //
       Callback<AlbumData> callBack);
 
+   /**
+    * Asynchronously returns detailed information about several albums by a single request.
+    *
+    * @param apikey
+    *           the API key
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param catalog
+    *           countries' catalog (two-letter country code, which is case-sensitive)
+    * @param albumIds
+    *           the comma separated IDs of the albums to load
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/albums/{albumIds}")
+   void getAlbums( //
+      @Query("apikey") String apikey, //
+      @Query("pretty") boolean pretty, //
+      @Query("catalog") String catalog, //
+      @Path(value = "albumIds", encode = false) String albumIds, //
+      Callback<Collection<AlbumData>> callBack);
+
    /**
     * Returns a list of new releases, curated by Rhapsody. This list can be personalized for the user by passing the
     * <code>userId</code>. The personalization is made by Rhapsody based upon recent listening history.
@@ -40,6 +40,28 @@ public interface ArtistService {
       @Path("artistId") String artistId, //
       Callback<ArtistData> callBack);
 
+   /**
+    * Asynchronously returns the names, IDs and primary genres of several artists by a single request.
+    *
+    * @param apikey
+    *           the API key
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param catalog
+    *           countries' catalog (two-letter country code, which is case-sensitive)
+    * @param artistIds
+    *           the comma separated IDs of the artists to load
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/artists/{artistIds}")
+   void getArtists( //
+      @Query("apikey") String apikey, //
+      @Query("pretty") boolean pretty, //
+      @Query("catalog") String catalog, //
+      @Path(value = "artistIds", encode = false) String artistIds, //
+      Callback<Collection<ArtistData>> callBack);
+
    /**
     * Synchronously returns a given artist's name, ID and primary genre.
     * 
@@ -60,4 +60,32 @@ public interface GenreService {
       @Path("genreId") String genreId, //
       @Query("limit") Integer limit, //
       Callback<Collection<AlbumData>> callBack);
+
+   /**
+    * Returns a list of all new releases by genre.
+    * 
+    * @param apikey
+    *           the API key
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param catalog
+    *           countries' catalog (two-letter country code, which is case-sensitive)
+    * @param genreId
+    *           the ID of the genre to load new releases
+    * @param limit
+    *           the number of releases which are loaded, if <code>null</code> the servers default value is used
+    * @param offset
+    *           the index of the first entry to load, if <code>null</code> the first entry is the first one
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/genres/{genreId}/albums/new")
+   void getNewReleases( //
+      @Query("apikey") String apikey, //
+      @Query("pretty") boolean pretty, //
+      @Query("catalog") String catalog, //
+      @Path("genreId") String genreId, //
+      @Query("limit") Integer limit, //
+      @Query("offset") Integer offset, //
+      Callback<Collection<AlbumData>> callBack);
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.github.kaiwinter.rhapsody.service.metadata;
+
+import java.util.Collection;
+
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.model.ArtistData;
+
+import retrofit.Callback;
+import retrofit.http.GET;
+import retrofit.http.Query;
+
+/**
+ * Wrapper of the Search REST API.
+ *
+ * @see <a href="https://developer.rhapsody.com/api#search">https://developer.rhapsody.com/api#search</a>
+ */
+public interface SearchService {
+
+   /**
+    * Asynchronously returns the albums which match a query, best matches first.
+    *
+    * @param apikey
+    *           the API key
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param catalog
+    *           countries' catalog (two-letter country code, which is case-sensitive)
+    * @param query
+    *           the search query
+    * @param limit
+    *           the maximum number of albums, if <code>null</code> the servers default value is used
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/search?type=album")
+   void searchAlbums( //
+      @Query("apikey") String apikey, //
+      @Query("pretty") boolean pretty, //
+      @Query("catalog") String catalog, //
+      @Query("q") String query, //
+      @Query("limit") Integer limit, //
+      Callback<Collection<AlbumData>> callBack);
+
+   /**
+    * Asynchronously returns the artists which match a query, best matches first.
+    *
+    * @param apikey
+    *           the API key
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param catalog
+    *           countries' catalog (two-letter country code, which is case-sensitive)
+    * @param query
+    *           the search query
+    * @param limit
+    *           the maximum number of artists, if <code>null</code> the servers default value is used
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/search?type=artist")
+   void searchArtists( //
+      @Query("apikey") String apikey, //
+      @Query("pretty") boolean pretty, //
+      @Query("catalog") String catalog, //
+      @Query("q") String query, //
+      @Query("limit") Integer limit, //
+      Callback<Collection<ArtistData>> callBack);
+}
@@ -0,0 +1,62 @@
+package com.github.kaiwinter.rhapsody.service.metadata;
+
+import java.util.Collection;
+
+import com.github.kaiwinter.rhapsody.model.AlbumData.Track;
+
+import retrofit.Callback;
+import retrofit.http.GET;
+import retrofit.http.Path;
+import retrofit.http.Query;
+
+/**
+ * Wrapper of the Track REST API.
+ *
+ * @see <a href="https://developer.rhapsody.com/api#tracks">https://developer.rhapsody.com/api#tracks</a>
+ */
+public interface TrackService {
+
+   /**
+    * Asynchronously returns detailed information about a given track.
+    *
+    * @param apikey
+    *           the API key
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param catalog
+    *           countries' catalog (two-letter country code, which is case-sensitive)
+    * @param trackId
+    *           the ID of the track to load
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/tracks/{trackId}")
+   void getTrack( //
+      @Query("apikey") String apikey, //
+      @Query("pretty") boolean pretty, //
+      @Query("catalog") String catalog, //
+      @Path("trackId") String trackId, //
+      Callback<Track> callBack);
+
+   /**
+    * Asynchronously returns detailed information about several tracks by a single request.
+    *
+    * @param apikey
+    *           the API key
+    * @param pretty
+    *           if <code>true</code> pretty prints the JSON
+    * @param catalog
+    *           countries' catalog (two-letter country code, which is case-sensitive)
+    * @param trackIds
+    *           the comma separated IDs of the tracks to load
+    * @param callBack
+    *           callback to which the result is passed
+    */
+   @GET("/v1/tracks/{trackIds}")
+   void getTracks( //
+      @Query("apikey") String apikey, //
+      @Query("pretty") boolean pretty, //
+      @Query("catalog") String catalog, //
+      @Path(value = "trackIds", encode = false) String trackIds, //
+      Callback<Collection<Track>> callBack);
+}
@@ -0,0 +1,79 @@
+package com.github.kaiwinter.rhapsody.sync;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The differences between two {@link LibrarySnapshot}s.
+ */
+public final class LibraryDiff {
+
+   final List<String> addedAlbums = new ArrayList<>();
+   final List<String> removedAlbums = new ArrayList<>();
+   final List<String> changedAlbums = new ArrayList<>();
+   final List<String> addedArtists = new ArrayList<>();
+   final List<String> removedArtists = new ArrayList<>();
+
+   /**
+    * Returns the IDs of albums which were added to the library.
+    *
+    * @return the album IDs
+    */
+   public List<String> getAddedAlbums() {
+      return Collections.unmodifiableList(addedAlbums);
+   }
+
+   /**
+    * Returns the IDs of albums which were removed from the library.
+    *
+    * @return the album IDs
+    */
+   public List<String> getRemovedAlbums() {
+      return Collections.unmodifiableList(removedAlbums);
+   }
+
+   /**
+    * Returns the IDs of albums whose content changed.
+    *
+    * @return the album IDs
+    */
+   public List<String> getChangedAlbums() {
+      return Collections.unmodifiableList(changedAlbums);
+   }
+
+   /**
+    * Returns the IDs of artists which were added to the library.
+    *
+    * @return the artist IDs
+    */
+   public List<String> getAddedArtists() {
+      return Collections.unmodifiableList(addedArtists);
+   }
+
+   /**
+    * Returns the IDs of artists which were removed from the library.
+    *
+    * @return the artist IDs
+    */
+   public List<String> getRemovedArtists() {
+      return Collections.unmodifiableList(removedArtists);
+   }
+
+   /**
+    * Returns if there are no differences.
+    *
+    * @return <code>true</code> if nothing changed
+    */
+   public boolean isEmpty() {
+      return addedAlbums.isEmpty() && removedAlbums.isEmpty() && changedAlbums.isEmpty() && addedArtists.isEmpty()
+         && removedArtists.isEmpty();
+   }
+
+   @Override
+   public String toString() {
+      return "LibraryDiff [addedAlbums=" + addedAlbums.size() + ", removedAlbums=" + removedAlbums.size()
+         + ", changedAlbums=" + changedAlbums.size() + ", addedArtists=" + addedArtists.size() + ", removedArtists="
+         + removedArtists.size() + "]";
+   }
+}
@@ -0,0 +1,501 @@
+package com.github.kaiwinter.rhapsody.sync;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.kaiwinter.rhapsody.api.BulkMutationResult;
+import com.github.kaiwinter.rhapsody.api.BulkMutationResult.Failure;
+import com.github.kaiwinter.rhapsody.api.RhapsodyCallback;
+import com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper;
+import com.github.kaiwinter.rhapsody.dispatch.PriorityScope;
+import com.github.kaiwinter.rhapsody.dispatch.RequestPriority;
+
+/**
+ * A durable log of library mutations, so adding and removing albums works while the network is unreliable. A mutation
+ * is written to the log file and shown in the {@link LocalLibraryView}s immediately; {@link #replay(RhapsodySdkWrapper,
+ * RhapsodyCallback)} sends the pending mutations to the server by bulk requests, e.g. when the connectivity returns.
+ *
+ * <ul>
+ * <li>Mutations of an album which weren't sent yet are coalesced: adding and removing it cancels out, adding it twice
+ * is one addition. So toggling an album back and forth costs at most one request. If an older mutation of the album
+ * was sent but not acknowledged, cancelling out falls back to that one, as its request may still fail.</li>
+ * <li>Before a mutation is sent this is written to the log, and it is acknowledged after the server answered. A
+ * mutation which was sent but not acknowledged, e.g. because the app was killed, is sent again by the next replay. This
+ * is safe as adding and removing an album is idempotent: an addition answered by 409 and a removal answered by 404
+ * count as applied.</li>
+ * <li>Only a mutation which the server rejected (HTTP 400, 404, 409 or 422) is removed from the log and reverted in
+ * the views. A mutation which fails otherwise, e.g. by a connection error, HTTP 429 or 5xx, or HTTP 401 or 403 of an
+ * expired token, stays in the log.</li>
+ * </ul>
+ *
+ * <p>
+ * The log file is append-only and compacted when it is opened and when most of its records are obsolete.
+ * </p>
+ */
+public final class LibraryMutationLog implements Closeable {
+   private static final Logger LOGGER = LoggerFactory.getLogger(LibraryMutationLog.class.getSimpleName());
+
+   private static final int FORMAT_VERSION = 1;
+   private static final int ADD = 1;
+   private static final int REMOVE = 2;
+   private static final int SENT = 3;
+   private static final int ACK = 4;
+
+   /** Number of records from which the log is compacted if most of them are obsolete. */
+   private static final int COMPACTION_THRESHOLD = 1024;
+
+   private static final String TEMP_EXTENSION = ".tmp";
+
+   private final Path file;
+   private final Map<String, Mutation> pending = new LinkedHashMap<>();
+   private final List<LocalLibraryView> views = new CopyOnWriteArrayList<>();
+   private final AtomicBoolean replaying = new AtomicBoolean();
+
+   private FileChannel channel;
+   private long nextId = 1;
+   private int records;
+
+   /**
+    * Opens the log, the mutations which were pending when it was closed are pending again.
+    *
+    * @param file
+    *           the log file, created if it doesn't exist
+    * @throws IOException
+    *            if the file can't be read or written
+    */
+   public LibraryMutationLog(Path file) throws IOException {
+      this.file = file;
+      read();
+      compact();
+   }
+
+   /**
+    * Adds a view which is updated by the mutations. The pending mutations are applied to it immediately.
+    *
+    * @param view
+    *           the {@link LocalLibraryView}
+    */
+   public void addView(LocalLibraryView view) {
+      List<Mutation> current;
+      synchronized (this) {
+         current = new ArrayList<>(pending.values());
+      }
+      views.add(view);
+      for (Mutation mutation : current) {
+         notifyViews(Collections.singletonList(view), mutation.albumId, mutation.add);
+      }
+   }
+
+   /**
+    * Records the addition of an album to the library.
+    *
+    * @param albumId
+    *           the ID of the album
+    * @throws IOException
+    *            if the mutation can't be written to the log
+    */
+   public void addAlbum(String albumId) throws IOException {
+      if (record(ADD, albumId)) {
+         notifyViews(views, albumId, true);
+      }
+   }
+
+   /**
+    * Records the removal of an album from the library.
+    *
+    * @param albumId
+    *           the ID of the album
+    * @throws IOException
+    *            if the mutation can't be written to the log
+    */
+   public void removeAlbum(String albumId) throws IOException {
+      if (record(REMOVE, albumId)) {
+         notifyViews(views, albumId, false);
+      }
+   }
+
+   /**
+    * Returns the pending mutation of an album.
+    *
+    * @param albumId
+    *           the ID of the album
+    * @return {@link Boolean#TRUE} for a pending addition, {@link Boolean#FALSE} for a pending removal,
+    *         <code>null</code> if no mutation of the album is pending
+    */
+   public synchronized Boolean getPendingState(String albumId) {
+      Mutation mutation = pending.get(albumId);
+      return mutation == null ? null : mutation.add;
+   }
+
+   /**
+    * Returns the number of pending mutations.
+    *
+    * @return the number of albums with a pending mutation
+    */
+   public synchronized int getPendingCount() {
+      return pending.size();
+   }
+
+   /**
+    * Sends all pending mutations to the server. Only one replay may run at a time. The requests are made with
+    * {@link RequestPriority#BACKGROUND}. Mutations which are recorded during the replay are sent by the next one.
+    *
+    * @param wrapper
+    *           the wrapper which sends the requests
+    * @param callback
+    *           receives the result after all mutations were sent, or the error if the log couldn't be written
+    */
+   public void replay(RhapsodySdkWrapper wrapper, RhapsodyCallback<MutationReplayResult> callback) {
+      if (!replaying.compareAndSet(false, true)) {
+         callback.onFailure(-1, "A replay is already running");
+         return;
+      }
+      List<Mutation> additions = new ArrayList<>();
+      List<Mutation> removals = new ArrayList<>();
+      try {
+         synchronized (this) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            for (Mutation mutation : pending.values()) {
+               (mutation.add ? additions : removals).add(mutation);
+               if (!mutation.sent) {
+                  writeRecord(out, SENT, mutation.id, mutation.albumId);
+               }
+            }
+            append(buffer.toByteArray());
+            pending.values().forEach(mutation -> {
+               mutation.sent = true;
+               mutation.superseded = null;
+            });
+         }
+      } catch (IOException e) {
+         replaying.set(false);
+         callback.onFailure(-1, "Could not write the mutation log: " + e.getMessage());
+         return;
+      }
+
+      LOGGER.info("Replaying {} additions and {} removals", additions.size(), removals.size());
+      Replay replay = new Replay((additions.isEmpty() ? 0 : 1) + (removals.isEmpty() ? 0 : 1), callback);
+      if (additions.isEmpty() && removals.isEmpty()) {
+         replay.finish();
+         return;
+      }
+      try (PriorityScope scope = PriorityScope.open(RequestPriority.BACKGROUND)) {
+         if (!additions.isEmpty()) {
+            replay.send(additions, part -> wrapper.addAlbumsToLibrary(albumIds(additions), part));
+         }
+         if (!removals.isEmpty()) {
+            replay.send(removals, part -> wrapper.removeAlbumsFromLibrary(albumIds(removals), part));
+         }
+      }
+   }
+
+   @Override
+   public synchronized void close() throws IOException {
+      channel.close();
+   }
+
+   /**
+    * Writes a mutation to the log and applies it to the pending mutations.
+    *
+    * @return <code>false</code> if the mutation was already pending
+    */
+   private synchronized boolean record(int type, String albumId) throws IOException {
+      Mutation current = pending.get(albumId);
+      if (current != null && current.add == (type == ADD)) {
+         return false;
+      }
+      long id = nextId++;
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      writeRecord(new DataOutputStream(buffer), type, id, albumId);
+      append(buffer.toByteArray());
+      apply(type, id, albumId);
+      return true;
+   }
+
+   /**
+    * Applies a record to the pending mutations. Also used to restore them from the log file, so a recorded mutation
+    * must have the same effect when it is read again.
+    */
+   private void apply(int type, long id, String albumId) {
+      Mutation current = pending.get(albumId);
+      if (type == ADD || type == REMOVE) {
+         boolean add = type == ADD;
+         if (current != null && current.add == add) {
+            return;
+         }
+         if (current == null) {
+            pending.put(albumId, new Mutation(id, albumId, add, null));
+         } else if (current.sent) {
+            // A sent mutation may have reached the server, so it is replaced instead of cancelled out
+            pending.put(albumId, new Mutation(id, albumId, add, current));
+         } else if (current.superseded == null) {
+            pending.remove(albumId);
+         } else {
+            // Cancels out the unsent mutation, the sent one it replaced is pending again
+            pending.put(albumId, current.superseded);
+         }
+      } else if (current != null && current.id == id) {
+         if (type == SENT) {
+            current.sent = true;
+            current.superseded = null;
+         } else {
+            pending.remove(albumId);
+         }
+      } else if (current != null && type == ACK && current.superseded != null && current.superseded.id == id) {
+         current.superseded = null;
+      }
+   }
+
+   /**
+    * Processes the server's answers to the mutations of a bulk request. Mutations which were recorded again during the
+    * replay keep their newer state.
+    */
+   private void completed(List<Mutation> mutations, BulkMutationResult bulk, MutationReplayResult result)
+      throws IOException {
+      List<Mutation> reverted = new ArrayList<>();
+      synchronized (this) {
+         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+         DataOutputStream out = new DataOutputStream(buffer);
+         for (Mutation mutation : mutations) {
+            Failure failure = bulk == null ? null : bulk.getFailed().get(mutation.albumId);
+            int httpCode = failure == null ? 0 : failure.getHttpCode();
+            if (bulk == null || failure != null && !isRejection(httpCode)) {
+               result.retained.add(mutation.albumId);
+               continue;
+            }
+            if (failure == null || isAlreadyApplied(mutation, httpCode)) {
+               result.applied.add(mutation.albumId);
+            } else {
+               result.rejected.put(mutation.albumId, failure);
+               if (pending.get(mutation.albumId) == mutation) {
+                  reverted.add(mutation);
+               }
+            }
+            writeRecord(out, ACK, mutation.id, mutation.albumId);
+            apply(ACK, mutation.id, mutation.albumId);
+         }
+         append(buffer.toByteArray());
+         if (records > COMPACTION_THRESHOLD && records > 4 * pending.size()) {
+            compact();
+         }
+      }
+      for (Mutation mutation : reverted) {
+         LOGGER.warn("Server rejected {} of album {}, reverting", mutation.add ? "addition" : "removal",
+            mutation.albumId);
+         notifyViews(views, mutation.albumId, !mutation.add);
+      }
+   }
+
+   private void read() throws IOException {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+         int version = in.readInt();
+         if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown mutation log format version " + version);
+         }
+         int type;
+         while ((type = in.read()) != -1) {
+            if (type < ADD || type > ACK) {
+               throw new IOException("Corrupt mutation log, unknown record type " + type);
+            }
+            long id = in.readLong();
+            String albumId = in.readUTF();
+            apply(type, id, albumId);
+            nextId = Math.max(nextId, id + 1);
+         }
+      } catch (NoSuchFileException e) {
+         // Nothing recorded yet
+      } catch (EOFException e) {
+         // The last record wasn't written completely, so it wasn't acted upon
+         LOGGER.warn("Ignoring incomplete record at the end of {}", file);
+      }
+   }
+
+   /**
+    * Replaces the log file by one which contains only the pending mutations.
+    */
+   private void compact() throws IOException {
+      if (channel != null) {
+         channel.close();
+      }
+      Path temp = file.resolveSibling(file.getFileName() + TEMP_EXTENSION);
+      try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+         StandardOpenOption.TRUNCATE_EXISTING)) {
+         DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out)));
+         data.writeInt(FORMAT_VERSION);
+         records = 0;
+         for (Mutation mutation : pending.values()) {
+            if (mutation.superseded != null) {
+               writeMutation(data, mutation.superseded);
+            }
+            writeMutation(data, mutation);
+         }
+         data.flush();
+         out.force(true);
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+   }
+
+   private void writeMutation(DataOutputStream out, Mutation mutation) throws IOException {
+      writeRecord(out, mutation.add ? ADD : REMOVE, mutation.id, mutation.albumId);
+      if (mutation.sent) {
+         writeRecord(out, SENT, mutation.id, mutation.albumId);
+      }
+   }
+
+   private void writeRecord(DataOutputStream out, int type, long id, String albumId) throws IOException {
+      out.writeByte(type);
+      out.writeLong(id);
+      out.writeUTF(albumId);
+      records++;
+   }
+
+   /**
+    * Appends records to the log file and waits until they are on the disk.
+    */
+   private void append(byte[] data) throws IOException {
+      if (data.length == 0) {
+         return;
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      while (buffer.hasRemaining()) {
+         channel.write(buffer);
+      }
+      channel.force(false);
+   }
+
+   private static void notifyViews(List<LocalLibraryView> targets, String albumId, boolean added) {
+      for (LocalLibraryView view : targets) {
+         if (added) {
+            view.albumAdded(albumId);
+         } else {
+            view.albumRemoved(albumId);
+         }
+      }
+   }
+
+   private static List<String> albumIds(List<Mutation> mutations) {
+      return mutations.stream().map(mutation -> mutation.albumId).collect(Collectors.toList());
+   }
+
+   private static boolean isAlreadyApplied(Mutation mutation, int httpCode) {
+      return mutation.add ? httpCode == 409 : httpCode == 404;
+   }
+
+   /**
+    * Returns whether the server definitely rejected a mutation. Other errors, also an expired or revoked token, don't
+    * discard the user's change.
+    */
+   private static boolean isRejection(int httpCode) {
+      return httpCode == 400 || httpCode == 404 || httpCode == 409 || httpCode == 422;
+   }
+
+   /**
+    * A pending mutation of an album.
+    */
+   private static final class Mutation {
+      private final long id;
+      private final String albumId;
+      private final boolean add;
+      private boolean sent;
+
+      /** The sent but unacknowledged mutation which this unsent one replaced, <code>null</code> if none. */
+      private Mutation superseded;
+
+      Mutation(long id, String albumId, boolean add, Mutation superseded) {
+         this.id = id;
+         this.albumId = albumId;
+         this.add = add;
+         this.superseded = superseded;
+      }
+   }
+
+   /**
+    * State of one replay, which consists of up to two bulk requests.
+    */
+   private final class Replay {
+      private final AtomicInteger openParts;
+      private final RhapsodyCallback<MutationReplayResult> callback;
+      private final MutationReplayResult result = new MutationReplayResult();
+
+      Replay(int parts, RhapsodyCallback<MutationReplayResult> callback) {
+         this.openParts = new AtomicInteger(parts);
+         this.callback = callback;
+      }
+
+      /**
+       * Sends the request of a part. If it throws, e.g. without authorization or when the limiter rejects it, the part
+       * fails like a failed request, so the replay is finished and the mutations stay in the log.
+       */
+      void send(List<Mutation> mutations, Consumer<RhapsodyCallback<BulkMutationResult>> request) {
+         RhapsodyCallback<BulkMutationResult> part = part(mutations);
+         try {
+            request.accept(part);
+         } catch (RuntimeException e) {
+            part.onFailure(-1, e.toString());
+         }
+      }
+
+      private RhapsodyCallback<BulkMutationResult> part(List<Mutation> mutations) {
+         return new RhapsodyCallback<BulkMutationResult>() {
+
+            @Override
+            public void onSuccess(BulkMutationResult data) {
+               partCompleted(mutations, data);
+            }
+
+            @Override
+            public void onFailure(int httpCode, String message) {
+               LOGGER.warn("Replay of library mutations failed ({} {})", httpCode, message);
+               partCompleted(mutations, null);
+            }
+         };
+      }
+
+      private void partCompleted(List<Mutation> mutations, BulkMutationResult bulk) {
+         try {
+            completed(mutations, bulk, result);
+         } catch (IOException e) {
+            // The mutations stay unacknowledged and are sent again by the next replay
+            LOGGER.error("Could not write the mutation log", e);
+         }
+         if (openParts.decrementAndGet() == 0) {
+            finish();
+         }
+      }
+
+      void finish() {
+         LOGGER.info("Library mutation replay: {}", result);
+         replaying.set(false);
+         callback.onSuccess(result);
+      }
+   }
+}
@@ -0,0 +1,287 @@
+package com.github.kaiwinter.rhapsody.sync;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Artist;
+
+/**
+ * Immutable, compact picture of a member's library: the album IDs with a content hash per album and the artist IDs.
+ * IDs are kept in sorted arrays, so a snapshot of a large library needs little memory and can be compared with a fresh
+ * listing by a single merge pass.
+ */
+public final class LibrarySnapshot {
+
+   private static final int FORMAT_VERSION = 1;
+   private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+   private static final long FNV_PRIME = 0x100000001b3L;
+
+   private static final LibrarySnapshot EMPTY = new LibrarySnapshot(new String[0], new long[0], new String[0]);
+
+   private final String[] albumIds;
+   private final long[] albumHashes;
+   private final String[] artistIds;
+
+   private LibrarySnapshot(String[] albumIds, long[] albumHashes, String[] artistIds) {
+      this.albumIds = albumIds;
+      this.albumHashes = albumHashes;
+      this.artistIds = artistIds;
+   }
+
+   /**
+    * Returns a snapshot of an empty library, used before the first sync.
+    *
+    * @return the empty snapshot
+    */
+   public static LibrarySnapshot empty() {
+      return EMPTY;
+   }
+
+   /**
+    * Creates a snapshot from a library listing.
+    *
+    * @param albums
+    *           the albums in the library
+    * @param artists
+    *           the artists in the library
+    * @return the snapshot
+    */
+   public static LibrarySnapshot of(Collection<AlbumData> albums, Collection<Artist> artists) {
+      Map<String, Long> albumMap = new TreeMap<>();
+      for (AlbumData album : albums) {
+         albumMap.put(album.id, contentHash(album));
+      }
+      Set<String> artistSet = new TreeSet<>();
+      for (Artist artist : artists) {
+         artistSet.add(artist.id);
+      }
+      return of(albumMap, artistSet);
+   }
+
+   static LibrarySnapshot of(Map<String, Long> sortedAlbums, Set<String> sortedArtists) {
+      String[] ids = new String[sortedAlbums.size()];
+      long[] hashes = new long[sortedAlbums.size()];
+      int i = 0;
+      for (Map.Entry<String, Long> entry : sortedAlbums.entrySet()) {
+         ids[i] = entry.getKey();
+         hashes[i] = entry.getValue();
+         i++;
+      }
+      return new LibrarySnapshot(ids, hashes, sortedArtists.toArray(new String[0]));
+   }
+
+   /**
+    * Returns the number of albums in this snapshot.
+    *
+    * @return the number of albums
+    */
+   public int getAlbumCount() {
+      return albumIds.length;
+   }
+
+   /**
+    * Returns the number of artists in this snapshot.
+    *
+    * @return the number of artists
+    */
+   public int getArtistCount() {
+      return artistIds.length;
+   }
+
+   /**
+    * Returns if the album is part of this snapshot.
+    *
+    * @param albumId
+    *           the ID of the album
+    * @return <code>true</code> if the album is in the library
+    */
+   public boolean containsAlbum(String albumId) {
+      return Arrays.binarySearch(albumIds, albumId) >= 0;
+   }
+
+   /**
+    * Returns if the artist is part of this snapshot.
+    *
+    * @param artistId
+    *           the ID of the artist
+    * @return <code>true</code> if the artist is in the library
+    */
+   public boolean containsArtist(String artistId) {
+      return Arrays.binarySearch(artistIds, artistId) >= 0;
+   }
+
+   /**
+    * Returns the content hash which was stored for an album.
+    *
+    * @param albumId
+    *           the ID of the album
+    * @return the hash, or <code>null</code> if the album is not in this snapshot
+    */
+   public Long getAlbumHash(String albumId) {
+      int index = Arrays.binarySearch(albumIds, albumId);
+      return index < 0 ? null : albumHashes[index];
+   }
+
+   /**
+    * Compares this (older) snapshot with a newer one.
+    *
+    * @param newer
+    *           the newer snapshot
+    * @return the differences
+    */
+   public LibraryDiff diff(LibrarySnapshot newer) {
+      LibraryDiff diff = new LibraryDiff();
+      int i = 0;
+      int j = 0;
+      while (i < albumIds.length || j < newer.albumIds.length) {
+         int comparison = i == albumIds.length ? 1
+            : j == newer.albumIds.length ? -1 : albumIds[i].compareTo(newer.albumIds[j]);
+         if (comparison < 0) {
+            diff.removedAlbums.add(albumIds[i++]);
+         } else if (comparison > 0) {
+            diff.addedAlbums.add(newer.albumIds[j++]);
+         } else {
+            if (albumHashes[i] != newer.albumHashes[j]) {
+               diff.changedAlbums.add(albumIds[i]);
+            }
+            i++;
+            j++;
+         }
+      }
+      mergeIds(artistIds, newer.artistIds, diff.removedArtists, diff.addedArtists);
+      return diff;
+   }
+
+   private static void mergeIds(String[] older, String[] newer, List<String> removed, List<String> added) {
+      int i = 0;
+      int j = 0;
+      while (i < older.length || j < newer.length) {
+         int comparison = i == older.length ? 1 : j == newer.length ? -1 : older[i].compareTo(newer[j]);
+         if (comparison < 0) {
+            removed.add(older[i++]);
+         } else if (comparison > 0) {
+            added.add(newer[j++]);
+         } else {
+            i++;
+            j++;
+         }
+      }
+   }
+
+   /**
+    * Writes this snapshot in a compact binary format.
+    *
+    * @param outputStream
+    *           the stream to write to, it is not closed
+    * @throws IOException
+    *            if writing fails
+    */
+   public void write(OutputStream outputStream) throws IOException {
+      DataOutputStream out = new DataOutputStream(outputStream);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(albumIds.length);
+      for (int i = 0; i < albumIds.length; i++) {
+         out.writeUTF(albumIds[i]);
+         out.writeLong(albumHashes[i]);
+      }
+      out.writeInt(artistIds.length);
+      for (String artistId : artistIds) {
+         out.writeUTF(artistId);
+      }
+      out.flush();
+   }
+
+   /**
+    * Reads a snapshot which was written by {@link #write(OutputStream)}.
+    *
+    * @param inputStream
+    *           the stream to read from, it is not closed
+    * @return the snapshot
+    * @throws IOException
+    *            if reading fails or the data has an unknown format
+    */
+   public static LibrarySnapshot read(InputStream inputStream) throws IOException {
+      DataInputStream in = new DataInputStream(inputStream);
+      int version = in.readInt();
+      if (version != FORMAT_VERSION) {
+         throw new IOException("Unknown snapshot format version " + version);
+      }
+      int albumCount = in.readInt();
+      String[] ids = new String[albumCount];
+      long[] hashes = new long[albumCount];
+      for (int i = 0; i < albumCount; i++) {
+         ids[i] = in.readUTF();
+         hashes[i] = in.readLong();
+      }
+      String[] artists = new String[in.readInt()];
+      for (int i = 0; i < artists.length; i++) {
+         artists[i] = in.readUTF();
+      }
+      return new LibrarySnapshot(ids, hashes, artists);
+   }
+
+   /**
+    * Calculates a 64 bit FNV-1a hash over the content of an album listing entry.
+    *
+    * @param album
+    *           the album
+    * @return the hash
+    */
+   static long contentHash(AlbumData album) {
+      long hash = FNV_OFFSET_BASIS;
+      hash = hash(hash, album.id);
+      hash = hash(hash, album.name);
+      hash = hash(hash, album.discCount);
+      hash = hash(hash, album.released);
+      if (album.artist != null) {
+         hash = hash(hash, album.artist.id);
+         hash = hash(hash, album.artist.name);
+      }
+      if (album.type != null) {
+         hash = hash(hash, album.type.id);
+      }
+      if (album.tags != null) {
+         for (String tag : album.tags) {
+            hash = hash(hash, tag);
+         }
+      }
+      if (album.images != null) {
+         for (AlbumData.Image image : album.images) {
+            hash = hash(hash, image.url);
+         }
+      }
+      if (album.tracks != null) {
+         for (AlbumData.Track track : album.tracks) {
+            hash = hash(hash, track.id);
+         }
+      }
+      return hash;
+   }
+
+   private static long hash(long hash, Object value) {
+      long result = hash;
+      if (value == null) {
+         result ^= 0xff;
+         return result * FNV_PRIME;
+      }
+      for (byte b : value.toString().getBytes(StandardCharsets.UTF_8)) {
+         result ^= b & 0xff;
+         result *= FNV_PRIME;
+      }
+      // Field separator, so "ab","c" and "a","bc" differ
+      result ^= 0xfe;
+      return result * FNV_PRIME;
+   }
+}
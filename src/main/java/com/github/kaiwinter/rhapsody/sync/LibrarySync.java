@@ -0,0 +1,386 @@
+package com.github.kaiwinter.rhapsody.sync;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.kaiwinter.rhapsody.api.RhapsodyCallback;
+import com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper;
+import com.github.kaiwinter.rhapsody.dispatch.PriorityScope;
+import com.github.kaiwinter.rhapsody.dispatch.RequestPriority;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Artist;
+
+/**
+ * Keeps a {@link LibrarySnapshot} of the member's library up to date. A sync lists the albums and artists page by
+ * page, compares them with the snapshot and loads the full {@link AlbumData} only for albums which were added or
+ * changed. The details are loaded from the API, not from the album cache, so a changed album is read in its current
+ * state. Every change is passed to the {@link LibrarySyncListener}, so a sync without changes costs one listing pass.
+ *
+ * <p>
+ * If the details of an album can't be loaded, or the listener fails to process them, the snapshot keeps the album's
+ * previous state, so it is reported again by the next sync.
+ * </p>
+ */
+public final class LibrarySync {
+   private static final Logger LOGGER = LoggerFactory.getLogger(LibrarySync.class.getSimpleName());
+
+   /** Maximum number of concurrent album detail requests. */
+   private static final int MAX_DETAIL_REQUESTS = 4;
+
+   /** Number of albums and artists which are listed by one request if no page size is given. */
+   private static final int DEFAULT_PAGE_SIZE = 100;
+
+   /**
+    * Loads the library, implemented by the {@link RhapsodySdkWrapper}.
+    */
+   interface LibrarySource {
+
+      /**
+       * Loads a page of the albums in the library.
+       *
+       * @param offset
+       *           the number of albums to skip
+       * @param limit
+       *           the maximum number of albums
+       * @param callback
+       *           receives the albums
+       */
+      void loadAlbums(int offset, int limit, RhapsodyCallback<Collection<AlbumData>> callback);
+
+      /**
+       * Loads a page of the artists in the library.
+       *
+       * @param offset
+       *           the number of artists to skip
+       * @param limit
+       *           the maximum number of artists
+       * @param callback
+       *           receives the artists
+       */
+      void loadArtists(int offset, int limit, RhapsodyCallback<Collection<Artist>> callback);
+
+      /**
+       * Loads the current details of an album.
+       *
+       * @param albumId
+       *           the ID of the album
+       * @param callback
+       *           receives the album
+       */
+      void loadAlbum(String albumId, RhapsodyCallback<AlbumData> callback);
+   }
+
+   private final LibrarySource source;
+   private final LibrarySyncListener listener;
+   private final AtomicBoolean running = new AtomicBoolean();
+
+   private volatile LibrarySnapshot snapshot;
+
+   /**
+    * Constructs a new {@link LibrarySync}.
+    *
+    * @param wrapper
+    *           the wrapper which is used to load the library
+    * @param snapshot
+    *           the snapshot of the last sync, e.g. read by {@link LibrarySnapshot#read(java.io.InputStream)}, or
+    *           {@link LibrarySnapshot#empty()}
+    * @param listener
+    *           receives the detected changes
+    */
+   public LibrarySync(RhapsodySdkWrapper wrapper, LibrarySnapshot snapshot, LibrarySyncListener listener) {
+      this(new LibrarySource() {
+
+         @Override
+         public void loadAlbums(int offset, int limit, RhapsodyCallback<Collection<AlbumData>> callback) {
+            wrapper.loadAllAlbumsInLibrary(limit, offset, callback);
+         }
+
+         @Override
+         public void loadArtists(int offset, int limit, RhapsodyCallback<Collection<Artist>> callback) {
+            wrapper.loadAllArtistsInLibrary(limit, offset, callback);
+         }
+
+         @Override
+         public void loadAlbum(String albumId, RhapsodyCallback<AlbumData> callback) {
+            wrapper.reloadAlbum(albumId, callback);
+         }
+      }, snapshot, listener);
+   }
+
+   LibrarySync(LibrarySource source, LibrarySnapshot snapshot, LibrarySyncListener listener) {
+      this.source = source;
+      this.snapshot = snapshot;
+      this.listener = listener;
+   }
+
+   /**
+    * Returns the snapshot of the last successful sync. Persist it to continue incrementally in the next session.
+    *
+    * @return the current snapshot
+    */
+   public LibrarySnapshot getSnapshot() {
+      return snapshot;
+   }
+
+   /**
+    * Synchronizes the snapshot with the member's library. Only one sync may run at a time. The requests of the sync
+    * are made with {@link RequestPriority#BACKGROUND}.
+    *
+    * @param pageSize
+    *           the number of albums and artists which are listed by one request, if <code>null</code> 100. The
+    *           listing ends with an empty page, as the server may return fewer entries than requested.
+    * @param callback
+    *           receives the differences after the sync completed, or the error if the listing failed
+    */
+   public void sync(Integer pageSize, RhapsodyCallback<LibraryDiff> callback) {
+      if (!running.compareAndSet(false, true)) {
+         callback.onFailure(-1, "A library sync is already running");
+         return;
+      }
+      try (PriorityScope scope = PriorityScope.open(RequestPriority.BACKGROUND)) {
+         new SyncRun(pageSize == null ? DEFAULT_PAGE_SIZE : pageSize, callback).start();
+      } catch (RuntimeException e) {
+         running.set(false);
+         throw e;
+      }
+   }
+
+   /**
+    * State of one sync.
+    */
+   private final class SyncRun {
+      private final int pageSize;
+      private final RhapsodyCallback<LibraryDiff> callback;
+      private final Deque<String> detailQueue = new ArrayDeque<>();
+      private final Set<String> changedAlbums = new TreeSet<>();
+
+      private final List<AlbumData> albums = new ArrayList<>();
+      private final List<Artist> artists = new ArrayList<>();
+      private boolean albumsComplete;
+      private boolean artistsComplete;
+      private boolean failed;
+      private Map<String, Long> newAlbumHashes;
+      private Set<String> newArtists;
+      private LibraryDiff diff;
+      private int detailsInFlight;
+      private boolean finished;
+
+      SyncRun(int pageSize, RhapsodyCallback<LibraryDiff> callback) {
+         this.pageSize = pageSize;
+         this.callback = callback;
+      }
+
+      void start() {
+         loadAlbums(0);
+         loadArtists(0);
+      }
+
+      private void loadAlbums(int offset) {
+         source.loadAlbums(offset, pageSize, new RhapsodyCallback<Collection<AlbumData>>() {
+
+            @Override
+            public void onSuccess(Collection<AlbumData> data) {
+               boolean complete;
+               synchronized (SyncRun.this) {
+                  if (failed) {
+                     return;
+                  }
+                  albums.addAll(data);
+                  // a short page may be the server's maximum page size
+                  complete = data.isEmpty();
+                  albumsComplete = complete;
+               }
+               if (complete) {
+                  listingLoaded();
+               } else {
+                  loadNextPage(() -> loadAlbums(offset + data.size()));
+               }
+            }
+
+            @Override
+            public void onFailure(int httpCode, String message) {
+               failed(httpCode, message);
+            }
+         });
+      }
+
+      private void loadArtists(int offset) {
+         source.loadArtists(offset, pageSize, new RhapsodyCallback<Collection<Artist>>() {
+
+            @Override
+            public void onSuccess(Collection<Artist> data) {
+               boolean complete;
+               synchronized (SyncRun.this) {
+                  if (failed) {
+                     return;
+                  }
+                  artists.addAll(data);
+                  // a short page may be the server's maximum page size
+                  complete = data.isEmpty();
+                  artistsComplete = complete;
+               }
+               if (complete) {
+                  listingLoaded();
+               } else {
+                  loadNextPage(() -> loadArtists(offset + data.size()));
+               }
+            }
+
+            @Override
+            public void onFailure(int httpCode, String message) {
+               failed(httpCode, message);
+            }
+         });
+      }
+
+      private void loadNextPage(Runnable load) {
+         try (PriorityScope scope = PriorityScope.open(RequestPriority.BACKGROUND)) {
+            load.run();
+         } catch (RuntimeException e) {
+            LOGGER.error("Could not load the next page of the library", e);
+            failed(-1, e.toString());
+         }
+      }
+
+      private void listingLoaded() {
+         synchronized (this) {
+            if (failed || !albumsComplete || !artistsComplete) {
+               return;
+            }
+         }
+         try {
+            compare();
+         } catch (RuntimeException e) {
+            LOGGER.error("Library sync listener failed", e);
+            failed(-1, e.toString());
+         }
+      }
+
+      private void failed(int httpCode, String message) {
+         synchronized (this) {
+            if (failed || finished) {
+               return;
+            }
+            failed = true;
+         }
+         LOGGER.error("Library sync failed ({} {})", httpCode, message);
+         running.set(false);
+         callback.onFailure(httpCode, message);
+      }
+
+      private void compare() {
+         LibrarySnapshot older = snapshot;
+         newAlbumHashes = new TreeMap<>();
+         for (AlbumData album : albums) {
+            newAlbumHashes.put(album.id, LibrarySnapshot.contentHash(album));
+         }
+         newArtists = new TreeSet<>();
+         for (Artist artist : artists) {
+            newArtists.add(artist.id);
+         }
+         diff = older.diff(LibrarySnapshot.of(newAlbumHashes, newArtists));
+         LOGGER.info("Library sync: {}", diff);
+
+         diff.getRemovedAlbums().forEach(listener::albumRemoved);
+         diff.getAddedArtists().forEach(listener::artistAdded);
+         diff.getRemovedArtists().forEach(listener::artistRemoved);
+
+         changedAlbums.addAll(diff.getChangedAlbums());
+         synchronized (this) {
+            detailQueue.addAll(diff.getAddedAlbums());
+            detailQueue.addAll(diff.getChangedAlbums());
+         }
+         loadNextDetails();
+      }
+
+      private void loadNextDetails() {
+         List<String> toLoad = new ArrayList<>();
+         boolean complete;
+         synchronized (this) {
+            while (detailsInFlight < MAX_DETAIL_REQUESTS && !detailQueue.isEmpty()) {
+               toLoad.add(detailQueue.poll());
+               detailsInFlight++;
+            }
+            complete = detailsInFlight == 0 && detailQueue.isEmpty() && !finished;
+            if (complete) {
+               finished = true;
+            }
+         }
+         for (String albumId : toLoad) {
+            try (PriorityScope scope = PriorityScope.open(RequestPriority.BACKGROUND)) {
+               source.loadAlbum(albumId, new RhapsodyCallback<AlbumData>() {
+
+                  @Override
+                  public void onSuccess(AlbumData data) {
+                     try {
+                        if (changedAlbums.contains(albumId)) {
+                           listener.albumChanged(data);
+                        } else {
+                           listener.albumAdded(data);
+                        }
+                     } catch (RuntimeException e) {
+                        LOGGER.warn("Library sync listener failed for album " + albumId, e);
+                        detailsFailed(albumId);
+                        return;
+                     }
+                     detailsLoaded();
+                  }
+
+                  @Override
+                  public void onFailure(int httpCode, String message) {
+                     LOGGER.warn("Could not load details of album {} ({} {})", albumId, httpCode, message);
+                     detailsFailed(albumId);
+                  }
+               });
+            } catch (RuntimeException e) {
+               LOGGER.warn("Could not load details of album " + albumId, e);
+               detailsFailed(albumId);
+            }
+         }
+         if (complete) {
+            finish();
+         }
+      }
+
+      private void detailsLoaded() {
+         synchronized (this) {
+            detailsInFlight--;
+         }
+         loadNextDetails();
+      }
+
+      private void detailsFailed(String albumId) {
+         synchronized (this) {
+            detailsInFlight--;
+            // Keep the old state so the album is reported again by the next sync
+            Long oldHash = snapshot.getAlbumHash(albumId);
+            if (oldHash == null) {
+               newAlbumHashes.remove(albumId);
+            } else {
+               newAlbumHashes.put(albumId, oldHash);
+            }
+         }
+         loadNextDetails();
+      }
+
+      private void finish() {
+         try {
+            snapshot = LibrarySnapshot.of(newAlbumHashes, newArtists);
+         } finally {
+            running.set(false);
+         }
+         callback.onSuccess(diff);
+      }
+   }
+}
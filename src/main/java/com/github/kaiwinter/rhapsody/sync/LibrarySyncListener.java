@@ -0,0 +1,55 @@
+package com.github.kaiwinter.rhapsody.sync;
+
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+
+/**
+ * Receives the changes which a {@link LibrarySync} detects. The methods are called on the thread which delivered the
+ * corresponding API response.
+ */
+public interface LibrarySyncListener {
+
+   /**
+    * Is called for an album which was added to the library, after its details were loaded.
+    *
+    * @param album
+    *           the full album
+    */
+   default void albumAdded(AlbumData album) {
+   }
+
+   /**
+    * Is called for an album whose content changed, after its details were loaded.
+    *
+    * @param album
+    *           the full album
+    */
+   default void albumChanged(AlbumData album) {
+   }
+
+   /**
+    * Is called for an album which was removed from the library.
+    *
+    * @param albumId
+    *           the ID of the album
+    */
+   default void albumRemoved(String albumId) {
+   }
+
+   /**
+    * Is called for an artist which was added to the library.
+    *
+    * @param artistId
+    *           the ID of the artist
+    */
+   default void artistAdded(String artistId) {
+   }
+
+   /**
+    * Is called for an artist which was removed from the library.
+    *
+    * @param artistId
+    *           the ID of the artist
+    */
+   default void artistRemoved(String artistId) {
+   }
+}
@@ -0,0 +1,25 @@
+package com.github.kaiwinter.rhapsody.sync;
+
+/**
+ * A local view of the member's library, e.g. the list the UI shows, which a {@link LibraryMutationLog} updates as soon
+ * as a mutation is recorded, before it reached the server. A mutation which the server rejects is reverted. The methods
+ * are called on the thread which records the mutation or delivered the server's response.
+ */
+public interface LocalLibraryView {
+
+   /**
+    * Is called when an album is added to the library, or a rejected removal is reverted.
+    *
+    * @param albumId
+    *           the ID of the album
+    */
+   void albumAdded(String albumId);
+
+   /**
+    * Is called when an album is removed from the library, or a rejected addition is reverted.
+    *
+    * @param albumId
+    *           the ID of the album
+    */
+   void albumRemoved(String albumId);
+}
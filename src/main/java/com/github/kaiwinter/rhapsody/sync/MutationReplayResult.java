@@ -0,0 +1,55 @@
+package com.github.kaiwinter.rhapsody.sync;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.kaiwinter.rhapsody.api.BulkMutationResult.Failure;
+
+/**
+ * The result of a {@link LibraryMutationLog#replay(com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper,
+ * com.github.kaiwinter.rhapsody.api.RhapsodyCallback)}. Every replayed album ID is in exactly one of the sets.
+ */
+public final class MutationReplayResult {
+
+   final Set<String> applied = new LinkedHashSet<>();
+   final Map<String, Failure> rejected = new LinkedHashMap<>();
+   final Set<String> retained = new LinkedHashSet<>();
+
+   /**
+    * Returns the IDs of the albums whose mutation reached the server.
+    *
+    * @return the album IDs
+    */
+   public Set<String> getApplied() {
+      return Collections.unmodifiableSet(applied);
+   }
+
+   /**
+    * Returns the IDs of the albums whose mutation the server rejected, together with the error. These mutations were
+    * reverted in the {@link LocalLibraryView}s and removed from the log.
+    *
+    * @return the rejected album IDs
+    */
+   public Map<String, Failure> getRejected() {
+      return Collections.unmodifiableMap(rejected);
+   }
+
+   /**
+    * Returns the IDs of the albums whose mutation failed with a transient error and stays in the log for the next
+    * replay.
+    *
+    * @return the album IDs
+    */
+   public Set<String> getRetained() {
+      return Collections.unmodifiableSet(retained);
+   }
+
+   @Override
+   public String toString() {
+      return "MutationReplayResult [applied=" + applied.size() + ", rejected=" + rejected.size() + ", retained="
+         + retained.size() + "]";
+   }
+}
@@ -0,0 +1,227 @@
+package com.github.kaiwinter.rhapsody.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The timing of one call of the {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper}. The time spent in each
+ * {@link SpanPhase} is summed up over all requests the call makes. The span is finished, and passed to the
+ * {@link SpanReporter}, when the callback of the call's last request returned.
+ *
+ * <p>
+ * Calls which are not sampled share {@link #NOT_SAMPLED}, which ignores all recordings.
+ * </p>
+ */
+public final class Span {
+
+   /** The span of all calls which are not sampled. */
+   public static final Span NOT_SAMPLED = new Span();
+
+   private static final SpanReporter DISCARD = span -> {
+   };
+
+   private final String method;
+   private final String correlationId;
+   private final SpanReporter reporter;
+   private final long startNanos;
+   private final AtomicLongArray phaseNanos;
+   private final AtomicInteger requests = new AtomicInteger();
+   private final AtomicInteger pending = new AtomicInteger();
+   private volatile long durationNanos;
+   private volatile String error;
+
+   private Span() {
+      method = null;
+      correlationId = null;
+      reporter = null;
+      startNanos = 0;
+      phaseNanos = null;
+   }
+
+   /**
+    * Starts a sampled span.
+    *
+    * @param method
+    *           the name of the wrapper method
+    * @param reporter
+    *           receives the span when it is finished
+    */
+   Span(String method, SpanReporter reporter) {
+      this.method = method;
+      this.correlationId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+      this.reporter = reporter;
+      this.startNanos = System.nanoTime();
+      this.phaseNanos = new AtomicLongArray(SpanPhase.values().length);
+   }
+
+   /**
+    * Starts a span which is timed but not reported, for a call which isn't sampled but needs its phase times anyway,
+    * e.g. to describe a missed deadline.
+    *
+    * @param method
+    *           the name of the wrapper method
+    * @return the span
+    */
+   public static Span unreported(String method) {
+      return new Span(method, DISCARD);
+   }
+
+   /**
+    * Returns whether the call is sampled. All other methods have no effect on a span which isn't sampled.
+    *
+    * @return <code>true</code> if the call is sampled
+    */
+   public boolean isSampled() {
+      return reporter != null;
+   }
+
+   /**
+    * Adds time to a phase.
+    *
+    * @param phase
+    *           the {@link SpanPhase}
+    * @param nanos
+    *           the time spent in the phase
+    */
+   public void record(SpanPhase phase, long nanos) {
+      if (reporter != null) {
+         phaseNanos.addAndGet(phase.ordinal(), nanos);
+      }
+   }
+
+   /**
+    * Counts a request which is sent to the server.
+    */
+   public void requestStarted() {
+      if (reporter != null) {
+         requests.incrementAndGet();
+      }
+   }
+
+   /**
+    * Marks the call as failed. The first error is kept.
+    *
+    * @param message
+    *           describes the error
+    */
+   public void failed(String message) {
+      if (reporter != null && error == null) {
+         error = message;
+      }
+   }
+
+   /**
+    * Registers a unit of outstanding work of the call, e.g. a queued request. The span is finished when all units are
+    * released.
+    */
+   public void retain() {
+      if (reporter != null) {
+         pending.incrementAndGet();
+      }
+   }
+
+   /**
+    * Releases a unit of work which was registered by {@link #retain()}. Releasing the last unit finishes the span.
+    */
+   public void release() {
+      if (reporter != null && pending.decrementAndGet() == 0) {
+         durationNanos = System.nanoTime() - startNanos;
+         reporter.report(this);
+      }
+   }
+
+   /**
+    * Returns the name of the wrapper method.
+    *
+    * @return the method name
+    */
+   public String getMethod() {
+      return method;
+   }
+
+   /**
+    * Returns the ID which is sent with each request of the call in the <code>X-Correlation-Id</code> header.
+    *
+    * @return the correlation ID
+    */
+   public String getCorrelationId() {
+      return correlationId;
+   }
+
+   /**
+    * Returns the time spent in a phase.
+    *
+    * @param phase
+    *           the {@link SpanPhase}
+    * @param unit
+    *           the unit of the result
+    * @return the time spent in the phase, summed up over all requests
+    */
+   public long getPhaseTime(SpanPhase phase, TimeUnit unit) {
+      return phaseNanos == null ? 0 : unit.convert(phaseNanos.get(phase.ordinal()), TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * Returns the time from the start of the call until its last callback returned.
+    *
+    * @param unit
+    *           the unit of the result
+    * @return the duration of the call, 0 if it isn't finished
+    */
+   public long getDuration(TimeUnit unit) {
+      return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+   }
+
+   /**
+    * Returns the number of requests the call sent.
+    *
+    * @return the number of requests
+    */
+   public int getRequestCount() {
+      return requests.get();
+   }
+
+   /**
+    * Returns the first error of the call.
+    *
+    * @return the error message, or <code>null</code> if the call succeeded
+    */
+   public String getError() {
+      return error;
+   }
+
+   /**
+    * Describes the time spent in each phase so far, e.g. <code>queue 3 ms, connect 12 ms, server 80 ms,
+    * deserialize 2 ms</code>.
+    *
+    * @return the phase times
+    */
+   public String describePhases() {
+      StringBuilder builder = new StringBuilder();
+      for (SpanPhase phase : SpanPhase.values()) {
+         if (builder.length() > 0) {
+            builder.append(", ");
+         }
+         builder.append(phase.name().toLowerCase()).append(' ').append(getPhaseTime(phase, TimeUnit.MILLISECONDS))
+            .append(" ms");
+      }
+      return builder.toString();
+   }
+
+   @Override
+   public String toString() {
+      if (reporter == null) {
+         return "Span[not sampled]";
+      }
+      StringBuilder builder = new StringBuilder();
+      builder.append(method).append(" [").append(correlationId).append("] ")
+         .append(getDuration(TimeUnit.MILLISECONDS)).append(" ms, ").append(requests.get()).append(" requests, ")
+         .append(describePhases());
+      if (error != null) {
+         builder.append(", failed: ").append(error);
+      }
+      return builder.toString();
+   }
+}
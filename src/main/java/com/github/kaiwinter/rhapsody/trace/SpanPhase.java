@@ -0,0 +1,19 @@
+package com.github.kaiwinter.rhapsody.trace;
+
+/**
+ * The phases of a request which are timed by a {@link Span}.
+ */
+public enum SpanPhase {
+
+   /** Waiting for a connection slot of the dispatcher. */
+   QUEUE,
+
+   /** Opening the connection to the server. */
+   CONNECT,
+
+   /** Sending the request, waiting for the response and reading its body. */
+   SERVER,
+
+   /** Converting the response body to the model objects. */
+   DESERIALIZE;
+}
@@ -0,0 +1,20 @@
+package com.github.kaiwinter.rhapsody.trace;
+
+/**
+ * Receives the finished {@link Span}s of sampled calls, see {@link Tracer}.
+ *
+ * <p>
+ * Implementations are called on the thread which finished the call's last request, so they must be thread safe and
+ * should return quickly.
+ * </p>
+ */
+public interface SpanReporter {
+
+   /**
+    * Reports a finished span.
+    *
+    * @param span
+    *           the {@link Span}
+    */
+   void report(Span span);
+}
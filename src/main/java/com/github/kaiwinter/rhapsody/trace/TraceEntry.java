@@ -0,0 +1,146 @@
+package com.github.kaiwinter.rhapsody.trace;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single recorded call of a {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper} method.
+ *
+ * <p>
+ * In a trace file every entry is stored on its own line: the timestamp, the method name and the arguments, separated
+ * by tabs. Arguments are URL encoded, a <code>null</code> argument is written as <code>~</code>.
+ * </p>
+ */
+public final class TraceEntry {
+
+   private static final String SEPARATOR = "\t";
+   private static final String NULL_ARGUMENT = "~";
+   private static final String ENCODING = "UTF-8";
+
+   private final long timestamp;
+   private final String method;
+   private final List<String> arguments;
+
+   /**
+    * Constructs a new {@link TraceEntry}.
+    *
+    * @param timestamp
+    *           the time of the call in milliseconds since the epoch
+    * @param method
+    *           the name of the called wrapper method
+    * @param arguments
+    *           the arguments of the call, single arguments may be <code>null</code>
+    */
+   public TraceEntry(long timestamp, String method, List<String> arguments) {
+      this.timestamp = timestamp;
+      this.method = method;
+      this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+   }
+
+   /**
+    * Returns the time of the call.
+    *
+    * @return the time of the call in milliseconds since the epoch
+    */
+   public long getTimestamp() {
+      return timestamp;
+   }
+
+   /**
+    * Returns the name of the called wrapper method.
+    *
+    * @return the method name
+    */
+   public String getMethod() {
+      return method;
+   }
+
+   /**
+    * Returns the arguments of the call.
+    *
+    * @return the arguments, single arguments may be <code>null</code>
+    */
+   public List<String> getArguments() {
+      return arguments;
+   }
+
+   /**
+    * Returns the argument at the given <code>index</code>.
+    *
+    * @param index
+    *           the index of the argument
+    * @return the argument, <code>null</code> if it was recorded as <code>null</code> or if it wasn't recorded at all
+    */
+   public String getArgument(int index) {
+      if (index >= arguments.size()) {
+         return null;
+      }
+      return arguments.get(index);
+   }
+
+   /**
+    * Formats this entry as a line of a trace file (without the line break).
+    *
+    * @return the formatted line
+    */
+   public String toLine() {
+      StringBuilder line = new StringBuilder();
+      line.append(timestamp).append(SEPARATOR).append(method);
+      for (String argument : arguments) {
+         line.append(SEPARATOR).append(argument == null ? NULL_ARGUMENT : encode(argument));
+      }
+      return line.toString();
+   }
+
+   /**
+    * Parses a line of a trace file.
+    *
+    * @param line
+    *           the line as written by {@link #toLine()}
+    * @return the parsed {@link TraceEntry}
+    * @throws IllegalArgumentException
+    *            if the line is malformed
+    */
+   public static TraceEntry parse(String line) {
+      String[] fields = line.split(SEPARATOR, -1);
+      if (fields.length < 2) {
+         throw new IllegalArgumentException("Malformed trace line: " + line);
+      }
+      long timestamp;
+      try {
+         timestamp = Long.parseLong(fields[0]);
+      } catch (NumberFormatException e) {
+         throw new IllegalArgumentException("Malformed timestamp in trace line: " + line, e);
+      }
+      List<String> arguments = new ArrayList<>(fields.length - 2);
+      for (int i = 2; i < fields.length; i++) {
+         arguments.add(NULL_ARGUMENT.equals(fields[i]) ? null : decode(fields[i]));
+      }
+      return new TraceEntry(timestamp, fields[1], arguments);
+   }
+
+   @Override
+   public String toString() {
+      return toLine();
+   }
+
+   private static String encode(String value) {
+      try {
+         return URLEncoder.encode(value, ENCODING);
+      } catch (UnsupportedEncodingException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   private static String decode(String value) {
+      try {
+         return URLDecoder.decode(value, ENCODING);
+      } catch (UnsupportedEncodingException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+}
@@ -0,0 +1,98 @@
+package com.github.kaiwinter.rhapsody.trace;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TraceRecorder} which appends every recorded call as a line to a file. Use {@link #read(Path)} to load a
+ * trace file for replaying.
+ */
+public final class TraceFile implements TraceRecorder, Closeable {
+   private static final Logger LOGGER = LoggerFactory.getLogger(TraceFile.class.getSimpleName());
+
+   private final BufferedWriter writer;
+
+   /**
+    * Opens the given file for recording. If the file exists new entries are appended.
+    *
+    * @param path
+    *           the trace file
+    * @throws IOException
+    *            if the file cannot be opened
+    */
+   public TraceFile(Path path) throws IOException {
+      writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+         StandardOpenOption.APPEND);
+   }
+
+   @Override
+   public void record(TraceEntry entry) {
+      String line = entry.toLine();
+      synchronized (writer) {
+         try {
+            writer.write(line);
+            writer.newLine();
+         } catch (IOException e) {
+            // Recording must never break the actual call
+            LOGGER.warn("Could not record trace entry: {}", e.getMessage());
+         }
+      }
+   }
+
+   /**
+    * Writes buffered entries to the file.
+    *
+    * @throws IOException
+    *            if writing fails
+    */
+   public void flush() throws IOException {
+      synchronized (writer) {
+         writer.flush();
+      }
+   }
+
+   @Override
+   public void close() throws IOException {
+      synchronized (writer) {
+         writer.close();
+      }
+   }
+
+   /**
+    * Reads all entries of a trace file. Empty lines are skipped.
+    *
+    * @param path
+    *           the trace file
+    * @return the entries in the order of the file
+    * @throws UncheckedIOException
+    *            if the file cannot be read
+    * @throws IllegalArgumentException
+    *            if the file contains a malformed line
+    */
+   public static List<TraceEntry> read(Path path) {
+      List<TraceEntry> entries = new ArrayList<>();
+      try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+         String line;
+         while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+               entries.add(TraceEntry.parse(line));
+            }
+         }
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+      return entries;
+   }
+}
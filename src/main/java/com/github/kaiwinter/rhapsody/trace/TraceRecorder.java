@@ -0,0 +1,23 @@
+package com.github.kaiwinter.rhapsody.trace;
+
+/**
+ * Receives every data call which is made through the {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper}.
+ * Register an implementation by
+ * {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper#setTraceRecorder(TraceRecorder)} to capture the traffic
+ * mix of an application, e.g. for replaying it later by the load generator of the test sources.
+ *
+ * <p>
+ * Implementations are called on the thread which calls the wrapper method, so they must be thread safe and should
+ * return quickly. Authorization calls are never recorded.
+ * </p>
+ */
+public interface TraceRecorder {
+
+   /**
+    * Records a call.
+    *
+    * @param entry
+    *           the {@link TraceEntry} describing the call
+    */
+   void record(TraceEntry entry);
+}
@@ -0,0 +1,73 @@
+package com.github.kaiwinter.rhapsody.trace;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which calls of the {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper} are traced and passes their
+ * {@link Span}s to a {@link SpanReporter}. Register it by
+ * {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper#setTracer(Tracer)}.
+ *
+ * <p>
+ * The decision is made once when a call starts (head-based sampling) and covers all requests of the call. The sample
+ * rate can be set per wrapper method, e.g. to trace all library mutations but only a few album loads. A call which
+ * isn't sampled uses {@link Span#NOT_SAMPLED} and isn't timed at all.
+ * </p>
+ */
+public final class Tracer {
+
+   private final SpanReporter reporter;
+   private final double sampleRate;
+   private final Map<String, Double> methodSampleRates = new ConcurrentHashMap<>();
+
+   /**
+    * Constructs a new {@link Tracer}.
+    *
+    * @param reporter
+    *           receives the finished spans
+    * @param sampleRate
+    *           the fraction of calls which are traced, between 0 and 1
+    */
+   public Tracer(SpanReporter reporter, double sampleRate) {
+      this.reporter = reporter;
+      this.sampleRate = checkRate(sampleRate);
+   }
+
+   /**
+    * Sets the sample rate of a single wrapper method.
+    *
+    * @param method
+    *           the name of the wrapper method, e.g. <code>loadAlbum</code>
+    * @param rate
+    *           the fraction of calls of the method which are traced, between 0 and 1
+    * @return this tracer
+    */
+   public Tracer setSampleRate(String method, double rate) {
+      methodSampleRates.put(method, checkRate(rate));
+      return this;
+   }
+
+   /**
+    * Starts the span of a call.
+    *
+    * @param method
+    *           the name of the wrapper method
+    * @return a new span if the call is sampled, otherwise {@link Span#NOT_SAMPLED}
+    */
+   public Span startSpan(String method) {
+      Double methodRate = methodSampleRates.get(method);
+      double rate = methodRate == null ? sampleRate : methodRate;
+      if (rate <= 0 || rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate) {
+         return Span.NOT_SAMPLED;
+      }
+      return new Span(method, reporter);
+   }
+
+   private static double checkRate(double rate) {
+      if (rate < 0 || rate > 1) {
+         throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+      }
+      return rate;
+   }
+}
@@ -0,0 +1,119 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.dispatch.CallHandle;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+/**
+ * Tests for {@link AlbumBatcher}.
+ */
+public final class AlbumBatcherTest {
+
+   /**
+    * Lookups are sent together when the batch is full or the window ends, results are passed to each caller and a
+    * missing album fails only its lookups.
+    */
+   @Test
+   public void batchBySizeAndWindow() throws Exception {
+      List<List<String>> requests = new CopyOnWriteArrayList<>();
+      AlbumBatcher batcher = new AlbumBatcher(50, TimeUnit.MILLISECONDS, 3, (albumIds, callback) -> {
+         requests.add(albumIds);
+         List<AlbumData> albums = new ArrayList<>();
+         for (String albumId : albumIds) {
+            if (!"missing".equals(albumId)) {
+               AlbumData album = new AlbumData();
+               album.id = albumId;
+               albums.add(album);
+            }
+         }
+         callback.success(albums, new Response("http://localhost", 200, "OK", Collections.emptyList(), null));
+         return new CallHandle();
+      });
+
+      Map<String, Object> results = new ConcurrentHashMap<>();
+      CountDownLatch done = new CountDownLatch(6);
+      for (String albumId : Arrays.asList("a", "b", "a", "missing", "c", "d")) {
+         batcher.load(albumId, new Callback<AlbumData>() {
+
+            @Override
+            public void success(AlbumData album, Response response) {
+               results.merge(album.id, 1, (count, one) -> (Integer) count + 1);
+               done.countDown();
+            }
+
+            @Override
+            public void failure(RetrofitError error) {
+               results.put(albumId, error.getResponse().getStatus());
+               done.countDown();
+            }
+         });
+      }
+      Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+
+      // the first batch is full after 3 different albums, the rest is sent when the window ends
+      Assert.assertEquals(Arrays.asList(Arrays.asList("a", "b", "missing"), Arrays.asList("c", "d")), requests);
+      Assert.assertEquals(2, results.get("a"));
+      Assert.assertEquals(404, results.get("missing"));
+      Assert.assertEquals(1, results.get("d"));
+
+      AlbumBatchStatistics statistics = batcher.getStatistics();
+      Assert.assertEquals(6, statistics.getLookups());
+      Assert.assertEquals(1, statistics.getDuplicates());
+      Assert.assertEquals(1, statistics.getBatches(3));
+      Assert.assertEquals(1, statistics.getBatches(2));
+      Assert.assertEquals(2.5, statistics.getMeanBatchSize(), 0.001);
+      Assert.assertEquals(3, statistics.getBatchSizePercentile(0.99));
+
+      // a batch whose lookups were all cancelled isn't sent
+      batcher.load("e", null).cancel();
+      batcher.shutdown();
+      Assert.assertEquals(2, requests.size());
+   }
+
+   /**
+    * A request which can't be sent on the timer thread fails every lookup of the batch.
+    */
+   @Test
+   public void sendThrows() throws Exception {
+      AlbumBatcher batcher = new AlbumBatcher(10, TimeUnit.MILLISECONDS, 10, (albumIds, callback) -> {
+         throw new IllegalStateException("Not authorized");
+      });
+      List<Throwable> failures = new CopyOnWriteArrayList<>();
+      CountDownLatch done = new CountDownLatch(2);
+      for (String albumId : Arrays.asList("a", "b")) {
+         batcher.load(albumId, new Callback<AlbumData>() {
+
+            @Override
+            public void success(AlbumData album, Response response) {
+               Assert.fail("Expected a failure");
+            }
+
+            @Override
+            public void failure(RetrofitError error) {
+               failures.add(error.getCause());
+               done.countDown();
+            }
+         });
+      }
+      Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+      Assert.assertEquals("Not authorized", failures.get(0).getMessage());
+      Assert.assertEquals("Not authorized", failures.get(1).getMessage());
+      batcher.shutdown();
+   }
+}
@@ -0,0 +1,110 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.cache.DataCache;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+
+/**
+ * Tests for {@link AlbumPrefetcher}.
+ */
+public final class AlbumPrefetcherTest {
+
+   /**
+    * Albums which don't fit into the queue are dropped, albums which are queued or loaded by the user are skipped, and
+    * a prefetched album counts as a hit once when it is served from the cache.
+    */
+   @Test
+   public void queueBoundDropsAndHits() throws Exception {
+      DataCache dataCache = new DataCache();
+      CountDownLatch release = new CountDownLatch(1);
+      List<String> loaded = new ArrayList<>();
+      AlbumPrefetcher prefetcher = new AlbumPrefetcher(10, 2, (catalog, albumId) -> {
+         try {
+            release.await(5, TimeUnit.SECONDS);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         synchronized (loaded) {
+            loaded.add(albumId);
+         }
+         return album(albumId);
+      }, dataCache);
+      try {
+         // the first album runs, two wait in the queue, the rest is dropped
+         prefetcher.prefetch("DE", albums("Alb.1", "Alb.2", "Alb.3", "Alb.4", "Alb.5"));
+         PrefetchStatistics statistics = prefetcher.getStatistics();
+         Assert.assertEquals(3, statistics.getScheduled());
+         Assert.assertEquals(2, statistics.getDropped());
+
+         prefetcher.loadStarted("Alb.6");
+         prefetcher.prefetch("DE", albums("Alb.1", "Alb.6"));
+         Assert.assertEquals(2, prefetcher.getStatistics().getSkipped());
+         prefetcher.loadFinished("Alb.6");
+
+         release.countDown();
+         long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+         while (prefetcher.getStatistics().getCompleted() < 3 && System.nanoTime() < timeout) {
+            Thread.sleep(10);
+         }
+         Assert.assertEquals(3, prefetcher.getStatistics().getCompleted());
+         Assert.assertNotNull(dataCache.getAlbum("DE", "Alb.3"));
+         synchronized (loaded) {
+            Assert.assertEquals(3, loaded.size());
+         }
+
+         prefetcher.albumServedFromCache("Alb.1");
+         prefetcher.albumServedFromCache("Alb.1");
+         prefetcher.albumServedFromCache("Alb.4");
+         Assert.assertEquals(1, prefetcher.getStatistics().getHits());
+
+         // cached albums are skipped
+         prefetcher.prefetch("DE", albums("Alb.2"));
+         Assert.assertEquals(3, prefetcher.getStatistics().getSkipped());
+      } finally {
+         prefetcher.shutdown();
+      }
+   }
+
+   /**
+    * Only the first albums of a list are prefetched, a failed load is counted.
+    */
+   @Test
+   public void countAndFailures() throws Exception {
+      AlbumPrefetcher prefetcher = new AlbumPrefetcher(2, 10, (catalog, albumId) -> {
+         throw new IllegalStateException("Not found");
+      }, new DataCache());
+      try {
+         prefetcher.prefetch("DE", albums("Alb.1", "Alb.2", "Alb.3"));
+         Assert.assertEquals(2, prefetcher.getStatistics().getScheduled());
+         long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+         while (prefetcher.getStatistics().getFailed() < 2 && System.nanoTime() < timeout) {
+            Thread.sleep(10);
+         }
+         Assert.assertEquals(2, prefetcher.getStatistics().getFailed());
+         Assert.assertEquals(0, prefetcher.getStatistics().getCompleted());
+      } finally {
+         prefetcher.shutdown();
+      }
+   }
+
+   private static List<AlbumData> albums(String... ids) {
+      List<AlbumData> albums = new ArrayList<>();
+      for (String id : ids) {
+         albums.add(album(id));
+      }
+      return albums;
+   }
+
+   private static AlbumData album(String id) {
+      AlbumData album = new AlbumData();
+      album.id = id;
+      return album;
+   }
+}
@@ -0,0 +1,94 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.persistence.AuthorizationStore;
+import com.github.kaiwinter.rhapsody.persistence.model.AuthorizationInfo;
+
+/**
+ * Tests for {@link RhapsodySdkWrapper.Builder#loadAuthorizationAsync(Executor)}.
+ */
+public final class AuthorizationLoadTest {
+
+   /**
+    * The authorization information is loaded by the executor, not by {@link RhapsodySdkWrapper.Builder#build()}.
+    */
+   @Test
+   public void loadedByExecutor() {
+      CountingStore store = new CountingStore(0);
+      List<Runnable> tasks = new ArrayList<>();
+      RhapsodySdkWrapper wrapper = RhapsodySdkWrapper.builder("key", "secret").authorizationStore(store)
+         .loadAuthorizationAsync(tasks::add).build();
+      Assert.assertEquals(0, store.loads.get());
+      Assert.assertEquals(1, tasks.size());
+
+      tasks.get(0).run();
+      Assert.assertEquals(1, store.loads.get());
+      wrapper.clearAuthorization();
+      Assert.assertEquals(1, store.loads.get());
+      Assert.assertEquals(1, store.clears.get());
+   }
+
+   /**
+    * A failed background load is repeated by the first call which needs the authorization information. If that fails
+    * too, the call fails instead of making requests without the token.
+    */
+   @Test
+   public void failedLoadIsRepeated() {
+      CountingStore store = new CountingStore(2);
+      RhapsodySdkWrapper wrapper = RhapsodySdkWrapper.builder("key", "secret").authorizationStore(store)
+         .loadAuthorizationAsync(Runnable::run).build();
+      Assert.assertEquals(1, store.loads.get());
+      try {
+         wrapper.clearAuthorization();
+         Assert.fail("Expected IllegalStateException");
+      } catch (IllegalStateException e) {
+         Assert.assertEquals("Store not available", e.getMessage());
+      }
+      Assert.assertEquals(2, store.loads.get());
+
+      wrapper.clearAuthorization();
+      Assert.assertEquals(3, store.loads.get());
+      wrapper.clearAuthorization();
+      Assert.assertEquals(3, store.loads.get());
+   }
+
+   /**
+    * Counts the calls, the first loads fail.
+    */
+   private static final class CountingStore implements AuthorizationStore {
+      private final AtomicInteger loads = new AtomicInteger();
+      private final AtomicInteger clears = new AtomicInteger();
+      private final int failures;
+
+      CountingStore(int failures) {
+         this.failures = failures;
+      }
+
+      @Override
+      public AuthorizationInfo loadAuthorizationInfo() {
+         if (loads.incrementAndGet() <= failures) {
+            throw new IllegalStateException("Store not available");
+         }
+         AuthorizationInfo authorizationInfo = new AuthorizationInfo();
+         authorizationInfo.accessToken = "accessToken";
+         return authorizationInfo;
+      }
+
+      @Override
+      public void saveAuthorizationInfo(AuthorizationInfo authorizationInfo) {
+         // not needed
+      }
+
+      @Override
+      public void clearAuthorization() {
+         clears.incrementAndGet();
+      }
+   }
+}
@@ -0,0 +1,131 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import retrofit.RetrofitError;
+import retrofit.client.Header;
+import retrofit.client.Response;
+
+/**
+ * Tests for {@link BulkLibraryMutation}.
+ */
+public final class BulkLibraryMutationTest {
+
+   /**
+    * A rejected multi-ID batch is split into single requests, a transient error is retried.
+    */
+   @Test
+   public void splitRejectedBatchAndRetryTransientErrors() throws Exception {
+      List<List<String>> requests = new CopyOnWriteArrayList<>();
+      int[] serverErrors = { 1 };
+
+      BulkMutationResult result = run(Arrays.asList("a", "b", "c", "b"), 3, (ids, callback) -> {
+         requests.add(ids);
+         if (ids.size() > 1) {
+            callback.failure(httpError(400));
+         } else if ("b".equals(ids.get(0)) && serverErrors[0]-- > 0) {
+            callback.failure(httpError(503));
+         } else if ("c".equals(ids.get(0))) {
+            callback.failure(httpError(404));
+         } else {
+            callback.success(null, null);
+         }
+      });
+
+      Assert.assertEquals(Arrays.asList("a", "b", "c"), requests.get(0));
+      Assert.assertEquals(5, requests.size());
+      Assert.assertEquals(Arrays.asList("a", "b"), new ArrayList<>(result.getSucceeded()));
+      Assert.assertEquals(Collections.singleton("c"), result.getFailed().keySet());
+      Assert.assertEquals(404, result.getFailed().get("c").getHttpCode());
+   }
+
+   /**
+    * A failure of the whole request, e.g. an expired authorization, fails the batch without splitting it.
+    */
+   @Test
+   public void unauthorizedBatchIsNotSplit() throws Exception {
+      List<List<String>> requests = new CopyOnWriteArrayList<>();
+      BulkMutationResult result = run(Arrays.asList("a", "b", "c"), 3, (ids, callback) -> {
+         requests.add(ids);
+         callback.failure(httpError(401));
+      });
+
+      Assert.assertEquals(1, requests.size());
+      Assert.assertEquals(3, result.getFailed().size());
+      Assert.assertEquals(401, result.getFailed().get("b").getHttpCode());
+   }
+
+   /**
+    * A request which can't be sent fails its batch without a retry, the other batches are sent.
+    */
+   @Test
+   public void senderThrows() throws Exception {
+      List<List<String>> requests = new CopyOnWriteArrayList<>();
+      BulkMutationResult result = run(Arrays.asList("a", "b", "c"), 2, (ids, callback) -> {
+         requests.add(ids);
+         if (ids.contains("a")) {
+            throw new IllegalStateException("Limit exceeded");
+         }
+         callback.success(null, null);
+      });
+
+      Assert.assertEquals(2, requests.size());
+      Assert.assertEquals(Collections.singletonList("c"), new ArrayList<>(result.getSucceeded()));
+      Assert.assertEquals(-1, result.getFailed().get("b").getHttpCode());
+      Assert.assertEquals(1, result.getFailed().get("b").getAttempts());
+   }
+
+   /**
+    * The <code>Retry-After</code> header is read as seconds or as HTTP date.
+    */
+   @Test
+   public void retryAfter() {
+      Assert.assertEquals(2_000, BulkLibraryMutation.retryAfterMillis(response(503, "2")));
+      String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60));
+      long millis = BulkLibraryMutation.retryAfterMillis(response(429, date));
+      Assert.assertTrue(String.valueOf(millis), millis > 55_000 && millis <= 60_000);
+      Assert.assertEquals(-1, BulkLibraryMutation.retryAfterMillis(response(429, "soon")));
+      Assert.assertEquals(-1, BulkLibraryMutation.retryAfterMillis(response(429, null)));
+   }
+
+   private static BulkMutationResult run(List<String> ids, int batchSize, BulkLibraryMutation.BatchSender sender)
+      throws Exception {
+      CompletableFuture<BulkMutationResult> result = new CompletableFuture<>();
+      new BulkLibraryMutation(ids, batchSize, 2, 3, 1, sender, new RhapsodyCallback<BulkMutationResult>() {
+
+         @Override
+         public void onSuccess(BulkMutationResult data) {
+            Assert.assertTrue(result.complete(data));
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            Assert.fail();
+         }
+      }).start();
+      return result.get(5, TimeUnit.SECONDS);
+   }
+
+   private static Response response(int status, String retryAfter) {
+      List<Header> headers = retryAfter == null ? Collections.emptyList()
+         : Collections.singletonList(new Header("Retry-After", retryAfter));
+      return new Response("http://localhost", status, "Error", headers, null);
+   }
+
+   private static RetrofitError httpError(int status) {
+      Response response = new Response("http://localhost", status, "Error", Collections.emptyList(), null);
+      return RetrofitError.httpError("http://localhost", response, null, null);
+   }
+}
@@ -0,0 +1,94 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.cache.DataCache;
+import com.github.kaiwinter.rhapsody.loadtest.StubApiServer;
+import com.github.kaiwinter.rhapsody.model.member.ChartDashboard;
+import com.github.kaiwinter.rhapsody.model.member.ChartsTrack;
+import com.github.kaiwinter.rhapsody.service.member.ChartService.RangeEnum;
+
+/**
+ * Tests for {@link RhapsodySdkWrapper#loadChartDashboard(String, Integer, java.util.Collection, RhapsodyCallback)}.
+ */
+public final class ChartDashboardTest {
+
+   /**
+    * The dashboard is cached per member and requested charts, and can't be modified by a caller.
+    */
+   @Test
+   public void cachedPerMember() throws Exception {
+      try (StubApiServer server = new StubApiServer(0, 4)) {
+         RhapsodySdkWrapper wrapper = new RhapsodySdkWrapper("key", "secret", null, server.getUrl());
+         ChartDashboard dashboard = load(wrapper, "member.1", RangeEnum.week, RangeEnum.month);
+         Assert.assertEquals(2, dashboard.tracks.get(RangeEnum.week).size());
+         Assert.assertEquals(2, dashboard.albums.get(RangeEnum.month).size());
+         Assert.assertNull(dashboard.artists.get(RangeEnum.life));
+
+         Assert.assertSame(dashboard, load(wrapper, "member.1", RangeEnum.month, RangeEnum.week));
+         Assert.assertNotSame(dashboard, load(wrapper, "member.2", RangeEnum.week, RangeEnum.month));
+         Assert.assertNotSame(dashboard, load(wrapper, "member.1", RangeEnum.week));
+         Assert.assertNotSame(load(wrapper, null, RangeEnum.week), load(wrapper, null, RangeEnum.week));
+
+         try {
+            dashboard.tracks.clear();
+            Assert.fail("Expected UnsupportedOperationException");
+         } catch (UnsupportedOperationException e) {
+            // expected
+         }
+         try {
+            dashboard.tracks.get(RangeEnum.week).clear();
+            Assert.fail("Expected UnsupportedOperationException");
+         } catch (UnsupportedOperationException e) {
+            // expected
+         }
+      }
+   }
+
+   /**
+    * An expired dashboard is not returned, the number of cached dashboards is bounded.
+    */
+   @Test
+   public void expiryAndBound() {
+      DataCache dataCache = new DataCache();
+      ChartDashboard dashboard = new ChartDashboard();
+      dashboard.tracks.put(RangeEnum.week, Collections.singletonList(new ChartsTrack()));
+      ChartDashboard shared = dashboard.unmodifiableCopy();
+      Assert.assertEquals(1, shared.tracks.get(RangeEnum.week).size());
+
+      dataCache.putChartDashboard("expired", shared, System.currentTimeMillis() - 1);
+      Assert.assertNull(dataCache.getChartDashboard("expired"));
+
+      long tomorrow = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+      dataCache.putChartDashboard("first", shared, tomorrow);
+      for (int i = 0; i < 1000; i++) {
+         dataCache.putChartDashboard("member." + i, shared, tomorrow);
+      }
+      Assert.assertNull(dataCache.getChartDashboard("first"));
+      Assert.assertSame(shared, dataCache.getChartDashboard("member.999"));
+   }
+
+   private static ChartDashboard load(RhapsodySdkWrapper wrapper, String memberId, RangeEnum... ranges)
+      throws Exception {
+      CompletableFuture<ChartDashboard> result = new CompletableFuture<>();
+      wrapper.loadChartDashboard(memberId, 5, Arrays.asList(ranges), new RhapsodyCallback<ChartDashboard>() {
+
+         @Override
+         public void onSuccess(ChartDashboard data) {
+            result.complete(data);
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            result.completeExceptionally(new IllegalStateException(httpCode + " " + message));
+         }
+      });
+      return result.get(5, TimeUnit.SECONDS);
+   }
+}
@@ -0,0 +1,132 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import retrofit.Callback;
+import retrofit.client.Response;
+
+/**
+ * Tests for {@link ChartHydrator}.
+ */
+public final class ChartHydratorTest {
+
+   /**
+    * Cached IDs are not requested, duplicate IDs are requested once, the batches are sent with a bounded number in
+    * flight and the entries are passed to the listeners in rank order.
+    */
+   @Test
+   public void cacheBatchesAndPartialResults() {
+      Map<String, String> cache = new HashMap<>();
+      cache.put("Tra.2", "Tra.2");
+      List<HydratedEntry<String>> entries = entries("Tra.1", "Tra.2", "Tra.3", "Tra.1", "Tra.4", "Tra.5", "Tra.6");
+      QueuedLoader loader = new QueuedLoader();
+      List<List<Integer>> partial = new ArrayList<>();
+      AtomicReference<List<HydratedEntry<String>>> result = new AtomicReference<>();
+      ChartHydrator<String> hydrator = new ChartHydrator<>(entries, cache::get, id -> cache.put(id, id), id -> id, 2, 2,
+         loader, resolved -> partial.add(ranks(resolved)), callback(result, null));
+
+      hydrator.start();
+      Assert.assertEquals(Arrays.asList(Arrays.asList("Tra.1", "Tra.3"), Arrays.asList("Tra.4", "Tra.5")),
+         loader.sent);
+      Assert.assertEquals(Collections.singletonList(Arrays.asList(2)), partial);
+
+      // the second batch returns first, an unrequested ID is ignored
+      loader.answer(1, Arrays.asList("Tra.5", "Tra.4", "Tra.9"));
+      Assert.assertEquals(Arrays.asList("Tra.6"), loader.sent.get(2));
+      Assert.assertEquals(Arrays.asList(5, 6), partial.get(1));
+
+      loader.answer(0, Arrays.asList("Tra.1", "Tra.3"));
+      Assert.assertEquals(Arrays.asList(1, 3, 4), partial.get(2));
+      Assert.assertNull(result.get());
+
+      loader.answer(2, Collections.emptyList());
+      Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7), ranks(result.get()));
+      Assert.assertFalse(result.get().get(6).isHydrated());
+      Assert.assertEquals("Tra.1", result.get().get(3).getMetadata());
+      Assert.assertEquals(5, cache.size());
+   }
+
+   /**
+    * A loader which throws fails its batch, the callback is called once all batches returned.
+    */
+   @Test
+   public void throwingLoader() {
+      List<List<String>> sent = new ArrayList<>();
+      ChartHydrator.BatchLoader<String> loader = (ids, callback) -> {
+         sent.add(ids);
+         if (ids.contains("Tra.1")) {
+            throw new IllegalStateException("No authorization");
+         }
+         callback.success(ids, null);
+      };
+      AtomicReference<List<HydratedEntry<String>>> result = new AtomicReference<>();
+      new ChartHydrator<>(entries("Tra.1", "Tra.2", "Tra.3"), id -> null, id -> {
+      }, id -> id, 1, 1, loader, null, callback(result, null)).start();
+      Assert.assertEquals(3, sent.size());
+      Assert.assertFalse(result.get().get(0).isHydrated());
+      Assert.assertTrue(result.get().get(2).isHydrated());
+
+      // nothing could be resolved, the failure is passed on
+      AtomicReference<String> failure = new AtomicReference<>();
+      new ChartHydrator<>(entries("Tra.1"), id -> null, id -> {
+      }, id -> id, 1, 1, loader, null, callback(null, failure)).start();
+      Assert.assertEquals("No authorization", failure.get());
+   }
+
+   private static List<HydratedEntry<String>> entries(String... ids) {
+      List<HydratedEntry<String>> entries = new ArrayList<>();
+      for (String id : ids) {
+         entries.add(new HydratedEntry<>(entries.size() + 1, id, 1));
+      }
+      return entries;
+   }
+
+   private static List<Integer> ranks(List<HydratedEntry<String>> entries) {
+      return entries.stream().map(HydratedEntry::getRank).collect(Collectors.toList());
+   }
+
+   private static RhapsodyCallback<List<HydratedEntry<String>>> callback(
+      AtomicReference<List<HydratedEntry<String>>> result, AtomicReference<String> failure) {
+      return new RhapsodyCallback<List<HydratedEntry<String>>>() {
+
+         @Override
+         public void onSuccess(List<HydratedEntry<String>> data) {
+            Assert.assertNull(result.getAndSet(data));
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            Assert.assertNull(failure.getAndSet(message));
+         }
+      };
+   }
+
+   /**
+    * Records the batches and answers them when the test says so.
+    */
+   private static final class QueuedLoader implements ChartHydrator.BatchLoader<String> {
+      private final List<List<String>> sent = new ArrayList<>();
+      private final List<Callback<Collection<String>>> callbacks = new ArrayList<>();
+
+      @Override
+      public void load(List<String> ids, Callback<Collection<String>> callback) {
+         sent.add(new ArrayList<>(ids));
+         callbacks.add(callback);
+      }
+
+      void answer(int batch, Collection<String> data) {
+         callbacks.get(batch).success(data, (Response) null);
+      }
+   }
+}
@@ -0,0 +1,149 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.github.kaiwinter.rhapsody.dispatch.CallHandle;
+
+/**
+ * Tests for {@link PagedPublisher}.
+ */
+public final class PagedPublisherTest {
+
+   /**
+    * Pages are only loaded when the demand exceeds the loaded entries.
+    */
+   @Test
+   public void demandDrivesPageLoads() {
+      List<RhapsodyCallback<Collection<Integer>>> pending = new ArrayList<>();
+      List<Integer> offsets = new ArrayList<>();
+      PagedPublisher<Integer> publisher = new PagedPublisher<>((offset, limit, callback) -> {
+         offsets.add(offset);
+         pending.add(callback);
+         return new CallHandle();
+      }, 10);
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      publisher.subscribe(subscriber);
+      Assert.assertTrue(offsets.isEmpty());
+
+      subscriber.subscription.request(3);
+      Assert.assertEquals(1, offsets.size());
+      pending.remove(0).onSuccess(range(0, 10));
+      Assert.assertEquals(range(0, 3), subscriber.received);
+
+      subscriber.subscription.request(7);
+      Assert.assertEquals("buffered entries are emitted without a request", 1, offsets.size());
+      Assert.assertEquals(range(0, 10), subscriber.received);
+
+      subscriber.subscription.request(5);
+      Assert.assertEquals(2, offsets.size());
+      Assert.assertEquals(10, offsets.get(1).intValue());
+      pending.remove(0).onSuccess(range(10, 14));
+      Assert.assertEquals(range(0, 14), subscriber.received);
+      Assert.assertTrue(subscriber.completed);
+   }
+
+   /**
+    * Cancelling the subscription cancels the running page load and no further signals are emitted.
+    */
+   @Test
+   public void cancelStopsLoading() {
+      List<RhapsodyCallback<Collection<Integer>>> pending = new ArrayList<>();
+      CallHandle handle = new CallHandle();
+      PagedPublisher<Integer> publisher = new PagedPublisher<>((offset, limit, callback) -> {
+         pending.add(callback);
+         return handle;
+      }, 10);
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      publisher.subscribe(subscriber);
+
+      subscriber.subscription.request(Long.MAX_VALUE);
+      subscriber.subscription.cancel();
+      Assert.assertTrue(handle.isCancelled());
+
+      pending.get(0).onSuccess(range(0, 10));
+      Assert.assertTrue(subscriber.received.isEmpty());
+      Assert.assertFalse(subscriber.completed);
+   }
+
+   /**
+    * A failed page load is passed to the subscriber after the loaded entries.
+    */
+   @Test
+   public void failureAfterLoadedEntries() {
+      PagedPublisher<Integer> publisher = new PagedPublisher<>((offset, limit, callback) -> {
+         if (offset == 0) {
+            callback.onSuccess(range(0, 2));
+         } else {
+            callback.onFailure(500, "Internal Server Error");
+         }
+         return new CallHandle();
+      }, 2);
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      publisher.subscribe(subscriber);
+
+      subscriber.subscription.request(5);
+      Assert.assertEquals(range(0, 2), subscriber.received);
+      Assert.assertEquals(500, ((RhapsodyException) subscriber.error).getHttpCode());
+   }
+
+   /**
+    * A page load which throws is passed to the subscriber instead of stalling the stream.
+    */
+   @Test
+   public void loaderThrows() {
+      PagedPublisher<Integer> publisher = new PagedPublisher<>((offset, limit, callback) -> {
+         if (offset > 0) {
+            throw new IllegalStateException("No authorization");
+         }
+         callback.onSuccess(range(0, 2));
+         return new CallHandle();
+      }, 2);
+      RecordingSubscriber subscriber = new RecordingSubscriber();
+      publisher.subscribe(subscriber);
+
+      subscriber.subscription.request(5);
+      Assert.assertEquals(range(0, 2), subscriber.received);
+      Assert.assertEquals("No authorization", subscriber.error.getMessage());
+      Assert.assertFalse(subscriber.completed);
+   }
+
+   private static List<Integer> range(int from, int to) {
+      return IntStream.range(from, to).boxed().collect(Collectors.toList());
+   }
+
+   private static final class RecordingSubscriber implements Subscriber<Integer> {
+      private final List<Integer> received = new ArrayList<>();
+      private Subscription subscription;
+      private Throwable error;
+      private boolean completed;
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+         this.subscription = subscription;
+      }
+
+      @Override
+      public void onNext(Integer entry) {
+         received.add(entry);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+         error = throwable;
+      }
+
+      @Override
+      public void onComplete() {
+         completed = true;
+      }
+   }
+}
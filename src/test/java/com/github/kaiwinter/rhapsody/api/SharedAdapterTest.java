@@ -0,0 +1,86 @@
+package com.github.kaiwinter.rhapsody.api;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.loadtest.StubApiServer;
+import com.github.kaiwinter.rhapsody.model.GenreData;
+import com.github.kaiwinter.rhapsody.service.metadata.GenreService;
+import com.github.kaiwinter.rhapsody.service.metadata.TrackService;
+
+/**
+ * Tests for {@link SharedAdapter}.
+ */
+public final class SharedAdapterTest {
+
+   /**
+    * Nothing is built before the first request, so an invalid endpoint only fails the first request.
+    */
+   @Test
+   public void builtOnFirstRequest() {
+      SharedAdapter adapter = new SharedAdapter("");
+      RhapsodySdkWrapper wrapper = RhapsodySdkWrapper.builder("key", "secret").adapter(adapter).build();
+      try {
+         wrapper.loadGenres(new FailingCallback<>());
+         Assert.fail("Expected NullPointerException");
+      } catch (NullPointerException e) {
+         // expected: blank endpoint
+      }
+   }
+
+   /**
+    * A service proxy is created once and shared by the wrappers which share the adapter.
+    */
+   @Test
+   public void sharedServices() throws Exception {
+      try (StubApiServer server = new StubApiServer(0, 2)) {
+         SharedAdapter adapter = new SharedAdapter(server.getUrl());
+         GenreService genreService = adapter.service(GenreService.class);
+         Assert.assertSame(genreService, adapter.service(GenreService.class));
+         Assert.assertSame(adapter.service(TrackService.class), adapter.warmUp().service(TrackService.class));
+
+         RhapsodySdkWrapper first = RhapsodySdkWrapper.builder("key", "secret").adapter(adapter).build();
+         RhapsodySdkWrapper second = RhapsodySdkWrapper.builder("key", "secret").adapter(adapter).build();
+         Assert.assertEquals("g.1", loadGenres(first).iterator().next().id);
+         Assert.assertEquals("g.1", loadGenres(second).iterator().next().id);
+         Assert.assertSame(genreService, adapter.service(GenreService.class));
+      }
+   }
+
+   private static Collection<GenreData> loadGenres(RhapsodySdkWrapper wrapper) throws Exception {
+      CompletableFuture<Collection<GenreData>> result = new CompletableFuture<>();
+      wrapper.loadGenres(new RhapsodyCallback<Collection<GenreData>>() {
+
+         @Override
+         public void onSuccess(Collection<GenreData> data) {
+            result.complete(data);
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            result.completeExceptionally(new IllegalStateException(httpCode + " " + message));
+         }
+      });
+      return result.get(5, TimeUnit.SECONDS);
+   }
+
+   /**
+    * Fails the test if called.
+    */
+   private static final class FailingCallback<T> implements RhapsodyCallback<T> {
+
+      @Override
+      public void onSuccess(T data) {
+         Assert.fail("Unexpected success");
+      }
+
+      @Override
+      public void onFailure(int httpCode, String message) {
+         Assert.fail(message);
+      }
+   }
+}
@@ -0,0 +1,89 @@
+package com.github.kaiwinter.rhapsody.benchmark;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.github.kaiwinter.rhapsody.converter.CanonicalizingConverter;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import retrofit.converter.GsonConverter;
+import retrofit.mime.TypedByteArray;
+
+/**
+ * Measures the retained heap of decoded album lists with and without {@link CanonicalizingConverter}. Run the
+ * <code>main</code> method, it is not part of the test suite.
+ */
+public final class CanonicalizationHeapBenchmark {
+
+   private static final int LISTS = 2_000;
+   private static final int ALBUMS_PER_LIST = 20;
+   private static final int TRACKS_PER_ALBUM = 12;
+
+   private CanonicalizationHeapBenchmark() {
+   }
+
+   /**
+    * Runs the benchmark.
+    *
+    * @param args
+    *           unused
+    * @throws Exception
+    *            if decoding fails
+    */
+   public static void main(String[] args) throws Exception {
+      byte[] json = albumListJson().getBytes(StandardCharsets.UTF_8);
+      System.out.printf("Plain:          %,d bytes retained%n", retainedBytes(json, false));
+      System.out.printf("Canonicalized:  %,d bytes retained%n", retainedBytes(json, true));
+   }
+
+   private static long retainedBytes(byte[] json, boolean canonicalize) throws Exception {
+      CanonicalizingConverter converter = new CanonicalizingConverter(new GsonConverter(new Gson()));
+      converter.setEnabled(canonicalize);
+      Type type = new TypeToken<Collection<AlbumData>>() {
+      }.getType();
+
+      long before = usedHeap();
+      List<Object> retained = new ArrayList<>(LISTS);
+      for (int i = 0; i < LISTS; i++) {
+         retained.add(converter.fromBody(new TypedByteArray("application/json", json), type));
+      }
+      long after = usedHeap();
+      if (retained.size() != LISTS) {
+         throw new IllegalStateException();
+      }
+      return after - before;
+   }
+
+   private static long usedHeap() throws InterruptedException {
+      for (int i = 0; i < 3; i++) {
+         System.gc();
+         Thread.sleep(100);
+      }
+      Runtime runtime = Runtime.getRuntime();
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+
+   private static String albumListJson() {
+      StringBuilder json = new StringBuilder("[");
+      for (int album = 0; album < ALBUMS_PER_LIST; album++) {
+         String albumId = "Alb." + (1000 + album);
+         String artist = "{\"id\":\"Art." + (album % 5) + "\",\"name\":\"Artist " + (album % 5) + "\"}";
+         json.append(album == 0 ? "" : ",").append("{\"id\":\"").append(albumId).append("\",\"name\":\"Album ")
+            .append(album).append("\",\"discCount\":1,\"artist\":").append(artist)
+            .append(",\"type\":{\"id\":0,\"name\":\"Main Release\"},\"tags\":[\"Rock\",\"Alternative\"],\"tracks\":[");
+         for (int track = 0; track < TRACKS_PER_ALBUM; track++) {
+            json.append(track == 0 ? "" : ",").append("{\"id\":\"Tra.").append(album * 100 + track)
+               .append("\",\"name\":\"Track ").append(track).append("\",\"disc\":1,\"artist\":").append(artist)
+               .append(",\"album\":{\"id\":\"").append(albumId).append("\",\"name\":\"Album ").append(album)
+               .append("\"},\"genre\":{\"id\":\"g.5\"},\"duration\":200}");
+         }
+         json.append("]}");
+      }
+      return json.append("]").toString();
+   }
+}
@@ -0,0 +1,117 @@
+package com.github.kaiwinter.rhapsody.benchmark;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import com.github.kaiwinter.rhapsody.converter.ModelTypeAdapters;
+import com.github.kaiwinter.rhapsody.model.AccountData;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import retrofit.converter.GsonConverter;
+import retrofit.mime.TypedByteArray;
+
+/**
+ * Compares decoding with Gson's reflective adapters and with the {@link ModelTypeAdapters}: the first decode of a
+ * fresh {@link Gson} instance, which includes building the adapters, and the throughput after warming up. Run the
+ * <code>main</code> method, it is not part of the test suite.
+ */
+public final class ModelDecodingBenchmark {
+
+   private static final int ALBUMS_PER_LIST = 20;
+   private static final int TRACKS_PER_ALBUM = 12;
+   private static final int WARMUP_ROUNDS = 20_000;
+   private static final int MEASURED_ROUNDS = 20_000;
+
+   private ModelDecodingBenchmark() {
+   }
+
+   /**
+    * Runs the benchmark.
+    *
+    * @param args
+    *           unused
+    * @throws Exception
+    *            if decoding fails
+    */
+   public static void main(String[] args) throws Exception {
+      byte[] albums = albumListJson().getBytes(StandardCharsets.UTF_8);
+      byte[] account = accountJson().getBytes(StandardCharsets.UTF_8);
+      Type albumList = new TypeToken<Collection<AlbumData>>() {
+      }.getType();
+
+      // loads Gson's own classes so the first decodes only measure building the model classes' adapters
+      ModelTypeAdapters.createGson().fromJson("[\"\"]", String[].class);
+      System.out.printf("First album list decode, reflective: %,8d us%n", firstDecode(Gson::new, albums, albumList));
+      System.out.printf("First album list decode, model:      %,8d us%n",
+         firstDecode(ModelTypeAdapters::createGson, albums, albumList));
+      System.out.printf("First account decode, reflective:    %,8d us%n",
+         firstDecode(Gson::new, account, AccountData.class));
+      System.out.printf("First account decode, model:         %,8d us%n",
+         firstDecode(ModelTypeAdapters::createGson, account, AccountData.class));
+
+      GsonConverter reflective = new GsonConverter(new Gson());
+      GsonConverter model = new GsonConverter(ModelTypeAdapters.createGson());
+      System.out.printf("Album lists, reflective: %,10.0f decodes/s%n", throughput(reflective, albums, albumList));
+      System.out.printf("Album lists, model:      %,10.0f decodes/s%n", throughput(model, albums, albumList));
+      System.out.printf("Accounts, reflective:    %,10.0f decodes/s%n",
+         throughput(reflective, account, AccountData.class));
+      System.out.printf("Accounts, model:         %,10.0f decodes/s%n", throughput(model, account, AccountData.class));
+   }
+
+   private static long firstDecode(Supplier<Gson> gson, byte[] json, Type type) throws Exception {
+      long start = System.nanoTime();
+      new GsonConverter(gson.get()).fromBody(new TypedByteArray("application/json", json), type);
+      return (System.nanoTime() - start) / 1_000;
+   }
+
+   private static double throughput(GsonConverter converter, byte[] json, Type type) throws Exception {
+      int sink = 0;
+      for (int i = 0; i < WARMUP_ROUNDS; i++) {
+         sink += converter.fromBody(new TypedByteArray("application/json", json), type).hashCode();
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < MEASURED_ROUNDS; i++) {
+         sink += converter.fromBody(new TypedByteArray("application/json", json), type).hashCode();
+      }
+      long elapsed = System.nanoTime() - start;
+      if (sink == 42) {
+         System.out.println();
+      }
+      return MEASURED_ROUNDS * 1e9 / elapsed;
+   }
+
+   private static String accountJson() {
+      return "{\"cobrand\":\"40134\",\"cocat\":\"1\",\"email\":\"user@example.com\",\"logon\":\"user\","
+         + "\"firstName\":\"First\",\"id\":\"1234\",\"lastName\":\"Last\",\"locale\":\"de_DE\",\"country\":\"DE\","
+         + "\"isPublic\":false,\"billingPartnerCode\":\"ABC\",\"catalog\":\"DE\",\"createDate\":1420070400000,"
+         + "\"isSuspended\":false,\"tierCode\":\"RHAPSODY_PREMIER\",\"tierName\":\"Premier\",\"productCode\":\"P1\","
+         + "\"productName\":\"Premier\",\"expirationDate\":0,\"trialLengthDays\":30,\"isTrial\":false,"
+         + "\"state\":\"ACTIVE\",\"canStreamOnWeb\":true,\"canStreamOnMobile\":true,\"canStreamOnHomeDevice\":true,"
+         + "\"canStreamOnPC\":true,\"canUpgradeStreams\":false,\"canPlayPremiumRadio\":true,\"maxStreamCount\":1,"
+         + "\"isPlayBasedTier\":false,\"isMonthlyPlayBasedTier\":false,\"isOneTimePlayBasedTier\":false,"
+         + "\"totalPlays\":null,\"playsRemaining\":null,\"skipLimit\":6,\"skipLimitMinutes\":60}";
+   }
+
+   private static String albumListJson() {
+      StringBuilder json = new StringBuilder("[");
+      for (int album = 0; album < ALBUMS_PER_LIST; album++) {
+         String albumId = "Alb." + (1000 + album);
+         String artist = "{\"id\":\"Art." + (album % 5) + "\",\"name\":\"Artist " + (album % 5) + "\"}";
+         json.append(album == 0 ? "" : ",").append("{\"id\":\"").append(albumId).append("\",\"name\":\"Album ")
+            .append(album).append("\",\"discCount\":1,\"artist\":").append(artist)
+            .append(",\"type\":{\"id\":0,\"name\":\"Main Release\"},\"tags\":[\"Rock\",\"Alternative\"],\"tracks\":[");
+         for (int track = 0; track < TRACKS_PER_ALBUM; track++) {
+            json.append(track == 0 ? "" : ",").append("{\"id\":\"Tra.").append(album * 100 + track)
+               .append("\",\"name\":\"Track ").append(track).append("\",\"disc\":1,\"artist\":").append(artist)
+               .append(",\"album\":{\"id\":\"").append(albumId).append("\",\"name\":\"Album ").append(album)
+               .append("\"},\"genre\":{\"id\":\"g.5\"},\"duration\":200}");
+         }
+         json.append("]}");
+      }
+      return json.append("]").toString();
+   }
+}
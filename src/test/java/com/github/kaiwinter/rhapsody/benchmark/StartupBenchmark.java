@@ -0,0 +1,89 @@
+package com.github.kaiwinter.rhapsody.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+
+import com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper;
+import com.github.kaiwinter.rhapsody.api.SharedAdapter;
+import com.github.kaiwinter.rhapsody.persistence.AuthorizationStore;
+import com.github.kaiwinter.rhapsody.persistence.model.AuthorizationInfo;
+
+/**
+ * Measures the time to create a {@link RhapsodySdkWrapper}. Run the <code>main</code> method in a fresh JVM, the first
+ * measurement includes class loading. It is not part of the test suite.
+ */
+public final class StartupBenchmark {
+
+   private static final String API_URL = "http://localhost:1";
+   private static final int INSTANCES = 1_000;
+   private static final long STORE_LATENCY_MILLIS = 30;
+
+   private StartupBenchmark() {
+   }
+
+   /**
+    * Runs the benchmark.
+    *
+    * @param args
+    *           unused
+    */
+   public static void main(String[] args) {
+      long start = System.nanoTime();
+      RhapsodySdkWrapper.builder("key", "secret").apiUrl(API_URL).build();
+      System.out.printf("First wrapper (cold):              %,8d us%n", micros(start));
+
+      start = System.nanoTime();
+      new SharedAdapter(API_URL).warmUp();
+      System.out.printf("First adapter warm-up (cold):      %,8d us%n", micros(start));
+
+      start = System.nanoTime();
+      for (int i = 0; i < INSTANCES; i++) {
+         SharedAdapter adapter = new SharedAdapter(API_URL).warmUp();
+         RhapsodySdkWrapper.builder("key", "secret").adapter(adapter).build();
+      }
+      System.out.printf("Wrapper with own built adapter:    %,8d ns%n", (System.nanoTime() - start) / INSTANCES);
+
+      SharedAdapter shared = new SharedAdapter(API_URL).warmUp();
+      start = System.nanoTime();
+      for (int i = 0; i < INSTANCES; i++) {
+         RhapsodySdkWrapper.builder("key", "secret").adapter(shared).build();
+      }
+      System.out.printf("Wrapper with shared adapter:       %,8d ns%n", (System.nanoTime() - start) / INSTANCES);
+
+      start = System.nanoTime();
+      RhapsodySdkWrapper.builder("key", "secret").adapter(shared).authorizationStore(new SlowStore()).build();
+      System.out.printf("Wrapper, blocking store load:      %,8d us%n", micros(start));
+
+      start = System.nanoTime();
+      RhapsodySdkWrapper.builder("key", "secret").adapter(shared).authorizationStore(new SlowStore())
+         .loadAuthorizationAsync(ForkJoinPool.commonPool()).build();
+      System.out.printf("Wrapper, background store load:    %,8d us%n", micros(start));
+   }
+
+   private static long micros(long start) {
+      return (System.nanoTime() - start) / 1_000;
+   }
+
+   /**
+    * A store which takes as long as a read from slow flash storage.
+    */
+   private static final class SlowStore implements AuthorizationStore {
+
+      @Override
+      public AuthorizationInfo loadAuthorizationInfo() {
+         try {
+            Thread.sleep(STORE_LATENCY_MILLIS);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         return new AuthorizationInfo();
+      }
+
+      @Override
+      public void saveAuthorizationInfo(AuthorizationInfo authorizationInfo) {
+      }
+
+      @Override
+      public void clearAuthorization() {
+      }
+   }
+}
@@ -0,0 +1,104 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+/**
+ * Tests for {@link NearCacheStore} with a {@link SocketCacheServer}.
+ */
+public final class NearCacheStoreTest {
+
+   private static final long NEVER = Long.MAX_VALUE;
+
+   /**
+    * A value written by one node is read by another from the shared cache and is invalidated in its local cache when it
+    * is written again.
+    */
+   @Test
+   public void sharedBetweenNodes() throws Exception {
+      try (SocketCacheServer server = new SocketCacheServer(0);
+         SocketCacheBackend backend1 = new SocketCacheBackend("localhost", server.getPort());
+         SocketCacheBackend backend2 = new SocketCacheBackend("localhost", server.getPort())) {
+         NearCacheStore<AlbumData> node1 = new NearCacheStore<>("album", new AlbumDataCodec(), backend1, 100);
+         NearCacheStore<AlbumData> node2 = new NearCacheStore<>("album", new AlbumDataCodec(), backend2, 100);
+
+         Assert.assertNull(node2.get("Alb.1"));
+         node1.put("Alb.1", album("Alb.1", "First"), NEVER);
+         Assert.assertEquals("First", node2.get("Alb.1").name);
+         Assert.assertEquals(1, node2.getRemoteHits());
+         // the invalidation of the put may arrive after the first read, then the next read goes to the shared cache
+         long deadline = System.currentTimeMillis() + 5_000;
+         while (node2.getLocalHits() == 0) {
+            Assert.assertTrue("not cached locally", System.currentTimeMillis() < deadline);
+            Assert.assertEquals("First", node2.get("Alb.1").name);
+         }
+         Assert.assertEquals(1, node2.getMisses());
+
+         node1.put("Alb.1", album("Alb.1", "Second"), NEVER);
+         deadline = System.currentTimeMillis() + 5_000;
+         while (!"Second".equals(node2.get("Alb.1").name)) {
+            Assert.assertTrue("invalidation not received", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+         }
+
+         node2.remove("Alb.1");
+         Assert.assertNull(node2.get("Alb.1"));
+
+         // without the shared cache the local cache still works
+         server.close();
+         node1.put("Alb.2", album("Alb.2", "Local"), NEVER);
+         Assert.assertEquals("Local", node1.get("Alb.2").name);
+      }
+   }
+
+   /**
+    * Albums and new releases which nodes share are kept per catalog.
+    */
+   @Test
+   public void sharedPerCatalog() throws Exception {
+      try (SocketCacheServer server = new SocketCacheServer(0);
+         SocketCacheBackend backend1 = new SocketCacheBackend("localhost", server.getPort());
+         SocketCacheBackend backend2 = new SocketCacheBackend("localhost", server.getPort())) {
+         DataCache node1 = new DataCache(new NearCacheStore<>("album", new AlbumDataCodec(), backend1, 100),
+            new NearCacheStore<>("new", new CollectionCodec<>(new AlbumDataCodec()), backend1, 100));
+         DataCache node2 = new DataCache(new NearCacheStore<>("album", new AlbumDataCodec(), backend2, 100),
+            new NearCacheStore<>("new", new CollectionCodec<>(new AlbumDataCodec()), backend2, 100));
+
+         node1.putAlbum("US", album("Alb.1", "US"));
+         Assert.assertEquals("US", node2.getAlbum("US", "Alb.1").name);
+         Assert.assertNull(node2.getAlbum("DE", "Alb.1"));
+
+         Collection<AlbumData> releases = Collections.singletonList(album("Alb.2", "New"));
+         node1.getAddNewReleasesToCacheCallback("US", "g.1", new Callback<Collection<AlbumData>>() {
+
+            @Override
+            public void success(Collection<AlbumData> albums, Response response) {
+               // cached
+            }
+
+            @Override
+            public void failure(RetrofitError error) {
+               Assert.fail(error.getMessage());
+            }
+         }).success(releases, null);
+         Assert.assertEquals("New", node2.getNewReleases("US", "g.1").iterator().next().name);
+         Assert.assertNull(node2.getNewReleases("DE", "g.1"));
+      }
+   }
+
+   private static AlbumData album(String id, String name) {
+      AlbumData album = new AlbumData();
+      album.id = id;
+      album.name = name;
+      return album;
+   }
+}
@@ -0,0 +1,97 @@
+package com.github.kaiwinter.rhapsody.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.converter.ModelTypeAdapters;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Artist;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Track;
+import com.google.gson.Gson;
+
+/**
+ * Tests for {@link OffHeapCacheStore}.
+ */
+public final class OffHeapCacheStoreTest {
+
+   private static final long NEVER = Long.MAX_VALUE;
+
+   /**
+    * A stored album is decoded to an equal copy, expired albums are gone.
+    */
+   @Test
+   public void roundTrip() {
+      OffHeapCacheStore<AlbumData> store = new OffHeapCacheStore<>(new AlbumDataCodec(), 1 << 16, 4096);
+      AlbumData album = album("Alb.1", 3);
+      store.put(album.id, album, NEVER);
+
+      AlbumData cached = store.get("Alb.1");
+      Gson gson = ModelTypeAdapters.createGson();
+      Assert.assertNotSame(album, cached);
+      Assert.assertEquals(gson.toJson(album), gson.toJson(cached));
+      Assert.assertSame(cached.artist, cached.tracks.get(0).artist);
+      Assert.assertNull(store.get("Alb.2"));
+
+      store.put("Alb.3", album("Alb.3", 1), System.currentTimeMillis() - 1);
+      Assert.assertNull(store.get("Alb.3"));
+      Assert.assertEquals(1, store.getStatistics().getEntries());
+   }
+
+   /**
+    * When the capacity is reached, the least recently used album of the size class is evicted and empty slabs are
+    * taken over by other size classes.
+    */
+   @Test
+   public void evictionAndSlabReuse() {
+      int slabSize = 4096;
+      OffHeapCacheStore<AlbumData> store = new OffHeapCacheStore<>(new AlbumDataCodec(), 2 * slabSize, slabSize);
+      for (int i = 0; i < 200; i++) {
+         store.put("Alb." + i, album("Alb." + i, 0), NEVER);
+         Assert.assertNotNull(store.get("Alb.0"));
+      }
+      OffHeapCacheStatistics statistics = store.getStatistics();
+      Assert.assertEquals(2 * slabSize, statistics.getReservedBytes());
+      Assert.assertTrue(statistics.getEvictions() > 0);
+      Assert.assertNotNull("recently used album was evicted", store.get("Alb.0"));
+      Assert.assertNull(store.get("Alb.1"));
+      Assert.assertNotNull(store.get("Alb.199"));
+
+      // albums with many tracks need a larger size class, its slab is taken from the small albums
+      store.put("Big.1", album("Big.1", 20), NEVER);
+      Assert.assertNotNull(store.get("Big.1"));
+      Assert.assertEquals(0, store.getStatistics().getRejections());
+
+      store.put("Huge", album("Huge", 500), NEVER);
+      Assert.assertNull(store.get("Huge"));
+      Assert.assertEquals(1, store.getStatistics().getRejections());
+      Assert.assertTrue(store.getStatistics().getFragmentation() > 0);
+   }
+
+   private static AlbumData album(String id, int tracks) {
+      AlbumData album = new AlbumData();
+      album.id = id;
+      album.name = "Album " + id;
+      album.discCount = 1;
+      album.artist = new Artist();
+      album.artist.id = "Art.1";
+      album.artist.name = "Artist";
+      album.tags = Arrays.asList("Rock", "Pop");
+      album.released = 1_420_070_400_000L;
+      album.tracks = new ArrayList<>();
+      for (int i = 0; i < tracks; i++) {
+         Track track = new Track();
+         track.id = "Tra." + i;
+         track.name = "Track " + i;
+         track.disc = 1;
+         track.duration = -200 + i;
+         track.artist = new Artist();
+         track.artist.id = album.artist.id;
+         track.artist.name = album.artist.name;
+         album.tracks.add(track);
+      }
+      return album;
+   }
+}
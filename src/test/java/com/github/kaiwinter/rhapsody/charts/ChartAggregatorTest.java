@@ -0,0 +1,106 @@
+package com.github.kaiwinter.rhapsody.charts;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.model.member.ChartsTrack;
+
+/**
+ * Tests for {@link ChartAggregator}.
+ */
+public final class ChartAggregatorTest {
+
+   /**
+    * The highest play counts are returned first, a smaller or larger <code>k</code> than the number of IDs works.
+    */
+   @Test
+   public void topK() {
+      ChartAggregator aggregator = new ChartAggregator(new IdDictionary());
+      for (int i = 0; i < 100; i++) {
+         aggregator.add("Tra." + i, (i * 37) % 100);
+      }
+      aggregator.add("Tra.5", 1000);
+      aggregator.add(null, 5);
+
+      List<ChartEntry> top = aggregator.topK(3);
+      Assert.assertEquals(Arrays.asList("Tra.5", "Tra.27", "Tra.54"), ids(top));
+      Assert.assertEquals(1085, top.get(0).getPlayCount());
+      Assert.assertEquals(99, top.get(1).getPlayCount());
+      Assert.assertEquals(100, aggregator.topK(500).size());
+      Assert.assertTrue(aggregator.topK(0).isEmpty());
+   }
+
+   /**
+    * Charts of several members are summed, also in parallel, and the sum may exceed the <code>int</code> range.
+    */
+   @Test
+   public void mergeAndLargeCounts() {
+      IdDictionary dictionary = new IdDictionary();
+      List<Collection<ChartsTrack>> charts = new ArrayList<>();
+      for (int member = 0; member < 8; member++) {
+         charts.add(Arrays.asList(track("Tra.1", Integer.MAX_VALUE), track("Tra.2", member)));
+      }
+      ChartAggregator aggregator = ChartAggregator.aggregateParallel(dictionary, charts, ChartAggregator::addTracks);
+      Assert.assertEquals(8L * Integer.MAX_VALUE, aggregator.getPlayCount("Tra.1"));
+      Assert.assertEquals(28, aggregator.getPlayCount("Tra.2"));
+      Assert.assertEquals(0, aggregator.getPlayCount("Tra.3"));
+
+      try {
+         aggregator.merge(new ChartAggregator(new IdDictionary()));
+         Assert.fail("Expected IllegalArgumentException");
+      } catch (IllegalArgumentException e) {
+         // expected
+      }
+   }
+
+   /**
+    * Spilled counts are added back when read, counts beyond the <code>int</code> range survive.
+    */
+   @Test
+   public void spill() throws IOException {
+      IdDictionary dictionary = new IdDictionary();
+      ChartAggregator aggregator = new ChartAggregator(dictionary);
+      aggregator.add("Alb.1", Integer.MAX_VALUE);
+      aggregator.add("Alb.1", Integer.MAX_VALUE);
+      aggregator.add("Alb.2", 3);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      aggregator.writeTo(out);
+      aggregator.clear();
+      Assert.assertEquals(0, aggregator.size());
+
+      aggregator.add("Alb.2", 1);
+      aggregator.readFrom(new ByteArrayInputStream(out.toByteArray()));
+      Assert.assertEquals(2L * Integer.MAX_VALUE, aggregator.getPlayCount("Alb.1"));
+      Assert.assertEquals(4, aggregator.getPlayCount("Alb.2"));
+
+      ByteArrayOutputStream unknown = new ByteArrayOutputStream();
+      new DataOutputStream(unknown).writeInt(99);
+      try {
+         aggregator.readFrom(new ByteArrayInputStream(unknown.toByteArray()));
+         Assert.fail("Expected IOException");
+      } catch (IOException e) {
+         Assert.assertTrue(e.getMessage().contains("99"));
+      }
+   }
+
+   private static ChartsTrack track(String id, int playCount) {
+      ChartsTrack track = new ChartsTrack();
+      track.id = id;
+      track.playCount = playCount;
+      return track;
+   }
+
+   private static List<String> ids(List<ChartEntry> entries) {
+      return entries.stream().map(ChartEntry::getId).collect(Collectors.toList());
+   }
+}
@@ -0,0 +1,49 @@
+package com.github.kaiwinter.rhapsody.charts;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link IntLongHashMap}.
+ */
+public final class IntLongHashMapTest {
+
+   /**
+    * Values are summed per key across rehashes, absent keys count as 0.
+    */
+   @Test
+   public void addToAndRehash() {
+      IntLongHashMap map = new IntLongHashMap(4);
+      for (int key = 0; key < 1000; key++) {
+         map.addTo(key, key);
+         map.addTo(key, 1);
+      }
+      Assert.assertEquals(1000, map.size());
+      Assert.assertEquals(1, map.get(0));
+      Assert.assertEquals(1000, map.get(999));
+      Assert.assertEquals(0, map.get(1000));
+
+      Map<Integer, Long> visited = new HashMap<>();
+      map.forEach(visited::put);
+      Assert.assertEquals(1000, visited.size());
+      Assert.assertEquals(Long.valueOf(501), visited.get(500));
+
+      map.clear();
+      Assert.assertEquals(0, map.size());
+      Assert.assertEquals(0, map.get(500));
+   }
+
+   /**
+    * Sums beyond the <code>int</code> range don't overflow.
+    */
+   @Test
+   public void largeSums() {
+      IntLongHashMap map = new IntLongHashMap(4);
+      map.addTo(7, Integer.MAX_VALUE);
+      map.addTo(7, Integer.MAX_VALUE);
+      Assert.assertEquals(2L * Integer.MAX_VALUE, map.get(7));
+   }
+}
@@ -0,0 +1,114 @@
+package com.github.kaiwinter.rhapsody.converter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.model.AccessToken;
+import com.github.kaiwinter.rhapsody.model.AccountData;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.model.ArtistData;
+import com.github.kaiwinter.rhapsody.model.BioData;
+import com.github.kaiwinter.rhapsody.model.GenreData;
+import com.github.kaiwinter.rhapsody.model.PasswordGrant;
+import com.github.kaiwinter.rhapsody.model.RefreshToken;
+import com.github.kaiwinter.rhapsody.model.member.ChartDashboard;
+import com.github.kaiwinter.rhapsody.model.member.ChartsAlbum;
+import com.github.kaiwinter.rhapsody.model.member.ChartsArtist;
+import com.github.kaiwinter.rhapsody.model.member.ChartsTrack;
+import com.github.kaiwinter.rhapsody.service.member.ChartService.RangeEnum;
+import com.google.gson.Gson;
+
+/**
+ * Tests for {@link ModelTypeAdapters}.
+ */
+public final class ModelTypeAdaptersTest {
+
+   private final Gson reflective = new Gson();
+   private final Gson model = ModelTypeAdapters.createGson();
+
+   /**
+    * Every field of every model class is written like the reflective adapter does and survives a round trip.
+    */
+   @Test
+   public void sameJsonAsReflection() throws Exception {
+      for (Class<?> type : Arrays.asList(AlbumData.class, ArtistData.class, GenreData.class, BioData.class,
+         AccountData.class, AccessToken.class, RefreshToken.class, ChartsTrack.class, ChartsArtist.class,
+         ChartsAlbum.class)) {
+         assertSameJson(populate(type, 2));
+      }
+      assertSameJson(new PasswordGrant("user", "secret"));
+
+      ChartDashboard dashboard = new ChartDashboard();
+      dashboard.tracks.put(RangeEnum.week, Collections.singletonList(populate(ChartsTrack.class, 1)));
+      dashboard.artists.put(RangeEnum.life, Collections.singletonList(populate(ChartsArtist.class, 1)));
+      dashboard.albums.put(RangeEnum.month, Collections.emptyList());
+      assertSameJson(dashboard);
+   }
+
+   /**
+    * Unknown properties are skipped and numbers and booleans are accepted as strings, like Gson does.
+    */
+   @Test
+   public void lenientReading() {
+      String json = "{\"unknown\":{\"a\":[1,2]},\"id\":\"Alb.1\",\"discCount\":\"2\",\"released\":\"123\","
+         + "\"artist\":null,\"tracks\":[{\"id\":\"Tra.1\",\"disc\":1}]}";
+      AlbumData album = model.fromJson(json, AlbumData.class);
+      Assert.assertEquals("Alb.1", album.id);
+      Assert.assertEquals(Integer.valueOf(2), album.discCount);
+      Assert.assertEquals(Long.valueOf(123), album.released);
+      Assert.assertNull(album.artist);
+      Assert.assertEquals("Tra.1", album.tracks.get(0).id);
+
+      AccountData account = model.fromJson("{\"isPublic\":\"true\",\"totalPlays\":5}", AccountData.class);
+      Assert.assertEquals(Boolean.TRUE, account.isPublic);
+      Assert.assertEquals(5.0, account.totalPlays);
+   }
+
+   private void assertSameJson(Object value) {
+      String expected = reflective.toJson(value);
+      Assert.assertEquals(expected, model.toJson(value));
+      Assert.assertEquals(expected, reflective.toJson(model.fromJson(expected, value.getClass())));
+   }
+
+   /**
+    * Creates an instance of the model class and sets every non-final field to a sample value.
+    */
+   private static <T> T populate(Class<T> type, int depth) throws Exception {
+      T instance = type.newInstance();
+      for (Field field : type.getFields()) {
+         if (Modifier.isFinal(field.getModifiers()) || Modifier.isStatic(field.getModifiers())) {
+            continue;
+         }
+         field.set(instance, sample(field, depth));
+      }
+      return instance;
+   }
+
+   private static Object sample(Field field, int depth) throws Exception {
+      Class<?> type = field.getType();
+      if (type == String.class || type == Object.class) {
+         return field.getName() + "-value";
+      } else if (type == Integer.class) {
+         return field.getName().length();
+      } else if (type == Long.class) {
+         return 1_000_000_000_000L + field.getName().length();
+      } else if (type == Boolean.class) {
+         return field.getName().length() % 2 == 0;
+      } else if (type == List.class || type == Collection.class) {
+         Class<?> element = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+         if (element == String.class) {
+            return Arrays.asList("a", "b");
+         }
+         return depth == 0 ? Collections.emptyList() : Arrays.asList(populate(element, depth - 1));
+      }
+      return populate(type, depth);
+   }
+}
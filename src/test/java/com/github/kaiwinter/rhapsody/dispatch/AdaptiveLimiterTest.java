@@ -0,0 +1,101 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AdaptiveLimiter}.
+ */
+public final class AdaptiveLimiterTest {
+
+   private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+   /**
+    * Requests are grouped by the first path segment after the API version.
+    */
+   @Test
+   public void endpointGroup() {
+      Assert.assertEquals("albums", AdaptiveLimiter.endpointGroup("https://api.rhapsody.com/v1/albums/Alb.1?x=1"));
+      Assert.assertEquals("me/library", AdaptiveLimiter.endpointGroup("https://api.rhapsody.com/v1/me/library/albums"));
+      Assert.assertEquals("genres", AdaptiveLimiter.endpointGroup("http://localhost:8080/v1/genres"));
+      Assert.assertEquals("oauth", AdaptiveLimiter.endpointGroup("https://api.rhapsody.com/oauth/token"));
+   }
+
+   /**
+    * The limit grows while the latency stays near the minimum, shrinks when it rises and when requests are throttled,
+    * independently per group.
+    */
+   @Test
+   public void followsLatency() {
+      AdaptiveLimiter limiter = new AdaptiveLimiter(4, 50, OverloadPolicy.REJECT);
+      for (int i = 0; i < 200; i++) {
+         limiter.onSample("albums", 10 * MILLIS, limiter.getLimit("albums"));
+      }
+      int grown = limiter.getLimit("albums");
+      Assert.assertEquals(50, grown);
+
+      for (int i = 0; i < 50; i++) {
+         limiter.onSample("albums", 100 * MILLIS, limiter.getLimit("albums"));
+      }
+      int shrunk = limiter.getLimit("albums");
+      Assert.assertTrue("limit " + shrunk, shrunk < 10);
+
+      for (int i = 0; i < 3; i++) {
+         limiter.onDropped("albums");
+      }
+      Assert.assertTrue(limiter.getLimit("albums") < shrunk);
+      Assert.assertEquals(4, limiter.getLimit("genres"));
+
+      // an idle group doesn't grow
+      for (int i = 0; i < 50; i++) {
+         limiter.onSample("tracks", 10 * MILLIS, 1);
+      }
+      Assert.assertEquals(4, limiter.getLimit("tracks"));
+   }
+
+   /**
+    * With {@link OverloadPolicy#REJECT} a request beyond the limit fails, with {@link OverloadPolicy#QUEUE} it waits
+    * for a running request of its group until the deadline.
+    */
+   @Test
+   public void overloadPolicy() throws Exception {
+      String url = "https://api.rhapsody.com/v1/albums/Alb.1";
+      AdaptiveLimiter rejecting = new AdaptiveLimiter(1, 1, OverloadPolicy.REJECT);
+      AdaptiveLimiter.Permit permit = rejecting.acquire(url);
+      try {
+         rejecting.acquire(url);
+         Assert.fail("Expected LimitExceededException");
+      } catch (LimitExceededException e) {
+         Assert.assertEquals(1, rejecting.getRejected("albums"));
+      }
+      permit.completed(200);
+      rejecting.acquire(url).abandoned();
+      Assert.assertEquals(0, rejecting.getInFlight("albums"));
+
+      AdaptiveLimiter queueing = new AdaptiveLimiter(1, 1, OverloadPolicy.QUEUE);
+      AdaptiveLimiter.Permit running = queueing.acquire(url);
+      CompletableFuture<AdaptiveLimiter.Permit> queued = CompletableFuture.supplyAsync(() -> {
+         try {
+            return queueing.acquire(url);
+         } catch (Exception e) {
+            throw new IllegalStateException(e);
+         }
+      });
+      Thread.sleep(50);
+      Assert.assertFalse(queued.isDone());
+      running.completed(200);
+      queued.get(5, TimeUnit.SECONDS).completed(200);
+
+      queueing.acquire(url);
+      CallHandle handle = new CallHandle(null, Timeouts.DEFAULT, System.nanoTime() + 20 * MILLIS);
+      try (CallHandle.Scope scope = CallHandle.activate(handle)) {
+         queueing.acquire(url);
+         Assert.fail("Expected DeadlineExceededException");
+      } catch (DeadlineExceededException e) {
+         Assert.assertEquals(1, queueing.getInFlight("albums"));
+      }
+   }
+}
@@ -0,0 +1,178 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.api.Cancellable;
+import com.github.kaiwinter.rhapsody.api.RhapsodyCallback;
+import com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper;
+import com.github.kaiwinter.rhapsody.loadtest.StubApiServer;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.sun.net.httpserver.HttpServer;
+
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+/**
+ * Tests for {@link CancellableClient}.
+ */
+public final class CancellableClientTest {
+
+   /** Answers with the first bytes of a large body, stalls until released and then sends the rest. */
+   private final CountDownLatch stalled = new CountDownLatch(1);
+   private final CountDownLatch release = new CountDownLatch(1);
+   private final AtomicInteger requests = new AtomicInteger();
+   private final CompletableFuture<IOException> serverFailure = new CompletableFuture<>();
+
+   private HttpServer server;
+
+   @Before
+   public void setUp() throws IOException {
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/", exchange -> {
+         requests.incrementAndGet();
+         exchange.sendResponseHeaders(200, 10_000_010);
+         OutputStream body = exchange.getResponseBody();
+         try {
+            body.write(new byte[10]);
+            body.flush();
+            stalled.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            // Fails when the client closed the connection
+            for (int i = 0; i < 10_000; i++) {
+               body.write(new byte[1000]);
+               body.flush();
+            }
+         } catch (IOException e) {
+            serverFailure.complete(e);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         } finally {
+            exchange.close();
+         }
+      });
+      server.createContext("/missing", exchange -> {
+         exchange.sendResponseHeaders(404, -1);
+         exchange.close();
+      });
+      server.setExecutor(Executors.newCachedThreadPool());
+      server.start();
+   }
+
+   @After
+   public void tearDown() {
+      release.countDown();
+      server.stop(0);
+   }
+
+   /**
+    * A request of a call which is already cancelled is not sent.
+    */
+   @Test
+   public void cancelBeforeSend() throws Exception {
+      CallHandle handle = new CallHandle();
+      handle.cancel();
+      try (CallHandle.Scope scope = CallHandle.activate(handle)) {
+         new CancellableClient().execute(request());
+         Assert.fail("Expected InterruptedIOException");
+      } catch (InterruptedIOException e) {
+         // expected
+      }
+      Assert.assertEquals(0, requests.get());
+   }
+
+   /**
+    * Cancelling a call while its response is read doesn't block, closes the connection and fails the request.
+    */
+   @Test
+   public void cancelDuringTransfer() throws Exception {
+      CallHandle handle = new CallHandle();
+      CompletableFuture<Response> response = CompletableFuture.supplyAsync(() -> {
+         try (CallHandle.Scope scope = CallHandle.activate(handle)) {
+            return new CancellableClient().execute(request());
+         } catch (IOException e) {
+            throw new IllegalStateException(e);
+         }
+      });
+      Assert.assertTrue(stalled.await(5, TimeUnit.SECONDS));
+      Thread.sleep(50);
+      long start = System.nanoTime();
+      handle.cancel();
+      Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+      release.countDown();
+      try {
+         response.get(5, TimeUnit.SECONDS);
+         Assert.fail("Expected InterruptedIOException");
+      } catch (ExecutionException e) {
+         Assert.assertTrue(e.getCause().getCause() instanceof InterruptedIOException);
+      }
+
+      // the server can't write the rest of the body to the closed socket
+      Assert.assertNotNull(serverFailure.get(5, TimeUnit.SECONDS));
+   }
+
+   /**
+    * A call which is cancelled while its request is in flight doesn't call its callback.
+    */
+   @Test
+   public void callbackSuppressedAfterCancel() throws Exception {
+      try (StubApiServer stub = new StubApiServer(300, 2)) {
+         RhapsodySdkWrapper wrapper = new RhapsodySdkWrapper("key", "secret", null, stub.getUrl());
+         AtomicBoolean called = new AtomicBoolean();
+         Cancellable call = wrapper.loadAlbum("Alb.1", new RhapsodyCallback<AlbumData>() {
+
+            @Override
+            public void onSuccess(AlbumData data) {
+               called.set(true);
+            }
+
+            @Override
+            public void onFailure(int httpCode, String message) {
+               called.set(true);
+            }
+         });
+         Thread.sleep(50);
+         call.cancel();
+         Assert.assertTrue(call.isCancelled());
+         Thread.sleep(600);
+         Assert.assertFalse(called.get());
+      }
+   }
+
+   /**
+    * An error response without a body is returned with its status.
+    */
+   @Test
+   public void errorWithoutBody() throws Exception {
+      try (CallHandle.Scope scope = CallHandle.activate(new CallHandle())) {
+         Response response = new CancellableClient().execute(request("/missing"));
+         Assert.assertEquals(404, response.getStatus());
+         Assert.assertEquals(0, response.getBody().length());
+      }
+   }
+
+   private Request request() {
+      return request("/");
+   }
+
+   private Request request(String path) {
+      return new Request("GET", "http://localhost:" + server.getAddress().getPort() + path, Collections.emptyList(),
+         null);
+   }
+}
@@ -0,0 +1,83 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import retrofit.converter.ConversionException;
+import retrofit.converter.Converter;
+import retrofit.mime.TypedByteArray;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+/**
+ * Tests for {@link CancellingConverter}.
+ */
+public final class CancellingConverterTest {
+
+   private static final TypedInput BODY = new TypedByteArray("application/json", new byte[] { '1' });
+
+   /**
+    * The response of a call which is cancelled before its response is converted isn't deserialized.
+    */
+   @Test
+   public void cancelBeforeConversion() throws Exception {
+      CountingConverter delegate = new CountingConverter(null);
+      CancellingConverter converter = new CancellingConverter(delegate);
+      CallHandle handle = new CallHandle();
+      try (CallHandle.Scope scope = CallHandle.activate(handle)) {
+         Assert.assertEquals("converted", converter.fromBody(BODY, String.class));
+         handle.cancel();
+         converter.fromBody(BODY, String.class);
+         Assert.fail("Expected ConversionException");
+      } catch (ConversionException e) {
+         // expected
+      }
+      Assert.assertEquals(1, delegate.conversions.get());
+   }
+
+   /**
+    * A call which is cancelled while its response is converted doesn't get its callback.
+    */
+   @Test
+   public void cancelDuringConversion() throws Exception {
+      CallHandle handle = new CallHandle();
+      CancellingConverter converter = new CancellingConverter(new CountingConverter(handle));
+      AtomicBoolean called = new AtomicBoolean();
+      try (CallHandle.Scope scope = CallHandle.activate(handle)) {
+         Object converted = converter.fromBody(BODY, String.class);
+         PriorityDispatcher.callbackExecutor(null).execute(() -> called.set(converted != null));
+      }
+      Assert.assertTrue(handle.isCancelled());
+      Assert.assertFalse(called.get());
+   }
+
+   /**
+    * Counts the conversions and optionally cancels a call while converting.
+    */
+   private static final class CountingConverter implements Converter {
+      private final AtomicInteger conversions = new AtomicInteger();
+      private final CallHandle cancelWhileConverting;
+
+      CountingConverter(CallHandle cancelWhileConverting) {
+         this.cancelWhileConverting = cancelWhileConverting;
+      }
+
+      @Override
+      public Object fromBody(TypedInput body, Type type) {
+         conversions.incrementAndGet();
+         if (cancelWhileConverting != null) {
+            cancelWhileConverting.cancel();
+         }
+         return "converted";
+      }
+
+      @Override
+      public TypedOutput toBody(Object object) {
+         throw new UnsupportedOperationException();
+      }
+   }
+}
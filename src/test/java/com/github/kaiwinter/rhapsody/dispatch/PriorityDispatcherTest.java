@@ -0,0 +1,182 @@
+package com.github.kaiwinter.rhapsody.dispatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.trace.Span;
+import com.github.kaiwinter.rhapsody.trace.SpanPhase;
+import com.github.kaiwinter.rhapsody.trace.Tracer;
+
+/**
+ * Tests for {@link PriorityDispatcher}.
+ */
+public final class PriorityDispatcherTest {
+
+   /**
+    * Background requests don't take the slots reserved for the other classes.
+    */
+   @Test
+   public void backgroundShare() throws Exception {
+      PriorityDispatcher dispatcher = new PriorityDispatcher(4, 1, TimeUnit.MINUTES);
+      CountDownLatch blocker = new CountDownLatch(1);
+      CountDownLatch done = new CountDownLatch(6);
+
+      try (PriorityScope scope = PriorityScope.open(RequestPriority.BACKGROUND)) {
+         for (int i = 0; i < 5; i++) {
+            dispatcher.execute(() -> {
+               await(blocker);
+               done.countDown();
+            });
+         }
+      }
+      Assert.assertEquals(3, dispatcher.getRunning(RequestPriority.BACKGROUND));
+      Assert.assertEquals(2, dispatcher.getQueued(RequestPriority.BACKGROUND));
+
+      dispatcher.execute(done::countDown);
+      blocker.countDown();
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+   }
+
+   /**
+    * Waiting interactive requests are dispatched before background requests which were queued earlier.
+    */
+   @Test
+   public void interactiveOvertakesBackground() throws Exception {
+      PriorityDispatcher dispatcher = new PriorityDispatcher(1, 1, TimeUnit.MINUTES);
+      CountDownLatch blocker = new CountDownLatch(1);
+      CountDownLatch done = new CountDownLatch(5);
+      List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+      try (PriorityScope scope = PriorityScope.open(RequestPriority.BACKGROUND)) {
+         for (int i = 0; i < 3; i++) {
+            String name = "background" + i;
+            dispatcher.execute(() -> {
+               await(blocker);
+               order.add(name);
+               done.countDown();
+            });
+         }
+      }
+      try (PriorityScope scope = PriorityScope.open(RequestPriority.INTERACTIVE)) {
+         for (int i = 0; i < 2; i++) {
+            String name = "interactive" + i;
+            dispatcher.execute(() -> {
+               order.add(name);
+               done.countDown();
+            });
+         }
+      }
+      Assert.assertEquals(RequestPriority.NORMAL, PriorityScope.current());
+
+      blocker.countDown();
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(Arrays.asList("background0", "interactive0", "interactive1", "background1", "background2"),
+         order);
+   }
+
+   /**
+    * The span of a call is reported once, after the callbacks of all its requests returned, and contains the time the
+    * requests were queued.
+    */
+   @Test
+   public void spanReportedAfterLastCallback() throws Exception {
+      PriorityDispatcher dispatcher = new PriorityDispatcher(1, 1, TimeUnit.MINUTES);
+      Executor callbackExecutor = PriorityDispatcher.callbackExecutor(null);
+      CountDownLatch blocker = new CountDownLatch(1);
+      CountDownLatch reported = new CountDownLatch(1);
+      List<Span> spans = Collections.synchronizedList(new ArrayList<>());
+      Span span = new Tracer(finished -> {
+         spans.add(finished);
+         reported.countDown();
+      }, 1).startSpan("test");
+
+      span.retain();
+      try (CallHandle.Scope scope = CallHandle.activate(new CallHandle(span))) {
+         for (int i = 0; i < 2; i++) {
+            dispatcher.execute(() -> {
+               await(blocker);
+               callbackExecutor.execute(() -> {
+               });
+            });
+         }
+      } finally {
+         span.release();
+      }
+      Assert.assertTrue(spans.isEmpty());
+
+      Thread.sleep(20);
+      blocker.countDown();
+      Assert.assertTrue(reported.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(Collections.singletonList(span), spans);
+      Assert.assertTrue(span.getPhaseTime(SpanPhase.QUEUE, TimeUnit.MILLISECONDS) >= 20);
+      Assert.assertTrue(span.getDuration(TimeUnit.MILLISECONDS) >= 20);
+   }
+
+   /**
+    * A synchronous request stops waiting for a slot when the deadline of its call passes.
+    */
+   @Test
+   public void acquireUntilDeadline() throws Exception {
+      PriorityDispatcher dispatcher = new PriorityDispatcher(1, 1, TimeUnit.MINUTES);
+      CountDownLatch blocker = new CountDownLatch(1);
+      dispatcher.execute(() -> await(blocker));
+
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+      CallHandle handle = new CallHandle(Span.unreported("test"), Timeouts.DEFAULT, deadline);
+      try (CallHandle.Scope scope = CallHandle.activate(handle)) {
+         dispatcher.acquire(RequestPriority.NORMAL);
+         Assert.fail("Expected DeadlineExceededException");
+      } catch (DeadlineExceededException e) {
+         Assert.assertTrue(e.getMessage(), e.getMessage().contains("queue"));
+      }
+      Assert.assertTrue(System.nanoTime() - deadline >= 0);
+      Assert.assertEquals(0, dispatcher.getQueued(RequestPriority.NORMAL));
+      Assert.assertTrue(handle.getSpan().getPhaseTime(SpanPhase.QUEUE, TimeUnit.MILLISECONDS) >= 40);
+      blocker.countDown();
+   }
+
+   /**
+    * A callback on the HTTP thread doesn't hold the slot of its request, so it can wait for another request.
+    */
+   @Test
+   public void callbackReleasesSlot() throws Exception {
+      PriorityDispatcher dispatcher = new PriorityDispatcher(1, 1, TimeUnit.MINUTES);
+      Executor callbackExecutor = PriorityDispatcher.callbackExecutor(null);
+      CountDownLatch nested = new CountDownLatch(1);
+      CountDownLatch done = new CountDownLatch(1);
+      List<Boolean> workerThread = Collections.synchronizedList(new ArrayList<>());
+
+      dispatcher.execute(() -> {
+         workerThread.add(dispatcher.isWorkerThread());
+         callbackExecutor.execute(() -> {
+            workerThread.add(dispatcher.isWorkerThread());
+            dispatcher.execute(nested::countDown);
+            try {
+               if (nested.await(5, TimeUnit.SECONDS)) {
+                  done.countDown();
+               }
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         });
+      });
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(Arrays.asList(true, false), workerThread);
+   }
+
+   private static void await(CountDownLatch latch) {
+      try {
+         latch.await();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+}
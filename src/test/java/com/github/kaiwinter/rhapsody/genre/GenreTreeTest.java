@@ -0,0 +1,139 @@
+package com.github.kaiwinter.rhapsody.genre;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.api.RhapsodyCallback;
+import com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper;
+import com.github.kaiwinter.rhapsody.api.SharedAdapter;
+import com.github.kaiwinter.rhapsody.cache.DataCache;
+import com.github.kaiwinter.rhapsody.loadtest.StubApiServer;
+import com.github.kaiwinter.rhapsody.model.GenreData;
+
+/**
+ * Tests for {@link GenreTree}.
+ */
+public final class GenreTreeTest {
+
+   /**
+    * Tests if the nested genres are numbered in pre-order and every genre is found by its ID.
+    */
+   @Test
+   public void build() {
+      GenreTree tree = tree();
+      Assert.assertEquals(6, tree.size());
+      Assert.assertEquals(Arrays.asList("rock", "indie", "shoegaze", "metal", "jazz", "bebop"), ids(tree.getAll()));
+      Assert.assertEquals(Arrays.asList("rock", "jazz"), ids(tree.getRoots()));
+      Assert.assertEquals("Shoegaze", tree.get("shoegaze").name);
+      Assert.assertNull(tree.get("polka"));
+      Assert.assertEquals(0, new GenreTree(Collections.emptyList()).size());
+   }
+
+   /**
+    * Tests the parent, depth, ancestor path and subtree queries.
+    */
+   @Test
+   public void pathLookup() {
+      GenreTree tree = tree();
+      Assert.assertEquals("indie", tree.getParent("shoegaze").id);
+      Assert.assertNull(tree.getParent("rock"));
+      Assert.assertEquals(2, tree.getDepth("shoegaze"));
+      Assert.assertEquals(-1, tree.getDepth("polka"));
+      Assert.assertEquals(Arrays.asList("indie", "rock"), ids(tree.getAncestors("shoegaze")));
+      Assert.assertTrue(tree.getAncestors("jazz").isEmpty());
+      Assert.assertEquals(Arrays.asList("indie", "shoegaze", "metal"), ids(tree.getDescendants("rock")));
+      Assert.assertTrue(tree.getDescendants("metal").isEmpty());
+      Assert.assertTrue(tree.isDescendant("rock", "shoegaze"));
+      Assert.assertFalse(tree.isDescendant("indie", "metal"));
+      Assert.assertFalse(tree.isDescendant("rock", "rock"));
+      Assert.assertFalse(tree.isDescendant("rock", "bebop"));
+   }
+
+   /**
+    * A cached tree is used until its time to live passed, then it has to be loaded again.
+    */
+   @Test
+   public void reloadAfterTimeToLive() throws Exception {
+      DataCache dataCache = new DataCache();
+      GenreTree tree = tree();
+      dataCache.putGenreTree("DE", tree, 24, TimeUnit.HOURS);
+      Assert.assertSame(tree, dataCache.getGenreTree("DE"));
+      Assert.assertNull(dataCache.getGenreTree("US"));
+
+      dataCache.putGenreTree("DE", tree, 20, TimeUnit.MILLISECONDS);
+      Thread.sleep(50);
+      Assert.assertNull(dataCache.getGenreTree("DE"));
+   }
+
+   /**
+    * The wrapper builds the tree from the loaded genres and serves the next call from the cache.
+    */
+   @Test
+   public void loadFromWrapper() throws Exception {
+      try (StubApiServer server = new StubApiServer(0, 2)) {
+         RhapsodySdkWrapper wrapper = new RhapsodySdkWrapper("key", "secret", null, server.getUrl());
+         GenreTree loaded = load(wrapper);
+         Assert.assertEquals(Arrays.asList("g.1"), ids(loaded.getAncestors("g.2")));
+         Assert.assertSame(loaded, load(wrapper));
+      }
+   }
+
+   /**
+    * A load which can't be sent throws and isn't joined by the next call.
+    */
+   @Test
+   public void loadThrows() throws Exception {
+      RhapsodySdkWrapper wrapper = RhapsodySdkWrapper.builder("key", "secret").adapter(new SharedAdapter("")).build();
+      for (int i = 0; i < 2; i++) {
+         try {
+            load(wrapper);
+            Assert.fail("Expected NullPointerException");
+         } catch (NullPointerException e) {
+            // expected: blank endpoint
+         }
+      }
+   }
+
+   private static GenreTree load(RhapsodySdkWrapper wrapper) throws Exception {
+      CompletableFuture<GenreTree> result = new CompletableFuture<>();
+      wrapper.loadGenreTree(new RhapsodyCallback<GenreTree>() {
+
+         @Override
+         public void onSuccess(GenreTree data) {
+            result.complete(data);
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            result.completeExceptionally(new IllegalStateException(httpCode + " " + message));
+         }
+      });
+      return result.get(5, TimeUnit.SECONDS);
+   }
+
+   private static GenreTree tree() {
+      GenreData indie = genre("indie", "Indie", genre("shoegaze", "Shoegaze"));
+      GenreData rock = genre("rock", "Rock", indie, genre("metal", "Metal"));
+      GenreData jazz = genre("jazz", "Jazz", genre("bebop", "Bebop"));
+      return new GenreTree(Arrays.asList(rock, jazz));
+   }
+
+   private static GenreData genre(String id, String name, GenreData... subgenres) {
+      GenreData genre = new GenreData();
+      genre.id = id;
+      genre.name = name;
+      genre.subgenres = subgenres.length == 0 ? null : Arrays.asList(subgenres);
+      return genre;
+   }
+
+   private static List<String> ids(List<GenreData> genres) {
+      return genres.stream().map(genre -> genre.id).collect(Collectors.toList());
+   }
+}
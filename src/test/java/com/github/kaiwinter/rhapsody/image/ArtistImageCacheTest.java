@@ -0,0 +1,199 @@
+package com.github.kaiwinter.rhapsody.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.api.ArtistImageSize;
+import com.github.kaiwinter.rhapsody.api.RhapsodyCallback;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for {@link ArtistImageCache}.
+ */
+public final class ArtistImageCacheTest {
+
+   /** Image content by path, a missing path is answered with 404. */
+   private final Map<String, byte[]> images = new ConcurrentHashMap<>();
+   private final AtomicInteger requests = new AtomicInteger();
+   private volatile long delayMillis;
+
+   private HttpServer server;
+   private Path directory;
+
+   @Before
+   public void setUp() throws IOException {
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/", exchange -> {
+         requests.incrementAndGet();
+         try {
+            Thread.sleep(delayMillis);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         byte[] image = images.get(exchange.getRequestURI().getPath());
+         if (image == null) {
+            exchange.sendResponseHeaders(404, -1);
+         } else {
+            exchange.sendResponseHeaders(200, image.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+               body.write(image);
+            }
+         }
+         exchange.close();
+      });
+      server.setExecutor(Executors.newCachedThreadPool());
+      server.start();
+      directory = Files.createTempDirectory("images");
+   }
+
+   @After
+   public void tearDown() throws IOException {
+      server.stop(0);
+      try (Stream<Path> files = Files.walk(directory)) {
+         files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+      }
+   }
+
+   /**
+    * A missing size falls back to the next smaller one and is not requested again.
+    */
+   @Test
+   public void fallbackToSmallerSize() throws Exception {
+      image("Art.1", ArtistImageSize.SIZE_150_100, 10);
+      try (ArtistImageCache cache = cache(1000)) {
+         File file = load(cache, "Art.1", ArtistImageSize.SIZE_633_422);
+         Assert.assertTrue(file.getName().contains("150x100"));
+         Assert.assertEquals(3, requests.get());
+
+         Assert.assertEquals(file, load(cache, "Art.1", ArtistImageSize.SIZE_633_422));
+         Assert.assertEquals(file, load(cache, "Art.1", ArtistImageSize.SIZE_150_100));
+         Assert.assertEquals(3, requests.get());
+
+         ByteArrayOutputStream out = new ByteArrayOutputStream();
+         Assert.assertEquals(10, cache.transferTo("Art.1", ArtistImageSize.SIZE_356_237, Channels.newChannel(out)));
+         Assert.assertEquals(10, out.size());
+      }
+   }
+
+   /**
+    * Concurrent downloads of the same file for different requested sizes don't corrupt each other.
+    */
+   @Test
+   public void concurrentDownloadsOfSameFile() throws Exception {
+      byte[] content = image("Art.1", ArtistImageSize.SIZE_70_47, 100_000);
+      delayMillis = 50;
+      try (ArtistImageCache cache = cache(1_000_000)) {
+         CompletableFuture<File> first = loadAsync(cache, "Art.1", ArtistImageSize.SIZE_150_100);
+         CompletableFuture<File> second = loadAsync(cache, "Art.1", ArtistImageSize.SIZE_356_237);
+         File file = first.get(5, TimeUnit.SECONDS);
+         Assert.assertEquals(file, second.get(5, TimeUnit.SECONDS));
+         Assert.assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+         Assert.assertEquals(content.length, cache.getSizeBytes());
+      }
+      try (Stream<Path> files = Files.list(directory)) {
+         Assert.assertEquals(1, files.count());
+      }
+   }
+
+   /**
+    * An image larger than the limit is returned and kept until the next image is cached, which evicts it.
+    */
+   @Test
+   public void imageLargerThanLimit() throws Exception {
+      image("Art.1", ArtistImageSize.SIZE_70_47, 500);
+      image("Art.2", ArtistImageSize.SIZE_70_47, 50);
+      try (ArtistImageCache cache = cache(100)) {
+         File large = load(cache, "Art.1", ArtistImageSize.SIZE_70_47);
+         Assert.assertTrue(large.exists());
+         Assert.assertEquals(500, large.length());
+
+         File small = load(cache, "Art.2", ArtistImageSize.SIZE_70_47);
+         Assert.assertTrue(small.exists());
+         Assert.assertFalse(large.exists());
+         Assert.assertEquals(50, cache.getSizeBytes());
+      }
+
+      // the files are found again after reopening
+      try (ArtistImageCache cache = cache(100)) {
+         Assert.assertEquals(50, cache.getSizeBytes());
+      }
+   }
+
+   /**
+    * Artist IDs which differ only in characters which aren't allowed in a file name are cached in different files.
+    */
+   @Test
+   public void escapedArtistIds() throws Exception {
+      byte[] slash = image("a/b", ArtistImageSize.SIZE_70_47, 10);
+      byte[] underscore = image("a_b", ArtistImageSize.SIZE_70_47, 20);
+      try (ArtistImageCache cache = cache(1000)) {
+         File first = load(cache, "a/b", ArtistImageSize.SIZE_70_47);
+         File second = load(cache, "a_b", ArtistImageSize.SIZE_70_47);
+         Assert.assertNotEquals(first, second);
+         Assert.assertArrayEquals(slash, Files.readAllBytes(first.toPath()));
+         Assert.assertArrayEquals(underscore, Files.readAllBytes(second.toPath()));
+      }
+
+      // the files are found again after reopening
+      try (ArtistImageCache cache = cache(1000)) {
+         Assert.assertEquals(30, cache.getSizeBytes());
+         Assert.assertEquals(slash.length, load(cache, "a/b", ArtistImageSize.SIZE_70_47).length());
+         Assert.assertEquals(2, requests.get());
+      }
+   }
+
+   private ArtistImageCache cache(long maxBytes) throws IOException {
+      String url = "http://localhost:" + server.getAddress().getPort();
+      return new ArtistImageCache((artistId, size) -> url + "/" + artistId + "/" + size.getSize() + ".png", directory,
+         maxBytes);
+   }
+
+   private byte[] image(String artistId, ArtistImageSize size, int length) {
+      byte[] content = new byte[length];
+      Arrays.fill(content, (byte) size.ordinal());
+      content[length - 1] = 42;
+      images.put("/" + artistId + "/" + size.getSize() + ".png", content);
+      return content;
+   }
+
+   private static File load(ArtistImageCache cache, String artistId, ArtistImageSize size) throws Exception {
+      return loadAsync(cache, artistId, size).get(5, TimeUnit.SECONDS);
+   }
+
+   private static CompletableFuture<File> loadAsync(ArtistImageCache cache, String artistId, ArtistImageSize size) {
+      CompletableFuture<File> result = new CompletableFuture<>();
+      cache.loadImage(artistId, size, new RhapsodyCallback<File>() {
+
+         @Override
+         public void onSuccess(File data) {
+            result.complete(data);
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            result.completeExceptionally(new IOException(httpCode + " " + message));
+         }
+      });
+      return result;
+   }
+}
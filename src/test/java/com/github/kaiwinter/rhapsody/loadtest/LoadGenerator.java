@@ -0,0 +1,65 @@
+package com.github.kaiwinter.rhapsody.loadtest;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper;
+import com.github.kaiwinter.rhapsody.trace.TraceEntry;
+import com.github.kaiwinter.rhapsody.trace.TraceFile;
+
+/**
+ * Command line tool which replays a recorded trace against a local {@link StubApiServer} and prints a
+ * {@link ReplayReport}.
+ *
+ * <pre>
+ * LoadGenerator &lt;trace file&gt; [--speed &lt;multiplier&gt; | --rate &lt;calls per second&gt;]
+ *    [--latency &lt;ms&gt;]
+ * </pre>
+ */
+public final class LoadGenerator {
+
+   private LoadGenerator() {
+   }
+
+   /**
+    * Runs the load generator.
+    *
+    * @param args
+    *           the command line arguments, see class description
+    * @throws Exception
+    *            if the replay fails
+    */
+   public static void main(String[] args) throws Exception {
+      if (args.length == 0) {
+         System.err.println(
+            "Usage: LoadGenerator <trace file> [--speed <multiplier> | --rate <calls per second>] [--latency <ms>]");
+         System.exit(1);
+      }
+      ReplayMode mode = ReplayMode.recordedTiming(1);
+      long latency = 0;
+      for (int i = 1; i + 1 < args.length; i += 2) {
+         switch (args[i]) {
+            case "--speed":
+               mode = ReplayMode.recordedTiming(Double.parseDouble(args[i + 1]));
+               break;
+            case "--rate":
+               mode = ReplayMode.fixedRate(Double.parseDouble(args[i + 1]));
+               break;
+            case "--latency":
+               latency = Long.parseLong(args[i + 1]);
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown option " + args[i]);
+         }
+      }
+
+      List<TraceEntry> entries = TraceFile.read(Paths.get(args[0]));
+      try (StubApiServer server = new StubApiServer(latency, Runtime.getRuntime().availableProcessors() * 4)) {
+         RhapsodySdkWrapper wrapper = new RhapsodySdkWrapper("loadtest", "loadtest", null, server.getUrl());
+         ReplayReport report = new TraceReplayer(wrapper).replay(entries, mode, 1, TimeUnit.MINUTES);
+         System.out.println(report);
+      }
+      System.exit(0);
+   }
+}
@@ -0,0 +1,70 @@
+package com.github.kaiwinter.rhapsody.loadtest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Determines when the calls of a trace are issued by the {@link TraceReplayer}. Both modes are open-loop: a call is
+ * issued at its scheduled time regardless of whether earlier calls have completed.
+ */
+public final class ReplayMode {
+
+   private final double speed;
+   private final double callsPerSecond;
+
+   private ReplayMode(double speed, double callsPerSecond) {
+      this.speed = speed;
+      this.callsPerSecond = callsPerSecond;
+   }
+
+   /**
+    * Replays the calls with the recorded inter-arrival times, divided by <code>speed</code>.
+    *
+    * @param speed
+    *           the rate multiplier, e.g. <code>2.0</code> replays the trace twice as fast as recorded
+    * @return the {@link ReplayMode}
+    */
+   public static ReplayMode recordedTiming(double speed) {
+      if (speed <= 0) {
+         throw new IllegalArgumentException("Speed must be positive");
+      }
+      return new ReplayMode(speed, 0);
+   }
+
+   /**
+    * Replays the calls at a constant target rate, ignoring the recorded timestamps.
+    *
+    * @param callsPerSecond
+    *           the target rate
+    * @return the {@link ReplayMode}
+    */
+   public static ReplayMode fixedRate(double callsPerSecond) {
+      if (callsPerSecond <= 0) {
+         throw new IllegalArgumentException("Rate must be positive");
+      }
+      return new ReplayMode(0, callsPerSecond);
+   }
+
+   /**
+    * Calculates the time at which a call is issued, relative to the start of the replay.
+    *
+    * @param index
+    *           the index of the call in the trace
+    * @param recordedOffsetMillis
+    *           the time between the first call of the trace and this call as recorded
+    * @return the offset in nanoseconds
+    */
+   long offsetNanos(int index, long recordedOffsetMillis) {
+      if (callsPerSecond > 0) {
+         return (long) (index * TimeUnit.SECONDS.toNanos(1) / callsPerSecond);
+      }
+      return (long) (TimeUnit.MILLISECONDS.toNanos(recordedOffsetMillis) / speed);
+   }
+
+   @Override
+   public String toString() {
+      if (callsPerSecond > 0) {
+         return String.format("fixed rate of %.1f calls/s", callsPerSecond);
+      }
+      return String.format("recorded timing at %.2fx speed", speed);
+   }
+}
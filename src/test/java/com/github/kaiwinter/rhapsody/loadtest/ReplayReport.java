@@ -0,0 +1,149 @@
+package com.github.kaiwinter.rhapsody.loadtest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a {@link TraceReplayer} run: throughput, allocation rate and latency percentiles per wrapper method.
+ * Latencies are measured from the scheduled start of a call, so time a call waited for a free client thread is
+ * included.
+ */
+public final class ReplayReport {
+
+   private final Map<String, MethodStatistics> methods;
+   private final long durationNanos;
+   private final long allocatedBytes;
+   private final int incompleteCalls;
+
+   ReplayReport(Map<String, MethodStatistics> methods, long durationNanos, long allocatedBytes, int incompleteCalls) {
+      this.methods = Collections.unmodifiableMap(new TreeMap<>(methods));
+      this.durationNanos = durationNanos;
+      this.allocatedBytes = allocatedBytes;
+      this.incompleteCalls = incompleteCalls;
+   }
+
+   /**
+    * Returns the statistics per wrapper method.
+    *
+    * @return the statistics, keyed by method name
+    */
+   public Map<String, MethodStatistics> getMethods() {
+      return methods;
+   }
+
+   /**
+    * Returns the number of all completed calls.
+    *
+    * @return the number of completed calls
+    */
+   public long getCompletedCalls() {
+      return methods.values().stream().mapToLong(MethodStatistics::getCount).sum();
+   }
+
+   /**
+    * Returns the number of calls which didn't complete before the replay timed out.
+    *
+    * @return the number of incomplete calls
+    */
+   public int getIncompleteCalls() {
+      return incompleteCalls;
+   }
+
+   /**
+    * Returns the completed calls per second over the whole run.
+    *
+    * @return the throughput
+    */
+   public double getThroughput() {
+      return getCompletedCalls() / seconds();
+   }
+
+   /**
+    * Returns the bytes allocated per second on the heap over the whole run.
+    *
+    * @return the allocation rate in bytes per second, or <code>-1</code> if the JVM doesn't support measuring it
+    */
+   public double getAllocationRate() {
+      if (allocatedBytes < 0) {
+         return -1;
+      }
+      return allocatedBytes / seconds();
+   }
+
+   private double seconds() {
+      return Math.max(durationNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+   }
+
+   @Override
+   public String toString() {
+      StringBuilder report = new StringBuilder();
+      report.append(String.format("Duration: %.2f s, throughput: %.1f calls/s, incomplete calls: %d%n", seconds(),
+         getThroughput(), incompleteCalls));
+      if (allocatedBytes >= 0) {
+         report.append(String.format("Allocation rate: %.1f MB/s%n", getAllocationRate() / (1024 * 1024)));
+      }
+      report.append(String.format("%-32s %8s %8s %10s %10s %10s%n", "method", "calls", "errors", "p50 ms", "p99 ms",
+         "p999 ms"));
+      for (Map.Entry<String, MethodStatistics> entry : methods.entrySet()) {
+         MethodStatistics statistics = entry.getValue();
+         report.append(String.format("%-32s %8d %7.2f%% %10.2f %10.2f %10.2f%n", entry.getKey(), statistics.getCount(),
+            statistics.getErrorRate() * 100, millis(statistics.getPercentile(0.5)),
+            millis(statistics.getPercentile(0.99)), millis(statistics.getPercentile(0.999))));
+      }
+      return report.toString();
+   }
+
+   private static double millis(long nanos) {
+      return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+   }
+
+   /**
+    * Latencies and error count of one wrapper method.
+    */
+   public static final class MethodStatistics {
+      private final long[] latencies;
+      private final long errors;
+
+      MethodStatistics(long[] latencies, long errors) {
+         this.latencies = latencies.clone();
+         Arrays.sort(this.latencies);
+         this.errors = errors;
+      }
+
+      /**
+       * Returns the number of completed calls, including failed ones.
+       *
+       * @return the number of calls
+       */
+      public long getCount() {
+         return latencies.length;
+      }
+
+      /**
+       * Returns the share of failed calls.
+       *
+       * @return the error rate between 0 and 1
+       */
+      public double getErrorRate() {
+         return latencies.length == 0 ? 0 : errors / (double) latencies.length;
+      }
+
+      /**
+       * Returns the latency at the given percentile (nearest rank).
+       *
+       * @param percentile
+       *           the percentile between 0 and 1, e.g. <code>0.99</code>
+       * @return the latency in nanoseconds, <code>0</code> if there were no calls
+       */
+      public long getPercentile(double percentile) {
+         if (latencies.length == 0) {
+            return 0;
+         }
+         int rank = (int) Math.ceil(percentile * latencies.length);
+         return latencies[Math.min(Math.max(rank, 1), latencies.length) - 1];
+      }
+   }
+}
@@ -0,0 +1,161 @@
+package com.github.kaiwinter.rhapsody.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for the Rhapsody REST API which answers every request of the
+ * {@link com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper} with a canned JSON response. It is used to replay
+ * recorded traffic without putting load on the real API.
+ *
+ * <p>
+ * <b>Note: this will not run on Android.</b>
+ * </p>
+ */
+public final class StubApiServer implements AutoCloseable {
+
+   private static final String TRACK_JSON = "{\"id\":\"Tra.1\",\"name\":\"Track\",\"disc\":1,"
+      + "\"artist\":{\"id\":\"Art.1\",\"name\":\"Artist\"},\"album\":{\"id\":\"Alb.1\",\"name\":\"Album\"},"
+      + "\"genre\":{\"id\":\"g.1\"},\"sample\":\"http://localhost/sample.mp3\",\"duration\":240}";
+   private static final String ALBUM_JSON = "{\"id\":\"Alb.1\",\"name\":\"Album\",\"discCount\":1,"
+      + "\"artist\":{\"id\":\"Art.1\",\"name\":\"Artist\"},\"type\":{\"id\":0,\"name\":\"Main Release\"},"
+      + "\"tags\":[\"Rock\",\"Pop\"],\"images\":[{\"width\":170,\"height\":170,\"url\":\"http://localhost/a.jpg\"}],"
+      + "\"tracks\":[" + TRACK_JSON + "," + TRACK_JSON + "," + TRACK_JSON + "],\"released\":1420070400000}";
+   private static final String ALBUM_LIST_JSON = "[" + ALBUM_JSON + "," + ALBUM_JSON + "," + ALBUM_JSON + "]";
+   private static final String ARTIST_JSON = "{\"id\":\"Art.1\",\"name\":\"Artist\",\"genre\":{\"id\":\"g.1\"}}";
+   private static final String LIBRARY_ARTISTS_JSON = "[{\"id\":\"Art.1\",\"name\":\"Artist\"},"
+      + "{\"id\":\"Art.2\",\"name\":\"Other Artist\"}]";
+   private static final String BIO_JSON = "{\"bio\":\"Biography\",\"blurbs\":[\"Blurb\"]}";
+   private static final String GENRES_JSON = "[{\"id\":\"g.1\",\"name\":\"Rock\",\"description\":\"Rock\","
+      + "\"subgenres\":[{\"id\":\"g.2\",\"name\":\"Indie\",\"description\":\"Indie\",\"subgenres\":[]}]}]";
+   private static final String ACCOUNT_JSON = "{\"id\":\"1\",\"logon\":\"user\",\"catalog\":\"DE\","
+      + "\"canStreamOnWeb\":true}";
+   private static final String CHARTS_JSON = "[{\"id\":\"Tra.1\",\"playCount\":20},"
+      + "{\"id\":\"Tra.2\",\"playCount\":10}]";
+   private static final String TOKEN_JSON = "{\"access_token\":\"access\",\"refresh_token\":\"refresh\","
+      + "\"catalog\":\"DE\"}";
+
+   private final HttpServer server;
+   private final ExecutorService executor;
+   private final long latencyMillis;
+
+   /**
+    * Starts a new server on a free port of the loopback interface.
+    *
+    * @param latencyMillis
+    *           artificial processing time which is added to every request, in milliseconds
+    * @param threads
+    *           the number of threads which serve requests
+    * @throws IOException
+    *            if the server cannot be started
+    */
+   public StubApiServer(long latencyMillis, int threads) throws IOException {
+      this.latencyMillis = latencyMillis;
+      server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      executor = Executors.newFixedThreadPool(threads);
+      server.setExecutor(executor);
+      server.createContext("/", this::handle);
+      server.start();
+   }
+
+   /**
+    * Returns the base URL of this server which can be passed to the wrapper.
+    *
+    * @return the base URL, e.g. <code>http://127.0.0.1:12345</code>
+    */
+   public String getUrl() {
+      InetSocketAddress address = server.getAddress();
+      return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort();
+   }
+
+   @Override
+   public void close() {
+      server.stop(0);
+      executor.shutdownNow();
+   }
+
+   private void handle(HttpExchange exchange) throws IOException {
+      try (InputStream requestBody = exchange.getRequestBody()) {
+         byte[] buffer = new byte[1024];
+         while (requestBody.read(buffer) != -1) {
+            // Drain the request
+         }
+      }
+      if (latencyMillis > 0) {
+         try {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+
+      String method = exchange.getRequestMethod();
+      String json = "GET".equals(method)
+         ? responseFor(exchange.getRequestURI().getPath(), exchange.getRequestURI().getQuery())
+         : null;
+      if ("POST".equals(method) && exchange.getRequestURI().getPath().startsWith("/oauth/")) {
+         json = TOKEN_JSON;
+      }
+
+      if (json == null && !"GET".equals(method)) {
+         exchange.sendResponseHeaders(204, -1);
+      } else if (json == null) {
+         exchange.sendResponseHeaders(404, -1);
+      } else {
+         byte[] body = json.getBytes(StandardCharsets.UTF_8);
+         exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+         exchange.sendResponseHeaders(200, body.length);
+         try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+         }
+      }
+      exchange.close();
+   }
+
+   private static String responseFor(String path, String query) {
+      String[] segments = path.split("/");
+      // segments[0] is empty, segments[1] is the API version
+      if (segments.length < 3) {
+         return null;
+      }
+      String resource = segments[2];
+      String last = segments[segments.length - 1];
+      boolean multiId = segments.length == 4 && last.contains(",");
+      if ("albums".equals(resource)) {
+         return segments.length == 4 && !"new".equals(last) && !multiId ? ALBUM_JSON : ALBUM_LIST_JSON;
+      } else if ("artists".equals(resource)) {
+         if ("bio".equals(last)) {
+            return BIO_JSON;
+         } else if (multiId) {
+            return "[" + ARTIST_JSON + "]";
+         }
+         return segments.length == 4 ? ARTIST_JSON : ALBUM_LIST_JSON;
+      } else if ("tracks".equals(resource)) {
+         return segments.length != 4 ? null : multiId ? "[" + TRACK_JSON + "]" : TRACK_JSON;
+      } else if ("search".equals(resource)) {
+         return query != null && query.contains("type=artist") ? "[" + ARTIST_JSON + "]" : ALBUM_LIST_JSON;
+      } else if ("genres".equals(resource)) {
+         return segments.length == 3 ? GENRES_JSON : ALBUM_LIST_JSON;
+      } else if ("me".equals(resource) && segments.length > 3) {
+         if ("account".equals(segments[3])) {
+            return ACCOUNT_JSON;
+         } else if ("charts".equals(segments[3])) {
+            return CHARTS_JSON;
+         } else if ("artists".equals(last)) {
+            return LIBRARY_ARTISTS_JSON;
+         }
+         return ALBUM_LIST_JSON;
+      }
+      return null;
+   }
+}
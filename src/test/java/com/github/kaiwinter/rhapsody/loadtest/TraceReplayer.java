@@ -0,0 +1,411 @@
+package com.github.kaiwinter.rhapsody.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.kaiwinter.rhapsody.api.RhapsodyCallback;
+import com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper;
+import com.github.kaiwinter.rhapsody.model.member.ChartsAlbum;
+import com.github.kaiwinter.rhapsody.model.member.ChartsArtist;
+import com.github.kaiwinter.rhapsody.model.member.ChartsTrack;
+import com.github.kaiwinter.rhapsody.service.member.ChartService.RangeEnum;
+import com.github.kaiwinter.rhapsody.trace.TraceEntry;
+
+/**
+ * Replays a recorded trace (see {@link com.github.kaiwinter.rhapsody.trace.TraceFile}) through a
+ * {@link RhapsodySdkWrapper} in open-loop mode and measures the latency of every call.
+ *
+ * <p>
+ * Asynchronous wrapper methods are issued from the scheduling thread, synchronous methods are issued on an unbounded
+ * thread pool so they never delay the schedule.
+ * </p>
+ */
+public final class TraceReplayer {
+   private static final Logger LOGGER = LoggerFactory.getLogger(TraceReplayer.class.getSimpleName());
+
+   private static final long START_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+   private final RhapsodySdkWrapper wrapper;
+
+   /**
+    * Constructs a new {@link TraceReplayer}.
+    *
+    * @param wrapper
+    *           the wrapper through which the calls are replayed
+    */
+   public TraceReplayer(RhapsodySdkWrapper wrapper) {
+      this.wrapper = wrapper;
+   }
+
+   /**
+    * Replays the given trace and waits until all calls completed or the timeout elapsed.
+    *
+    * @param entries
+    *           the recorded calls, ordered by timestamp
+    * @param mode
+    *           the {@link ReplayMode}
+    * @param timeout
+    *           the maximum time to wait for outstanding calls after the last call was issued
+    * @param unit
+    *           the unit of <code>timeout</code>
+    * @return the {@link ReplayReport}
+    * @throws InterruptedException
+    *            if the current thread is interrupted while replaying
+    */
+   public ReplayReport replay(List<TraceEntry> entries, ReplayMode mode, long timeout, TimeUnit unit)
+      throws InterruptedException {
+      LOGGER.info("Replaying {} calls with {}", entries.size(), mode);
+      Map<String, MethodRecorder> recorders = new ConcurrentHashMap<>();
+      CountDownLatch outstanding = new CountDownLatch(entries.size());
+      AllocationCounter allocations = AllocationCounter.start();
+      ExecutorService syncExecutor = Executors.newCachedThreadPool(allocations::newThread);
+
+      long firstTimestamp = entries.isEmpty() ? 0 : entries.get(0).getTimestamp();
+      long start = System.nanoTime() + START_DELAY_NANOS;
+      try {
+         for (int i = 0; i < entries.size(); i++) {
+            TraceEntry entry = entries.get(i);
+            long scheduled = start + mode.offsetNanos(i, entry.getTimestamp() - firstTimestamp);
+            long delay;
+            while ((delay = scheduled - System.nanoTime()) > 0) {
+               LockSupport.parkNanos(delay);
+               if (Thread.interrupted()) {
+                  throw new InterruptedException();
+               }
+            }
+            MethodRecorder recorder = recorders.computeIfAbsent(entry.getMethod(), method -> new MethodRecorder());
+            Completion completion = new Completion(recorder, scheduled, outstanding);
+            try {
+               issue(entry, completion, syncExecutor);
+            } catch (RuntimeException e) {
+               LOGGER.warn("Could not replay {}: {}", entry, e.getMessage());
+               completion.onFailure(-1, e.getMessage());
+            }
+         }
+         outstanding.await(timeout, unit);
+         // Synchronous calls which are still running allocate too, so wait for them before measuring
+         syncExecutor.shutdown();
+         syncExecutor.awaitTermination(timeout, unit);
+      } finally {
+         syncExecutor.shutdownNow();
+      }
+      long duration = System.nanoTime() - start;
+
+      Map<String, ReplayReport.MethodStatistics> statistics = new HashMap<>();
+      for (Map.Entry<String, MethodRecorder> entry : recorders.entrySet()) {
+         statistics.put(entry.getKey(), entry.getValue().toStatistics());
+      }
+      return new ReplayReport(statistics, duration, allocations.getAllocatedBytes(), (int) outstanding.getCount());
+   }
+
+   private void issue(TraceEntry entry, Completion completion, ExecutorService syncExecutor) {
+      switch (entry.getMethod()) {
+         case "loadAlbum":
+            wrapper.loadAlbum(entry.getArgument(0), completion.typed());
+            break;
+         case "reloadAlbum":
+            wrapper.reloadAlbum(entry.getArgument(0), completion.typed());
+            break;
+         case "getAlbum":
+            syncExecutor.execute(completion.wrap(() -> wrapper.getAlbum(entry.getArgument(0))));
+            break;
+         case "loadArtistMeta":
+            wrapper.loadArtistMeta(entry.getArgument(0), completion.typed());
+            break;
+         case "getArtistMeta":
+            syncExecutor.execute(completion.wrap(() -> wrapper.getArtistMeta(entry.getArgument(0))));
+            break;
+         case "loadArtistBio":
+            wrapper.loadArtistBio(entry.getArgument(0), completion.typed());
+            break;
+         case "loadGenres":
+            wrapper.loadGenres(completion.typed());
+            break;
+         case "loadGenreTree":
+            wrapper.loadGenreTree(completion.typed());
+            break;
+         case "loadAlbumNewReleases":
+            wrapper.loadAlbumNewReleases(entry.getArgument(0), integer(entry, 1), completion.typed());
+            break;
+         case "loadGenreNewReleases":
+            wrapper.loadGenreNewReleases(entry.getArgument(0), integer(entry, 1), completion.typed());
+            break;
+         case "loadAccount":
+            wrapper.loadAccount(completion.typed());
+            break;
+         case "getArtistNewReleases":
+            syncExecutor.execute(
+               completion.wrap(() -> wrapper.getArtistNewReleases(entry.getArgument(0), integer(entry, 1))));
+            break;
+         case "loadAllArtistsInLibrary":
+            wrapper.loadAllArtistsInLibrary(integer(entry, 0), integer(entry, 1), completion.typed());
+            break;
+         case "loadAllAlbumsByArtistInLibrary":
+            wrapper.loadAllAlbumsByArtistInLibrary(entry.getArgument(0), integer(entry, 1), completion.typed());
+            break;
+         case "loadAllAlbumsInLibrary":
+            wrapper.loadAllAlbumsInLibrary(integer(entry, 0), integer(entry, 1), completion.typed());
+            break;
+         case "loadTopPlayedTracks":
+            wrapper.loadTopPlayedTracks(integer(entry, 0), range(entry, 1), completion.typed());
+            break;
+         case "loadTopPlayedArtists":
+            wrapper.loadTopPlayedArtists(integer(entry, 0), range(entry, 1), completion.typed());
+            break;
+         case "loadTopPlayedAlbums":
+            wrapper.loadTopPlayedAlbums(integer(entry, 0), range(entry, 1), completion.typed());
+            break;
+         case "loadChartDashboard":
+            wrapper.loadChartDashboard(entry.getArgument(0), integer(entry, 1), ranges(entry, 2), completion.typed());
+            break;
+         case "hydrateTopPlayedTracks":
+            wrapper.hydrateTopPlayedTracks(chart(entry, 0, ChartsTrack::new, (track, id) -> track.id = id), null,
+               completion.typed());
+            break;
+         case "hydrateTopPlayedArtists":
+            wrapper.hydrateTopPlayedArtists(chart(entry, 0, ChartsArtist::new, (artist, id) -> artist.id = id), null,
+               completion.typed());
+            break;
+         case "hydrateTopPlayedAlbums":
+            wrapper.hydrateTopPlayedAlbums(chart(entry, 0, ChartsAlbum::new, (album, id) -> album.id = id), null,
+               completion.typed());
+            break;
+         case "addAlbumToLibrary":
+            wrapper.addAlbumToLibrary(entry.getArgument(0), completion.typed());
+            break;
+         case "removeAlbumFromLibrary":
+            wrapper.removeAlbumFromLibrary(entry.getArgument(0), completion.typed());
+            break;
+         case "addAlbumsToLibrary":
+            wrapper.addAlbumsToLibrary(ids(entry, 0), completion.typed());
+            break;
+         case "removeAlbumsFromLibrary":
+            wrapper.removeAlbumsFromLibrary(ids(entry, 0), completion.typed());
+            break;
+         case "searchAlbums":
+            wrapper.searchAlbums(entry.getArgument(0), integer(entry, 1), completion.typed());
+            break;
+         case "searchArtists":
+            wrapper.searchArtists(entry.getArgument(0), integer(entry, 1), completion.typed());
+            break;
+         default:
+            throw new IllegalArgumentException("Unknown method " + entry.getMethod());
+      }
+   }
+
+   private static Integer integer(TraceEntry entry, int index) {
+      String argument = entry.getArgument(index);
+      return argument == null ? null : Integer.valueOf(argument);
+   }
+
+   private static List<String> ids(TraceEntry entry, int index) {
+      String argument = entry.getArgument(index);
+      return argument == null || argument.isEmpty() ? Collections.emptyList() : Arrays.asList(argument.split(","));
+   }
+
+   private static <T> List<T> chart(TraceEntry entry, int index, Supplier<T> factory, BiConsumer<T, String> setId) {
+      List<T> chart = new ArrayList<>();
+      for (String id : ids(entry, index)) {
+         T chartEntry = factory.get();
+         setId.accept(chartEntry, id);
+         chart.add(chartEntry);
+      }
+      return chart;
+   }
+
+   private static RangeEnum range(TraceEntry entry, int index) {
+      String argument = entry.getArgument(index);
+      return argument == null ? null : RangeEnum.valueOf(argument);
+   }
+
+   private static List<RangeEnum> ranges(TraceEntry entry, int index) {
+      List<RangeEnum> ranges = new ArrayList<>();
+      for (String range : ids(entry, index)) {
+         ranges.add(RangeEnum.valueOf(range));
+      }
+      return ranges;
+   }
+
+   /**
+    * Counts the bytes allocated during a replay. The JVM reports the allocations of live threads only, so the threads
+    * of the replay's pool count their own allocations when they end, and the other threads count by how much their
+    * allocations grew.
+    */
+   private static final class AllocationCounter {
+      private final com.sun.management.ThreadMXBean bean;
+      private final Map<Long, Long> before = new HashMap<>();
+      /** Allocations of the running pool threads when they started, by thread ID. */
+      private final Map<Long, Long> poolStarts = new HashMap<>();
+      private final Set<Long> poolThreads = new HashSet<>();
+      private long poolAllocated;
+
+      private AllocationCounter(com.sun.management.ThreadMXBean bean) {
+         this.bean = bean;
+         if (bean != null) {
+            long[] threadIds = bean.getAllThreadIds();
+            long[] allocated = bean.getThreadAllocatedBytes(threadIds);
+            for (int i = 0; i < threadIds.length; i++) {
+               before.put(threadIds[i], allocated[i]);
+            }
+         }
+      }
+
+      /**
+       * Starts counting.
+       *
+       * @return the {@link AllocationCounter}, which counts nothing if the JVM doesn't support measuring allocations
+       */
+      static AllocationCounter start() {
+         ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+         if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+               return new AllocationCounter(allocationBean);
+            }
+         }
+         return new AllocationCounter(null);
+      }
+
+      /**
+       * Creates a thread of the replay's pool, which adds its allocations when it ends.
+       */
+      Thread newThread(Runnable runnable) {
+         return new Thread(() -> {
+            long threadId = Thread.currentThread().getId();
+            synchronized (this) {
+               poolThreads.add(threadId);
+               poolStarts.put(threadId, currentThreadAllocated());
+            }
+            try {
+               runnable.run();
+            } finally {
+               synchronized (this) {
+                  poolAllocated += currentThreadAllocated() - poolStarts.remove(threadId);
+               }
+            }
+         });
+      }
+
+      /**
+       * Returns the bytes allocated since {@link #start()}.
+       *
+       * @return the allocated bytes, or <code>-1</code> if the JVM doesn't support measuring it
+       */
+      synchronized long getAllocatedBytes() {
+         if (bean == null) {
+            return -1;
+         }
+         long sum = poolAllocated;
+         long[] threadIds = bean.getAllThreadIds();
+         long[] allocated = bean.getThreadAllocatedBytes(threadIds);
+         for (int i = 0; i < threadIds.length; i++) {
+            Long poolStart = poolStarts.get(threadIds[i]);
+            if (allocated[i] <= 0) {
+               continue;
+            } else if (poolStart != null) {
+               sum += allocated[i] - poolStart;
+            } else if (!poolThreads.contains(threadIds[i])) {
+               // pool threads which ended counted themselves
+               sum += allocated[i] - before.getOrDefault(threadIds[i], 0L);
+            }
+         }
+         return sum;
+      }
+
+      private long currentThreadAllocated() {
+         return bean == null ? 0 : bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+   }
+
+   /**
+    * Collects the latencies of one method.
+    */
+   private static final class MethodRecorder {
+      private long[] latencies = new long[64];
+      private int count;
+      private long errors;
+
+      synchronized void record(long latency, boolean error) {
+         if (count == latencies.length) {
+            long[] grown = new long[latencies.length * 2];
+            System.arraycopy(latencies, 0, grown, 0, count);
+            latencies = grown;
+         }
+         latencies[count++] = latency;
+         if (error) {
+            errors++;
+         }
+      }
+
+      synchronized ReplayReport.MethodStatistics toStatistics() {
+         long[] recorded = new long[count];
+         System.arraycopy(latencies, 0, recorded, 0, count);
+         return new ReplayReport.MethodStatistics(recorded, errors);
+      }
+   }
+
+   /**
+    * Records the outcome of a single replayed call.
+    */
+   private static final class Completion implements RhapsodyCallback<Object> {
+      private final MethodRecorder recorder;
+      private final long scheduled;
+      private final CountDownLatch outstanding;
+
+      Completion(MethodRecorder recorder, long scheduled, CountDownLatch outstanding) {
+         this.recorder = recorder;
+         this.scheduled = scheduled;
+         this.outstanding = outstanding;
+      }
+
+      @SuppressWarnings("unchecked")
+      <T> RhapsodyCallback<T> typed() {
+         return (RhapsodyCallback<T>) (RhapsodyCallback<?>) this;
+      }
+
+      Runnable wrap(Runnable call) {
+         return () -> {
+            try {
+               call.run();
+               onSuccess(null);
+            } catch (RuntimeException e) {
+               onFailure(-1, e.getMessage());
+            }
+         };
+      }
+
+      @Override
+      public void onSuccess(Object data) {
+         complete(false);
+      }
+
+      @Override
+      public void onFailure(int httpCode, String message) {
+         complete(true);
+      }
+
+      private void complete(boolean error) {
+         recorder.record(System.nanoTime() - scheduled, error);
+         outstanding.countDown();
+      }
+   }
+}
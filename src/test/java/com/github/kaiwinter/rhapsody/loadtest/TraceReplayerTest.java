@@ -0,0 +1,70 @@
+package com.github.kaiwinter.rhapsody.loadtest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper;
+import com.github.kaiwinter.rhapsody.service.member.ChartService.RangeEnum;
+import com.github.kaiwinter.rhapsody.trace.TraceEntry;
+import com.github.kaiwinter.rhapsody.trace.TraceFile;
+
+/**
+ * Tests for {@link TraceReplayer}.
+ */
+public final class TraceReplayerTest {
+
+   /**
+    * Records calls of the wrapper into a trace file, reads it back and replays it against the {@link StubApiServer}.
+    */
+   @Test
+   public void recordAndReplay() throws Exception {
+      Path path = Files.createTempFile("trace", ".tsv");
+      try (StubApiServer server = new StubApiServer(0, 4)) {
+         RhapsodySdkWrapper wrapper = new RhapsodySdkWrapper("key", "secret", null, server.getUrl());
+         try (TraceFile traceFile = new TraceFile(path)) {
+            wrapper.setTraceRecorder(traceFile);
+            wrapper.getAlbum("Alb.1");
+            wrapper.getArtistMeta("Art.1");
+            wrapper.getArtistNewReleases("Art.1", null);
+         }
+         wrapper.setTraceRecorder(null);
+
+         List<TraceEntry> entries = TraceFile.read(path);
+         Assert.assertEquals(3, entries.size());
+         Assert.assertEquals("getArtistNewReleases", entries.get(2).getMethod());
+         Assert.assertEquals("Art.1", entries.get(2).getArgument(0));
+         Assert.assertNull(entries.get(2).getArgument(1));
+
+         entries.add(new TraceEntry(entries.get(2).getTimestamp(), "loadTopPlayedAlbums",
+            Arrays.asList("10", RangeEnum.week.name())));
+         ReplayReport report = new TraceReplayer(wrapper).replay(entries, ReplayMode.fixedRate(100), 10,
+            TimeUnit.SECONDS);
+
+         Assert.assertEquals(4, report.getCompletedCalls());
+         Assert.assertEquals(0, report.getIncompleteCalls());
+         Assert.assertEquals(0, report.getMethods().get("getAlbum").getErrorRate(), 0);
+         Assert.assertEquals(0, report.getMethods().get("loadTopPlayedAlbums").getErrorRate(), 0);
+         Assert.assertTrue(report.getAllocationRate() > 0);
+      } finally {
+         Files.delete(path);
+      }
+   }
+
+   /**
+    * Tests that arguments survive the trace file format.
+    */
+   @Test
+   public void parseLine() {
+      TraceEntry entry = new TraceEntry(42L, "loadAlbumNewReleases", Arrays.asList(null, "a b\t~", "5"));
+      TraceEntry parsed = TraceEntry.parse(entry.toLine());
+      Assert.assertEquals(42L, parsed.getTimestamp());
+      Assert.assertEquals("loadAlbumNewReleases", parsed.getMethod());
+      Assert.assertEquals(entry.getArguments(), parsed.getArguments());
+   }
+}
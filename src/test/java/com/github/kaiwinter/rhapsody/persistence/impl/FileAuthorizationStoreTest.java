@@ -0,0 +1,102 @@
+package com.github.kaiwinter.rhapsody.persistence.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.kaiwinter.rhapsody.persistence.AuthorizationStore;
+import com.github.kaiwinter.rhapsody.persistence.model.AuthorizationInfo;
+
+/**
+ * Tests for {@link FileAuthorizationStore}.
+ */
+public final class FileAuthorizationStoreTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   /**
+    * Tests if the values are stored per user and survive reopening the store.
+    */
+   @Test
+   public void test() throws IOException {
+      Path directory = folder.getRoot().toPath();
+      try (FileAuthorizationStore store = new FileAuthorizationStore(directory, 4)) {
+         AuthorizationStore authorizationStore = store.forUser("user1");
+
+         // Assert not set on start
+         AuthorizationInfo authorizationInfo = authorizationStore.loadAuthorizationInfo();
+         Assert.assertNull(authorizationInfo.accessToken);
+         Assert.assertNull(authorizationInfo.refreshToken);
+         Assert.assertNull(authorizationInfo.catalog);
+
+         // set values and save
+         for (int i = 0; i < 100; i++) {
+            authorizationInfo.accessToken = "accessToken" + i;
+            authorizationInfo.refreshToken = "refreshToken" + i;
+            authorizationInfo.catalog = "catalog";
+            store.forUser("user" + i).saveAuthorizationInfo(authorizationInfo);
+         }
+         store.forUser("user2").clearAuthorization();
+      }
+
+      // Reopen, assert saved values are persisted
+      try (FileAuthorizationStore store = new FileAuthorizationStore(directory, 4)) {
+         Assert.assertEquals(99, store.size());
+         AuthorizationInfo authorizationInfo = store.forUser("user1").loadAuthorizationInfo();
+         Assert.assertEquals("accessToken1", authorizationInfo.accessToken);
+         Assert.assertEquals("refreshToken1", authorizationInfo.refreshToken);
+         Assert.assertEquals("catalog", authorizationInfo.catalog);
+
+         authorizationInfo = store.forUser("user2").loadAuthorizationInfo();
+         Assert.assertNull(authorizationInfo.accessToken);
+         Assert.assertNull(authorizationInfo.refreshToken);
+         Assert.assertNull(authorizationInfo.catalog);
+      }
+   }
+
+   /**
+    * Tests if the shard files are only readable by the owner.
+    */
+   @Test
+   public void ownerOnlyPermissions() throws IOException {
+      Path directory = folder.getRoot().toPath();
+      Assume.assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+      try (FileAuthorizationStore store = new FileAuthorizationStore(directory, 1)) {
+         AuthorizationInfo authorizationInfo = new AuthorizationInfo();
+         authorizationInfo.refreshToken = "refreshToken";
+         store.forUser("user1").saveAuthorizationInfo(authorizationInfo);
+      }
+      Path file = directory.resolve("authorization-0.bin");
+      Assert.assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+   }
+
+   /**
+    * Tests if reopening the store with a different number of shards fails instead of losing the stored users.
+    */
+   @Test
+   public void shardCountMismatch() throws IOException {
+      Path directory = folder.getRoot().toPath();
+      try (FileAuthorizationStore store = new FileAuthorizationStore(directory, 4)) {
+         for (int i = 0; i < 10; i++) {
+            store.forUser("user" + i).saveAuthorizationInfo(new AuthorizationInfo());
+         }
+      }
+      try {
+         new FileAuthorizationStore(directory, 8).close();
+         Assert.fail("Expected IOException");
+      } catch (IOException e) {
+         Assert.assertTrue(e.getMessage(), e.getMessage().contains("4 shards"));
+      }
+      try (FileAuthorizationStore store = new FileAuthorizationStore(directory, 4)) {
+         Assert.assertEquals(10, store.size());
+      }
+   }
+}
@@ -0,0 +1,132 @@
+package com.github.kaiwinter.rhapsody.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+
+/**
+ * Tests for {@link LibrarySearchIndex}.
+ */
+public final class LibrarySearchIndexTest {
+
+   /**
+    * Tests prefix matching over all fields, ranking and incremental updates.
+    */
+   @Test
+   public void search() {
+      LibrarySearchIndex index = new LibrarySearchIndex();
+      index.addAll(Arrays.asList(album("1", "Lemonade", "Beyoncé", "R&B"), album("2", "Blue Lines", "Massive Attack",
+         "Trip-Hop"), album("3", "Mezzanine", "Massive Attack", "Trip-Hop"), album("4", "Tripping", "Other", "Rock")));
+
+      Assert.assertEquals(Collections.singletonList("1"), ids(index.search("beyon", 10)));
+      Assert.assertEquals(Arrays.asList("2", "3"), ids(index.search("MASSIVE att", 10)));
+      // Name matches rank before tag matches
+      Assert.assertEquals(Arrays.asList("4", "2", "3"), ids(index.search("trip", 10)));
+      Assert.assertEquals(Collections.singletonList("3"), ids(index.search("trip mezz", 10)));
+      Assert.assertTrue(index.search("xyz", 10).isEmpty());
+
+      index.remove("3");
+      index.add(album("2", "Protection", "Massive Attack", "Trip-Hop"));
+      Assert.assertEquals(Collections.singletonList("2"), ids(index.search("massive", 10)));
+      Assert.assertTrue(index.search("blue", 10).isEmpty());
+      Assert.assertEquals(3, index.size());
+   }
+
+   /**
+    * A removed album isn't found anymore, also not by the words it shares with other albums.
+    */
+   @Test
+   public void remove() {
+      LibrarySearchIndex index = new LibrarySearchIndex();
+      index.addAll(Arrays.asList(album("1", "Blue Lines", "Massive Attack", "Trip-Hop"),
+         album("2", "Blue Train", "John Coltrane", "Jazz")));
+
+      Assert.assertTrue(index.remove("1"));
+      Assert.assertFalse(index.remove("1"));
+      Assert.assertFalse(index.remove("unknown"));
+      Assert.assertEquals(Collections.singletonList("2"), ids(index.search("blue", 10)));
+      Assert.assertTrue(index.search("massive", 10).isEmpty());
+      Assert.assertEquals(1, index.size());
+   }
+
+   /**
+    * A replaced album is found by its new words only and keeps its ID.
+    */
+   @Test
+   public void replace() {
+      LibrarySearchIndex index = new LibrarySearchIndex();
+      index.add(album("1", "Blue Lines", "Massive Attack", "Trip-Hop"));
+      index.add(album("1", "Mezzanine", "Massive Attack", "Trip-Hop"));
+      index.addAll(Collections.singletonList(album("1", "Heligoland", "Massive Attack", "Trip-Hop")));
+
+      Assert.assertTrue(index.search("blue", 10).isEmpty());
+      Assert.assertTrue(index.search("mezz", 10).isEmpty());
+      Assert.assertEquals(Collections.singletonList("1"), ids(index.search("heligo mass", 10)));
+      Assert.assertEquals(1, index.size());
+   }
+
+   /**
+    * Replacing and removing many albums compacts the index, the results stay the same.
+    */
+   @Test
+   public void compaction() {
+      LibrarySearchIndex index = new LibrarySearchIndex();
+      for (int round = 0; round < 10; round++) {
+         for (int i = 0; i < 100; i++) {
+            index.add(album("a" + i, "Album" + i + " round" + round, "Artist" + i % 10, "Tag"));
+         }
+      }
+      for (int i = 50; i < 100; i++) {
+         index.remove("a" + i);
+      }
+      for (int i = 0; i < 50; i++) {
+         index.add(album("a" + i, "Album" + i + " final", "Artist" + i % 10, "Tag"));
+      }
+
+      Assert.assertEquals(50, index.size());
+      Assert.assertTrue(index.search("round", 100).isEmpty());
+      Assert.assertEquals(50, index.search("final", 100).size());
+      Assert.assertEquals(50, index.search("tag", 100).size());
+      Assert.assertEquals(Arrays.asList("a3", "a13", "a23", "a33", "a43"), ids(index.search("artist3", 100)));
+      Assert.assertEquals(Collections.singletonList("a42"), ids(index.search("album42 fin", 100)));
+      Assert.assertTrue(index.search("album60", 100).isEmpty());
+   }
+
+   /**
+    * The index follows the changes of a library sync.
+    */
+   @Test
+   public void syncListener() {
+      LibrarySearchIndex index = new LibrarySearchIndex();
+      index.albumAdded(album("1", "Blue Lines", "Massive Attack", "Trip-Hop"));
+      index.albumAdded(album("2", "Mezzanine", "Massive Attack", "Trip-Hop"));
+      Assert.assertEquals(Arrays.asList("1", "2"), ids(index.search("massive", 10)));
+
+      index.albumChanged(album("1", "Blue Lines (Remastered)", "Massive Attack", "Trip-Hop"));
+      Assert.assertEquals(Collections.singletonList("1"), ids(index.search("remaster", 10)));
+
+      index.albumRemoved("2");
+      Assert.assertEquals(Collections.singletonList("1"), ids(index.search("massive", 10)));
+      Assert.assertEquals(1, index.size());
+   }
+
+      private static List<String> ids(List<AlbumData> albums) {
+      return albums.stream().map(album -> album.id).collect(Collectors.toList());
+   }
+
+   private static AlbumData album(String id, String name, String artistName, String tag) {
+      AlbumData album = new AlbumData();
+      album.id = id;
+      album.name = name;
+      album.artist = new AlbumData.Artist();
+      album.artist.name = artistName;
+      album.tags = Collections.singletonList(tag);
+      return album;
+   }
+}
@@ -0,0 +1,123 @@
+package com.github.kaiwinter.rhapsody.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.api.RhapsodyCallback;
+import com.github.kaiwinter.rhapsody.dispatch.CallHandle;
+
+/**
+ * Tests for {@link TypeaheadSearch}.
+ */
+public final class TypeaheadSearchTest {
+
+   private static final List<String> CATALOG = Arrays.asList("Lemonade Beyoncé", "Lemon Incubus",
+      "Dangerously in Love Beyoncé", "4 Beyoncé", "Let It Be The Beatles");
+
+   /**
+    * Fast typing sends only the last query, repeated and narrower queries are answered without a request as long as
+    * the broader result was complete.
+    */
+   @Test
+   public void debounceCacheAndRefine() throws Exception {
+      List<String> requests = new CopyOnWriteArrayList<>();
+      TypeaheadSearch<String> typeahead = new TypeaheadSearch<>((query, limit, callback) -> {
+         requests.add(query);
+         List<String> result = new ArrayList<>();
+         for (String entry : CATALOG) {
+            if (SearchNormalizer.normalize(entry).contains(query) && result.size() < limit) {
+               result.add(entry);
+            }
+         }
+         callback.onSuccess(result);
+         return new CallHandle();
+      }, entry -> entry, 3, 30, TimeUnit.MILLISECONDS, 10);
+
+      BlockingQueue<List<String>> results = new LinkedBlockingQueue<>();
+      List<List<String>> superseded = new CopyOnWriteArrayList<>();
+      typeahead.search("b", collect(superseded));
+      typeahead.search("be", collect(superseded));
+      typeahead.search("Bey", collect(results));
+      Assert.assertEquals(3, results.poll(5, TimeUnit.SECONDS).size());
+      Assert.assertEquals(Arrays.asList("bey"), requests);
+
+      // 3 results are the limit, so narrower queries are sent
+      typeahead.search("Beyonce", collect(results));
+      Assert.assertEquals(3, results.poll(5, TimeUnit.SECONDS).size());
+      Assert.assertEquals(2, requests.size());
+
+      typeahead.search("lem", collect(results));
+      Assert.assertEquals(2, results.poll(5, TimeUnit.SECONDS).size());
+      typeahead.search("LEMONA", collect(results));
+      Assert.assertEquals(Arrays.asList("Lemonade Beyoncé"), results.poll());
+      typeahead.search("lem inc", collect(results));
+      Assert.assertEquals(Arrays.asList("Lemon Incubus"), results.poll());
+      typeahead.search(" Lem ", collect(results));
+      Assert.assertEquals(2, results.poll().size());
+
+      Assert.assertEquals(Arrays.asList("bey", "beyonce", "lem"), requests);
+      Assert.assertEquals(2, typeahead.getRefinements());
+      Assert.assertEquals(1, typeahead.getCacheHits());
+      Assert.assertTrue(superseded.isEmpty());
+
+      // a cancelled query is not sent
+      typeahead.search("let", collect(results)).cancel();
+      Thread.sleep(100);
+      Assert.assertEquals(3, typeahead.getRequests());
+   }
+
+   /**
+    * If the server returns fewer results than requested, its largest result is not complete and narrower queries are
+    * sent.
+    */
+   @Test
+   public void serverLimit() throws Exception {
+      List<String> requests = new CopyOnWriteArrayList<>();
+      TypeaheadSearch<String> typeahead = new TypeaheadSearch<>((query, limit, callback) -> {
+         requests.add(query);
+         List<String> result = new ArrayList<>();
+         for (String entry : CATALOG) {
+            if (SearchNormalizer.normalize(entry).contains(query) && result.size() < 2) {
+               result.add(entry);
+            }
+         }
+         callback.onSuccess(result);
+         return new CallHandle();
+      }, entry -> entry, 5, 0, TimeUnit.MILLISECONDS, 10);
+
+      BlockingQueue<List<String>> results = new LinkedBlockingQueue<>();
+      typeahead.search("le", collect(results));
+      Assert.assertEquals(Arrays.asList("Lemonade Beyoncé", "Lemon Incubus"), results.poll(5, TimeUnit.SECONDS));
+      typeahead.search("let", collect(results));
+      Assert.assertEquals(Arrays.asList("Let It Be The Beatles"), results.poll(5, TimeUnit.SECONDS));
+      typeahead.search("let it", collect(results));
+      Assert.assertEquals(Arrays.asList("Let It Be The Beatles"), results.poll(5, TimeUnit.SECONDS));
+
+      Assert.assertEquals(Arrays.asList("le", "let"), requests);
+      Assert.assertEquals(1, typeahead.getRefinements());
+   }
+
+      private static RhapsodyCallback<List<String>> collect(Collection<List<String>> results) {
+      return new RhapsodyCallback<List<String>>() {
+
+         @Override
+         public void onSuccess(List<String> data) {
+            results.add(data);
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            Assert.fail(message);
+         }
+      };
+   }
+}
@@ -0,0 +1,285 @@
+package com.github.kaiwinter.rhapsody.sync;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.kaiwinter.rhapsody.api.RhapsodyCallback;
+import com.github.kaiwinter.rhapsody.api.RhapsodySdkWrapper;
+import com.github.kaiwinter.rhapsody.loadtest.StubApiServer;
+import com.github.kaiwinter.rhapsody.persistence.AuthorizationStore;
+import com.github.kaiwinter.rhapsody.persistence.model.AuthorizationInfo;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for {@link LibraryMutationLog}.
+ */
+public final class LibraryMutationLogTest {
+
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   /**
+    * Mutations are coalesced, survive reopening the log and are removed from it after a replay.
+    */
+   @Test
+   public void coalesceAndReplay() throws Exception {
+      Path file = folder.getRoot().toPath().resolve("mutations.log");
+      Set<String> view = new TreeSet<>();
+      try (LibraryMutationLog log = new LibraryMutationLog(file)) {
+         log.addView(new SetView(view));
+         log.addAlbum("Alb.1");
+         log.addAlbum("Alb.1");
+         log.addAlbum("Alb.2");
+         log.removeAlbum("Alb.2");
+         log.removeAlbum("Alb.3");
+
+         Assert.assertEquals(2, log.getPendingCount());
+         Assert.assertEquals(Boolean.TRUE, log.getPendingState("Alb.1"));
+         Assert.assertNull(log.getPendingState("Alb.2"));
+         Assert.assertEquals(Boolean.FALSE, log.getPendingState("Alb.3"));
+         Assert.assertEquals(Collections.singleton("Alb.1"), view);
+      }
+
+      try (StubApiServer server = new StubApiServer(0, 4);
+         LibraryMutationLog log = new LibraryMutationLog(file)) {
+         Set<String> reopenedView = new TreeSet<>();
+         reopenedView.add("Alb.3");
+         log.addView(new SetView(reopenedView));
+         Assert.assertEquals(2, log.getPendingCount());
+         Assert.assertEquals(Collections.singleton("Alb.1"), reopenedView);
+
+         RhapsodySdkWrapper wrapper = new RhapsodySdkWrapper("key", "secret", null, server.getUrl());
+         MutationReplayResult result = replay(log, wrapper);
+         Assert.assertEquals(2, result.getApplied().size());
+         Assert.assertTrue(result.getRejected().isEmpty());
+         Assert.assertEquals(0, log.getPendingCount());
+      }
+
+      try (LibraryMutationLog log = new LibraryMutationLog(file)) {
+         Assert.assertEquals(0, log.getPendingCount());
+      }
+   }
+
+   /**
+    * Mutations which fail because the token expired stay in the log, mutations which the server rejected are reverted.
+    */
+   @Test
+   public void expiredTokenAndRejection() throws Exception {
+      Path file = folder.getRoot().toPath().resolve("mutations.log");
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      int[] status = { 401 };
+      server.createContext("/", exchange -> {
+         while (exchange.getRequestBody().read() != -1) {
+            // reads the request before answering
+         }
+         exchange.sendResponseHeaders(status[0], -1);
+         exchange.close();
+      });
+      server.start();
+      Set<String> view = new TreeSet<>();
+      try (LibraryMutationLog log = new LibraryMutationLog(file)) {
+         log.addView(new SetView(view));
+         log.addAlbum("Alb.1");
+         RhapsodySdkWrapper wrapper = new RhapsodySdkWrapper("key", "secret", null,
+            "http://localhost:" + server.getAddress().getPort());
+
+         MutationReplayResult result = replay(log, wrapper);
+         Assert.assertEquals(Collections.singleton("Alb.1"), result.getRetained());
+         Assert.assertEquals(Boolean.TRUE, log.getPendingState("Alb.1"));
+         Assert.assertEquals(Collections.singleton("Alb.1"), view);
+
+         status[0] = 400;
+         result = replay(log, wrapper);
+         Assert.assertEquals(Collections.singleton("Alb.1"), result.getRejected().keySet());
+         Assert.assertEquals(0, log.getPendingCount());
+         Assert.assertTrue(view.isEmpty());
+      } finally {
+         server.stop(0);
+      }
+   }
+
+   /**
+    * A request which can't be sent fails the replay's part, the mutations stay in the log and the next replay runs.
+    */
+   @Test
+   public void requestThrows() throws Exception {
+      Path file = folder.getRoot().toPath().resolve("mutations.log");
+      RhapsodySdkWrapper wrapper = RhapsodySdkWrapper.builder("key", "secret").authorizationStore(new FailingStore())
+         .loadAuthorizationAsync(Runnable::run).build();
+      try (LibraryMutationLog log = new LibraryMutationLog(file)) {
+         log.addAlbum("Alb.1");
+         log.removeAlbum("Alb.2");
+         for (int i = 0; i < 2; i++) {
+            MutationReplayResult result = replay(log, wrapper);
+            Assert.assertEquals(2, result.getRetained().size());
+            Assert.assertEquals(2, log.getPendingCount());
+         }
+      }
+   }
+
+   /**
+    * An addition which was sent is kept if a removal and another addition of the album cancel out while its request
+    * runs, so it is sent again after a transient failure.
+    */
+   @Test
+   public void cancelOutWhileSentAndFailure() throws Exception {
+      Path file = folder.getRoot().toPath().resolve("mutations.log");
+      CountDownLatch received = new CountDownLatch(1);
+      CountDownLatch answer = new CountDownLatch(1);
+      HttpServer server = blockingServer(received, answer);
+      try (LibraryMutationLog log = new LibraryMutationLog(file)) {
+         log.addAlbum("Alb.1");
+         CompletableFuture<MutationReplayResult> replayed = replayAsync(log, wrapper(server));
+         Assert.assertTrue(received.await(5, TimeUnit.SECONDS));
+         log.removeAlbum("Alb.1");
+         log.addAlbum("Alb.1");
+         Assert.assertEquals(Boolean.TRUE, log.getPendingState("Alb.1"));
+
+         answer.countDown();
+         Assert.assertEquals(Collections.singleton("Alb.1"), replayed.get(10, TimeUnit.SECONDS).getRetained());
+         Assert.assertEquals(Boolean.TRUE, log.getPendingState("Alb.1"));
+      } finally {
+         server.stop(0);
+      }
+   }
+
+   /**
+    * An addition which was sent is pending after reopening the log if a removal and another addition of the album
+    * cancelled out while its request ran.
+    */
+   @Test
+   public void cancelOutWhileSentAndReopen() throws Exception {
+      Path file = folder.getRoot().toPath().resolve("mutations.log");
+      CountDownLatch received = new CountDownLatch(1);
+      CountDownLatch answer = new CountDownLatch(1);
+      HttpServer server = blockingServer(received, answer);
+      try {
+         CompletableFuture<MutationReplayResult> replayed;
+         try (LibraryMutationLog log = new LibraryMutationLog(file)) {
+            log.removeAlbum("Alb.1");
+            replayed = replayAsync(log, wrapper(server));
+            Assert.assertTrue(received.await(5, TimeUnit.SECONDS));
+            log.addAlbum("Alb.1");
+            log.removeAlbum("Alb.1");
+         }
+         // the answer can't be written to the closed log
+         answer.countDown();
+         replayed.get(10, TimeUnit.SECONDS);
+
+         try (LibraryMutationLog log = new LibraryMutationLog(file)) {
+            Assert.assertEquals(Boolean.FALSE, log.getPendingState("Alb.1"));
+         }
+         // the log was compacted when it was opened
+         try (LibraryMutationLog log = new LibraryMutationLog(file)) {
+            Assert.assertEquals(Boolean.FALSE, log.getPendingState("Alb.1"));
+         }
+      } finally {
+         server.stop(0);
+      }
+   }
+
+   /**
+    * Returns a server which signals <code>received</code> when a request arrived and answers it by 401 when
+    * <code>answer</code> is counted down.
+    */
+   private static HttpServer blockingServer(CountDownLatch received, CountDownLatch answer) throws IOException {
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/", exchange -> {
+         while (exchange.getRequestBody().read() != -1) {
+            // reads the request before answering
+         }
+         received.countDown();
+         try {
+            answer.await(10, TimeUnit.SECONDS);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         exchange.sendResponseHeaders(401, -1);
+         exchange.close();
+      });
+      server.setExecutor(Executors.newCachedThreadPool());
+      server.start();
+      return server;
+   }
+
+   private static RhapsodySdkWrapper wrapper(HttpServer server) {
+      return new RhapsodySdkWrapper("key", "secret", null, "http://localhost:" + server.getAddress().getPort());
+   }
+
+   private static MutationReplayResult replay(LibraryMutationLog log, RhapsodySdkWrapper wrapper) throws Exception {
+      return replayAsync(log, wrapper).get(10, TimeUnit.SECONDS);
+   }
+
+   private static CompletableFuture<MutationReplayResult> replayAsync(LibraryMutationLog log,
+      RhapsodySdkWrapper wrapper) {
+      CompletableFuture<MutationReplayResult> replayed = new CompletableFuture<>();
+      log.replay(wrapper, new RhapsodyCallback<MutationReplayResult>() {
+
+         @Override
+         public void onSuccess(MutationReplayResult data) {
+            replayed.complete(data);
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            replayed.completeExceptionally(new AssertionError(message));
+         }
+      });
+      return replayed;
+   }
+
+   /**
+    * An {@link AuthorizationStore} which can't be loaded.
+    */
+   private static final class FailingStore implements AuthorizationStore {
+
+      @Override
+      public AuthorizationInfo loadAuthorizationInfo() {
+         throw new IllegalStateException("Store not available");
+      }
+
+      @Override
+      public void saveAuthorizationInfo(AuthorizationInfo authorizationInfo) {
+         // not needed
+      }
+
+      @Override
+      public void clearAuthorization() {
+         // not needed
+      }
+   }
+
+   /**
+    * A {@link LocalLibraryView} backed by a set of album IDs.
+    */
+   private static final class SetView implements LocalLibraryView {
+      private final Set<String> albumIds;
+
+      SetView(Set<String> albumIds) {
+         this.albumIds = albumIds;
+      }
+
+      @Override
+      public void albumAdded(String albumId) {
+         albumIds.add(albumId);
+      }
+
+      @Override
+      public void albumRemoved(String albumId) {
+         albumIds.remove(albumId);
+      }
+   }
+}
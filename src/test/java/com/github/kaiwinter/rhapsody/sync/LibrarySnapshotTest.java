@@ -0,0 +1,68 @@
+package com.github.kaiwinter.rhapsody.sync;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Artist;
+
+/**
+ * Tests for {@link LibrarySnapshot}.
+ */
+public final class LibrarySnapshotTest {
+
+   /**
+    * Tests if added, removed and changed entries are detected.
+    */
+   @Test
+   public void diff() {
+      LibrarySnapshot older = LibrarySnapshot.of(Arrays.asList(album("a", "A"), album("b", "B"), album("c", "C")),
+         Arrays.asList(artist("x"), artist("y")));
+      LibrarySnapshot newer = LibrarySnapshot.of(Arrays.asList(album("b", "B"), album("c", "C2"), album("d", "D")),
+         Arrays.asList(artist("y"), artist("z")));
+
+      LibraryDiff diff = older.diff(newer);
+      Assert.assertEquals(Collections.singletonList("d"), diff.getAddedAlbums());
+      Assert.assertEquals(Collections.singletonList("a"), diff.getRemovedAlbums());
+      Assert.assertEquals(Collections.singletonList("c"), diff.getChangedAlbums());
+      Assert.assertEquals(Collections.singletonList("z"), diff.getAddedArtists());
+      Assert.assertEquals(Collections.singletonList("x"), diff.getRemovedArtists());
+      Assert.assertTrue(newer.diff(newer).isEmpty());
+   }
+
+   /**
+    * Tests if a written snapshot is read back unchanged.
+    */
+   @Test
+   public void writeAndRead() throws IOException {
+      LibrarySnapshot snapshot = LibrarySnapshot.of(Arrays.asList(album("a", "A"), album("b", "B")),
+         Collections.singletonList(artist("x")));
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      snapshot.write(out);
+
+      LibrarySnapshot read = LibrarySnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+      Assert.assertEquals(2, read.getAlbumCount());
+      Assert.assertTrue(read.containsArtist("x"));
+      Assert.assertEquals(snapshot.getAlbumHash("b"), read.getAlbumHash("b"));
+      Assert.assertTrue(snapshot.diff(read).isEmpty());
+   }
+
+   private static AlbumData album(String id, String name) {
+      AlbumData album = new AlbumData();
+      album.id = id;
+      album.name = name;
+      return album;
+   }
+
+   private static Artist artist(String id) {
+      Artist artist = new Artist();
+      artist.id = id;
+      return artist;
+   }
+}
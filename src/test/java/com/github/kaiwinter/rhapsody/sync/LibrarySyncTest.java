@@ -0,0 +1,220 @@
+package com.github.kaiwinter.rhapsody.sync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.github.kaiwinter.rhapsody.api.RhapsodyCallback;
+import com.github.kaiwinter.rhapsody.model.AlbumData;
+import com.github.kaiwinter.rhapsody.model.AlbumData.Artist;
+
+/**
+ * Tests for {@link LibrarySync}.
+ */
+public final class LibrarySyncTest {
+
+   /**
+    * The listing is paged until an empty page, added, removed and changed entries are reported and only the added and
+    * changed albums are loaded in detail.
+    */
+   @Test
+   public void diffAcrossPages() {
+      FakeLibrary library = new FakeLibrary(
+         Arrays.asList(album("b", "B"), album("c", "C2"), album("d", "D"), album("e", "E"), album("f", "F")),
+         Arrays.asList(artist("y"), artist("z")));
+      LibrarySnapshot older = LibrarySnapshot.of(Arrays.asList(album("a", "A"), album("b", "B"), album("c", "C")),
+         Arrays.asList(artist("x"), artist("y")));
+      List<String> events = new ArrayList<>();
+      LibrarySync sync = new LibrarySync(library, older, recording(events, null));
+
+      LibraryDiff diff = sync(sync);
+      Assert.assertEquals(Arrays.asList("d", "e", "f"), diff.getAddedAlbums());
+      Assert.assertEquals(Collections.singletonList("a"), diff.getRemovedAlbums());
+      Assert.assertEquals(Collections.singletonList("c"), diff.getChangedAlbums());
+      Assert.assertEquals(Collections.singletonList("z"), diff.getAddedArtists());
+      Assert.assertEquals(Collections.singletonList("x"), diff.getRemovedArtists());
+      Assert.assertEquals(Arrays.asList("0", "2", "4", "5"), library.albumOffsets);
+      Assert.assertEquals(Arrays.asList("0", "2"), library.artistOffsets);
+      Assert.assertEquals(Arrays.asList("d", "e", "f", "c"), library.detailLoads);
+      Assert.assertEquals(
+         Arrays.asList("removed a", "artist added z", "artist removed x", "added d", "added e", "added f", "changed c"),
+         events);
+      Assert.assertEquals(5, sync.getSnapshot().getAlbumCount());
+
+      // nothing changed
+      library.detailLoads.clear();
+      Assert.assertTrue(sync(sync).isEmpty());
+      Assert.assertTrue(library.detailLoads.isEmpty());
+   }
+
+   /**
+    * A failing listener fails the sync without updating the snapshot, the next sync can run.
+    */
+   @Test
+   public void listenerFailure() {
+      FakeLibrary library = new FakeLibrary(Collections.singletonList(album("b", "B")), Collections.emptyList());
+      LibrarySnapshot older = LibrarySnapshot.of(Collections.singletonList(album("a", "A")), Collections.emptyList());
+      AtomicBoolean failing = new AtomicBoolean(true);
+      List<String> events = new ArrayList<>();
+      LibrarySync sync = new LibrarySync(library, older, recording(events, failing));
+
+      AtomicReference<String> failure = new AtomicReference<>();
+      sync.sync(2, new RhapsodyCallback<LibraryDiff>() {
+
+         @Override
+         public void onSuccess(LibraryDiff data) {
+            Assert.fail("Expected a failure");
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            failure.set(message);
+         }
+      });
+      Assert.assertNotNull(failure.get());
+      Assert.assertSame(older, sync.getSnapshot());
+
+      failing.set(false);
+      LibraryDiff diff = sync(sync);
+      Assert.assertEquals(Collections.singletonList("b"), diff.getAddedAlbums());
+      Assert.assertTrue(sync.getSnapshot().containsAlbum("b"));
+   }
+
+   /**
+    * A server which returns fewer entries than requested doesn't end the listing, so no album or artist is reported
+    * as removed.
+    */
+   @Test
+   public void serverPageSize() {
+      List<AlbumData> albums = Arrays.asList(album("a", "A"), album("b", "B"), album("c", "C"));
+      FakeLibrary library = new FakeLibrary(albums, Arrays.asList(artist("x"), artist("y")));
+      library.maxPageSize = 1;
+      LibrarySnapshot older = LibrarySnapshot.of(albums, Arrays.asList(artist("x"), artist("y")));
+      LibrarySync sync = new LibrarySync(library, older, recording(new ArrayList<>(), null));
+
+      Assert.assertTrue(sync(sync, 100).isEmpty());
+      Assert.assertEquals(Arrays.asList("0", "1", "2", "3"), library.albumOffsets);
+      Assert.assertEquals(3, sync.getSnapshot().getAlbumCount());
+   }
+
+   private static LibraryDiff sync(LibrarySync sync) {
+      return sync(sync, 2);
+   }
+
+   private static LibraryDiff sync(LibrarySync sync, int pageSize) {
+      AtomicReference<LibraryDiff> result = new AtomicReference<>();
+      sync.sync(pageSize, new RhapsodyCallback<LibraryDiff>() {
+
+         @Override
+         public void onSuccess(LibraryDiff data) {
+            result.set(data);
+         }
+
+         @Override
+         public void onFailure(int httpCode, String message) {
+            Assert.fail(message);
+         }
+      });
+      Assert.assertNotNull(result.get());
+      return result.get();
+   }
+
+   private static LibrarySyncListener recording(List<String> events, AtomicBoolean failing) {
+      return new LibrarySyncListener() {
+
+         @Override
+         public void albumAdded(AlbumData album) {
+            events.add("added " + album.id);
+         }
+
+         @Override
+         public void albumChanged(AlbumData album) {
+            events.add("changed " + album.id);
+         }
+
+         @Override
+         public void albumRemoved(String albumId) {
+            if (failing != null && failing.get()) {
+               throw new IllegalStateException("Listener failed");
+            }
+            events.add("removed " + albumId);
+         }
+
+         @Override
+         public void artistAdded(String artistId) {
+            events.add("artist added " + artistId);
+         }
+
+         @Override
+         public void artistRemoved(String artistId) {
+            events.add("artist removed " + artistId);
+         }
+      };
+   }
+
+   private static AlbumData album(String id, String name) {
+      AlbumData album = new AlbumData();
+      album.id = id;
+      album.name = name;
+      return album;
+   }
+
+   private static Artist artist(String id) {
+      Artist artist = new Artist();
+      artist.id = id;
+      return artist;
+   }
+
+   /**
+    * Answers synchronously from fixed lists.
+    */
+   private static final class FakeLibrary implements LibrarySync.LibrarySource {
+      private final List<AlbumData> albums;
+      private final List<Artist> artists;
+      private final List<String> albumOffsets = new ArrayList<>();
+      private final List<String> artistOffsets = new ArrayList<>();
+      private final List<String> detailLoads = new ArrayList<>();
+      private int maxPageSize = Integer.MAX_VALUE;
+
+      FakeLibrary(List<AlbumData> albums, List<Artist> artists) {
+         this.albums = albums;
+         this.artists = artists;
+      }
+
+      @Override
+      public void loadAlbums(int offset, int limit, RhapsodyCallback<Collection<AlbumData>> callback) {
+         albumOffsets.add(String.valueOf(offset));
+         callback.onSuccess(page(albums, offset, limit));
+      }
+
+      @Override
+      public void loadArtists(int offset, int limit, RhapsodyCallback<Collection<Artist>> callback) {
+         artistOffsets.add(String.valueOf(offset));
+         callback.onSuccess(page(artists, offset, limit));
+      }
+
+      @Override
+      public void loadAlbum(String albumId, RhapsodyCallback<AlbumData> callback) {
+         detailLoads.add(albumId);
+         for (AlbumData album : albums) {
+            if (album.id.equals(albumId)) {
+               callback.onSuccess(album);
+               return;
+            }
+         }
+         callback.onFailure(404, "Not found");
+      }
+
+      private <T> Collection<T> page(List<T> list, int offset, int requestedLimit) {
+         int limit = Math.min(requestedLimit, maxPageSize);
+         return new ArrayList<>(list.subList(Math.min(offset, list.size()), Math.min(offset + limit, list.size())));
+      }
+   }
+}